@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.benchmarks;
+
+import org.onebusaway.io.client.ObaApi;
+import org.onebusaway.io.client.elements.ObaArrivalInfo;
+import org.onebusaway.io.client.request.ObaArrivalInfoResponse;
+import org.onebusaway.io.client.util.ArrivalInfo;
+import org.onebusaway.io.client.util.UIUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turning an arrivals-and-departures-for-stop response into what's displayed: the
+ * ArrivalInfo list from ArrivalInfo.convertObaArrivalInfo(), and the spoken summary from
+ * UIUtils.getArrivalInfoSummary(), with both ETA and clock time labels.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ArrivalInfoBenchmark {
+
+    private static final TimeZone TIME_ZONE = TimeZone.getTimeZone("America/New_York");
+
+    @Param({
+            "api/api/where/arrivals-and-departures-for-stop/Hillsborough Area Regional Transit_10001.json",
+            "api/api/where/arrivals-and-departures-for-stop/Hillsborough Area Regional Transit_6497.json",
+            "api/where/arrivals-and-departures-for-stop/1_75403.json"
+    })
+    public String fixture;
+
+    @Param({"false", "true"})
+    public boolean clockTime;
+
+    private ObaArrivalInfo[] mArrivals;
+
+    private long mCurrentTime;
+
+    private List<ArrivalInfo> mArrivalInfo;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObaArrivalInfoResponse response = ObaApi.getSerializer(ObaArrivalInfoResponse.class)
+                .deserialize(new ByteArrayInputStream(Fixtures.read(fixture)),
+                        ObaArrivalInfoResponse.class);
+        mArrivals = response.getArrivalInfo();
+        mCurrentTime = response.getCurrentTime();
+        mArrivalInfo = convert();
+    }
+
+    @Benchmark
+    public List<ArrivalInfo> convertObaArrivalInfo() {
+        return convert();
+    }
+
+    @Benchmark
+    public String getArrivalInfoSummary() {
+        return UIUtils.getArrivalInfoSummary(mArrivalInfo, "\n", clockTime, TIME_ZONE, null);
+    }
+
+    private List<ArrivalInfo> convert() {
+        return ArrivalInfo.convertObaArrivalInfo(mArrivals, null, mCurrentTime, true, clockTime,
+                TIME_ZONE);
+    }
+}
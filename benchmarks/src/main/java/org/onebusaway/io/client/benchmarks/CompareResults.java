@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compares two JMH JSON result files (written with "-rf json"), e.g. a stored baseline
+ * and the results for a change, and prints the change in each score.
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar org.onebusaway.io.client.benchmarks.CompareResults \
+ *     baseline.json jmh-result.json [threshold percent, default 10]
+ * </pre>
+ *
+ * A score is a regression if it's worse than the baseline by more than the threshold, and by
+ * more than the two scores' error margins combined. The exit status is 1 if there are any
+ * regressions, so this can fail a CI build.
+ */
+public final class CompareResults {
+
+    private static final double DEFAULT_THRESHOLD = 10;
+
+    private static final class Result {
+
+        final String mode;
+
+        final double score;
+
+        final double error;
+
+        final String unit;
+
+        Result(JsonNode node) {
+            mode = node.path("mode").asText();
+            JsonNode metric = node.path("primaryMetric");
+            score = metric.path("score").asDouble();
+            // JMH writes "NaN" when there weren't enough iterations to compute an error
+            double e = metric.path("scoreError").asDouble(0);
+            error = Double.isNaN(e) ? 0 : e;
+            unit = metric.path("scoreUnit").asText();
+        }
+
+        boolean higherIsBetter() {
+            return "thrpt".equals(mode);
+        }
+    }
+
+    private CompareResults() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || args.length > 3) {
+            System.err.println("Usage: CompareResults <baseline.json> <results.json> "
+                    + "[threshold percent]");
+            System.exit(2);
+        }
+        Map<String, Result> baseline = read(new File(args[0]));
+        Map<String, Result> current = read(new File(args[1]));
+        double threshold = args.length == 3 ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD;
+
+        int regressions = 0;
+        for (Map.Entry<String, Result> entry : current.entrySet()) {
+            Result now = entry.getValue();
+            Result before = baseline.get(entry.getKey());
+            if (before == null || !before.unit.equals(now.unit)) {
+                System.out.println(String.format("%-10s %s: %.3f %s", "NEW", entry.getKey(),
+                        now.score, now.unit));
+                continue;
+            }
+            double change = (now.score - before.score) / before.score * 100;
+            double worse = now.higherIsBetter() ? -change : change;
+            boolean significant = Math.abs(now.score - before.score) > before.error + now.error;
+            String status;
+            if (worse > threshold && significant) {
+                status = "REGRESSION";
+                regressions++;
+            } else if (worse < -threshold && significant) {
+                status = "IMPROVED";
+            } else {
+                status = "OK";
+            }
+            System.out.println(String.format("%-10s %s: %.3f -> %.3f %s (%+.1f%%)", status,
+                    entry.getKey(), before.score, now.score, now.unit, change));
+        }
+        for (String key : baseline.keySet()) {
+            if (!current.containsKey(key)) {
+                System.out.println(String.format("%-10s %s", "MISSING", key));
+            }
+        }
+        System.out.println(regressions + " regression(s) over " + threshold + "%");
+        System.exit(regressions > 0 ? 1 : 0);
+    }
+
+    /**
+     * @return The results in the file, keyed by benchmark name and parameters.
+     */
+    static Map<String, Result> read(File file) throws IOException {
+        Map<String, Result> results = new LinkedHashMap<String, Result>();
+        for (JsonNode node : new ObjectMapper().readTree(file)) {
+            StringBuilder key = new StringBuilder(node.path("benchmark").asText());
+            key.append(' ').append(node.path("mode").asText());
+            Iterator<Map.Entry<String, JsonNode>> params = node.path("params").fields();
+            while (params.hasNext()) {
+                Map.Entry<String, JsonNode> param = params.next();
+                key.append(' ').append(param.getKey()).append('=')
+                        .append(param.getValue().asText());
+            }
+            results.put(key.toString(), new Result(node));
+        }
+        return results;
+    }
+}
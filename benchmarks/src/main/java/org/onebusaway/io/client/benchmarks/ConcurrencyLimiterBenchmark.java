@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.benchmarks;
+
+import org.onebusaway.io.client.ObaApi;
+import org.onebusaway.io.client.ObaConnectionFactory;
+import org.onebusaway.io.client.ObaPooledConnectionFactory;
+import org.onebusaway.io.client.request.ConcurrencyLimiter;
+import org.onebusaway.io.client.request.ObaCurrentTimeRequest;
+import org.onebusaway.io.client.request.ObaCurrentTimeResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A load test of the ConcurrencyLimiter: 64 threads call a StubServer that can handle
+ * 8 requests at once in 20ms, and slows down with the square of any overload past that.
+ * Without a limit all 64 requests pile onto the server and its throughput collapses;
+ * with the limiter the client keeps the server near its capacity and the excess
+ * requests wait on the client. The limit it settled on is printed at the end of the run.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Threads(64)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ConcurrencyLimiterBenchmark {
+
+    @Param({"none", "aimd"})
+    public String limiter;
+
+    private StubServer mServer;
+
+    private ObaConnectionFactory mOldFactory;
+
+    private ObaPooledConnectionFactory mFactory;
+
+    private ConcurrencyLimiter mLimiter;
+
+    private URI mServerUri;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        mServer = new StubServer();
+        mServer.setDelay(20);
+        mServer.setCapacity(8);
+        mFactory = new ObaPooledConnectionFactory.Builder()
+                .setMaxConnectionsPerHost(64)
+                .build();
+        ObaApi.getDefaultContext().setBaseUrl(mServer.getBaseUrl());
+        mOldFactory = ObaApi.getDefaultContext().setConnectionFactory(mFactory);
+        if ("aimd".equals(limiter)) {
+            mLimiter = new ConcurrencyLimiter.Builder()
+                    .setLimits(1, 8, 64)
+                    .setQueue(64, 10, TimeUnit.SECONDS)
+                    .build();
+        }
+        ObaApi.getDefaultContext().setConcurrencyLimiter(mLimiter);
+        mServerUri = new URI(mServer.getBaseUrl());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (mLimiter != null) {
+            System.out.println("Final limit " + mLimiter.getLimit(mServerUri));
+        }
+        ObaApi.getDefaultContext().setConcurrencyLimiter(null);
+        ObaApi.getDefaultContext().setConnectionFactory(mOldFactory);
+        mFactory.shutdown();
+        mServer.stop();
+    }
+
+    @Benchmark
+    public ObaCurrentTimeResponse requests() {
+        return ObaCurrentTimeRequest.newRequest().call();
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.benchmarks;
+
+import org.onebusaway.io.client.ObaApi;
+import org.onebusaway.io.client.ObaConnectionFactory;
+import org.onebusaway.io.client.ObaDefaultConnectionFactory;
+import org.onebusaway.io.client.ObaPooledConnectionFactory;
+import org.onebusaway.io.client.request.ObaCurrentTimeRequest;
+import org.onebusaway.io.client.request.ObaCurrentTimeResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares ObaDefaultConnectionFactory (a new HttpURLConnection per call) with
+ * ObaPooledConnectionFactory (keep-alive connections) against a local StubServer.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Threads(4)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ConnectionFactoryBenchmark {
+
+    @Param({"default", "pooled"})
+    public String factory;
+
+    private StubServer mServer;
+
+    private ObaConnectionFactory mFactory;
+
+    private ObaConnectionFactory mOldFactory;
+
+    private ObaCurrentTimeRequest mRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        mServer = new StubServer();
+        if ("pooled".equals(factory)) {
+            mFactory = new ObaPooledConnectionFactory.Builder()
+                    .setMaxConnectionsPerHost(8)
+                    .build();
+        } else {
+            mFactory = ObaDefaultConnectionFactory.getInstance();
+        }
+        ObaApi.getDefaultContext().setBaseUrl(mServer.getBaseUrl());
+        mOldFactory = ObaApi.getDefaultContext().setConnectionFactory(mFactory);
+        mRequest = ObaCurrentTimeRequest.newRequest();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ObaApi.getDefaultContext().setConnectionFactory(mOldFactory);
+        if (mFactory instanceof ObaPooledConnectionFactory) {
+            ((ObaPooledConnectionFactory) mFactory).shutdown();
+        }
+        mServer.stop();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public ObaCurrentTimeResponse requestsPerSecond() {
+        return mRequest.call();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public ObaCurrentTimeResponse latency() {
+        return mRequest.call();
+    }
+}
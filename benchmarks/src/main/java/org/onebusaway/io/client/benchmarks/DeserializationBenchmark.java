@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.benchmarks;
+
+import org.onebusaway.io.client.ObaApi;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deserializes every JSON fixture under src/test/resources/api, from a Reader as the connections
+ * provide it, with the serializer ObaApi.getSerializer() returns for its response class.  Add new
+ * fixtures to the list below.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DeserializationBenchmark {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    @Param({
+            "api/api/where/arrivals-and-departures-for-stop/1_10020.json",
+            "api/api/where/arrivals-and-departures-for-stop/1_29261.json",
+            "api/api/where/arrivals-and-departures-for-stop/1_75403.json",
+            "api/api/where/arrivals-and-departures-for-stop/Hillsborough Area Regional Transit_10000.json",
+            "api/api/where/arrivals-and-departures-for-stop/Hillsborough Area Regional Transit_10001.json",
+            "api/api/where/arrivals-and-departures-for-stop/Hillsborough Area Regional Transit_1622.json",
+            "api/api/where/arrivals-and-departures-for-stop/Hillsborough Area Regional Transit_3105.json",
+            "api/api/where/arrivals-and-departures-for-stop/Hillsborough Area Regional Transit_6497.json",
+            "api/api/where/arrivals-and-departures-for-stop/PSTA_4077.json",
+            "api/api/where/route/Hillsborough Area Regional Transit_5.json",
+            "api/api/where/trips-for-route/Hillsborough Area Regional Transit_5.json",
+            "api/where/agencies-with-coverage.json",
+            "api/where/agencies_with_coverage_tampa.json",
+            "api/where/agency/1.json",
+            "api/where/arrivals-and-departures-for-stop/1_10020.json",
+            "api/where/arrivals-and-departures-for-stop/1_29261.json",
+            "api/where/arrivals-and-departures-for-stop/1_404test.json",
+            "api/where/arrivals-and-departures-for-stop/1_75403.json",
+            "api/where/current-time.json",
+            "api/where/route-ids-for-agency/40.json",
+            "api/where/route/1_10.json",
+            "api/where/routes-for-location.json",
+            "api/where/schedule-for-stop/1_75403.json",
+            "api/where/shape/1_40046045.json",
+            "api/where/stop-ids-for-agency/40.json",
+            "api/where/stop/1_29261.json",
+            "api/where/stop/404test.json",
+            "api/where/stops-for-location.json",
+            "api/where/stops-for-route/1_44.json",
+            "api/where/stops-for-route/1_45.json",
+            "api/where/stops_for_location_downtown_seattle1.json",
+            "api/where/stops_for_location_outofrange.json",
+            "api/where/stops_for_location_query.json",
+            "api/where/stops_for_location_queryfail.json",
+            "api/where/trip-details/1_18196913.json",
+            "api/where/trip-details/1_18196913_no_schedule.json",
+            "api/where/trip-details/1_18196913_no_status.json",
+            "api/where/trip-details/1_18196913_no_trip.json",
+            "api/where/trip/1_18196913.json",
+            "api/where/trips-for-location.json",
+            "api/where/trips_for_location_outofrange.json"
+    })
+    public String fixture;
+
+    private byte[] mBytes;
+
+    private Class<?> mClass;
+
+    private ObaApi.SerializationHandler mSerializer;
+
+    @Setup
+    public void setUp() throws IOException {
+        mBytes = Fixtures.read(fixture);
+        mClass = Fixtures.responseClass(fixture);
+        mSerializer = ObaApi.getSerializer(mClass);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        InputStreamReader reader = new InputStreamReader(new ByteArrayInputStream(mBytes), UTF8);
+        return mSerializer.deserialize(reader, mClass);
+    }
+}
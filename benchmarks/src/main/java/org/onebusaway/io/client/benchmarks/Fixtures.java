@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.benchmarks;
+
+import org.onebusaway.io.client.request.ObaAgenciesWithCoverageResponse;
+import org.onebusaway.io.client.request.ObaAgencyResponse;
+import org.onebusaway.io.client.request.ObaArrivalInfoResponse;
+import org.onebusaway.io.client.request.ObaCurrentTimeResponse;
+import org.onebusaway.io.client.request.ObaRouteIdsForAgencyResponse;
+import org.onebusaway.io.client.request.ObaRouteResponse;
+import org.onebusaway.io.client.request.ObaRoutesForLocationResponse;
+import org.onebusaway.io.client.request.ObaScheduleForStopResponse;
+import org.onebusaway.io.client.request.ObaShapeResponse;
+import org.onebusaway.io.client.request.ObaStopIdsForAgencyResponse;
+import org.onebusaway.io.client.request.ObaStopResponse;
+import org.onebusaway.io.client.request.ObaStopsForLocationResponse;
+import org.onebusaway.io.client.request.ObaStopsForRouteResponse;
+import org.onebusaway.io.client.request.ObaTripDetailsResponse;
+import org.onebusaway.io.client.request.ObaTripResponse;
+import org.onebusaway.io.client.request.ObaTripsForLocationResponse;
+import org.onebusaway.io.client.request.ObaTripsForRouteResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Loads the API response fixtures from src/test/resources/api, which the benchmarks
+ * module packages onto its classpath.
+ */
+public final class Fixtures {
+
+    // The response class for the fixtures of each REST API method
+    private static final Map<String, Class<?>> RESPONSE_CLASSES = new HashMap<String, Class<?>>();
+
+    static {
+        RESPONSE_CLASSES.put("agencies-with-coverage", ObaAgenciesWithCoverageResponse.class);
+        RESPONSE_CLASSES.put("agency", ObaAgencyResponse.class);
+        RESPONSE_CLASSES.put("arrivals-and-departures-for-stop", ObaArrivalInfoResponse.class);
+        RESPONSE_CLASSES.put("current-time", ObaCurrentTimeResponse.class);
+        RESPONSE_CLASSES.put("route", ObaRouteResponse.class);
+        RESPONSE_CLASSES.put("route-ids-for-agency", ObaRouteIdsForAgencyResponse.class);
+        RESPONSE_CLASSES.put("routes-for-location", ObaRoutesForLocationResponse.class);
+        RESPONSE_CLASSES.put("schedule-for-stop", ObaScheduleForStopResponse.class);
+        RESPONSE_CLASSES.put("shape", ObaShapeResponse.class);
+        RESPONSE_CLASSES.put("stop", ObaStopResponse.class);
+        RESPONSE_CLASSES.put("stop-ids-for-agency", ObaStopIdsForAgencyResponse.class);
+        RESPONSE_CLASSES.put("stops-for-location", ObaStopsForLocationResponse.class);
+        RESPONSE_CLASSES.put("stops-for-route", ObaStopsForRouteResponse.class);
+        RESPONSE_CLASSES.put("trip", ObaTripResponse.class);
+        RESPONSE_CLASSES.put("trip-details", ObaTripDetailsResponse.class);
+        RESPONSE_CLASSES.put("trips-for-location", ObaTripsForLocationResponse.class);
+        RESPONSE_CLASSES.put("trips-for-route", ObaTripsForRouteResponse.class);
+    }
+
+    private Fixtures() {
+        throw new AssertionError();
+    }
+
+    /**
+     * @param path The fixture path relative to src/test/resources,
+     *             e.g. "api/where/stops-for-location.json"
+     * @return The raw bytes of the fixture
+     */
+    public static byte[] read(String path) throws IOException {
+        InputStream stream = Fixtures.class.getClassLoader().getResourceAsStream(path);
+        if (stream == null) {
+            throw new IOException("Fixture not found: " + path);
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8 * 1024];
+            int n;
+            while ((n = stream.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * Returns the response class for a fixture, from the REST API method in its path.
+     * Fixtures named after a variation of the method, e.g.
+     * "api/where/stops_for_location_outofrange.json", are matched too.
+     *
+     * @param path The fixture path relative to src/test/resources
+     * @return The response class to deserialize the fixture into
+     */
+    public static Class<?> responseClass(String path) {
+        String method = path.substring(path.lastIndexOf("/where/") + "/where/".length());
+        int slash = method.indexOf('/');
+        if (slash >= 0) {
+            method = method.substring(0, slash);
+        } else {
+            method = method.substring(0, method.lastIndexOf('.'));
+        }
+        method = method.replace('_', '-');
+        // Longest matching method name, so "stops-for-location" wins over "stop"
+        Class<?> result = null;
+        int resultLength = 0;
+        for (Map.Entry<String, Class<?>> entry : RESPONSE_CLASSES.entrySet()) {
+            String key = entry.getKey();
+            if (key.length() > resultLength
+                    && (method.equals(key) || method.startsWith(key + "-"))) {
+                result = entry.getValue();
+                resultLength = key.length();
+            }
+        }
+        if (result == null) {
+            throw new IllegalArgumentException("No response class for fixture: " + path);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.benchmarks;
+
+import org.onebusaway.io.client.request.RateLimiter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contention on RateLimiter.tryAcquire() from many threads, compared with a token bucket
+ * guarded by a lock. The rate is high enough that nearly every call gets a token, so this
+ * measures the cost of taking one. Run with e.g. -t 256 to try other thread counts.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Threads(64)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RateLimiterBenchmark {
+
+    private static final String[] ENDPOINTS = {
+            "arrivals-and-departures-for-stop", "trips-for-route", "stop", "route"
+    };
+
+    /**
+     * The straightforward token bucket, refilled on each call under a lock
+     */
+    static final class SynchronizedBucket {
+
+        private final double mPerNano;
+
+        private final double mBurst;
+
+        private double mTokens;
+
+        private long mLast = System.nanoTime();
+
+        SynchronizedBucket(double perSecond, int burst) {
+            mPerNano = perSecond / TimeUnit.SECONDS.toNanos(1);
+            mBurst = burst;
+            mTokens = burst;
+        }
+
+        synchronized boolean tryAcquire() {
+            long now = System.nanoTime();
+            mTokens = Math.min(mBurst, mTokens + (now - mLast) * mPerNano);
+            mLast = now;
+            if (mTokens >= 1) {
+                mTokens--;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private final RateLimiter mShared = new RateLimiter.Builder()
+            .setRate(1e9, 10000)
+            .build();
+
+    private final RateLimiter mPerEndpoint;
+
+    private final SynchronizedBucket mSynchronized = new SynchronizedBucket(1e9, 10000);
+
+    public RateLimiterBenchmark() {
+        RateLimiter.Builder builder = new RateLimiter.Builder();
+        for (String endpoint : ENDPOINTS) {
+            builder.setRate(endpoint, 1e9, 10000);
+        }
+        mPerEndpoint = builder.build();
+    }
+
+    /**
+     * Every thread takes tokens from the same bucket
+     */
+    @Benchmark
+    public boolean lockFreeShared() {
+        return mShared.tryAcquire("key", "trips-for-route");
+    }
+
+    /**
+     * The threads are spread over four endpoints with buckets of their own
+     */
+    @Benchmark
+    public boolean lockFreePerEndpoint() {
+        String endpoint = ENDPOINTS[ThreadLocalRandom.current().nextInt(ENDPOINTS.length)];
+        return mPerEndpoint.tryAcquire("key", endpoint);
+    }
+
+    @Benchmark
+    public boolean synchronizedShared() {
+        return mSynchronized.tryAcquire();
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.benchmarks;
+
+import org.onebusaway.io.client.ObaApi;
+import org.onebusaway.io.client.elements.ObaReferencesElement;
+import org.onebusaway.io.client.elements.ObaStop;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dereferencing stop IDs from a synthetic references block, using the hash indexes
+ * in ObaReferencesElement compared with the linear search it used to do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ReferencesBenchmark {
+
+    /**
+     * The number of stops in the references block
+     */
+    @Param({"100", "10000"})
+    public int size;
+
+    /**
+     * The number of IDs dereferenced in the batch benchmarks, e.g. the stops on a route
+     */
+    @Param({"200"})
+    public int batch;
+
+    private ObaReferencesElement mRefs;
+
+    private ObaStop[] mStopArray;
+
+    private String[] mBatchIds;
+
+    private String mId;
+
+    @Setup
+    public void setUp() {
+        mRefs = createReferences(size);
+        String[] allIds = new String[size];
+        for (int i = 0; i < size; i++) {
+            allIds[i] = "1_" + i;
+        }
+        mStopArray = mRefs.getStops(allIds).toArray(new ObaStop[size]);
+
+        Random random = new Random(42);
+        mBatchIds = new String[batch];
+        for (int i = 0; i < batch; i++) {
+            mBatchIds[i] = allIds[random.nextInt(size)];
+        }
+        mId = allIds[size / 2];
+    }
+
+    /**
+     * Builds a references block with the given number of stops, routes and trips
+     */
+    public static ObaReferencesElement createReferences(int size) {
+        StringBuilder json = new StringBuilder("{\"stops\":[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":\"1_").append(i).append("\",\"name\":\"Stop ").append(i)
+                    .append("\",\"lat\":47.6,\"lon\":-122.3,\"routeIds\":[\"1_")
+                    .append(i % 100).append("\"]}");
+        }
+        json.append("],\"routes\":[");
+        for (int i = 0; i < 100; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":\"1_").append(i).append("\",\"shortName\":\"").append(i)
+                    .append("\",\"agencyId\":\"1\"}");
+        }
+        json.append("],\"trips\":[],\"agencies\":[{\"id\":\"1\"}],\"situations\":[]}");
+        return ObaApi.getSerializer(ObaReferencesElement.class)
+                .deserialize(new StringReader(json.toString()), ObaReferencesElement.class);
+    }
+
+    @Benchmark
+    public ObaStop indexedGetStop() {
+        return mRefs.getStop(mId);
+    }
+
+    @Benchmark
+    public List<ObaStop> indexedGetStops() {
+        return mRefs.getStops(mBatchIds);
+    }
+
+    @Benchmark
+    public ObaStop linearGetStop() {
+        return findById(mStopArray, mId);
+    }
+
+    @Benchmark
+    public List<ObaStop> linearGetStops() {
+        ArrayList<ObaStop> result = new ArrayList<ObaStop>();
+        for (String id : mBatchIds) {
+            ObaStop stop = findById(mStopArray, id);
+            if (stop != null) {
+                result.add(stop);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The linear search that ObaReferencesElement used before it was indexed
+     */
+    private static ObaStop findById(ObaStop[] objects, String id) {
+        final int len = objects.length;
+        for (int i = 0; i < len; ++i) {
+            final ObaStop obj = objects[i];
+            if (obj.getId().equals(id)) {
+                return obj;
+            }
+        }
+        return null;
+    }
+}
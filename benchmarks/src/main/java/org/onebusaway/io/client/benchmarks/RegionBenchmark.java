@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.benchmarks;
+
+import org.onebusaway.io.client.ObaApi;
+import org.onebusaway.io.client.elements.ObaRegion;
+import org.onebusaway.io.client.request.ObaRegionsResponse;
+import org.onebusaway.io.client.util.LocationUtil;
+import org.onebusaway.io.client.util.RegionResolver;
+import org.onebusaway.io.client.util.RegionUtils;
+import org.onebusaway.location.Location;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RegionUtils.getClosestRegion() over the regions bundled with the library
+ * (regions_v3.json), from locations in and far outside of OneBusAway regions, compared
+ * with the same query on a RegionResolver built from them.  Run with -prof gc to see
+ * that the resolver doesn't allocate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RegionBenchmark {
+
+    private static final double[] LOCATIONS = {
+            47.6097, -122.3331,  // Seattle
+            27.9506, -82.4572,   // Tampa
+            40.7128, -74.0060,   // New York
+            33.7490, -84.3880,   // Atlanta
+            51.5074, -0.1278,    // London, outside every region
+            -33.8688, 151.2093   // Sydney, outside every region
+    };
+
+    private List<ObaRegion> mRegions;
+
+    private RegionResolver mResolver;
+
+    private Location[] mLocations;
+
+    private int mNext;
+
+    private PrintStream mOut;
+
+    private PrintStream mErr;
+
+    @Setup
+    public void setUp() throws IOException {
+        mRegions = Arrays.asList(ObaApi.getSerializer(ObaRegionsResponse.class)
+                .deserialize(new ByteArrayInputStream(Fixtures.read("regions_v3.json")),
+                        ObaRegionsResponse.class).getRegions());
+        mResolver = new RegionResolver(mRegions);
+        mLocations = new Location[LOCATIONS.length / 2];
+        for (int i = 0; i < mLocations.length; i++) {
+            mLocations[i] = LocationUtil.makeLocation(LOCATIONS[i * 2], LOCATIONS[i * 2 + 1]);
+        }
+
+        // getClosestRegion() logs every region it considers. Keep that out of the
+        // benchmark's output, while still paying for building the messages.
+        mOut = System.out;
+        mErr = System.err;
+        PrintStream discard = new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        });
+        System.setOut(discard);
+        System.setErr(discard);
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(mOut);
+        System.setErr(mErr);
+    }
+
+    @Benchmark
+    public ObaRegion getClosestRegion() {
+        mNext = (mNext + 1) % mLocations.length;
+        return RegionUtils.getClosestRegion(mRegions, mLocations[mNext], true, true);
+    }
+
+    @Benchmark
+    public ObaRegion resolverClosestRegion() {
+        mNext = (mNext + 1) % mLocations.length;
+        return mResolver.getClosestRegion(mLocations[mNext], true, true);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.benchmarks;
+
+import org.onebusaway.io.client.JacksonSerializer;
+import org.onebusaway.io.client.ObaApi;
+import org.onebusaway.io.client.StreamingSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the hand-written readers StreamingSerializer uses with JacksonSerializer's
+ * reflective binding, from raw bytes, over fixtures of each response class they support.
+ * The FirstCall benchmarks time the first response read in each of several fresh JVMs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ResponseReaderBenchmark {
+
+    @Param({
+            "api/api/where/arrivals-and-departures-for-stop/Hillsborough Area Regional Transit_10001.json",
+            "api/where/arrivals-and-departures-for-stop/1_75403.json",
+            "api/api/where/trips-for-route/Hillsborough Area Regional Transit_5.json",
+            "api/where/trip-details/1_18196913.json",
+            "api/where/stop/1_29261.json",
+            "api/where/route/1_10.json"
+    })
+    public String fixture;
+
+    private byte[] mBytes;
+
+    private Class<?> mClass;
+
+    private ObaApi.SerializationHandler mJackson;
+
+    private ObaApi.SerializationHandler mStreaming;
+
+    @Setup
+    public void setUp() throws IOException {
+        mBytes = Fixtures.read(fixture);
+        mClass = Fixtures.responseClass(fixture);
+        mJackson = JacksonSerializer.getInstance();
+        mStreaming = StreamingSerializer.getInstance();
+    }
+
+    @Benchmark
+    public Object jackson() {
+        return mJackson.deserialize(new ByteArrayInputStream(mBytes), mClass);
+    }
+
+    @Benchmark
+    public Object responseReader() {
+        return mStreaming.deserialize(new ByteArrayInputStream(mBytes), mClass);
+    }
+
+    /**
+     * The first response a fresh JVM reads, which for Jackson includes introspecting
+     * the response and element classes to build their deserializers
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Fork(10)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    public Object jacksonFirstCall() {
+        return jackson();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Fork(10)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    public Object responseReaderFirstCall() {
+        return responseReader();
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.benchmarks;
+
+import org.onebusaway.io.client.ObaApi;
+import org.onebusaway.io.client.elements.ObaShapeElement;
+import org.onebusaway.io.client.request.ObaShapeResponse;
+import org.onebusaway.location.Location;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Walks every point of a shape, as a map renderer would, using the Location list that
+ * getPoints() used to decode on every call, decoding to a primitive array, and reading
+ * from the array ObaShapeElement caches.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ShapeBenchmark {
+
+    private ObaShapeResponse mShape;
+
+    private double[] mBuffer;
+
+    @Setup
+    public void setUp() throws IOException {
+        byte[] bytes = Fixtures.read("api/where/shape/1_40046045.json");
+        mShape = ObaApi.getSerializer(ObaShapeResponse.class)
+                .deserialize(new ByteArrayInputStream(bytes), ObaShapeResponse.class);
+        mBuffer = new double[mShape.getPointCount() * 2];
+    }
+
+    @Benchmark
+    public double decodeLocations() {
+        List<Location> points = ObaShapeElement.decodeLine(mShape.getRawPoints(),
+                mShape.getLength());
+        double sum = 0;
+        for (Location l : points) {
+            sum += l.getLatitude() + l.getLongitude();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double decodeE5() {
+        int[] points = ObaShapeElement.decodeLineE5(mShape.getRawPoints(), mShape.getLength());
+        long sum = 0;
+        for (int i = 0; i < points.length; i++) {
+            sum += points[i];
+        }
+        return sum / 1E5;
+    }
+
+    @Benchmark
+    public double cachedAccessors() {
+        double sum = 0;
+        final int count = mShape.getPointCount();
+        for (int i = 0; i < count; i++) {
+            sum += mShape.getLatitude(i) + mShape.getLongitude(i);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double cachedBulk() {
+        mShape.getPoints(mBuffer, 0);
+        double sum = 0;
+        for (int i = 0; i < mBuffer.length; i++) {
+            sum += mBuffer[i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.benchmarks;
+
+import org.onebusaway.io.client.util.SpatialIndex;
+import org.onebusaway.location.Location;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares nearest-10, 500m radius and bounding box queries on a SpatialIndex with a linear
+ * scan calling Location.distanceBetween() on every stop, over stops spread across a
+ * Seattle-sized area.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SpatialIndexBenchmark {
+
+    private static final int QUERIES = 64;
+
+    private static final int K = 10;
+
+    private static final double RADIUS = 500;
+
+    private static final class Stop {
+
+        final String id;
+
+        final double lat;
+
+        final double lon;
+
+        Stop(String id, double lat, double lon) {
+            this.id = id;
+            this.lat = lat;
+            this.lon = lon;
+        }
+    }
+
+    private static final class Candidate {
+
+        final Stop stop;
+
+        final float distance;
+
+        Candidate(Stop stop, float distance) {
+            this.stop = stop;
+            this.distance = distance;
+        }
+    }
+
+    private static final SpatialIndex.Locator<Stop> LOCATOR = new SpatialIndex.Locator<Stop>() {
+        @Override
+        public String getId(Stop stop) {
+            return stop.id;
+        }
+
+        @Override
+        public boolean getPosition(Stop stop, double[] result) {
+            result[0] = stop.lat;
+            result[1] = stop.lon;
+            return true;
+        }
+    };
+
+    @Param({"1000", "10000"})
+    public int stops;
+
+    private List<Stop> mStops;
+
+    private SpatialIndex<Stop> mIndex;
+
+    private double[] mQueries;
+
+    private int mNext;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        mStops = new ArrayList<Stop>(stops);
+        mIndex = new SpatialIndex<Stop>(LOCATOR, 500);
+        for (int i = 0; i < stops; i++) {
+            Stop stop = new Stop(Integer.toString(i), 47.4 + random.nextDouble() * 0.4,
+                    -122.45 + random.nextDouble() * 0.3);
+            mStops.add(stop);
+            mIndex.put(stop);
+        }
+        mQueries = new double[QUERIES * 2];
+        for (int i = 0; i < QUERIES; i++) {
+            mQueries[i * 2] = 47.4 + random.nextDouble() * 0.4;
+            mQueries[i * 2 + 1] = -122.45 + random.nextDouble() * 0.3;
+        }
+    }
+
+    @Benchmark
+    public Object nearestIndexed() {
+        int q = nextQuery();
+        return mIndex.nearest(mQueries[q], mQueries[q + 1], K);
+    }
+
+    @Benchmark
+    public Object nearestLinear() {
+        int q = nextQuery();
+        float[] results = new float[1];
+        PriorityQueue<Candidate> best = new PriorityQueue<Candidate>(K + 1,
+                new Comparator<Candidate>() {
+                    @Override
+                    public int compare(Candidate a, Candidate b) {
+                        return Float.compare(b.distance, a.distance);
+                    }
+                });
+        for (Stop stop : mStops) {
+            Location.distanceBetween(mQueries[q], mQueries[q + 1], stop.lat, stop.lon, results);
+            best.add(new Candidate(stop, results[0]));
+            if (best.size() > K) {
+                best.poll();
+            }
+        }
+        return best;
+    }
+
+    @Benchmark
+    public Object radiusIndexed() {
+        int q = nextQuery();
+        return mIndex.withinRadius(mQueries[q], mQueries[q + 1], RADIUS);
+    }
+
+    @Benchmark
+    public Object radiusLinear() {
+        int q = nextQuery();
+        float[] results = new float[1];
+        List<Stop> matches = new ArrayList<Stop>();
+        for (Stop stop : mStops) {
+            Location.distanceBetween(mQueries[q], mQueries[q + 1], stop.lat, stop.lon, results);
+            if (results[0] <= RADIUS) {
+                matches.add(stop);
+            }
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public Object boxIndexed() {
+        int q = nextQuery();
+        return mIndex.withinBox(mQueries[q], mQueries[q + 1], mQueries[q] + 0.01,
+                mQueries[q + 1] + 0.015);
+    }
+
+    @Benchmark
+    public Object boxLinear() {
+        int q = nextQuery();
+        final double minLat = mQueries[q], minLon = mQueries[q + 1];
+        final double maxLat = minLat + 0.01, maxLon = minLon + 0.015;
+        List<Stop> matches = new ArrayList<Stop>();
+        for (Stop stop : mStops) {
+            if (stop.lat >= minLat && stop.lat <= maxLat
+                    && stop.lon >= minLon && stop.lon <= maxLon) {
+                matches.add(stop);
+            }
+        }
+        return matches;
+    }
+
+    private int nextQuery() {
+        mNext = (mNext + 1) % QUERIES;
+        return mNext * 2;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.benchmarks;
+
+import org.onebusaway.io.client.ObaApi;
+import org.onebusaway.io.client.ObaConnectionFactory;
+import org.onebusaway.io.client.request.ObaArrivalInfoResponse;
+import org.onebusaway.io.client.request.StopPoller;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How long a StopPoller takes to poll every one of 1,000 or 20,000 stops once and push
+ * the response to each of their listeners, with 3 listeners per stop, on 1 or 4 threads.
+ * The responses come from a StubConnectionFactory, either straight away, which is the
+ * poller's own throughput, deserialization included, or after 100ms, which stands in for
+ * a server's latency.  The number of requests is printed at the end of the run, and
+ * matches the number of stops polled however many listeners share them.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class StopPollerBenchmark {
+
+    private static final int LISTENERS_PER_STOP = 3;
+
+    @Param({"1000", "20000"})
+    public int stops;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    @Param({"0", "100"})
+    public long latencyMillis;
+
+    private ObaConnectionFactory mOldFactory;
+
+    private StubConnectionFactory mFactory;
+
+    private long mPolls;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        mFactory = new StubConnectionFactory(
+                Fixtures.read("api/where/arrivals-and-departures-for-stop/1_75403.json"),
+                latencyMillis);
+        mOldFactory = ObaApi.getDefaultContext().setConnectionFactory(mFactory);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.println(mFactory.getConnectionCount() + " requests for " + mPolls
+                + " stop polls");
+        ObaApi.getDefaultContext().setConnectionFactory(mOldFactory);
+    }
+
+    @Benchmark
+    public long pollEveryStop() throws InterruptedException {
+        StopPoller poller = new StopPoller.Builder()
+                .setInterval(1, TimeUnit.HOURS)
+                .setJitter(0)
+                .setThreads(threads)
+                .build();
+        final CountDownLatch delivered = new CountDownLatch(stops * LISTENERS_PER_STOP);
+        StopPoller.Listener listener = new StopPoller.Listener() {
+            @Override
+            public void onArrivalInfo(String stopId, ObaArrivalInfoResponse response) {
+                delivered.countDown();
+            }
+        };
+        for (int i = 0; i < stops; i++) {
+            for (int j = 0; j < LISTENERS_PER_STOP; j++) {
+                poller.subscribe("1_" + i, listener);
+            }
+        }
+        delivered.await();
+        poller.shutdown();
+        mPolls += poller.getPollCount();
+        return poller.getPollCount();
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.benchmarks;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.VisibilityChecker;
+import com.fasterxml.jackson.databind.node.TreeTraversingParser;
+
+import org.onebusaway.io.client.JacksonSerializer;
+import org.onebusaway.io.client.ObaApi;
+import org.onebusaway.io.client.request.ObaArrivalInfoResponse;
+import org.onebusaway.io.client.request.ObaStopsForLocationResponse;
+import org.onebusaway.io.client.request.ObaTripsForRouteResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compares the streaming deserialization in JacksonSerializer with the previous approach
+ * of reading the whole response into a JsonNode tree and then binding from the tree, and
+ * shows the cost of decompressing a gzipped response on the way.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class StreamingDeserializationBenchmark {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    @Param({"trips-for-route", "stops-for-location", "arrivals-and-departures-for-stop"})
+    public String fixture;
+
+    private byte[] mBytes;
+
+    private byte[] mGzipped;
+
+    private Class<?> mClass;
+
+    private ObaApi.SerializationHandler mSerializer;
+
+    private ObjectMapper mTreeMapper;
+
+    @Setup
+    public void setUp() throws IOException {
+        String path;
+        if ("trips-for-route".equals(fixture)) {
+            path = "api/api/where/trips-for-route/Hillsborough Area Regional Transit_5.json";
+            mClass = ObaTripsForRouteResponse.class;
+        } else if ("stops-for-location".equals(fixture)) {
+            path = "api/where/stops-for-location.json";
+            mClass = ObaStopsForLocationResponse.class;
+        } else {
+            path = "api/api/where/arrivals-and-departures-for-stop/Hillsborough Area Regional Transit_10001.json";
+            mClass = ObaArrivalInfoResponse.class;
+        }
+        mBytes = Fixtures.read(path);
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        GZIPOutputStream out = new GZIPOutputStream(gzipped);
+        out.write(mBytes);
+        out.close();
+        mGzipped = gzipped.toByteArray();
+        // ObaApi.getSerializer() would return StreamingSerializer for some of these
+        mSerializer = JacksonSerializer.getInstance();
+
+        // Configured the same way as JacksonSerializer
+        mTreeMapper = new ObjectMapper();
+        mTreeMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        mTreeMapper.setVisibilityChecker(VisibilityChecker.Std.defaultInstance()
+                .withFieldVisibility(JsonAutoDetect.Visibility.ANY));
+    }
+
+    @Benchmark
+    public Object tree() throws IOException {
+        InputStreamReader reader = new InputStreamReader(new ByteArrayInputStream(mBytes), UTF8);
+        TreeTraversingParser parser = new TreeTraversingParser(mTreeMapper.readTree(reader));
+        parser.setCodec(mTreeMapper);
+        return parser.readValueAs(mClass);
+    }
+
+    @Benchmark
+    public Object streamingReader() {
+        InputStreamReader reader = new InputStreamReader(new ByteArrayInputStream(mBytes), UTF8);
+        return mSerializer.deserialize(reader, mClass);
+    }
+
+    @Benchmark
+    public Object streamingBytes() {
+        return mSerializer.deserialize(new ByteArrayInputStream(mBytes), mClass);
+    }
+
+    /**
+     * A gzip-compressed response, decompressed as it's deserialized
+     */
+    @Benchmark
+    public Object streamingGzip() throws IOException {
+        return mSerializer.deserialize(
+                new GZIPInputStream(new ByteArrayInputStream(mGzipped), 8 * 1024), mClass);
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.benchmarks;
+
+import org.onebusaway.io.client.ObaConnection;
+import org.onebusaway.io.client.ObaConnectionFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An ObaConnectionFactory that answers every request with the same canned body without
+ * going near the network, so that a benchmark measures the client's own overhead.  It
+ * can also hold each response back for a fixed time, to stand in for a server's latency.
+ */
+public class StubConnectionFactory implements ObaConnectionFactory {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final byte[] mBody;
+
+    private final long mDelayMillis;
+
+    private final AtomicLong mConnections = new AtomicLong();
+
+    /**
+     * @param body The response body, e.g. from Fixtures.read()
+     */
+    public StubConnectionFactory(byte[] body) {
+        this(body, 0);
+    }
+
+    /**
+     * @param body        The response body, e.g. from Fixtures.read()
+     * @param delayMillis How long each request waits before its response is returned
+     */
+    public StubConnectionFactory(byte[] body, long delayMillis) {
+        mBody = body;
+        mDelayMillis = delayMillis;
+    }
+
+    /**
+     * @return The number of connections made
+     */
+    public long getConnectionCount() {
+        return mConnections.get();
+    }
+
+    @Override
+    public ObaConnection newConnection(URI uri) throws IOException {
+        mConnections.incrementAndGet();
+        return new ObaConnection() {
+            @Override
+            public void disconnect() {
+            }
+
+            @Override
+            public void setRequestProperty(String name, String value) {
+            }
+
+            @Override
+            public Reader get() throws IOException {
+                return new InputStreamReader(getStream(), UTF_8);
+            }
+
+            @Override
+            public Reader post(String string) throws IOException {
+                return get();
+            }
+
+            @Override
+            public InputStream getStream() throws IOException {
+                if (mDelayMillis > 0) {
+                    try {
+                        Thread.sleep(mDelayMillis);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException();
+                    }
+                }
+                return new ByteArrayInputStream(mBody);
+            }
+
+            @Override
+            public InputStream postStream(String string) throws IOException {
+                return getStream();
+            }
+
+            @Override
+            public int getResponseCode() {
+                return 200;
+            }
+
+            @Override
+            public String getHeaderField(String name) {
+                return null;
+            }
+
+            @Override
+            public long getBytesReceived() {
+                return mBody.length;
+            }
+
+            @Override
+            public long getConnectNanos() {
+                return 0;
+            }
+        };
+    }
+}
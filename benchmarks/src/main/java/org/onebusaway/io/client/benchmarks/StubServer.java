@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.benchmarks;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A local HTTP server that answers every request with the same canned OBA response,
+ * so that the transport benchmarks measure the client rather than a remote server.
+ */
+public class StubServer {
+
+    public static final String CURRENT_TIME_JSON = "{\"currentTime\":1343587068277,\"text\":\"OK\","
+            + "\"data\":{\"references\":{\"stops\":[],\"situations\":[],\"trips\":[],\"routes\":[],"
+            + "\"agencies\":[]},\"entry\":{\"time\":1343587068277,"
+            + "\"readableTime\":\"2012-07-29T11:37:48-07:00\"}},\"code\":200,\"version\":2}";
+
+    private final HttpServer mServer;
+
+    private final ExecutorService mExecutor;
+
+    private final byte[] mBody;
+
+    private volatile long mDelayMs;
+
+    private volatile int mCapacity;
+
+    private final AtomicInteger mActive = new AtomicInteger();
+
+    public StubServer() throws IOException {
+        this(CURRENT_TIME_JSON);
+    }
+
+    public StubServer(String body) throws IOException {
+        // Otherwise Nagle's algorithm adds ~40ms to every response on loopback
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        mBody = body.getBytes(Charset.forName("UTF-8"));
+        mServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        mServer.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                int active = mActive.incrementAndGet();
+                long delay = mDelayMs;
+                int capacity = mCapacity;
+                if (capacity > 0 && active > capacity) {
+                    // Past its capacity the server thrashes, slowing down with the
+                    // square of the overload so its throughput drops
+                    double overload = (double) active / capacity;
+                    delay = (long) (delay * overload * overload);
+                }
+                if (delay > 0) {
+                    try {
+                        Thread.sleep(delay);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                mActive.decrementAndGet();
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, mBody.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(mBody);
+                out.close();
+                exchange.close();
+            }
+        });
+        mExecutor = Executors.newCachedThreadPool();
+        mServer.setExecutor(mExecutor);
+        mServer.start();
+    }
+
+    /**
+     * @return The base URL of this server, suitable for ObaContext.setBaseUrl()
+     */
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + mServer.getAddress().getPort() + "/";
+    }
+
+    /**
+     * Sets an artificial delay applied to every response, to simulate a slow server.
+     */
+    public void setDelay(long ms) {
+        mDelayMs = ms;
+    }
+
+    /**
+     * Makes the server slow down when it's handling more than the given number of requests
+     * at once, to simulate a server being pushed into queueing collapse. Each request past
+     * the capacity makes every response slower by the square of the overload, so the more
+     * requests are in progress, the fewer the server completes per second.
+     *
+     * @param capacity The number of requests the server can handle at once at the delay
+     *                 set by setDelay(), or 0 for no limit.
+     */
+    public void setCapacity(int capacity) {
+        mCapacity = capacity;
+    }
+
+    public void stop() {
+        mServer.stop(0);
+        mExecutor.shutdownNow();
+    }
+}
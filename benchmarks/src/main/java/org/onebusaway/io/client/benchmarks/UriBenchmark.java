@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.benchmarks;
+
+import org.onebusaway.io.client.ObaApi;
+import org.onebusaway.io.client.ObaContext;
+import org.onebusaway.io.client.request.ObaArrivalInfoRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.ws.rs.core.UriBuilder;
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of building an arrivals-and-departures-for-stop request, with the context's
+ * compiled UriTemplate, compared with the UriBuilder steps the request builders used
+ * before (URLEncoder and a regex for the id, then ObaContext.buildFullUrl() parsing the
+ * base URL again).  The println() that buildFullUrl() made on every request isn't
+ * included, so the old cost is if anything understated.  Run with -prof gc to compare
+ * the allocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class UriBenchmark {
+
+    @Param({"1_75403", "Hillsborough Area Regional Transit_3105"})
+    public String stopId;
+
+    private ObaContext mContext;
+
+    @Setup
+    public void setUp() throws Exception {
+        mContext = ObaApi.getDefaultContext();
+        mContext.setBaseUrl("http://api.tampa.onebusaway.org/api/");
+        mContext.setApiKey("TEST");
+        mContext.setAppInfo(42, "8c07b4d4-3b2b-4cba-9a37-1f0a6d5a4c3e");
+    }
+
+    @Benchmark
+    public URI uriBuilder() throws UnsupportedEncodingException {
+        UriBuilder builder = UriBuilder.fromPath("api/where/arrivals-and-departures-for-stop/"
+                + URLEncoder.encode(stopId, "UTF-8").replaceAll("\\+", "%20") + ".json");
+        builder.queryParam("minutesAfter", "65");
+        mContext.buildFullUrl(builder);
+        mContext.setAppInfo(builder);
+        builder.queryParam("version", "2");
+        builder.queryParam("key", mContext.getApiKey());
+        return builder.build();
+    }
+
+    @Benchmark
+    public ObaArrivalInfoRequest uriTemplate() {
+        return ObaArrivalInfoRequest.newRequest(stopId, 65);
+    }
+}
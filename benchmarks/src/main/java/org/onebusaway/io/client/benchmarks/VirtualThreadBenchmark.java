@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.benchmarks;
+
+import org.onebusaway.io.client.ObaApi;
+import org.onebusaway.io.client.ObaConnectionFactory;
+import org.onebusaway.io.client.ObaPooledConnectionFactory;
+import org.onebusaway.io.client.request.ObaCurrentTimeRequest;
+import org.onebusaway.io.client.request.ObaCurrentTimeResponse;
+import org.onebusaway.io.client.util.VirtualThreads;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts 10,000 requests at once with callAsync() against a StubServer that takes 100ms
+ * to answer, and measures how long it takes for all of them to complete: once with a
+ * platform thread per request, as the default cached pool would start, and once with a
+ * virtual thread per request.  The number of calls that failed is printed at the end of
+ * the run.  The virtual run needs Java 21; on older JVMs it fails in setup and JMH moves on.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = {"-Xss256k"})
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class VirtualThreadBenchmark {
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    @Param({"10000"})
+    public int calls;
+
+    private StubServer mServer;
+
+    private ObaConnectionFactory mOldFactory;
+
+    private ObaPooledConnectionFactory mFactory;
+
+    private ExecutorService mExecutor;
+
+    private long mFailed;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        if ("virtual".equals(threads)) {
+            mExecutor = VirtualThreads.newExecutor();
+        } else {
+            mExecutor = Executors.newCachedThreadPool();
+        }
+        mServer = new StubServer();
+        mServer.setDelay(100);
+        // Pooled so the connections are kept alive between iterations, rather than
+        // every iteration using up another 10,000 ephemeral ports
+        mFactory = new ObaPooledConnectionFactory.Builder()
+                .setMaxConnections(calls)
+                .setMaxConnectionsPerHost(calls)
+                .build();
+        ObaApi.getDefaultContext().setBaseUrl(mServer.getBaseUrl());
+        mOldFactory = ObaApi.getDefaultContext().setConnectionFactory(mFactory);
+        ObaApi.getDefaultContext().setExecutor(mExecutor);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        // On a small machine some connections time out waiting for the stub server
+        System.out.println("Failed calls " + mFailed);
+        ObaApi.getDefaultContext().setExecutor(null);
+        ObaApi.getDefaultContext().setConnectionFactory(mOldFactory);
+        if (mFactory != null) {
+            mFactory.shutdown();
+        }
+        if (mServer != null) {
+            mServer.stop();
+        }
+        if (mExecutor != null) {
+            mExecutor.shutdownNow();
+        }
+    }
+
+    @Benchmark
+    public int concurrentCalls() throws Exception {
+        List<ListenableFuture<ObaCurrentTimeResponse>> futures =
+                new ArrayList<ListenableFuture<ObaCurrentTimeResponse>>(calls);
+        for (int i = 0; i < calls; i++) {
+            futures.add(ObaCurrentTimeRequest.newRequest().callAsync());
+        }
+        int ok = 0;
+        for (ListenableFuture<ObaCurrentTimeResponse> future : futures) {
+            if (future.get().getCode() == ObaApi.OBA_OK) {
+                ok++;
+            }
+        }
+        mFailed += calls - ok;
+        return ok;
+    }
+}
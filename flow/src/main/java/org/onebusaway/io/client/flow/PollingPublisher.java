@@ -0,0 +1,605 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.flow;
+
+import org.onebusaway.io.client.ObaApi;
+
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * A Flow.Publisher that sends a request every period and publishes each response to all
+ * of its subscribers.  However many subscribers there are, the request is sent once per
+ * period, and only while at least one of them is subscribed:
+ *
+ * <pre>
+ * PollingPublisher&lt;ObaArrivalInfoResponse&gt; arrivals = new PollingPublisher.Builder()
+ *         .setPeriod(30, TimeUnit.SECONDS)
+ *         .build(() -&gt; ObaArrivalInfoRequest.newRequest("1_29261").call());
+ * arrivals.subscribe(subscriber);
+ * </pre>
+ *
+ * Subscribers only ever get the latest response.  If a subscriber hasn't requested
+ * another item when a new response arrives, the response it hasn't been given yet is
+ * replaced rather than queued, so a slow subscriber sees fewer snapshots instead of
+ * falling behind.  A new subscriber is given the most recent response straight away.
+ * Requests are sent, and responses delivered, on the executor (the ObaContext executor
+ * by default), so no subscriber holds up the polling or the other subscribers.
+ * <p>
+ * Errors are reported by the OBA APIs through the response code, so a response that
+ * isn't OK is published like any other.  If the request throws, the publisher fails all
+ * of its subscribers with the exception.
+ */
+public final class PollingPublisher<T> implements Flow.Publisher<T>, AutoCloseable {
+
+    public static final class Builder {
+
+        private long mPeriodNanos = TimeUnit.SECONDS.toNanos(30);
+
+        private Executor mExecutor = null;
+
+        private ScheduledExecutorService mScheduler = null;
+
+        /**
+         * Sets how long to wait after a response before sending the request again.
+         * The default is 30 seconds.
+         */
+        public Builder setPeriod(long period, TimeUnit unit) {
+            if (period <= 0) {
+                throw new IllegalArgumentException("period must be positive");
+            }
+            mPeriodNanos = unit.toNanos(period);
+            return this;
+        }
+
+        /**
+         * Sets the executor that sends the requests and delivers the responses to
+         * subscribers.  By default the default ObaContext's executor is used.
+         */
+        public Builder setExecutor(Executor executor) {
+            mExecutor = executor;
+            return this;
+        }
+
+        /**
+         * Sets the scheduler that times the polls.  It only hands each poll to the
+         * executor, so a single thread is enough for any number of publishers; by
+         * default one shared daemon thread is used.
+         */
+        public Builder setScheduler(ScheduledExecutorService scheduler) {
+            mScheduler = scheduler;
+            return this;
+        }
+
+        /**
+         * @param poll Sends the request, e.g. {@code () -> request.call()}
+         */
+        public <T> PollingPublisher<T> build(Callable<? extends T> poll) {
+            return new PollingPublisher<T>(this, Objects.requireNonNull(poll), null);
+        }
+
+        /**
+         * Returns a group of publishers that share one poll per key, e.g. one per stop
+         * for all of the subscribers interested in that stop.
+         *
+         * @param polls Returns the request to poll for a key
+         */
+        public <K, T> Group<K, T> buildGroup(
+                Function<? super K, ? extends Callable<? extends T>> polls) {
+            return new Group<K, T>(this, Objects.requireNonNull(polls));
+        }
+    }
+
+    /**
+     * Publishers keyed on what they poll, created when the first subscriber for a key
+     * arrives and dropped once the last one has cancelled.
+     */
+    public static final class Group<K, T> implements AutoCloseable {
+
+        private final Builder mBuilder;
+
+        private final Function<? super K, ? extends Callable<? extends T>> mPolls;
+
+        private final ConcurrentHashMap<K, PollingPublisher<T>> mPublishers =
+                new ConcurrentHashMap<K, PollingPublisher<T>>();
+
+        private volatile boolean mClosed;
+
+        private Group(Builder builder, Function<? super K, ? extends Callable<? extends T>> polls) {
+            mBuilder = new Builder()
+                    .setPeriod(builder.mPeriodNanos, TimeUnit.NANOSECONDS)
+                    .setExecutor(builder.mExecutor)
+                    .setScheduler(builder.mScheduler);
+            mPolls = polls;
+        }
+
+        /**
+         * @return The publisher for this key, shared by all of its subscribers
+         */
+        public Flow.Publisher<T> get(final K key) {
+            if (mClosed) {
+                throw new IllegalStateException("The group is closed");
+            }
+            return mPublishers.computeIfAbsent(key, k -> new PollingPublisher<T>(mBuilder,
+                    Objects.requireNonNull(mPolls.apply(k)), new Owner<T>() {
+                        @Override
+                        public void retire(PollingPublisher<T> publisher) {
+                            mPublishers.remove(key, publisher);
+                        }
+
+                        @Override
+                        public Flow.Publisher<T> successor() {
+                            return get(key);
+                        }
+                    }));
+        }
+
+        /**
+         * @return The number of keys being polled
+         */
+        public int size() {
+            return mPublishers.size();
+        }
+
+        /**
+         * Stops all of the polls and completes their subscribers.
+         */
+        @Override
+        public void close() {
+            mClosed = true;
+            for (PollingPublisher<T> publisher : mPublishers.values()) {
+                publisher.close();
+            }
+        }
+    }
+
+    /**
+     * How a publisher in a Group leaves it once nobody is subscribed
+     */
+    private interface Owner<T> {
+
+        void retire(PollingPublisher<T> publisher);
+
+        /**
+         * @return The publisher that subscribers of a retired publisher should go to
+         */
+        Flow.Publisher<T> successor();
+    }
+
+    /**
+     * A response, numbered so that each subscriber gets it at most once
+     */
+    private static final class Snapshot<T> {
+
+        final T value;
+
+        final long sequence;
+
+        Snapshot(T value, long sequence) {
+            this.value = value;
+            this.sequence = sequence;
+        }
+    }
+
+    private static class SchedulerHolder {
+
+        static final ScheduledExecutorService INSTANCE =
+                Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread thread = new Thread(r, "ObaPollingPublisher");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    private final Callable<? extends T> mPoll;
+
+    private final long mPeriodNanos;
+
+    private final Executor mExecutor;
+
+    private final ScheduledExecutorService mScheduler;
+
+    private final Owner<T> mOwner;
+
+    private final CopyOnWriteArrayList<PollingSubscription> mSubscriptions =
+            new CopyOnWriteArrayList<PollingSubscription>();
+
+    // Guards the fields below it
+    private final Object mLock = new Object();
+
+    private int mActive;
+
+    private boolean mPolling;
+
+    // A poll is scheduled or in progress
+    private boolean mScheduled;
+
+    private ScheduledFuture<?> mNext;
+
+    private long mLastPollNanos;
+
+    private boolean mRetired;
+
+    private volatile boolean mClosed;
+
+    private volatile Throwable mError;
+
+    private volatile Snapshot<T> mLatest;
+
+    private final AtomicLong mSequence = new AtomicLong();
+
+    private final AtomicLong mPolls = new AtomicLong();
+
+    private final AtomicLong mDropped = new AtomicLong();
+
+    private final Runnable mSchedulePoll = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                mExecutor.execute(mRunPoll);
+            } catch (RejectedExecutionException e) {
+                fail(e);
+            }
+        }
+    };
+
+    private final Runnable mRunPoll = new Runnable() {
+        @Override
+        public void run() {
+            poll();
+        }
+    };
+
+    private PollingPublisher(Builder builder, Callable<? extends T> poll, Owner<T> owner) {
+        mPoll = poll;
+        mPeriodNanos = builder.mPeriodNanos;
+        mExecutor = (builder.mExecutor != null) ? builder.mExecutor
+                : ObaApi.getDefaultContext().getExecutor();
+        mScheduler = (builder.mScheduler != null) ? builder.mScheduler
+                : SchedulerHolder.INSTANCE;
+        mOwner = owner;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        Objects.requireNonNull(subscriber);
+        PollingSubscription subscription = new PollingSubscription(subscriber);
+        boolean retired;
+        synchronized (mLock) {
+            retired = mRetired && !mClosed;
+            if (!retired && !mClosed) {
+                mActive++;
+                subscription.mRegistered.set(true);
+                startPolling();
+            }
+        }
+        if (retired) {
+            // Everyone left after this was handed out, and the group has moved on
+            mOwner.successor().subscribe(subscriber);
+            return;
+        }
+        try {
+            subscriber.onSubscribe(subscription);
+        } catch (Throwable t) {
+            subscription.cancel();
+            return;
+        }
+        if (subscription.mRegistered.get()) {
+            mSubscriptions.add(subscription);
+            if (!subscription.mRegistered.get()) {
+                // Cancelled while being added
+                mSubscriptions.remove(subscription);
+            }
+        }
+        Snapshot<T> latest = mLatest;
+        if (latest != null) {
+            subscription.offer(latest);
+        }
+        if (mClosed) {
+            subscription.terminate(mError);
+        }
+        subscription.drain();
+    }
+
+    /**
+     * Stops polling and completes all of the subscribers.
+     */
+    @Override
+    public void close() {
+        terminate(null);
+    }
+
+    /**
+     * @return The number of subscribers
+     */
+    public int getSubscriberCount() {
+        synchronized (mLock) {
+            return mActive;
+        }
+    }
+
+    /**
+     * @return The number of times the request has been sent
+     */
+    public long getPollCount() {
+        return mPolls.get();
+    }
+
+    /**
+     * @return The number of responses that a subscriber wasn't ready for and that were
+     * replaced by a newer one before it was
+     */
+    public long getDroppedCount() {
+        return mDropped.get();
+    }
+
+    // Called with mLock held
+    private void startPolling() {
+        mPolling = true;
+        if (!mScheduled) {
+            mScheduled = true;
+            long delay = 0;
+            if (mPolls.get() > 0) {
+                // Don't poll early just because the subscribers came and went
+                delay = Math.max(0, mLastPollNanos + mPeriodNanos - System.nanoTime());
+            }
+            mNext = mScheduler.schedule(mSchedulePoll, delay, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Called with mLock held
+    private void stopPolling() {
+        mPolling = false;
+        if (mNext != null && mNext.cancel(false)) {
+            mScheduled = false;
+            mNext = null;
+        }
+    }
+
+    private void poll() {
+        synchronized (mLock) {
+            if (!mPolling) {
+                mScheduled = false;
+                return;
+            }
+            mLastPollNanos = System.nanoTime();
+        }
+        T value;
+        try {
+            value = mPoll.call();
+        } catch (Throwable t) {
+            fail(t);
+            return;
+        }
+        mPolls.incrementAndGet();
+        if (value != null) {
+            publish(value);
+        }
+        synchronized (mLock) {
+            if (mPolling && !mClosed) {
+                mNext = mScheduler.schedule(mSchedulePoll, mPeriodNanos, TimeUnit.NANOSECONDS);
+            } else {
+                mScheduled = false;
+                mNext = null;
+            }
+        }
+    }
+
+    private void publish(T value) {
+        Snapshot<T> snapshot = new Snapshot<T>(value, mSequence.incrementAndGet());
+        mLatest = snapshot;
+        for (PollingSubscription subscription : mSubscriptions) {
+            subscription.offer(snapshot);
+            subscription.drain();
+        }
+    }
+
+    private void fail(Throwable error) {
+        terminate(error);
+    }
+
+    private void terminate(Throwable error) {
+        synchronized (mLock) {
+            if (mClosed) {
+                return;
+            }
+            mError = error;
+            mClosed = true;
+            stopPolling();
+        }
+        if (mOwner != null) {
+            mOwner.retire(this);
+        }
+        for (PollingSubscription subscription : mSubscriptions) {
+            subscription.terminate(error);
+            subscription.drain();
+        }
+    }
+
+    private void unregister(PollingSubscription subscription) {
+        mSubscriptions.remove(subscription);
+        synchronized (mLock) {
+            if (--mActive == 0) {
+                stopPolling();
+                if (mOwner != null) {
+                    // Leave the group before anyone can see mRetired, so that subscribe()
+                    // finds a new publisher rather than this one again
+                    mOwner.retire(this);
+                    mRetired = true;
+                }
+            }
+        }
+    }
+
+    private final class PollingSubscription implements Flow.Subscription, Runnable {
+
+        private final Flow.Subscriber<? super T> mSubscriber;
+
+        private final AtomicBoolean mRegistered = new AtomicBoolean();
+
+        private final AtomicReference<Snapshot<T>> mPending = new AtomicReference<Snapshot<T>>();
+
+        private final AtomicLong mDemand = new AtomicLong();
+
+        private final AtomicInteger mWip = new AtomicInteger();
+
+        private volatile boolean mCancelled;
+
+        private volatile boolean mTerminated;
+
+        private volatile Throwable mTerminalError;
+
+        // Only used by the draining thread
+        private long mDelivered;
+
+        private boolean mDone;
+
+        PollingSubscription(Flow.Subscriber<? super T> subscriber) {
+            mSubscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                // Rule 3.9
+                terminate(new IllegalArgumentException(
+                        "Subscription.request() needs a positive number, not " + n));
+                release();
+            } else {
+                long current;
+                long updated;
+                do {
+                    current = mDemand.get();
+                    updated = current + n;
+                    if (updated < 0) {
+                        updated = Long.MAX_VALUE;
+                    }
+                } while (!mDemand.compareAndSet(current, updated));
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            mCancelled = true;
+            mPending.set(null);
+            release();
+        }
+
+        /**
+         * Replaces the response waiting to be delivered, unless it's newer.
+         */
+        void offer(Snapshot<T> snapshot) {
+            while (true) {
+                Snapshot<T> current = mPending.get();
+                if (current != null && current.sequence >= snapshot.sequence) {
+                    return;
+                }
+                if (mPending.compareAndSet(current, snapshot)) {
+                    if (current != null) {
+                        mDropped.incrementAndGet();
+                    }
+                    return;
+                }
+            }
+        }
+
+        void terminate(Throwable error) {
+            if (!mTerminated) {
+                mTerminalError = error;
+                mTerminated = true;
+            }
+        }
+
+        void drain() {
+            if (mWip.getAndIncrement() == 0) {
+                try {
+                    mExecutor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    mWip.set(0);
+                    cancel();
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                deliver();
+                missed = mWip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void deliver() {
+            if (mDone) {
+                return;
+            }
+            try {
+                while (!mCancelled && !mTerminated && mDemand.get() > 0) {
+                    Snapshot<T> snapshot = mPending.getAndSet(null);
+                    if (snapshot == null) {
+                        break;
+                    }
+                    if (snapshot.sequence <= mDelivered) {
+                        continue;
+                    }
+                    mDelivered = snapshot.sequence;
+                    if (mDemand.get() != Long.MAX_VALUE) {
+                        mDemand.decrementAndGet();
+                    }
+                    mSubscriber.onNext(snapshot.value);
+                }
+                if (mCancelled) {
+                    mDone = true;
+                } else if (mTerminated) {
+                    mDone = true;
+                    mPending.set(null);
+                    release();
+                    if (mTerminalError != null) {
+                        mSubscriber.onError(mTerminalError);
+                    } else {
+                        mSubscriber.onComplete();
+                    }
+                }
+            } catch (Throwable t) {
+                // Rule 2.13: a subscriber that throws is treated as having cancelled
+                mDone = true;
+                cancel();
+            }
+        }
+
+        private void release() {
+            if (mRegistered.compareAndSet(true, false)) {
+                unregister(this);
+            }
+        }
+    }
+}
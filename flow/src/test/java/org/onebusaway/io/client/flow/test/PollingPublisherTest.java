@@ -0,0 +1,253 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.flow.test;
+
+import junit.framework.TestCase;
+
+import org.onebusaway.io.client.flow.PollingPublisher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests publishing polled responses through java.util.concurrent.Flow
+ */
+public class PollingPublisherTest extends TestCase {
+
+    private static final long PERIOD_MS = 50;
+
+    // Returns 1, 2, 3... counting the polls
+    private final AtomicInteger mCalls = new AtomicInteger();
+
+    private final Callable<Integer> mCounter = new Callable<Integer>() {
+        @Override
+        public Integer call() {
+            return mCalls.incrementAndGet();
+        }
+    };
+
+    private final PollingPublisher.Builder mBuilder = new PollingPublisher.Builder()
+            .setPeriod(PERIOD_MS, TimeUnit.MILLISECONDS);
+
+    public void testPublishesEachPoll() throws InterruptedException {
+        PollingPublisher<Integer> publisher = mBuilder.build(mCounter);
+        TestSubscriber subscriber = new TestSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(subscriber);
+        assertEquals(Integer.valueOf(1), subscriber.next());
+        assertEquals(Integer.valueOf(2), subscriber.next());
+        assertEquals(Integer.valueOf(3), subscriber.next());
+        assertEquals(1, publisher.getSubscriberCount());
+        publisher.close();
+    }
+
+    public void testSharesPolls() throws InterruptedException {
+        PollingPublisher<Integer> publisher = mBuilder.build(mCounter);
+        List<TestSubscriber> subscribers = new ArrayList<TestSubscriber>();
+        for (int i = 0; i < 200; i++) {
+            TestSubscriber subscriber = new TestSubscriber(Long.MAX_VALUE);
+            publisher.subscribe(subscriber);
+            subscribers.add(subscriber);
+        }
+        Thread.sleep(PERIOD_MS * 4);
+        for (TestSubscriber subscriber : subscribers) {
+            assertNotNull(subscriber.next());
+        }
+        // One poll per period, not one per subscriber
+        assertTrue(publisher.getPollCount() <= 6);
+        publisher.close();
+    }
+
+    public void testSlowSubscriberGetsLatest() throws InterruptedException {
+        PollingPublisher<Integer> publisher = mBuilder.build(mCounter);
+        TestSubscriber subscriber = new TestSubscriber(1);
+        publisher.subscribe(subscriber);
+        assertEquals(Integer.valueOf(1), subscriber.next());
+
+        // Not ready for the next few responses, so they replace each other
+        Thread.sleep(PERIOD_MS * 5);
+        assertTrue(subscriber.values.isEmpty());
+        int polls = mCalls.get();
+        assertTrue(polls >= 3);
+        subscriber.subscription.request(1);
+        int latest = subscriber.next();
+        assertTrue(latest >= polls);
+        assertTrue(publisher.getDroppedCount() > 0);
+        publisher.close();
+    }
+
+    public void testNewSubscriberGetsLatest() throws InterruptedException {
+        PollingPublisher<Integer> publisher = new PollingPublisher.Builder()
+                .setPeriod(1, TimeUnit.HOURS)
+                .build(mCounter);
+        TestSubscriber first = new TestSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(first);
+        assertEquals(Integer.valueOf(1), first.next());
+
+        TestSubscriber second = new TestSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(second);
+        assertEquals(Integer.valueOf(1), second.next());
+        assertEquals(1, publisher.getPollCount());
+        publisher.close();
+    }
+
+    public void testStopsWithoutSubscribers() throws InterruptedException {
+        PollingPublisher<Integer> publisher = mBuilder.build(mCounter);
+        TestSubscriber subscriber = new TestSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(subscriber);
+        subscriber.next();
+        subscriber.subscription.cancel();
+        assertEquals(0, publisher.getSubscriberCount());
+
+        Thread.sleep(PERIOD_MS * 2);
+        long polls = publisher.getPollCount();
+        Thread.sleep(PERIOD_MS * 3);
+        assertEquals(polls, publisher.getPollCount());
+
+        // Polling starts again with the next subscriber
+        TestSubscriber next = new TestSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(next);
+        int value = next.next();
+        assertTrue(value >= polls);
+        int following = next.next();
+        assertTrue(following > value);
+        publisher.close();
+    }
+
+    public void testClose() throws InterruptedException {
+        PollingPublisher<Integer> publisher = mBuilder.build(mCounter);
+        TestSubscriber subscriber = new TestSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(subscriber);
+        subscriber.next();
+        publisher.close();
+        assertTrue(subscriber.done.await(5, TimeUnit.SECONDS));
+        assertNull(subscriber.error);
+
+        TestSubscriber late = new TestSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(late);
+        assertTrue(late.done.await(5, TimeUnit.SECONDS));
+        assertNull(late.error);
+    }
+
+    public void testPollThrows() throws InterruptedException {
+        PollingPublisher<Integer> publisher = mBuilder.build(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                throw new IllegalStateException("Broken");
+            }
+        });
+        TestSubscriber subscriber = new TestSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(subscriber);
+        assertTrue(subscriber.done.await(5, TimeUnit.SECONDS));
+        assertTrue(subscriber.error instanceof IllegalStateException);
+        assertEquals(0, publisher.getSubscriberCount());
+    }
+
+    public void testInvalidRequest() throws InterruptedException {
+        PollingPublisher<Integer> publisher = mBuilder.build(mCounter);
+        TestSubscriber subscriber = new TestSubscriber(0);
+        publisher.subscribe(subscriber);
+        assertTrue(subscriber.done.await(5, TimeUnit.SECONDS));
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+        assertEquals(0, publisher.getSubscriberCount());
+        publisher.close();
+    }
+
+    public void testGroup() throws InterruptedException {
+        final AtomicInteger polls = new AtomicInteger();
+        PollingPublisher.Group<String, String> group = mBuilder.buildGroup(
+                (String stopId) -> () -> stopId + " " + polls.incrementAndGet());
+        assertSame(group.get("1_75403"), group.get("1_75403"));
+
+        TestSubscriber first = new TestSubscriber(Long.MAX_VALUE);
+        TestSubscriber second = new TestSubscriber(Long.MAX_VALUE);
+        TestSubscriber other = new TestSubscriber(Long.MAX_VALUE);
+        group.get("1_75403").subscribe(first);
+        group.get("1_75403").subscribe(second);
+        group.get("1_29261").subscribe(other);
+        assertTrue(((String) first.next()).startsWith("1_75403 "));
+        assertTrue(((String) second.next()).startsWith("1_75403 "));
+        assertTrue(((String) other.next()).startsWith("1_29261 "));
+        assertEquals(2, group.size());
+
+        // The key is dropped once its last subscriber has gone
+        first.subscription.cancel();
+        assertEquals(2, group.size());
+        second.subscription.cancel();
+        assertEquals(1, group.size());
+
+        TestSubscriber again = new TestSubscriber(Long.MAX_VALUE);
+        group.get("1_75403").subscribe(again);
+        assertTrue(((String) again.next()).startsWith("1_75403 "));
+        assertEquals(2, group.size());
+
+        group.close();
+        assertTrue(other.done.await(5, TimeUnit.SECONDS));
+        assertTrue(again.done.await(5, TimeUnit.SECONDS));
+    }
+
+    private static class TestSubscriber implements Flow.Subscriber<Object> {
+
+        final long initialRequest;
+
+        final BlockingQueue<Object> values = new LinkedBlockingQueue<Object>();
+
+        final CountDownLatch done = new CountDownLatch(1);
+
+        volatile Flow.Subscription subscription;
+
+        volatile Throwable error;
+
+        TestSubscriber(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @SuppressWarnings("unchecked")
+        <T> T next() throws InterruptedException {
+            Object value = values.poll(5, TimeUnit.SECONDS);
+            assertNotNull("Timed out waiting for a response", value);
+            return (T) value;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(initialRequest);
+        }
+
+        @Override
+        public void onNext(Object item) {
+            values.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            done.countDown();
+        }
+    }
+}
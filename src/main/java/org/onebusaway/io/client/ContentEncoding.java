@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client;
+
+import com.google.common.io.CountingInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Content negotiation shared by the connections: they ask for compressed responses,
+ * and decompress them as they're read.
+ */
+final class ContentEncoding {
+
+    /**
+     * The value of the Accept-Encoding header sent with every request
+     */
+    static final String ACCEPT_ENCODING = "gzip, deflate";
+
+    /**
+     * The charset of OBA REST API responses
+     */
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private ContentEncoding() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Wraps a response body so it can be read decompressed.
+     *
+     * @param wire     The body as received, which should count the bytes read from it.
+     * @param encoding The Content-Encoding header of the response, or null.
+     * @return The decompressed body.
+     */
+    static InputStream decode(CountingInputStream wire, String encoding) throws IOException {
+        if (encoding != null) {
+            encoding = encoding.trim().toLowerCase(Locale.US);
+            if ("gzip".equals(encoding) || "x-gzip".equals(encoding)) {
+                return new GZIPInputStream(wire, BUFFER_SIZE);
+            } else if ("deflate".equals(encoding)) {
+                return new InflaterInputStream(wire);
+            }
+        }
+        return wire;
+    }
+
+    /**
+     * @param contentType The Content-Type header of the response, or null.
+     * @return The charset it names, or UTF-8 if it doesn't name one this JVM supports.
+     */
+    static Charset charset(String contentType) {
+        if (contentType != null) {
+            for (String param : contentType.split(";")) {
+                param = param.trim();
+                if (param.regionMatches(true, 0, "charset=", 0, 8)) {
+                    String name = param.substring(8).trim();
+                    if (name.length() >= 2 && name.startsWith("\"") && name.endsWith("\"")) {
+                        name = name.substring(1, name.length() - 1);
+                    }
+                    try {
+                        return Charset.forName(name);
+                    } catch (IllegalArgumentException e) {
+                        // An unknown or malformed charset name; assume the usual UTF-8
+                    }
+                }
+            }
+        }
+        return UTF8;
+    }
+
+    /**
+     * @return A stream that counts the bytes read from the buffered body.
+     */
+    static CountingInputStream count(InputStream body) {
+        return new CountingInputStream(new BufferedInputStream(body, BUFFER_SIZE));
+    }
+}
@@ -18,6 +18,7 @@ package org.onebusaway.io.client;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Reader;
 import java.io.StringWriter;
 
@@ -34,7 +35,6 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.introspect.VisibilityChecker;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.TextNode;
-import com.fasterxml.jackson.databind.node.TreeTraversingParser;
 
 public class JacksonSerializer implements ObaApi.SerializationHandler {
 
@@ -63,11 +63,21 @@ public class JacksonSerializer implements ObaApi.SerializationHandler {
         return SingletonHolder.INSTANCE;
     }
 
-    private static JsonParser getJsonParser(Reader reader)
+    /**
+     * Binds the response directly from the token stream, without building an
+     * intermediate JsonNode tree first.
+     */
+    private static <T> T readValue(JsonParser parser, Class<T> cls)
             throws IOException, JsonProcessingException {
-        TreeTraversingParser parser = new TreeTraversingParser(mMapper.readTree(reader));
-        parser.setCodec(mMapper);
-        return parser;
+        try {
+            // An empty body has no value to bind
+            if (parser.nextToken() == null) {
+                return null;
+            }
+            return mMapper.readValue(parser, cls);
+        } finally {
+            parser.close();
+        }
     }
 
     public String toJson(String input) {
@@ -100,7 +110,24 @@ public class JacksonSerializer implements ObaApi.SerializationHandler {
 
     public <T> T deserialize(Reader reader, Class<T> cls) {
         try {
-            T t = getJsonParser(reader).readValueAs(cls);
+            return deserialize(mMapper.getFactory().createParser(reader), cls);
+        } catch (IOException e) {
+            return createFromError(cls, ObaApi.OBA_IO_EXCEPTION, e.toString());
+        }
+    }
+
+    public <T> T deserialize(InputStream stream, Class<T> cls) {
+        try {
+            // Jackson detects the encoding itself, so there's no need to decode to chars first
+            return deserialize(mMapper.getFactory().createParser(stream), cls);
+        } catch (IOException e) {
+            return createFromError(cls, ObaApi.OBA_IO_EXCEPTION, e.toString());
+        }
+    }
+
+    private <T> T deserialize(JsonParser parser, Class<T> cls) {
+        try {
+            T t = readValue(parser, cls);
             if (t == null) {
                 // TODO: test switching from Gson for errors
                 t = createFromError(cls, ObaApi.OBA_INTERNAL_ERROR, "Json error");
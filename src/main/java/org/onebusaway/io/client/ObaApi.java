@@ -15,8 +15,11 @@
  */
 package org.onebusaway.io.client;
 
+import java.io.InputStream;
 import java.io.Reader;
 
+import org.onebusaway.io.client.request.ResponseReader;
+
 public final class ObaApi {
 
     //private static final String TAG = "ObaApi";
@@ -41,6 +44,12 @@ public final class ObaApi {
 
     public static final int OBA_IO_EXCEPTION = 700;
 
+    // The request wasn't sent because too many requests to the server were in progress
+    public static final int OBA_CONCURRENCY_LIMITED = 701;
+
+    // The request wasn't sent because it would have exceeded the API key's rate limit
+    public static final int OBA_RATE_LIMITED = 702;
+
     public static final String VERSION1 = "1";
 
     public static final String VERSION2 = "2";
@@ -55,12 +64,17 @@ public final class ObaApi {
 
         <T> T deserialize(Reader reader, Class<T> cls);
 
+        <T> T deserialize(InputStream stream, Class<T> cls);
+
         String serialize(Object obj);
 
         <T> T createFromError(Class<T> cls, int code, String error);
     }
 
     public static final <T> SerializationHandler getSerializer(Class<T> cls) {
+        if (ResponseReader.canRead(cls)) {
+            return StreamingSerializer.getInstance();
+        }
         return JacksonSerializer.getInstance();
     }
 }
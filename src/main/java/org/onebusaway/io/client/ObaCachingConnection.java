@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client;
+
+import com.google.common.io.ByteStreams;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A connection created by an ObaCachingConnectionFactory. A cached response is
+ * returned without opening a connection to the server; otherwise the request goes
+ * through a connection from the delegate factory and a successful response is cached.
+ *
+ * The response's ETag and Last-Modified headers are cached with it, so a conditional
+ * request whose validators match a cached response is answered with a 304.
+ */
+final class ObaCachingConnection implements ObaConnection {
+
+    private final ObaCachingConnectionFactory mFactory;
+
+    private final URI mUri;
+
+    private final String mKey;
+
+    private final long mTtl;
+
+    private boolean mLookedUp = false;
+
+    private ObaCachingConnectionFactory.CacheEntry mCached;
+
+    private final Map<String, String> mRequestHeaders = new LinkedHashMap<String, String>();
+
+    private volatile ObaConnection mConnection;
+
+    ObaCachingConnection(ObaCachingConnectionFactory factory, URI uri, String key, long ttl) {
+        mFactory = factory;
+        mUri = uri;
+        mKey = key;
+        mTtl = ttl;
+    }
+
+    public void disconnect() {
+        if (mConnection != null) {
+            mConnection.disconnect();
+        }
+    }
+
+    public void setRequestProperty(String name, String value) {
+        mRequestHeaders.put(name, value);
+    }
+
+    public Reader get() throws IOException {
+        return new InputStreamReader(getStream(), ContentEncoding.UTF8);
+    }
+
+    public Reader post(String string) throws IOException {
+        // Only GETs are cached
+        return getConnection().post(string);
+    }
+
+    public InputStream getStream() throws IOException {
+        if (lookup() != null) {
+            return new ByteArrayInputStream(isNotModified() ? new byte[0] : mCached.body);
+        }
+        ObaConnection conn = getConnection();
+        if (conn.getResponseCode() != HttpURLConnection.HTTP_OK) {
+            return conn.getStream();
+        }
+        InputStream stream = conn.getStream();
+        byte[] body;
+        try {
+            body = ByteStreams.toByteArray(stream);
+        } finally {
+            stream.close();
+        }
+        mFactory.put(mKey, body, mTtl, conn.getHeaderField("ETag"),
+                conn.getHeaderField("Last-Modified"));
+        return new ByteArrayInputStream(body);
+    }
+
+    public InputStream postStream(String string) throws IOException {
+        return getConnection().postStream(string);
+    }
+
+    public int getResponseCode() throws IOException {
+        if (lookup() != null) {
+            return isNotModified() ? HttpURLConnection.HTTP_NOT_MODIFIED
+                    : HttpURLConnection.HTTP_OK;
+        }
+        return getConnection().getResponseCode();
+    }
+
+    public String getHeaderField(String name) throws IOException {
+        if (lookup() != null) {
+            if ("ETag".equalsIgnoreCase(name)) {
+                return mCached.etag;
+            } else if ("Last-Modified".equalsIgnoreCase(name)) {
+                return mCached.lastModified;
+            }
+            return null;
+        }
+        return getConnection().getHeaderField(name);
+    }
+
+    public long getBytesReceived() {
+        if (mConnection != null) {
+            return mConnection.getBytesReceived();
+        }
+        // Nothing has been received for a cached response
+        return (mCached != null) ? 0 : -1;
+    }
+
+    public long getConnectNanos() {
+        if (mConnection != null) {
+            return mConnection.getConnectNanos();
+        }
+        // A cached response doesn't need a connection
+        return (mCached != null) ? 0 : -1;
+    }
+
+    /**
+     * @return true if the request's validators match the cached response.
+     */
+    private boolean isNotModified() {
+        String ifNoneMatch = getRequestHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            return ifNoneMatch.equals(mCached.etag);
+        }
+        String ifModifiedSince = getRequestHeader("If-Modified-Since");
+        return ifModifiedSince != null && ifModifiedSince.equals(mCached.lastModified);
+    }
+
+    private String getRequestHeader(String name) {
+        for (Map.Entry<String, String> header : mRequestHeaders.entrySet()) {
+            if (header.getKey().equalsIgnoreCase(name)) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+
+    private ObaCachingConnectionFactory.CacheEntry lookup() {
+        if (!mLookedUp) {
+            mCached = mFactory.get(mKey);
+            mLookedUp = true;
+        }
+        return mCached;
+    }
+
+    private ObaConnection getConnection() throws IOException {
+        if (mConnection == null) {
+            mConnection = mFactory.getDelegate().newConnection(mUri);
+            for (Map.Entry<String, String> header : mRequestHeaders.entrySet()) {
+                mConnection.setRequestProperty(header.getKey(), header.getValue());
+            }
+        }
+        return mConnection;
+    }
+}
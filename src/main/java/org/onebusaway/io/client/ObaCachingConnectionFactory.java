@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client;
+
+import org.onebusaway.io.client.util.UriUtils;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An ObaConnectionFactory that caches successful GET responses from another factory
+ * for a configurable time per REST API method, so that (for example) many users looking
+ * at the same stop within a few seconds only cause one request to the OBA server.
+ *
+ * Responses are keyed on the normalized request URI (see {@link UriUtils#normalizeUri(URI)}),
+ * so requests that only differ by API key or app info share a cache entry. The cache
+ * holds at most a fixed number of responses, evicting the least recently used.
+ *
+ * <pre>
+ * ObaApi.getDefaultContext().setConnectionFactory(
+ *         new ObaCachingConnectionFactory.Builder(ObaDefaultConnectionFactory.getInstance())
+ *                 .setTtl("arrivals-and-departures-for-stop", 15, TimeUnit.SECONDS)
+ *                 .setTtl("route", 1, TimeUnit.DAYS)
+ *                 .build());
+ * </pre>
+ */
+public class ObaCachingConnectionFactory implements ObaConnectionFactory {
+
+    private final ObaConnectionFactory mDelegate;
+
+    private final HashMap<String, Long> mTtls;
+
+    private final long mDefaultTtl;
+
+    private final LinkedHashMap<String, CacheEntry> mCache;
+
+    private final AtomicLong mHits = new AtomicLong();
+
+    private final AtomicLong mMisses = new AtomicLong();
+
+    private final AtomicLong mEvictions = new AtomicLong();
+
+    static final class CacheEntry {
+
+        // The (decompressed) response body as sent by the server, in UTF-8
+        final byte[] body;
+
+        final long expires;
+
+        // The ETag and Last-Modified validators the response was sent with, or null
+        final String etag;
+
+        final String lastModified;
+
+        CacheEntry(byte[] body, long expires, String etag, String lastModified) {
+            this.body = body;
+            this.expires = expires;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+    }
+
+    public static class Builder {
+
+        private final ObaConnectionFactory mDelegate;
+
+        private final HashMap<String, Long> mTtls = new HashMap<String, Long>();
+
+        private long mDefaultTtl = 0;
+
+        private int mMaxEntries = 1000;
+
+        /**
+         * @param delegate The factory that creates connections for cache misses.
+         */
+        public Builder(ObaConnectionFactory delegate) {
+            mDelegate = delegate;
+        }
+
+        /**
+         * Sets how long responses from a REST API method are cached.
+         *
+         * @param endpoint The API method name, e.g. "arrivals-and-departures-for-stop",
+         *                 "route" or "regions-v3".
+         * @param ttl      How long a response is cached, or 0 to not cache it.
+         * @param unit     The unit of the ttl.
+         */
+        public Builder setTtl(String endpoint, long ttl, TimeUnit unit) {
+            mTtls.put(endpoint, unit.toMillis(ttl));
+            return this;
+        }
+
+        /**
+         * Sets how long responses from methods without their own TTL are cached.
+         * The default is 0, so only methods given a TTL with setTtl() are cached.
+         */
+        public Builder setDefaultTtl(long ttl, TimeUnit unit) {
+            mDefaultTtl = unit.toMillis(ttl);
+            return this;
+        }
+
+        /**
+         * @param max The maximum number of responses kept in the cache.
+         */
+        public Builder setMaxEntries(int max) {
+            mMaxEntries = max;
+            return this;
+        }
+
+        public ObaCachingConnectionFactory build() {
+            return new ObaCachingConnectionFactory(this);
+        }
+    }
+
+    private ObaCachingConnectionFactory(Builder builder) {
+        mDelegate = builder.mDelegate;
+        mTtls = new HashMap<String, Long>(builder.mTtls);
+        mDefaultTtl = builder.mDefaultTtl;
+        final int maxEntries = builder.mMaxEntries;
+        mCache = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                if (size() > maxEntries) {
+                    mEvictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public ObaConnection newConnection(URI uri) throws IOException {
+        long ttl = getTtl(uri);
+        if (ttl <= 0) {
+            return mDelegate.newConnection(uri);
+        }
+        return new ObaCachingConnection(this, uri, UriUtils.normalizeUri(uri), ttl);
+    }
+
+    /**
+     * @return The number of requests answered from the cache.
+     */
+    public long getHitCount() {
+        return mHits.get();
+    }
+
+    /**
+     * @return The number of cacheable requests that had to go to the server.
+     */
+    public long getMissCount() {
+        return mMisses.get();
+    }
+
+    /**
+     * @return The number of responses evicted to keep the cache under its maximum size.
+     */
+    public long getEvictionCount() {
+        return mEvictions.get();
+    }
+
+    /**
+     * @return The number of responses in the cache, including any that have expired
+     * but haven't been requested again.
+     */
+    public int size() {
+        synchronized (mCache) {
+            return mCache.size();
+        }
+    }
+
+    /**
+     * Removes all responses from the cache.
+     */
+    public void clear() {
+        synchronized (mCache) {
+            mCache.clear();
+        }
+    }
+
+    ObaConnectionFactory getDelegate() {
+        return mDelegate;
+    }
+
+    long getTtl(URI uri) {
+        Long ttl = mTtls.get(UriUtils.getEndpoint(uri));
+        return (ttl != null) ? ttl : mDefaultTtl;
+    }
+
+    /**
+     * @return The cached response for this key, or null if there isn't
+     * one or it has expired.
+     */
+    CacheEntry get(String key) {
+        CacheEntry entry;
+        synchronized (mCache) {
+            entry = mCache.get(key);
+            if (entry != null && entry.expires <= System.currentTimeMillis()) {
+                mCache.remove(key);
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            mMisses.incrementAndGet();
+            return null;
+        }
+        mHits.incrementAndGet();
+        return entry;
+    }
+
+    void put(String key, byte[] body, long ttl, String etag, String lastModified) {
+        CacheEntry entry = new CacheEntry(body, System.currentTimeMillis() + ttl, etag,
+                lastModified);
+        synchronized (mCache) {
+            mCache.put(key, entry);
+        }
+    }
+}
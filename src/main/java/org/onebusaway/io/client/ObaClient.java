@@ -0,0 +1,251 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client;
+
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+import org.onebusaway.io.client.elements.ObaRegion;
+import org.onebusaway.io.client.metrics.RequestListener;
+import org.onebusaway.io.client.request.CircuitBreaker;
+import org.onebusaway.io.client.request.ConcurrencyLimiter;
+import org.onebusaway.io.client.request.HedgingPolicy;
+import org.onebusaway.io.client.request.RateLimiter;
+import org.onebusaway.io.client.request.RequestCoalescer;
+import org.onebusaway.io.client.request.RetryPolicy;
+import org.onebusaway.io.client.request.ValidatorCache;
+
+import java.net.URISyntaxException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * A fixed configuration for making requests: the server (a region or base URL), API key
+ * and app info, connection factory, serializer and executor, along with any caches and
+ * policies.  Unlike ObaApi.getDefaultContext() it can't be changed once it's built, so
+ * several clients, e.g. one per region or tenant, can be used side by side in one JVM,
+ * each with its own connection pool:
+ *
+ * <pre>
+ * ObaClient tampa = new ObaClient.Builder()
+ *         .setBaseUrl("http://api.tampa.onebusaway.org/api/")
+ *         .setApiKey(key)
+ *         .setConnectionFactory(new ObaPooledConnectionFactory.Builder().build())
+ *         .build();
+ * ObaArrivalInfoResponse response =
+ *         new ObaArrivalInfoRequest.Builder(tampa.getContext(), stopId).build().call();
+ * </pre>
+ *
+ * Requests are made with the client by passing getContext() to their builders.  The
+ * client doesn't own its connection factory or executor: shut them down when the
+ * client is no longer needed, if they need it.
+ */
+public final class ObaClient {
+
+    public static class Builder {
+
+        private final ObaContext mContext;
+
+        /**
+         * Starts from the defaults of a new ObaContext, rather than from the settings of
+         * the default context.
+         */
+        public Builder() {
+            mContext = new ObaContext();
+        }
+
+        /**
+         * Starts from the settings of a context, e.g. to share its caches and policies.
+         * Changing the context afterwards doesn't change the client.
+         */
+        public Builder(ObaContext context) {
+            mContext = context.clone();
+        }
+
+        /**
+         * Sets the region whose server the requests are sent to.  A region overrides
+         * a base URL.
+         */
+        public Builder setRegion(ObaRegion region) {
+            mContext.setRegion(region);
+            return this;
+        }
+
+        /**
+         * Sets the base URL of the server the requests are sent to.
+         *
+         * @throws IllegalArgumentException if the URL can't be parsed
+         */
+        public Builder setBaseUrl(String url) {
+            try {
+                mContext.setBaseUrl(url);
+            } catch (URISyntaxException e) {
+                throw new IllegalArgumentException(e);
+            }
+            return this;
+        }
+
+        public Builder setApiKey(String apiKey) {
+            mContext.setApiKey(apiKey);
+            return this;
+        }
+
+        public Builder setAppInfo(int version, String uuid) {
+            mContext.setAppInfo(version, uuid);
+            return this;
+        }
+
+        public Builder setConnectionFactory(ObaConnectionFactory factory) {
+            mContext.setConnectionFactory(factory);
+            return this;
+        }
+
+        /**
+         * @param serializer The handler, or null (the default) to use ObaApi.getSerializer().
+         */
+        public Builder setSerializer(ObaApi.SerializationHandler serializer) {
+            mContext.setSerializer(serializer);
+            return this;
+        }
+
+        /**
+         * @param executor The executor for callAsync(), or null (the default) to use the
+         *                 shared default.
+         */
+        public Builder setExecutor(ExecutorService executor) {
+            mContext.setExecutor(executor);
+            return this;
+        }
+
+        public ObaClient build() {
+            return new ObaClient(new FrozenContext(mContext));
+        }
+    }
+
+    /**
+     * A context whose settings can't be changed.  clone() gives a copy that can be.
+     */
+    private static final class FrozenContext extends ObaContext {
+
+        FrozenContext(ObaContext other) {
+            super(other);
+        }
+
+        private static UnsupportedOperationException frozen() {
+            return new UnsupportedOperationException(
+                    "An ObaClient's context can't be changed, clone() it instead");
+        }
+
+        @Override
+        public void setAppInfo(int version, String uuid) {
+            throw frozen();
+        }
+
+        @Override
+        public void setApiKey(String apiKey) {
+            throw frozen();
+        }
+
+        @Override
+        public void setRegion(ObaRegion region) {
+            throw frozen();
+        }
+
+        @Override
+        public ObaConnectionFactory setConnectionFactory(ObaConnectionFactory factory) {
+            throw frozen();
+        }
+
+        @Override
+        public void setSerializer(ObaApi.SerializationHandler serializer) {
+            throw frozen();
+        }
+
+        @Override
+        public void setExecutor(ExecutorService executor) {
+            throw frozen();
+        }
+
+        @Override
+        public void setRequestCoalescer(RequestCoalescer coalescer) {
+            throw frozen();
+        }
+
+        @Override
+        public void setRequestListener(RequestListener listener) {
+            throw frozen();
+        }
+
+        @Override
+        public void setValidatorCache(ValidatorCache cache) {
+            throw frozen();
+        }
+
+        @Override
+        public void setRetryPolicy(RetryPolicy policy) {
+            throw frozen();
+        }
+
+        @Override
+        public void setCircuitBreaker(CircuitBreaker breaker) {
+            throw frozen();
+        }
+
+        @Override
+        public void setHedgingPolicy(HedgingPolicy policy) {
+            throw frozen();
+        }
+
+        @Override
+        public void setConcurrencyLimiter(ConcurrencyLimiter limiter) {
+            throw frozen();
+        }
+
+        @Override
+        public void setRateLimiter(RateLimiter limiter) {
+            throw frozen();
+        }
+
+        @Override
+        public void setBaseUrl(String url) {
+            throw frozen();
+        }
+    }
+
+    private final ObaContext mContext;
+
+    private ObaClient(ObaContext context) {
+        mContext = context;
+    }
+
+    /**
+     * @return The context to give request builders, for the requests to be made with
+     * this client.  Its settings can't be changed.
+     */
+    public ObaContext getContext() {
+        return mContext;
+    }
+
+    public ObaConnectionFactory getConnectionFactory() {
+        return mContext.getConnectionFactory();
+    }
+
+    public <T> ObaApi.SerializationHandler getSerializer(Class<T> cls) {
+        return mContext.getSerializer(cls);
+    }
+
+    public ListeningExecutorService getExecutor() {
+        return mContext.getExecutor();
+    }
+}
@@ -16,6 +16,7 @@
 package org.onebusaway.io.client;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Reader;
 
 /**
@@ -32,9 +33,53 @@ public interface ObaConnection {
 
     public void disconnect();
 
+    /**
+     * Sets a request header (e.g., "If-None-Match"). This must be called before
+     * the request is sent by any of the other methods.
+     */
+    public void setRequestProperty(String name, String value);
+
     public Reader get() throws IOException;
 
     public Reader post(String string) throws IOException;
 
+    /**
+     * Returns the body of the GET response as the raw bytes sent by the server
+     * (decompressed, if it was compressed), so they can be deserialized without
+     * decoding them to characters first. OBA REST API responses are UTF-8.
+     */
+    public InputStream getStream() throws IOException;
+
+    /**
+     * The byte stream version of post()
+     */
+    public InputStream postStream(String string) throws IOException;
+
     public int getResponseCode() throws IOException;
+
+    /**
+     * Returns the value of a response header (e.g., "ETag"), sending the request
+     * if it hasn't been sent yet.
+     *
+     * @param name The header name, which is case-insensitive.
+     * @return The header value, or null if the response doesn't have the header.
+     */
+    public String getHeaderField(String name) throws IOException;
+
+    /**
+     * Returns the number of bytes of the response body read from the network so far,
+     * before any decompression.
+     *
+     * @return The number of bytes, or -1 if it isn't known.
+     */
+    public long getBytesReceived();
+
+    /**
+     * Returns how long it took to open the connection to the server (the DNS lookup
+     * and the TCP and TLS handshakes), once the request has been sent.
+     *
+     * @return The time in nanoseconds, 0 if no new connection was needed (e.g., a
+     * pooled connection was reused), or -1 if it isn't known.
+     */
+    public long getConnectNanos();
 }
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client;
+
+import com.google.common.io.CharStreams;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+
+/**
+ * A base for ObaConnection implementations written before getStream(), postStream(),
+ * setRequestProperty(), getHeaderField(), getBytesReceived() and getConnectNanos() were
+ * added to the interface.  Such a class only needs to extend this instead of implementing
+ * ObaConnection to compile again:
+ *
+ * <pre>
+ * public class MyConnection extends ObaConnectionAdapter {
+ *     // disconnect(), get(), post() and getResponseCode() as before
+ * }
+ * </pre>
+ *
+ * The byte streams are made by reading the whole Reader and encoding it as UTF-8, so
+ * a connection that can return the raw body should override getStream() and
+ * postStream().  Request headers are ignored, no response headers are reported and the
+ * sizes and times aren't known, which only means that conditional requests, caching
+ * validators and some metrics aren't available through the connection.
+ */
+public abstract class ObaConnectionAdapter implements ObaConnection {
+
+    /**
+     * Ignores the header
+     */
+    public void setRequestProperty(String name, String value) {
+    }
+
+    public InputStream getStream() throws IOException {
+        return encode(get());
+    }
+
+    public InputStream postStream(String string) throws IOException {
+        return encode(post(string));
+    }
+
+    /**
+     * @return null, as if the response didn't have the header
+     */
+    public String getHeaderField(String name) throws IOException {
+        return null;
+    }
+
+    public long getBytesReceived() {
+        return -1;
+    }
+
+    public long getConnectNanos() {
+        return -1;
+    }
+
+    private static InputStream encode(Reader reader) throws IOException {
+        try {
+            return new ByteArrayInputStream(
+                    CharStreams.toString(reader).getBytes(ContentEncoding.UTF8));
+        } finally {
+            reader.close();
+        }
+    }
+}
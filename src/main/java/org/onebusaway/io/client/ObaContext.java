@@ -15,38 +15,119 @@
  */
 package org.onebusaway.io.client;
 
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 import org.onebusaway.io.client.elements.ObaRegion;
+import org.onebusaway.io.client.metrics.RequestListener;
+import org.onebusaway.io.client.request.CircuitBreaker;
+import org.onebusaway.io.client.request.ConcurrencyLimiter;
+import org.onebusaway.io.client.request.HedgingPolicy;
+import org.onebusaway.io.client.request.RateLimiter;
+import org.onebusaway.io.client.request.RequestCoalescer;
+import org.onebusaway.io.client.request.RetryPolicy;
+import org.onebusaway.io.client.request.ValidatorCache;
+import org.onebusaway.io.client.util.UriTemplate;
 
 import javax.ws.rs.core.UriBuilder;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class ObaContext {
 
     private static final String TAG = "ObaContext";
 
-    private String mApiKey = "TEST";
+    private volatile String mApiKey = "TEST";
 
-    private int mAppVer = 0;
+    private volatile int mAppVer = 0;
 
-    private String mAppUid = null;
+    private volatile String mAppUid = null;
 
     private ObaConnectionFactory mConnectionFactory = ObaDefaultConnectionFactory.getInstance();
 
-    private ObaRegion mRegion;
+    private ObaApi.SerializationHandler mSerializer = null;
+
+    private ListeningExecutorService mExecutor = null;
+
+    private RequestCoalescer mRequestCoalescer = null;
+
+    private RequestListener mRequestListener = null;
+
+    private ValidatorCache mValidatorCache = null;
+
+    private RetryPolicy mRetryPolicy = null;
+
+    private CircuitBreaker mCircuitBreaker = null;
+
+    private HedgingPolicy mHedgingPolicy = null;
+
+    private ConcurrencyLimiter mConcurrencyLimiter = null;
+
+    private RateLimiter mRateLimiter = null;
+
+    private volatile ObaRegion mRegion;
     
-    private String mBaseUrl;
+    private volatile String mBaseUrl;
+
+    // Compiled on first use, and cleared whenever anything it depends on changes.
+    // Both happen while holding the lock, so a template compiled from the old
+    // settings can't be stored after they've changed.
+    private volatile UriTemplate mUriTemplate;
+
+    private final Object mUriTemplateLock = new Object();
+
+    private static class DefaultExecutorHolder {
+
+        public static final ListeningExecutorService INSTANCE = MoreExecutors.listeningDecorator(
+                Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+                        .setNameFormat("ObaRequest-%d")
+                        .setDaemon(true)
+                        .build()));
+    }
 
     public ObaContext() {
     }
 
+    /**
+     * Copies the settings of another context.  The connection factory, executor,
+     * caches and policies are shared with it rather than copied.
+     */
+    protected ObaContext(ObaContext other) {
+        mApiKey = other.mApiKey;
+        mAppVer = other.mAppVer;
+        mAppUid = other.mAppUid;
+        mConnectionFactory = other.mConnectionFactory;
+        mSerializer = other.mSerializer;
+        mExecutor = other.mExecutor;
+        mRequestCoalescer = other.mRequestCoalescer;
+        mRequestListener = other.mRequestListener;
+        mValidatorCache = other.mValidatorCache;
+        mRetryPolicy = other.mRetryPolicy;
+        mCircuitBreaker = other.mCircuitBreaker;
+        mHedgingPolicy = other.mHedgingPolicy;
+        mConcurrencyLimiter = other.mConcurrencyLimiter;
+        mRateLimiter = other.mRateLimiter;
+        mRegion = other.mRegion;
+        mBaseUrl = other.mBaseUrl;
+    }
+
     public void setAppInfo(int version, String uuid) {
-        mAppVer = version;
-        mAppUid = uuid;
+        synchronized (mUriTemplateLock) {
+            mAppVer = version;
+            mAppUid = uuid;
+            mUriTemplate = null;
+        }
     }
 
+    /**
+     * @deprecated Request URIs are built with getUriTemplate(), which includes the app info.
+     */
+    @Deprecated
     public void setAppInfo(UriBuilder builder) {
         if (mAppVer != 0) {
             builder.queryParam("app_ver", String.valueOf(mAppVer));
@@ -57,7 +138,10 @@ public class ObaContext {
     }
 
     public void setApiKey(String apiKey) {
-        mApiKey = apiKey;
+        synchronized (mUriTemplateLock) {
+            mApiKey = apiKey;
+            mUriTemplate = null;
+        }
     }
 
     public String getApiKey() {
@@ -65,7 +149,10 @@ public class ObaContext {
     }
 
     public void setRegion(ObaRegion region) {
-        mRegion = region;
+        synchronized (mUriTemplateLock) {
+            mRegion = region;
+            mUriTemplate = null;
+        }
     }
 
     public ObaRegion getRegion() {
@@ -84,24 +171,185 @@ public class ObaContext {
     public ObaConnectionFactory getConnectionFactory() {
         return mConnectionFactory;
     }
+
+    /**
+     * Sets the handler that reads the responses to requests made with this context,
+     * and creates their error responses.
+     *
+     * @param serializer The handler, or null (the default) to use ObaApi.getSerializer().
+     */
+    public void setSerializer(ObaApi.SerializationHandler serializer) {
+        mSerializer = serializer;
+    }
+
+    public <T> ObaApi.SerializationHandler getSerializer(Class<T> cls) {
+        return (mSerializer != null) ? mSerializer : ObaApi.getSerializer(cls);
+    }
+
+    /**
+     * Sets the executor that runs requests started with callAsync().
+     * If this isn't set, a shared pool of daemon threads is used.
+     *
+     * @param executor The executor to use, or null to use the shared default.
+     */
+    public void setExecutor(ExecutorService executor) {
+        mExecutor = (executor != null) ? MoreExecutors.listeningDecorator(executor) : null;
+    }
+
+    public ListeningExecutorService getExecutor() {
+        return (mExecutor != null) ? mExecutor : DefaultExecutorHolder.INSTANCE;
+    }
+
+    /**
+     * Sets the coalescer used to share the responses of identical concurrent GET requests.
+     *
+     * @param coalescer The coalescer, or null (the default) to not coalesce requests.
+     */
+    public void setRequestCoalescer(RequestCoalescer coalescer) {
+        mRequestCoalescer = coalescer;
+    }
+
+    public RequestCoalescer getRequestCoalescer() {
+        return mRequestCoalescer;
+    }
+
+    /**
+     * Sets the listener that receives the timings and result of every request,
+     * e.g. a RequestMetrics.
+     *
+     * @param listener The listener, or null (the default) to not time requests.
+     */
+    public void setRequestListener(RequestListener listener) {
+        mRequestListener = listener;
+    }
+
+    public RequestListener getRequestListener() {
+        return mRequestListener;
+    }
+
+    /**
+     * Sets the cache used to revalidate responses that rarely change with
+     * conditional GETs.
+     *
+     * @param cache The cache, or null (the default) to always download the full response.
+     */
+    public void setValidatorCache(ValidatorCache cache) {
+        mValidatorCache = cache;
+    }
+
+    public ValidatorCache getValidatorCache() {
+        return mValidatorCache;
+    }
+
+    /**
+     * Sets how GET requests that fail because the server is unavailable are retried.
+     *
+     * @param policy The policy, or null (the default) to not retry requests.
+     */
+    public void setRetryPolicy(RetryPolicy policy) {
+        mRetryPolicy = policy;
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return mRetryPolicy;
+    }
+
+    /**
+     * Sets the circuit breaker that fails requests fast while their server is unhealthy.
+     *
+     * @param breaker The circuit breaker, or null (the default) to always send requests.
+     */
+    public void setCircuitBreaker(CircuitBreaker breaker) {
+        mCircuitBreaker = breaker;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return mCircuitBreaker;
+    }
+
+    /**
+     * Sets the policy for sending a duplicate of a slow GET request and using
+     * whichever response arrives first.
+     *
+     * @param policy The policy, or null (the default) to not hedge requests.
+     */
+    public void setHedgingPolicy(HedgingPolicy policy) {
+        mHedgingPolicy = policy;
+    }
+
+    public HedgingPolicy getHedgingPolicy() {
+        return mHedgingPolicy;
+    }
+
+    /**
+     * Sets the limiter that adapts how many requests may be in progress to each server.
+     *
+     * @param limiter The limiter, or null (the default) to not limit requests.
+     */
+    public void setConcurrencyLimiter(ConcurrencyLimiter limiter) {
+        mConcurrencyLimiter = limiter;
+    }
+
+    public ConcurrencyLimiter getConcurrencyLimiter() {
+        return mConcurrencyLimiter;
+    }
+
+    /**
+     * Sets the limiter that keeps requests made with this context's API key within
+     * the server's rate limits.
+     *
+     * @param limiter The limiter, or null (the default) to not limit the request rate.
+     */
+    public void setRateLimiter(RateLimiter limiter) {
+        mRateLimiter = limiter;
+    }
+
+    public RateLimiter getRateLimiter() {
+        return mRateLimiter;
+    }
     
     /**
      * Used by external classes to set the base URL
      * @param url
      */
     public void setBaseUrl(String url) throws URISyntaxException {
-        mBaseUrl = url;
-
         // Test parsing the URL that's passed in here, so we can throw the exception now if its bad
         try {
             // URI.parse() doesn't tell us if the scheme is missing, so use URL() instead (#126)
-            URL test = new URL(mBaseUrl);
+            URL test = new URL(url);
         } catch (MalformedURLException e) {
             // Assume HTTP scheme, since without a scheme the Uri won't parse the authority
-            mBaseUrl = "http://" + mBaseUrl;
+            url = "http://" + url;
         }
 
-        new URI(mBaseUrl);
+        synchronized (mUriTemplateLock) {
+            mBaseUrl = url;
+            mUriTemplate = null;
+        }
+        new URI(url);
+    }
+
+    /**
+     * Returns the template that the OBA request classes build their URIs with, for either
+     * the Region set in this class or the Base URL set in this class (a set Region always
+     * overrides a set URL), and this context's API key and app info.  It's compiled once,
+     * and then reused until one of those is changed.
+     */
+    public UriTemplate getUriTemplate() {
+        UriTemplate template = mUriTemplate;
+        if (template != null) {
+            return template;
+        }
+        synchronized (mUriTemplateLock) {
+            template = mUriTemplate;
+            if (template == null) {
+                ObaRegion region = mRegion;
+                String baseUrl = (region != null) ? region.getObaBaseUrl() : mBaseUrl;
+                template = UriTemplate.compile(String.valueOf(baseUrl), mApiKey, mAppVer, mAppUid);
+                mUriTemplate = template;
+            }
+            return template;
+        }
     }
 
     /**
@@ -113,12 +361,13 @@ public class ObaContext {
      * returns, the builder will contain the full URL for the REST API endpoint (e.g., 
      * "http://api.tampa.onebusaway.org/api/where/arrivals-and-departures-for-stop/1_1622.json"
      * 
+     * @deprecated Use getUriTemplate(), which doesn't parse the base URL for each request.
      */
+    @Deprecated
     public void buildFullUrl(UriBuilder builder) {
         URI baseUrl = null;
 	      
 	      if (mRegion != null) {
-	    	  System.out.println("Using region base URL '" + mRegion.getObaBaseUrl() + "'.");
               try {
                   baseUrl = new URI(mRegion.getObaBaseUrl());
               } catch (URISyntaxException e) {
@@ -138,7 +387,6 @@ public class ObaContext {
               } catch (URISyntaxException e) {
                   e.printStackTrace();
               }
-              System.out.println("Using set base URL - " + baseUrl);
           }
 	  
 	      // Copy partial path (if one exists) from the base URL
@@ -154,10 +402,6 @@ public class ObaContext {
 
     @Override
     public ObaContext clone() {
-        ObaContext result = new ObaContext();
-        result.setApiKey(mApiKey);
-        result.setAppInfo(mAppVer, mAppUid);
-        result.setConnectionFactory(mConnectionFactory);
-        return result;
+        return new ObaContext(this);
     }
 }
@@ -15,8 +15,10 @@
  */
 package org.onebusaway.io.client;
 
-import java.io.BufferedInputStream;
+import com.google.common.io.CountingInputStream;
+
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.Reader;
@@ -30,28 +32,54 @@ public final class ObaDefaultConnection implements ObaConnection {
 
     private HttpURLConnection mConnection;
 
+    private volatile boolean mDisconnected = false;
+
+    private CountingInputStream mWire;
+
+    private long mConnectNanos = -1;
+
     ObaDefaultConnection(URI uri) throws IOException {
-        System.out.println(uri.toString());
         URL url = new URL(uri.toString());
         mConnection = (HttpURLConnection) url.openConnection();
         mConnection.setReadTimeout(30 * 1000);
+        mConnection.setRequestProperty("Accept-Encoding", ContentEncoding.ACCEPT_ENCODING);
     }
 
     public void disconnect() {
+        // This may be called from another thread to abort a request in progress,
+        // in which case closing the socket unblocks the reading thread.
+        mDisconnected = true;
         mConnection.disconnect();
     }
 
+    public void setRequestProperty(String name, String value) {
+        mConnection.setRequestProperty(name, value);
+    }
+
     public Reader get() throws IOException {
-        return new InputStreamReader(
-                new BufferedInputStream(mConnection.getInputStream(), 8 * 1024));
+        InputStream body = getStream();
+        return new InputStreamReader(body, ContentEncoding.charset(mConnection.getContentType()));
     }
 
     public Reader post(String string) throws IOException {
-        byte[] data = string.getBytes();
+        InputStream body = postStream(string);
+        return new InputStreamReader(body, ContentEncoding.charset(mConnection.getContentType()));
+    }
+
+    public InputStream getStream() throws IOException {
+        checkDisconnected();
+        connect();
+        return getBody();
+    }
+
+    public InputStream postStream(String string) throws IOException {
+        checkDisconnected();
+        byte[] data = string.getBytes(ContentEncoding.UTF8);
 
         mConnection.setDoOutput(true);
         mConnection.setFixedLengthStreamingMode(data.length);
         mConnection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+        connect();
 
         // Set the output stream
         OutputStream stream = mConnection.getOutputStream();
@@ -59,11 +87,52 @@ public final class ObaDefaultConnection implements ObaConnection {
         stream.flush();
         stream.close();
 
-        return new InputStreamReader(
-                new BufferedInputStream(mConnection.getInputStream(), 8 * 1024));
+        return getBody();
     }
 
     public int getResponseCode() throws IOException {
+        checkDisconnected();
+        connect();
         return mConnection.getResponseCode();
     }
+
+    public String getHeaderField(String name) throws IOException {
+        checkDisconnected();
+        connect();
+        // Unlike getResponseCode(), getHeaderField() swallows connection errors
+        mConnection.getResponseCode();
+        return mConnection.getHeaderField(name);
+    }
+
+    public long getBytesReceived() {
+        return (mWire != null) ? mWire.getCount() : -1;
+    }
+
+    public long getConnectNanos() {
+        return mConnectNanos;
+    }
+
+    /**
+     * Opens the connection before anything is sent, rather than letting the first
+     * send open it, so that the time it takes can be measured.  This reuses a
+     * kept-alive connection to the same server if there is one.
+     */
+    private void connect() throws IOException {
+        if (mConnectNanos < 0) {
+            final long start = System.nanoTime();
+            mConnection.connect();
+            mConnectNanos = System.nanoTime() - start;
+        }
+    }
+
+    private InputStream getBody() throws IOException {
+        mWire = ContentEncoding.count(mConnection.getInputStream());
+        return ContentEncoding.decode(mWire, mConnection.getContentEncoding());
+    }
+
+    private void checkDisconnected() throws IOException {
+        if (mDisconnected) {
+            throw new IOException("Connection was disconnected");
+        }
+    }
 }
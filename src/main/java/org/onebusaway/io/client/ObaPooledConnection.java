@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client;
+
+import com.google.common.io.CountingInputStream;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A connection leased from an ObaPooledConnectionFactory. Calling disconnect()
+ * returns the underlying socket to the pool rather than closing it, unless it's
+ * called from another thread to abort a request in progress.
+ */
+final class ObaPooledConnection implements ObaConnection {
+
+    private final CloseableHttpClient mClient;
+
+    private final URI mUri;
+
+    private volatile HttpRequestBase mRequest;
+
+    private CloseableHttpResponse mResponse;
+
+    private Thread mOwner;
+
+    private volatile boolean mAborted = false;
+
+    private CountingInputStream mWire;
+
+    private long mConnectNanos = -1;
+
+    private Charset mCharset = ContentEncoding.UTF8;
+
+    private final Map<String, String> mRequestHeaders = new LinkedHashMap<String, String>();
+
+    ObaPooledConnection(CloseableHttpClient client, URI uri) {
+        mClient = client;
+        mUri = uri;
+    }
+
+    public void disconnect() {
+        if (mOwner != Thread.currentThread()) {
+            abort();
+            return;
+        }
+        if (mResponse == null) {
+            return;
+        }
+        try {
+            // Draining the rest of the body is what allows the connection to be reused
+            EntityUtils.consume(mResponse.getEntity());
+        } catch (IOException e) {
+            mRequest.abort();
+        } finally {
+            try {
+                mResponse.close();
+            } catch (IOException e) {
+                // A connection that fails to close isn't returned to the pool, nothing to do
+            }
+        }
+    }
+
+    public void setRequestProperty(String name, String value) {
+        mRequestHeaders.put(name, value);
+    }
+
+    public Reader get() throws IOException {
+        InputStream body = getStream();
+        return new InputStreamReader(body, mCharset);
+    }
+
+    public Reader post(String string) throws IOException {
+        InputStream body = postStream(string);
+        return new InputStreamReader(body, mCharset);
+    }
+
+    public InputStream getStream() throws IOException {
+        if (mResponse == null) {
+            execute(new HttpGet(mUri));
+        }
+        return getBody();
+    }
+
+    public InputStream postStream(String string) throws IOException {
+        HttpPost post = new HttpPost(mUri);
+        post.setEntity(new StringEntity(string, ContentType.APPLICATION_FORM_URLENCODED));
+        execute(post);
+        return getBody();
+    }
+
+    public long getBytesReceived() {
+        return (mWire != null) ? mWire.getCount() : -1;
+    }
+
+    public long getConnectNanos() {
+        return mConnectNanos;
+    }
+
+    public int getResponseCode() throws IOException {
+        if (mResponse == null) {
+            execute(new HttpGet(mUri));
+        }
+        return mResponse.getStatusLine().getStatusCode();
+    }
+
+    public String getHeaderField(String name) throws IOException {
+        if (mResponse == null) {
+            execute(new HttpGet(mUri));
+        }
+        Header header = mResponse.getFirstHeader(name);
+        return (header != null) ? header.getValue() : null;
+    }
+
+    private void execute(HttpRequestBase request) throws IOException {
+        mOwner = Thread.currentThread();
+        // Compression is negotiated here rather than by HttpClient, so the compressed
+        // size can be counted
+        request.setHeader("Accept-Encoding", ContentEncoding.ACCEPT_ENCODING);
+        for (Map.Entry<String, String> header : mRequestHeaders.entrySet()) {
+            request.setHeader(header.getKey(), header.getValue());
+        }
+        mRequest = request;
+        if (mAborted) {
+            throw new IOException("Connection was disconnected");
+        }
+        HttpClientContext context = HttpClientContext.create();
+        mResponse = mClient.execute(request, context);
+        Long connectNanos =
+                (Long) context.getAttribute(ObaPooledConnectionFactory.CONNECT_NANOS);
+        // The pool only opens a new connection if it has no idle one to reuse
+        mConnectNanos = (connectNanos != null) ? connectNanos : 0;
+    }
+
+    /**
+     * Aborts the request from another thread. The socket is closed rather than
+     * returned to the pool, since we don't know what state it's in.
+     */
+    private void abort() {
+        mAborted = true;
+        HttpRequestBase request = mRequest;
+        if (request != null) {
+            request.abort();
+        }
+    }
+
+    private InputStream getBody() throws IOException {
+        // Match HttpURLConnection.getInputStream(), which throws on error responses
+        int code = mResponse.getStatusLine().getStatusCode();
+        if (code == HttpStatus.SC_NOT_FOUND || code == HttpStatus.SC_GONE) {
+            throw new FileNotFoundException(mUri.toString());
+        } else if (code >= HttpStatus.SC_BAD_REQUEST) {
+            throw new IOException("Server returned HTTP response code: " + code
+                    + " for URL: " + mUri);
+        }
+        HttpEntity entity = mResponse.getEntity();
+        if (entity == null) {
+            throw new IOException("No response body for URL: " + mUri);
+        }
+        ContentType contentType = ContentType.get(entity);
+        if (contentType != null && contentType.getCharset() != null) {
+            mCharset = contentType.getCharset();
+        }
+        Header encoding = entity.getContentEncoding();
+        mWire = ContentEncoding.count(entity.getContent());
+        return ContentEncoding.decode(mWire, (encoding != null) ? encoding.getValue() : null);
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An ObaConnectionFactory backed by a bounded pool of keep-alive HTTP connections,
+ * so repeated calls to the same OBA server don't pay for a new TCP (and TLS)
+ * handshake every time.
+ *
+ * Unlike ObaDefaultConnectionFactory this isn't a singleton - each instance owns its
+ * own pool, which should be released with {@link #shutdown()} when it's no longer needed.
+ *
+ * <pre>
+ * ObaApi.getDefaultContext().setConnectionFactory(
+ *         new ObaPooledConnectionFactory.Builder()
+ *                 .setMaxConnectionsPerHost(10)
+ *                 .build());
+ * </pre>
+ */
+public class ObaPooledConnectionFactory implements ObaConnectionFactory {
+
+    /**
+     * The context attribute a request's connect time is stored in, when it needs a
+     * new connection rather than reusing a pooled one
+     */
+    static final String CONNECT_NANOS = "org.onebusaway.io.client.connect-nanos";
+
+    private final PoolingHttpClientConnectionManager mConnectionManager;
+
+    private final CloseableHttpClient mClient;
+
+    private final ScheduledExecutorService mEvictor;
+
+    public static class Builder {
+
+        private int mMaxConnections = 20;
+
+        private int mMaxConnectionsPerHost = 5;
+
+        private int mConnectTimeout = 15 * 1000;
+
+        private int mReadTimeout = 30 * 1000;
+
+        private int mConnectionRequestTimeout = 30 * 1000;
+
+        private long mIdleTimeout = 30 * 1000;
+
+        /**
+         * Sets the maximum number of open connections across all hosts.
+         *
+         * @param max The maximum number of pooled connections.
+         */
+        public Builder setMaxConnections(int max) {
+            mMaxConnections = max;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of open connections to a single host.
+         *
+         * @param max The maximum number of pooled connections per host.
+         */
+        public Builder setMaxConnectionsPerHost(int max) {
+            mMaxConnectionsPerHost = max;
+            return this;
+        }
+
+        /**
+         * @param ms The timeout for establishing a new connection, in milliseconds.
+         */
+        public Builder setConnectTimeout(int ms) {
+            mConnectTimeout = ms;
+            return this;
+        }
+
+        /**
+         * @param ms The socket read timeout, in milliseconds.
+         */
+        public Builder setReadTimeout(int ms) {
+            mReadTimeout = ms;
+            return this;
+        }
+
+        /**
+         * @param ms How long a request waits for a free connection when the pool
+         *           is exhausted, in milliseconds.
+         */
+        public Builder setConnectionRequestTimeout(int ms) {
+            mConnectionRequestTimeout = ms;
+            return this;
+        }
+
+        /**
+         * @param ms How long a connection may sit idle in the pool before it's closed,
+         *           in milliseconds.
+         */
+        public Builder setIdleTimeout(long ms) {
+            mIdleTimeout = ms;
+            return this;
+        }
+
+        public ObaPooledConnectionFactory build() {
+            return new ObaPooledConnectionFactory(this);
+        }
+    }
+
+    private ObaPooledConnectionFactory(Builder builder) {
+        mConnectionManager = new TimedConnectionManager();
+        mConnectionManager.setMaxTotal(builder.mMaxConnections);
+        mConnectionManager.setDefaultMaxPerRoute(builder.mMaxConnectionsPerHost);
+
+        RequestConfig config = RequestConfig.custom()
+                .setConnectTimeout(builder.mConnectTimeout)
+                .setSocketTimeout(builder.mReadTimeout)
+                .setConnectionRequestTimeout(builder.mConnectionRequestTimeout)
+                .build();
+
+        mClient = HttpClients.custom()
+                .setConnectionManager(mConnectionManager)
+                .setDefaultRequestConfig(config)
+                .disableContentCompression()
+                .build();
+
+        mEvictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "ObaPooledConnectionFactory-evictor");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        final long idleTimeout = builder.mIdleTimeout;
+        final long period = Math.max(idleTimeout / 2, 1000);
+        mEvictor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                mConnectionManager.closeExpiredConnections();
+                mConnectionManager.closeIdleConnections(idleTimeout, TimeUnit.MILLISECONDS);
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Records how long it takes to open each new connection (for HTTPS, including
+     * the TLS handshake) in the context of the request that opens it.
+     */
+    private static final class TimedConnectionManager extends PoolingHttpClientConnectionManager {
+
+        @Override
+        public void connect(HttpClientConnection conn, HttpRoute route, int connectTimeout,
+                            HttpContext context) throws IOException {
+            final long start = System.nanoTime();
+            super.connect(conn, route, connectTimeout, context);
+            context.setAttribute(CONNECT_NANOS, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public ObaConnection newConnection(URI uri) throws IOException {
+        return new ObaPooledConnection(mClient, uri);
+    }
+
+    /**
+     * @return The current state of the connection pool (leased, idle and pending connections).
+     */
+    public PoolStats getPoolStats() {
+        return mConnectionManager.getTotalStats();
+    }
+
+    /**
+     * Closes all pooled connections and stops the idle connection evictor.
+     * Connections created by this factory can't be used afterwards.
+     */
+    public void shutdown() {
+        mEvictor.shutdownNow();
+        try {
+            mClient.close();
+        } catch (IOException e) {
+            // The pool is being thrown away, so there's nothing to do with a failed close
+        }
+    }
+}
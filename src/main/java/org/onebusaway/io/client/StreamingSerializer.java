@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+
+import org.onebusaway.io.client.request.ResponseReader;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+
+/**
+ * Deserializes the responses that ResponseReader supports with its hand-written
+ * readers, which skip the reflection JacksonSerializer needs to bind the final fields
+ * of the elements.  Everything else, and serialization, goes to JacksonSerializer.
+ * <p>
+ * ObaApi.getSerializer() returns this for the classes it supports, so there's no need
+ * to set it on the context.
+ */
+public final class StreamingSerializer implements ObaApi.SerializationHandler {
+
+    private static class SingletonHolder {
+
+        public static final StreamingSerializer INSTANCE = new StreamingSerializer();
+    }
+
+    private static final JsonFactory mFactory = new JsonFactory();
+
+    private StreamingSerializer() { /* singleton */ }
+
+    /**
+     * Make the singleton instance available
+     */
+    public static ObaApi.SerializationHandler getInstance() {
+        return SingletonHolder.INSTANCE;
+    }
+
+    @Override
+    public <T> T deserialize(Reader reader, Class<T> cls) {
+        if (!ResponseReader.canRead(cls)) {
+            return JacksonSerializer.getInstance().deserialize(reader, cls);
+        }
+        try {
+            return deserialize(mFactory.createParser(reader), cls);
+        } catch (IOException e) {
+            return createFromError(cls, ObaApi.OBA_IO_EXCEPTION, e.toString());
+        }
+    }
+
+    @Override
+    public <T> T deserialize(InputStream stream, Class<T> cls) {
+        if (!ResponseReader.canRead(cls)) {
+            return JacksonSerializer.getInstance().deserialize(stream, cls);
+        }
+        try {
+            return deserialize(mFactory.createParser(stream), cls);
+        } catch (IOException e) {
+            return createFromError(cls, ObaApi.OBA_IO_EXCEPTION, e.toString());
+        }
+    }
+
+    private <T> T deserialize(JsonParser parser, Class<T> cls) {
+        try {
+            T t = readValue(parser, cls);
+            if (t == null) {
+                t = createFromError(cls, ObaApi.OBA_INTERNAL_ERROR, "Json error");
+            }
+            return t;
+        } catch (FileNotFoundException e) {
+            return createFromError(cls, ObaApi.OBA_NOT_FOUND, e.toString());
+        } catch (JsonProcessingException e) {
+            return createFromError(cls, ObaApi.OBA_INTERNAL_ERROR, e.toString());
+        } catch (IOException e) {
+            return createFromError(cls, ObaApi.OBA_IO_EXCEPTION, e.toString());
+        }
+    }
+
+    private static <T> T readValue(JsonParser parser, Class<T> cls) throws IOException {
+        try {
+            // An empty body has no value to read
+            if (parser.nextToken() == null) {
+                return null;
+            }
+            return ResponseReader.read(parser, cls);
+        } finally {
+            parser.close();
+        }
+    }
+
+    @Override
+    public String serialize(Object obj) {
+        return JacksonSerializer.getInstance().serialize(obj);
+    }
+
+    @Override
+    public <T> T createFromError(Class<T> cls, int code, String error) {
+        if (!ResponseReader.canRead(cls)) {
+            return JacksonSerializer.getInstance().createFromError(cls, code, error);
+        }
+        final String json = String.format("{\"code\": %d,\"version\":\"2\",\"text\":\"%s\"}",
+                code, new String(JsonStringEncoder.getInstance().quoteAsString(error)));
+        try {
+            return readValue(mFactory.createParser(json), cls);
+        } catch (IOException e) {
+            // Can't happen, the JSON is well-formed
+            throw new AssertionError(e);
+        }
+    }
+}
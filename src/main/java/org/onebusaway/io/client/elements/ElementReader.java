@@ -0,0 +1,375 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.elements;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads elements straight from a Jackson token stream, without the reflection that
+ * JacksonSerializer uses to bind the final fields.  Each element class reads its own
+ * fields in a package-private constructor; this class holds the value readers they
+ * share and is the entry point for the response classes.
+ * <p>
+ * The readers give the same result as JacksonSerializer for the same input: unknown
+ * fields are skipped, a missing field keeps the element's default, and an explicit
+ * null sets a reference field to null and a primitive field to zero.
+ * <p>
+ * Every method expects the parser to be on the first token of the value to read, and
+ * leaves it on the last token of that value.
+ */
+public final class ElementReader {
+
+    private static final String[] EMPTY_STRINGS = new String[]{};
+
+    private ElementReader() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Advances to the next field of the current object.
+     *
+     * @return The name of the field, with the parser on its value,
+     * or null at the end of the object
+     */
+    public static String nextField(JsonParser parser) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.END_OBJECT) {
+            return null;
+        }
+        if (token != JsonToken.FIELD_NAME) {
+            throw unexpected(parser, "a field name");
+        }
+        String name = parser.getCurrentName();
+        parser.nextToken();
+        return name;
+    }
+
+    /**
+     * @return True if the current value is an object, or false if it is null
+     */
+    public static boolean startObject(JsonParser parser) throws IOException {
+        JsonToken token = parser.getCurrentToken();
+        if (token == JsonToken.START_OBJECT) {
+            return true;
+        }
+        if (token == JsonToken.VALUE_NULL) {
+            return false;
+        }
+        throw unexpected(parser, "an object");
+    }
+
+    public static String readString(JsonParser parser) throws IOException {
+        JsonToken token = parser.getCurrentToken();
+        if (token == JsonToken.VALUE_STRING) {
+            return parser.getText();
+        }
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token != null && token.isScalarValue()) {
+            return parser.getText();
+        }
+        throw unexpected(parser, "a string");
+    }
+
+    public static String[] readStringArray(JsonParser parser) throws IOException {
+        if (!startArray(parser)) {
+            return null;
+        }
+        if (parser.nextToken() == JsonToken.END_ARRAY) {
+            return EMPTY_STRINGS;
+        }
+        List<String> list = new ArrayList<String>();
+        do {
+            list.add(readString(parser));
+        } while (nextElement(parser));
+        return list.toArray(new String[list.size()]);
+    }
+
+    public static int readInt(JsonParser parser) throws IOException {
+        checkScalar(parser);
+        return parser.getValueAsInt();
+    }
+
+    public static Integer readInteger(JsonParser parser) throws IOException {
+        return isNull(parser) ? null : Integer.valueOf(readInt(parser));
+    }
+
+    public static long readLong(JsonParser parser) throws IOException {
+        checkScalar(parser);
+        return parser.getValueAsLong();
+    }
+
+    public static Long readLongObject(JsonParser parser) throws IOException {
+        return isNull(parser) ? null : Long.valueOf(readLong(parser));
+    }
+
+    public static double readDouble(JsonParser parser) throws IOException {
+        checkScalar(parser);
+        return parser.getValueAsDouble();
+    }
+
+    public static Double readDoubleObject(JsonParser parser) throws IOException {
+        return isNull(parser) ? null : Double.valueOf(readDouble(parser));
+    }
+
+    public static boolean readBoolean(JsonParser parser) throws IOException {
+        // Jackson takes 0 or 1 for a boolean, but not 0.0 or 1.0
+        if (parser.getCurrentToken() == JsonToken.VALUE_NUMBER_FLOAT) {
+            throw unexpected(parser, "a boolean");
+        }
+        checkScalar(parser);
+        return parser.getValueAsBoolean();
+    }
+
+    public static Boolean readBooleanObject(JsonParser parser) throws IOException {
+        return isNull(parser) ? null : Boolean.valueOf(readBoolean(parser));
+    }
+
+    public static ObaReferencesElement readReferences(JsonParser parser) throws IOException {
+        return startObject(parser) ? new ObaReferencesElement(parser) : null;
+    }
+
+    public static ObaStopElement readStop(JsonParser parser) throws IOException {
+        return startObject(parser) ? new ObaStopElement(parser) : null;
+    }
+
+    public static ObaRouteElement readRoute(JsonParser parser) throws IOException {
+        return startObject(parser) ? new ObaRouteElement(parser) : null;
+    }
+
+    public static ObaTripDetailsElement readTripDetails(JsonParser parser) throws IOException {
+        return startObject(parser) ? new ObaTripDetailsElement(parser) : null;
+    }
+
+    public static ObaTripDetailsElement[] readTripDetailsArray(JsonParser parser)
+            throws IOException {
+        if (!startArray(parser)) {
+            return null;
+        }
+        if (parser.nextToken() == JsonToken.END_ARRAY) {
+            return ObaTripDetailsElement.EMPTY_ARRAY;
+        }
+        List<ObaTripDetailsElement> list = new ArrayList<ObaTripDetailsElement>();
+        do {
+            list.add(readTripDetails(parser));
+        } while (nextElement(parser));
+        return list.toArray(new ObaTripDetailsElement[list.size()]);
+    }
+
+    public static ObaArrivalInfo[] readArrivalInfoArray(JsonParser parser) throws IOException {
+        if (!startArray(parser)) {
+            return null;
+        }
+        if (parser.nextToken() == JsonToken.END_ARRAY) {
+            return ObaArrivalInfo.EMPTY_ARRAY;
+        }
+        List<ObaArrivalInfo> list = new ArrayList<ObaArrivalInfo>();
+        do {
+            list.add(startObject(parser) ? new ObaArrivalInfo(parser) : null);
+        } while (nextElement(parser));
+        return list.toArray(new ObaArrivalInfo[list.size()]);
+    }
+
+    static ObaStopElement[] readStopArray(JsonParser parser) throws IOException {
+        if (!startArray(parser)) {
+            return null;
+        }
+        if (parser.nextToken() == JsonToken.END_ARRAY) {
+            return ObaStopElement.EMPTY_ARRAY;
+        }
+        List<ObaStopElement> list = new ArrayList<ObaStopElement>();
+        do {
+            list.add(readStop(parser));
+        } while (nextElement(parser));
+        return list.toArray(new ObaStopElement[list.size()]);
+    }
+
+    static ObaRouteElement[] readRouteArray(JsonParser parser) throws IOException {
+        if (!startArray(parser)) {
+            return null;
+        }
+        if (parser.nextToken() == JsonToken.END_ARRAY) {
+            return ObaRouteElement.EMPTY_ARRAY;
+        }
+        List<ObaRouteElement> list = new ArrayList<ObaRouteElement>();
+        do {
+            list.add(readRoute(parser));
+        } while (nextElement(parser));
+        return list.toArray(new ObaRouteElement[list.size()]);
+    }
+
+    static ObaTripElement[] readTripArray(JsonParser parser) throws IOException {
+        if (!startArray(parser)) {
+            return null;
+        }
+        if (parser.nextToken() == JsonToken.END_ARRAY) {
+            return ObaTripElement.EMPTY_ARRAY;
+        }
+        List<ObaTripElement> list = new ArrayList<ObaTripElement>();
+        do {
+            list.add(startObject(parser) ? new ObaTripElement(parser) : null);
+        } while (nextElement(parser));
+        return list.toArray(new ObaTripElement[list.size()]);
+    }
+
+    static ObaAgencyElement[] readAgencyArray(JsonParser parser) throws IOException {
+        if (!startArray(parser)) {
+            return null;
+        }
+        if (parser.nextToken() == JsonToken.END_ARRAY) {
+            return ObaAgencyElement.EMPTY_ARRAY;
+        }
+        List<ObaAgencyElement> list = new ArrayList<ObaAgencyElement>();
+        do {
+            list.add(startObject(parser) ? new ObaAgencyElement(parser) : null);
+        } while (nextElement(parser));
+        return list.toArray(new ObaAgencyElement[list.size()]);
+    }
+
+    static ObaSituationElement[] readSituationArray(JsonParser parser) throws IOException {
+        if (!startArray(parser)) {
+            return null;
+        }
+        if (parser.nextToken() == JsonToken.END_ARRAY) {
+            return ObaSituationElement.EMPTY_ARRAY;
+        }
+        List<ObaSituationElement> list = new ArrayList<ObaSituationElement>();
+        do {
+            list.add(startObject(parser) ? new ObaSituationElement(parser) : null);
+        } while (nextElement(parser));
+        return list.toArray(new ObaSituationElement[list.size()]);
+    }
+
+    static ObaTripStatusElement readTripStatus(JsonParser parser) throws IOException {
+        return startObject(parser) ? new ObaTripStatusElement(parser) : null;
+    }
+
+    static ObaTripStatus.Position readPosition(JsonParser parser) throws IOException {
+        return startObject(parser) ? new ObaTripStatus.Position(parser) : null;
+    }
+
+    static ObaShapeElement readShape(JsonParser parser) throws IOException {
+        return startObject(parser) ? new ObaShapeElement(parser) : null;
+    }
+
+    static ObaTripSchedule.StopTime[] readStopTimeArray(JsonParser parser) throws IOException {
+        if (!startArray(parser)) {
+            return null;
+        }
+        if (parser.nextToken() == JsonToken.END_ARRAY) {
+            return new ObaTripSchedule.StopTime[0];
+        }
+        List<ObaTripSchedule.StopTime> list = new ArrayList<ObaTripSchedule.StopTime>();
+        do {
+            list.add(startObject(parser) ? new ObaTripSchedule.StopTime(parser) : null);
+        } while (nextElement(parser));
+        return list.toArray(new ObaTripSchedule.StopTime[list.size()]);
+    }
+
+    static ObaSituationElement.AllAffectsElement[] readAllAffectsArray(JsonParser parser) throws IOException {
+        if (!startArray(parser)) {
+            return null;
+        }
+        if (parser.nextToken() == JsonToken.END_ARRAY) {
+            return ObaSituationElement.AllAffectsElement.EMPTY_ARRAY;
+        }
+        List<ObaSituationElement.AllAffectsElement> list = new ArrayList<ObaSituationElement.AllAffectsElement>();
+        do {
+            list.add(startObject(parser) ? new ObaSituationElement.AllAffectsElement(parser) : null);
+        } while (nextElement(parser));
+        return list.toArray(new ObaSituationElement.AllAffectsElement[list.size()]);
+    }
+
+    static ObaSituationElement.ConsequenceElement[] readConsequenceArray(JsonParser parser) throws IOException {
+        if (!startArray(parser)) {
+            return null;
+        }
+        if (parser.nextToken() == JsonToken.END_ARRAY) {
+            return ObaSituationElement.ConsequenceElement.EMPTY_ARRAY;
+        }
+        List<ObaSituationElement.ConsequenceElement> list = new ArrayList<ObaSituationElement.ConsequenceElement>();
+        do {
+            list.add(startObject(parser) ? new ObaSituationElement.ConsequenceElement(parser) : null);
+        } while (nextElement(parser));
+        return list.toArray(new ObaSituationElement.ConsequenceElement[list.size()]);
+    }
+
+    static ObaTripSchedule readTripSchedule(JsonParser parser) throws IOException {
+        return startObject(parser) ? new ObaTripSchedule(parser) : null;
+    }
+
+    static ObaArrivalInfo.Frequency readFrequency(JsonParser parser) throws IOException {
+        return startObject(parser) ? new ObaArrivalInfo.Frequency(parser) : null;
+    }
+
+    static ObaSituationElement.Text readText(JsonParser parser) throws IOException {
+        return startObject(parser) ? new ObaSituationElement.Text(parser) : null;
+    }
+
+    static ObaSituationElement.ConditionDetailsElement readConditionDetails(JsonParser parser) throws IOException {
+        return startObject(parser) ? new ObaSituationElement.ConditionDetailsElement(parser) : null;
+    }
+
+    /**
+     * @return True if the current value is an array, or false if it is null
+     */
+    static boolean startArray(JsonParser parser) throws IOException {
+        JsonToken token = parser.getCurrentToken();
+        if (token == JsonToken.START_ARRAY) {
+            return true;
+        }
+        if (token == JsonToken.VALUE_NULL) {
+            return false;
+        }
+        throw unexpected(parser, "an array");
+    }
+
+    /**
+     * Advances to the next element of the current array.
+     *
+     * @return True if the parser is on the next element, or false at the end of the array
+     */
+    static boolean nextElement(JsonParser parser) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == null) {
+            throw unexpected(parser, "an array element");
+        }
+        return token != JsonToken.END_ARRAY;
+    }
+
+    private static boolean isNull(JsonParser parser) {
+        return parser.getCurrentToken() == JsonToken.VALUE_NULL;
+    }
+
+    private static void checkScalar(JsonParser parser) throws IOException {
+        JsonToken token = parser.getCurrentToken();
+        if (token == null || !token.isScalarValue()) {
+            throw unexpected(parser, "a scalar value");
+        }
+    }
+
+    private static JsonParseException unexpected(JsonParser parser, String expected) {
+        return new JsonParseException("Expected " + expected + " but found "
+                + parser.getCurrentToken(), parser.getCurrentLocation());
+    }
+}
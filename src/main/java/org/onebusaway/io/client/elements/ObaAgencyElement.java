@@ -15,6 +15,10 @@
  */
 package org.onebusaway.io.client.elements;
 
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+
 /**
  * Object that defines an Agency element
  * {@link http://code.google.com/p/onebusaway/wiki/OneBusAwayRestApi_AgencyElementV2}
@@ -51,6 +55,52 @@ public final class ObaAgencyElement implements ObaAgency {
         disclaimer = "";
     }
 
+    ObaAgencyElement(JsonParser parser) throws IOException {
+        String id = "";
+        String name = "";
+        String url = "";
+        String timezone = "";
+        String lang = "";
+        String phone = "";
+        String disclaimer = "";
+        String field;
+        while ((field = ElementReader.nextField(parser)) != null) {
+            switch (field) {
+                case "id":
+                    id = ElementReader.readString(parser);
+                    break;
+                case "name":
+                    name = ElementReader.readString(parser);
+                    break;
+                case "url":
+                    url = ElementReader.readString(parser);
+                    break;
+                case "timezone":
+                    timezone = ElementReader.readString(parser);
+                    break;
+                case "lang":
+                    lang = ElementReader.readString(parser);
+                    break;
+                case "phone":
+                    phone = ElementReader.readString(parser);
+                    break;
+                case "disclaimer":
+                    disclaimer = ElementReader.readString(parser);
+                    break;
+                default:
+                    parser.skipChildren();
+                    break;
+            }
+        }
+        this.id = id;
+        this.name = name;
+        this.url = url;
+        this.timezone = timezone;
+        this.lang = lang;
+        this.phone = phone;
+        this.disclaimer = disclaimer;
+    }
+
     @Override
     public String getId() {
         return id;
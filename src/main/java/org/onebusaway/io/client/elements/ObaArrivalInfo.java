@@ -15,6 +15,10 @@
  */
 package org.onebusaway.io.client.elements;
 
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+
 public final class ObaArrivalInfo {
 
     public static final ObaArrivalInfo EMPTY_OBJECT = new ObaArrivalInfo();
@@ -35,6 +39,32 @@ public final class ObaArrivalInfo {
             headway = 0;
         }
 
+        Frequency(JsonParser parser) throws IOException {
+            long startTime = 0;
+            long endTime = 0;
+            long headway = 0;
+            String field;
+            while ((field = ElementReader.nextField(parser)) != null) {
+                switch (field) {
+                    case "startTime":
+                        startTime = ElementReader.readLong(parser);
+                        break;
+                    case "endTime":
+                        endTime = ElementReader.readLong(parser);
+                        break;
+                    case "headway":
+                        headway = ElementReader.readLong(parser);
+                        break;
+                    default:
+                        parser.skipChildren();
+                        break;
+                }
+            }
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.headway = headway;
+        }
+
         public long getStartTime() {
             return startTime;
         }
@@ -126,6 +156,142 @@ public final class ObaArrivalInfo {
         blockTripSequence = 0;
     }
 
+    ObaArrivalInfo(JsonParser parser) throws IOException {
+        String routeId = "";
+        String routeShortName = "";
+        String routeLongName = "";
+        String tripId = "";
+        String tripHeadsign = "";
+        String stopId = "";
+        long predictedArrivalTime = 0;
+        long scheduledArrivalTime = 0;
+        long predictedDepartureTime = 0;
+        long scheduledDepartureTime = 0;
+        String status = "";
+        Frequency frequency = null;
+        String vehicleId = null;
+        Double distanceFromStop = null;
+        Integer numberOfStopsAway = null;
+        long serviceDate = 0;
+        long lastUpdateTime = 0;
+        Boolean predicted = null;
+        ObaTripStatusElement tripStatus = null;
+        String[] situationIds = null;
+        boolean arrivalEnabled = true;
+        boolean departureEnabled = true;
+        int stopSequence = 0;
+        int totalStopsInTrip = 0;
+        int blockTripSequence = 0;
+        String field;
+        while ((field = ElementReader.nextField(parser)) != null) {
+            switch (field) {
+                case "routeId":
+                    routeId = ElementReader.readString(parser);
+                    break;
+                case "routeShortName":
+                    routeShortName = ElementReader.readString(parser);
+                    break;
+                case "routeLongName":
+                    routeLongName = ElementReader.readString(parser);
+                    break;
+                case "tripId":
+                    tripId = ElementReader.readString(parser);
+                    break;
+                case "tripHeadsign":
+                    tripHeadsign = ElementReader.readString(parser);
+                    break;
+                case "stopId":
+                    stopId = ElementReader.readString(parser);
+                    break;
+                case "predictedArrivalTime":
+                    predictedArrivalTime = ElementReader.readLong(parser);
+                    break;
+                case "scheduledArrivalTime":
+                    scheduledArrivalTime = ElementReader.readLong(parser);
+                    break;
+                case "predictedDepartureTime":
+                    predictedDepartureTime = ElementReader.readLong(parser);
+                    break;
+                case "scheduledDepartureTime":
+                    scheduledDepartureTime = ElementReader.readLong(parser);
+                    break;
+                case "status":
+                    status = ElementReader.readString(parser);
+                    break;
+                case "frequency":
+                    frequency = ElementReader.readFrequency(parser);
+                    break;
+                case "vehicleId":
+                    vehicleId = ElementReader.readString(parser);
+                    break;
+                case "distanceFromStop":
+                    distanceFromStop = ElementReader.readDoubleObject(parser);
+                    break;
+                case "numberOfStopsAway":
+                    numberOfStopsAway = ElementReader.readInteger(parser);
+                    break;
+                case "serviceDate":
+                    serviceDate = ElementReader.readLong(parser);
+                    break;
+                case "lastUpdateTime":
+                    lastUpdateTime = ElementReader.readLong(parser);
+                    break;
+                case "predicted":
+                    predicted = ElementReader.readBooleanObject(parser);
+                    break;
+                case "tripStatus":
+                    tripStatus = ElementReader.readTripStatus(parser);
+                    break;
+                case "situationIds":
+                    situationIds = ElementReader.readStringArray(parser);
+                    break;
+                case "arrivalEnabled":
+                    arrivalEnabled = ElementReader.readBoolean(parser);
+                    break;
+                case "departureEnabled":
+                    departureEnabled = ElementReader.readBoolean(parser);
+                    break;
+                case "stopSequence":
+                    stopSequence = ElementReader.readInt(parser);
+                    break;
+                case "totalStopsInTrip":
+                    totalStopsInTrip = ElementReader.readInt(parser);
+                    break;
+                case "blockTripSequence":
+                    blockTripSequence = ElementReader.readInt(parser);
+                    break;
+                default:
+                    parser.skipChildren();
+                    break;
+            }
+        }
+        this.routeId = routeId;
+        this.routeShortName = routeShortName;
+        this.routeLongName = routeLongName;
+        this.tripId = tripId;
+        this.tripHeadsign = tripHeadsign;
+        this.stopId = stopId;
+        this.predictedArrivalTime = predictedArrivalTime;
+        this.scheduledArrivalTime = scheduledArrivalTime;
+        this.predictedDepartureTime = predictedDepartureTime;
+        this.scheduledDepartureTime = scheduledDepartureTime;
+        this.status = status;
+        this.frequency = frequency;
+        this.vehicleId = vehicleId;
+        this.distanceFromStop = distanceFromStop;
+        this.numberOfStopsAway = numberOfStopsAway;
+        this.serviceDate = serviceDate;
+        this.lastUpdateTime = lastUpdateTime;
+        this.predicted = predicted;
+        this.tripStatus = tripStatus;
+        this.situationIds = situationIds;
+        this.arrivalEnabled = arrivalEnabled;
+        this.departureEnabled = departureEnabled;
+        this.stopSequence = stopSequence;
+        this.totalStopsInTrip = totalStopsInTrip;
+        this.blockTripSequence = blockTripSequence;
+    }
+
     /**
      * @return The ID of the route.
      */
@@ -15,9 +15,16 @@
  */
 package org.onebusaway.io.client.elements;
 
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public final class ObaReferencesElement implements ObaReferences {
 
@@ -33,6 +40,21 @@ public final class ObaReferencesElement implements ObaReferences {
 
     private final ObaSituationElement[] situations;
 
+    //
+    // Lookup indexes, built on first use. These are transient so that Jackson
+    // ignores them, and volatile so an index built on one thread is safely
+    // published to others (at worst two threads build the same index).
+    //
+    private transient volatile Map<String, ObaStopElement> mStopIndex;
+
+    private transient volatile Map<String, ObaRouteElement> mRouteIndex;
+
+    private transient volatile Map<String, ObaTripElement> mTripIndex;
+
+    private transient volatile Map<String, ObaAgencyElement> mAgencyIndex;
+
+    private transient volatile Map<String, ObaSituationElement> mSituationIndex;
+
     public ObaReferencesElement() {
         stops = ObaStopElement.EMPTY_ARRAY;
         routes = ObaRouteElement.EMPTY_ARRAY;
@@ -41,24 +63,94 @@ public final class ObaReferencesElement implements ObaReferences {
         situations = ObaSituationElement.EMPTY_ARRAY;
     }
 
+    ObaReferencesElement(JsonParser parser) throws IOException {
+        ObaStopElement[] stops = ObaStopElement.EMPTY_ARRAY;
+        ObaRouteElement[] routes = ObaRouteElement.EMPTY_ARRAY;
+        ObaTripElement[] trips = ObaTripElement.EMPTY_ARRAY;
+        ObaAgencyElement[] agencies = ObaAgencyElement.EMPTY_ARRAY;
+        ObaSituationElement[] situations = ObaSituationElement.EMPTY_ARRAY;
+        String field;
+        while ((field = ElementReader.nextField(parser)) != null) {
+            switch (field) {
+                case "stops":
+                    stops = ElementReader.readStopArray(parser);
+                    break;
+                case "routes":
+                    routes = ElementReader.readRouteArray(parser);
+                    break;
+                case "trips":
+                    trips = ElementReader.readTripArray(parser);
+                    break;
+                case "agencies":
+                    agencies = ElementReader.readAgencyArray(parser);
+                    break;
+                case "situations":
+                    situations = ElementReader.readSituationArray(parser);
+                    break;
+                default:
+                    parser.skipChildren();
+                    break;
+            }
+        }
+        this.stops = stops;
+        this.routes = routes;
+        this.trips = trips;
+        this.agencies = agencies;
+        this.situations = situations;
+    }
+
+    /**
+     * Merges several references blocks into one, e.g. those of the responses to a batch
+     * of requests.  An element referenced by more than one of them is only included once,
+     * from the first block that has it.
+     *
+     * @param references The references blocks to merge
+     */
+    public ObaReferencesElement(Collection<ObaReferencesElement> references) {
+        Map<String, ObaStopElement> stops = new LinkedHashMap<String, ObaStopElement>();
+        Map<String, ObaRouteElement> routes = new LinkedHashMap<String, ObaRouteElement>();
+        Map<String, ObaTripElement> trips = new LinkedHashMap<String, ObaTripElement>();
+        Map<String, ObaAgencyElement> agencies = new LinkedHashMap<String, ObaAgencyElement>();
+        Map<String, ObaSituationElement> situations =
+                new LinkedHashMap<String, ObaSituationElement>();
+        for (ObaReferencesElement refs : references) {
+            addAll(stops, refs.stops);
+            addAll(routes, refs.routes);
+            addAll(trips, refs.trips);
+            addAll(agencies, refs.agencies);
+            addAll(situations, refs.situations);
+        }
+        this.stops = stops.values().toArray(ObaStopElement.EMPTY_ARRAY);
+        this.routes = routes.values().toArray(ObaRouteElement.EMPTY_ARRAY);
+        this.trips = trips.values().toArray(ObaTripElement.EMPTY_ARRAY);
+        this.agencies = agencies.values().toArray(ObaAgencyElement.EMPTY_ARRAY);
+        this.situations = situations.values().toArray(ObaSituationElement.EMPTY_ARRAY);
+        // The merged maps are the indexes, so don't build them again
+        mStopIndex = stops;
+        mRouteIndex = routes;
+        mTripIndex = trips;
+        mAgencyIndex = agencies;
+        mSituationIndex = situations;
+    }
+
     @Override
     public ObaStop getStop(String id) {
-        return findById(stops, id);
+        return stopIndex().get(id);
     }
 
     @Override
     public List<ObaStop> getStops(String[] ids) {
-        return findList(ObaStop.class, stops, ids);
+        return findList(ObaStop.class, stopIndex(), ids);
     }
 
     @Override
     public ObaRoute getRoute(String id) {
-        return findById(routes, id);
+        return routeIndex().get(id);
     }
 
     @Override
     public List<ObaRoute> getRoutes(String[] ids) {
-        return findList(ObaRoute.class, routes, ids);
+        return findList(ObaRoute.class, routeIndex(), ids);
     }
 
     @Override
@@ -68,55 +160,108 @@ public final class ObaReferencesElement implements ObaReferences {
 
     @Override
     public ObaTrip getTrip(String id) {
-        return findById(trips, id);
+        return tripIndex().get(id);
     }
 
     @Override
     public List<ObaTrip> getTrips(String[] ids) {
-        return findList(ObaTrip.class, trips, ids);
+        return findList(ObaTrip.class, tripIndex(), ids);
     }
 
     @Override
     public ObaAgency getAgency(String id) {
-        return findById(agencies, id);
+        return agencyIndex().get(id);
     }
 
     @Override
     public List<ObaAgency> getAgencies(String[] ids) {
-        return findList(ObaAgency.class, agencies, ids);
+        return findList(ObaAgency.class, agencyIndex(), ids);
     }
 
     @Override
     public ObaSituation getSituation(String id) {
-        return findById(situations, id);
+        return situationIndex().get(id);
     }
 
     @Override
     public List<ObaSituation> getSituations(String[] ids) {
-        return findList(ObaSituation.class, situations, ids);
+        return findList(ObaSituation.class, situationIndex(), ids);
     }
 
-    //
-    // TODO: This will be much easier when we convert to HashMap storage.
-    //
-    private static <T extends ObaElement> T findById(T[] objects, String id) {
+    private Map<String, ObaStopElement> stopIndex() {
+        Map<String, ObaStopElement> index = mStopIndex;
+        if (index == null) {
+            index = buildIndex(stops);
+            mStopIndex = index;
+        }
+        return index;
+    }
+
+    private Map<String, ObaRouteElement> routeIndex() {
+        Map<String, ObaRouteElement> index = mRouteIndex;
+        if (index == null) {
+            index = buildIndex(routes);
+            mRouteIndex = index;
+        }
+        return index;
+    }
+
+    private Map<String, ObaTripElement> tripIndex() {
+        Map<String, ObaTripElement> index = mTripIndex;
+        if (index == null) {
+            index = buildIndex(trips);
+            mTripIndex = index;
+        }
+        return index;
+    }
+
+    private Map<String, ObaAgencyElement> agencyIndex() {
+        Map<String, ObaAgencyElement> index = mAgencyIndex;
+        if (index == null) {
+            index = buildIndex(agencies);
+            mAgencyIndex = index;
+        }
+        return index;
+    }
+
+    private Map<String, ObaSituationElement> situationIndex() {
+        Map<String, ObaSituationElement> index = mSituationIndex;
+        if (index == null) {
+            index = buildIndex(situations);
+            mSituationIndex = index;
+        }
+        return index;
+    }
+
+    private static <T extends ObaElement> Map<String, T> buildIndex(T[] objects) {
         final int len = objects.length;
+        HashMap<String, T> index = new HashMap<String, T>(len * 4 / 3 + 1);
         for (int i = 0; i < len; ++i) {
             final T obj = objects[i];
-            if (obj.getId().equals(id)) {
-                return obj;
+            final String id = obj.getId();
+            // If an ID is repeated, the first one wins, the same as a linear search
+            if (id != null && !index.containsKey(id)) {
+                index.put(id, obj);
+            }
+        }
+        return index;
+    }
+
+    private static <T extends ObaElement> void addAll(Map<String, T> index, T[] objects) {
+        for (T obj : objects) {
+            final String id = obj.getId();
+            if (id != null && !index.containsKey(id)) {
+                index.put(id, obj);
             }
         }
-        return null;
     }
 
     private static <E extends ObaElement, T extends E> List<E> findList(
-            Class<E> cls, T[] objects, String[] ids) {
-        ArrayList<E> result = new ArrayList<E>();
+            Class<E> cls, Map<String, T> index, String[] ids) {
         final int len = ids.length;
+        ArrayList<E> result = new ArrayList<E>(len);
         for (int i = 0; i < len; ++i) {
-            final String id = ids[i];
-            final T obj = findById(objects, id);
+            final T obj = index.get(ids[i]);
             if (obj != null) {
                 result.add(obj);
             }
@@ -16,8 +16,12 @@
  */
 package org.onebusaway.io.client.elements;
 
+import com.fasterxml.jackson.core.JsonParser;
+
 import org.apache.commons.lang3.StringUtils;
 
+import java.io.IOException;
+
 /**
  * Object defining a Route element.
  * {@link http://code.google.com/p/onebusaway/wiki/OneBusAwayRestApi_RouteElementV2}
@@ -77,6 +81,62 @@ public final class ObaRouteElement implements ObaRoute {
 
     }
 
+    ObaRouteElement(JsonParser parser) throws IOException {
+        String id = "";
+        String shortName = "";
+        String longName = "";
+        String description = "";
+        int type = 0;
+        String url = "";
+        String color = "";
+        String textColor = "";
+        String agencyId = "";
+        String field;
+        while ((field = ElementReader.nextField(parser)) != null) {
+            switch (field) {
+                case "id":
+                    id = ElementReader.readString(parser);
+                    break;
+                case "shortName":
+                    shortName = ElementReader.readString(parser);
+                    break;
+                case "longName":
+                    longName = ElementReader.readString(parser);
+                    break;
+                case "description":
+                    description = ElementReader.readString(parser);
+                    break;
+                case "type":
+                    type = ElementReader.readInt(parser);
+                    break;
+                case "url":
+                    url = ElementReader.readString(parser);
+                    break;
+                case "color":
+                    color = ElementReader.readString(parser);
+                    break;
+                case "textColor":
+                    textColor = ElementReader.readString(parser);
+                    break;
+                case "agencyId":
+                    agencyId = ElementReader.readString(parser);
+                    break;
+                default:
+                    parser.skipChildren();
+                    break;
+            }
+        }
+        this.id = id;
+        this.shortName = shortName;
+        this.longName = longName;
+        this.description = description;
+        this.type = type;
+        this.url = url;
+        this.color = color;
+        this.textColor = textColor;
+        this.agencyId = agencyId;
+    }
+
     @Override
     public String getId() {
         return id;
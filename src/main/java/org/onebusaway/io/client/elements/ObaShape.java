@@ -42,6 +42,21 @@ public interface ObaShape {
      */
     public List<Integer> getLevels();
 
+    /**
+     * Returns the number of levels encoded for this line.
+     *
+     * @return The number of levels encoded for this line.
+     */
+    public int getLevelCount();
+
+    /**
+     * Returns a single level, without allocating.
+     *
+     * @param index The index of the level, from 0 to getLevelCount() - 1.
+     * @return The decoded level.
+     */
+    public int getLevel(int index);
+
     /**
      * Returns the list of points in this line.
      *
@@ -49,6 +64,51 @@ public interface ObaShape {
      */
     public List<Location> getPoints();
 
+    /**
+     * Returns the number of points encoded in this line. Unlike getLength(),
+     * which is reported by the server, this is always the number of points
+     * that can be read.
+     *
+     * @return The number of points encoded in this line.
+     */
+    public int getPointCount();
+
+    /**
+     * Returns the latitude of a point, without allocating.
+     *
+     * @param index The index of the point, from 0 to getPointCount() - 1.
+     * @return The latitude of the point in decimal degrees.
+     */
+    public double getLatitude(int index);
+
+    /**
+     * Returns the longitude of a point, without allocating.
+     *
+     * @param index The index of the point, from 0 to getPointCount() - 1.
+     * @return The longitude of the point in decimal degrees.
+     */
+    public double getLongitude(int index);
+
+    /**
+     * Copies the points in this line into an array as interleaved latitude,
+     * longitude pairs in degrees * 1E5, the precision of the encoding.
+     *
+     * @param dest       The destination array, which must have room for
+     *                   getPointCount() * 2 values after destOffset.
+     * @param destOffset The index in dest of the first point's latitude.
+     */
+    public void getPointsE5(int[] dest, int destOffset);
+
+    /**
+     * Copies the points in this line into an array as interleaved latitude,
+     * longitude pairs in decimal degrees.
+     *
+     * @param dest       The destination array, which must have room for
+     *                   getPointCount() * 2 values after destOffset.
+     * @param destOffset The index in dest of the first point's latitude.
+     */
+    public void getPoints(double[] dest, int destOffset);
+
     /**
      * Returns the string encoding of the points in this line.
      *
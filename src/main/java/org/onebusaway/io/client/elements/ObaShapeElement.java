@@ -15,8 +15,14 @@
  */
 package org.onebusaway.io.client.elements;
 
+import java.io.IOException;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.RandomAccess;
+
+import com.fasterxml.jackson.core.JsonParser;
 
 import org.onebusaway.location.Location;
 
@@ -26,18 +32,55 @@ public final class ObaShapeElement implements ObaShape {
 
     public static final ObaShapeElement[] EMPTY_ARRAY = new ObaShapeElement[]{};
 
+    private static final int[] EMPTY_INTS = new int[0];
+
     private final String points;
 
     private final int length;
 
     private final String levels;
 
+    // Decoded on first use. These are transient so that Jackson ignores them,
+    // and volatile so an array decoded on one thread is safely published to others.
+    // The arrays are never modified once decoded.
+
+    // Interleaved latitude, longitude pairs in degrees * 1E5
+    private transient volatile int[] mPointsE5;
+
+    private transient volatile int[] mLevels;
+
     private ObaShapeElement() {
         points = "";
         length = 0;
         levels = "";
     }
 
+    ObaShapeElement(JsonParser parser) throws IOException {
+        String points = "";
+        int length = 0;
+        String levels = "";
+        String field;
+        while ((field = ElementReader.nextField(parser)) != null) {
+            switch (field) {
+                case "points":
+                    points = ElementReader.readString(parser);
+                    break;
+                case "length":
+                    length = ElementReader.readInt(parser);
+                    break;
+                case "levels":
+                    levels = ElementReader.readString(parser);
+                    break;
+                default:
+                    parser.skipChildren();
+                    break;
+            }
+        }
+        this.points = points;
+        this.length = length;
+        this.levels = levels;
+    }
+
     @Override
     public int getLength() {
         return length;
@@ -50,12 +93,59 @@ public final class ObaShapeElement implements ObaShape {
 
     @Override
     public List<Integer> getLevels() {
-        return decodeLevels(levels, length);
+        return new IntListView(levelArray());
+    }
+
+    @Override
+    public int getLevelCount() {
+        return levelArray().length;
     }
 
+    @Override
+    public int getLevel(int index) {
+        return levelArray()[index];
+    }
+
+    /**
+     * Returns a view of the points in this line. A new Location is created each time
+     * a point is read; use getLatitude()/getLongitude() or the bulk getPoints()
+     * methods to read the points without allocating.
+     */
     @Override
     public List<Location> getPoints() {
-        return decodeLine(points, length);
+        return new LocationListView(pointArray());
+    }
+
+    @Override
+    public int getPointCount() {
+        return pointArray().length / 2;
+    }
+
+    @Override
+    public double getLatitude(int index) {
+        return pointArray()[index * 2] / 1E5;
+    }
+
+    @Override
+    public double getLongitude(int index) {
+        return pointArray()[index * 2 + 1] / 1E5;
+    }
+
+    @Override
+    public void getPointsE5(int[] dest, int destOffset) {
+        final int[] decoded = pointArray();
+        System.arraycopy(decoded, 0, dest, destOffset, decoded.length);
+    }
+
+    @Override
+    public void getPoints(double[] dest, int destOffset) {
+        final int[] decoded = pointArray();
+        if (destOffset < 0 || destOffset + decoded.length > dest.length) {
+            throw new ArrayIndexOutOfBoundsException(destOffset + decoded.length);
+        }
+        for (int i = 0; i < decoded.length; ++i) {
+            dest[destOffset + i] = decoded[i] / 1E5;
+        }
     }
 
     @Override
@@ -63,6 +153,24 @@ public final class ObaShapeElement implements ObaShape {
         return points;
     }
 
+    private int[] pointArray() {
+        int[] result = mPointsE5;
+        if (result == null) {
+            result = decodeLineE5(points, length);
+            mPointsE5 = result;
+        }
+        return result;
+    }
+
+    private int[] levelArray() {
+        int[] result = mLevels;
+        if (result == null) {
+            result = decodeLevelArray(levels, length);
+            mLevels = result;
+        }
+        return result;
+    }
+
     /**
      * Decodes an encoded polyline into a list of points.
      * Adapted from http://georgelantz.com/files/polyline_decoder.rb
@@ -77,9 +185,33 @@ public final class ObaShapeElement implements ObaShape {
      */
     public static List<Location> decodeLine(String encoded, int numPoints) {
         assert (numPoints >= 0);
-        ArrayList<Location> array = new ArrayList<Location>(numPoints);
+        final int[] decoded = decodeLineE5(encoded, numPoints);
+        ArrayList<Location> array = new ArrayList<Location>(decoded.length / 2);
+        for (int i = 0; i < decoded.length; i += 2) {
+            array.add(newLocation(decoded[i], decoded[i + 1]));
+        }
+        return array;
+    }
 
+    /**
+     * Decodes an encoded polyline into an array of interleaved latitude, longitude
+     * pairs, in degrees * 1E5 (the precision of the encoding).
+     *
+     * @param encoded   The encoded string.
+     * @param numPoints The number of points. This is purely used as a hint
+     *                  to allocate memory; the function will always return the
+     *                  points that are contained in the encoded string.
+     * @return An array twice the length of the number of points in the encoded string.
+     */
+    public static int[] decodeLineE5(String encoded, int numPoints) {
+        assert (numPoints >= 0);
         final int len = encoded.length();
+        if (len == 0) {
+            return EMPTY_INTS;
+        }
+        int[] array = new int[Math.max(numPoints, 1) * 2];
+        int count = 0;
+
         int i = 0;
         int lat = 0, lon = 0;
 
@@ -87,40 +219,35 @@ public final class ObaShapeElement implements ObaShape {
             int shift = 0;
             int result = 0;
 
-            int a, b;
+            int b;
             do {
-                a = encoded.charAt(i);
-                b = a - 63;
+                b = encoded.charAt(i) - 63;
                 result |= (b & 0x1f) << shift;
                 shift += 5;
                 ++i;
             } while (b >= 0x20);
 
-            final int dlat = ((result & 1) == 1 ? ~(result >> 1) : (result >> 1));
-            lat += dlat;
+            lat += ((result & 1) == 1 ? ~(result >> 1) : (result >> 1));
 
             shift = 0;
             result = 0;
             do {
-                a = encoded.charAt(i);
-                b = a - 63;
+                b = encoded.charAt(i) - 63;
                 result |= (b & 0x1f) << shift;
                 shift += 5;
                 ++i;
             } while (b >= 0x20);
 
-            final int dlon = ((result & 1) == 1 ? ~(result >> 1) : (result >> 1));
-            lon += dlon;
-            
-            Location l = new Location("");
-            l.setLatitude(lat / 1E5);
-            l.setLongitude(lon / 1E5);
+            lon += ((result & 1) == 1 ? ~(result >> 1) : (result >> 1));
 
-            // The polyline encodes in degrees * 1E5, we need decimal degrees
-            array.add(l);
+            if (count == array.length) {
+                array = Arrays.copyOf(array, array.length * 2);
+            }
+            array[count++] = lat;
+            array[count++] = lon;
         }
 
-        return array;
+        return count == array.length ? array : Arrays.copyOf(array, count);
     }
 
     /**
@@ -135,26 +262,109 @@ public final class ObaShapeElement implements ObaShape {
      */
     public static List<Integer> decodeLevels(String encoded, int numPoints) {
         assert (numPoints >= 0);
-        ArrayList<Integer> array = new ArrayList<Integer>(numPoints);
+        final int[] decoded = decodeLevelArray(encoded, numPoints);
+        ArrayList<Integer> array = new ArrayList<Integer>(decoded.length);
+        for (int level : decoded) {
+            array.add(level);
+        }
+        return array;
+    }
 
+    /**
+     * Decodes encoded levels into an array, according to:
+     * http://code.google.com/apis/maps/documentation/polylinealgorithm.html
+     *
+     * @param encoded   The encoded string.
+     * @param numPoints The number of points. This is purely used as a hint
+     *                  to allocate memory; the function will always return the
+     *                  levels that are contained in the encoded string.
+     * @return An array of levels from the encoded string.
+     */
+    public static int[] decodeLevelArray(String encoded, int numPoints) {
+        assert (numPoints >= 0);
         final int len = encoded.length();
+        if (len == 0) {
+            return EMPTY_INTS;
+        }
+        int[] array = new int[Math.max(numPoints, 1)];
+        int count = 0;
+
         int i = 0;
         while (i < len) {
             int shift = 0;
             int result = 0;
 
-            int a, b;
+            int b;
             do {
-                a = encoded.charAt(i);
-                b = a - 63;
+                b = encoded.charAt(i) - 63;
                 result |= (b & 0x1f) << shift;
                 shift += 5;
                 ++i;
             } while (b >= 0x20);
 
-            array.add(result);
+            if (count == array.length) {
+                array = Arrays.copyOf(array, array.length * 2);
+            }
+            array[count++] = result;
         }
 
-        return array;
+        return count == array.length ? array : Arrays.copyOf(array, count);
+    }
+
+    private static Location newLocation(int latE5, int lonE5) {
+        // The polyline encodes in degrees * 1E5, we need decimal degrees
+        Location l = new Location("");
+        l.setLatitude(latE5 / 1E5);
+        l.setLongitude(lonE5 / 1E5);
+        return l;
+    }
+
+    /**
+     * Read-only List view over decoded points, for getPoints()
+     */
+    private static final class LocationListView extends AbstractList<Location>
+            implements RandomAccess {
+
+        private final int[] mPointsE5;
+
+        LocationListView(int[] pointsE5) {
+            mPointsE5 = pointsE5;
+        }
+
+        @Override
+        public Location get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+            }
+            return newLocation(mPointsE5[index * 2], mPointsE5[index * 2 + 1]);
+        }
+
+        @Override
+        public int size() {
+            return mPointsE5.length / 2;
+        }
+    }
+
+    /**
+     * Read-only List view over decoded levels, for getLevels()
+     */
+    private static final class IntListView extends AbstractList<Integer>
+            implements RandomAccess {
+
+        private final int[] mValues;
+
+        IntListView(int[] values) {
+            mValues = values;
+        }
+
+        @Override
+        public Integer get(int index) {
+            return mValues[index];
+        }
+
+        @Override
+        public int size() {
+            return mValues.length;
+        }
     }
 }
@@ -15,6 +15,9 @@
  */
 package org.onebusaway.io.client.elements;
 
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 
@@ -34,6 +37,22 @@ public final class ObaSituationElement implements ObaSituation {
             //lang = "";
         }
 
+        Text(JsonParser parser) throws IOException {
+            String value = "";
+            String field;
+            while ((field = ElementReader.nextField(parser)) != null) {
+                switch (field) {
+                    case "value":
+                        value = ElementReader.readString(parser);
+                        break;
+                    default:
+                        parser.skipChildren();
+                        break;
+                }
+            }
+            this.value = value;
+        }
+
         public String getValue() {
             return value;
         }
@@ -66,6 +85,47 @@ public final class ObaSituationElement implements ObaSituation {
             agencyId = "";
         }
 
+        AllAffectsElement(JsonParser parser) throws IOException {
+            String directionId = "";
+            String stopId = "";
+            String tripId = "";
+            String applicationId = "";
+            String routeId = "";
+            String agencyId = "";
+            String field;
+            while ((field = ElementReader.nextField(parser)) != null) {
+                switch (field) {
+                    case "directionId":
+                        directionId = ElementReader.readString(parser);
+                        break;
+                    case "stopId":
+                        stopId = ElementReader.readString(parser);
+                        break;
+                    case "tripId":
+                        tripId = ElementReader.readString(parser);
+                        break;
+                    case "applicationId":
+                        applicationId = ElementReader.readString(parser);
+                        break;
+                    case "routeId":
+                        routeId = ElementReader.readString(parser);
+                        break;
+                    case "agencyId":
+                        agencyId = ElementReader.readString(parser);
+                        break;
+                    default:
+                        parser.skipChildren();
+                        break;
+                }
+            }
+            this.directionId = directionId;
+            this.stopId = stopId;
+            this.tripId = tripId;
+            this.applicationId = applicationId;
+            this.routeId = routeId;
+            this.agencyId = agencyId;
+        }
+
         @Override
         public String getDirectionId() {
             return directionId;
@@ -109,6 +169,27 @@ public final class ObaSituationElement implements ObaSituation {
             diversionPath = null;
         }
 
+        ConditionDetailsElement(JsonParser parser) throws IOException {
+            String[] diversionStopIds = null;
+            ObaShapeElement diversionPath = null;
+            String field;
+            while ((field = ElementReader.nextField(parser)) != null) {
+                switch (field) {
+                    case "diversionStopIds":
+                        diversionStopIds = ElementReader.readStringArray(parser);
+                        break;
+                    case "diversionPath":
+                        diversionPath = ElementReader.readShape(parser);
+                        break;
+                    default:
+                        parser.skipChildren();
+                        break;
+                }
+            }
+            this.diversionStopIds = diversionStopIds;
+            this.diversionPath = diversionPath;
+        }
+
         @Override
         public ObaShape getDiversionPath() {
             return diversionPath;
@@ -134,6 +215,27 @@ public final class ObaSituationElement implements ObaSituation {
             conditionDetails = null;
         }
 
+        ConsequenceElement(JsonParser parser) throws IOException {
+            String condition = "";
+            ConditionDetailsElement conditionDetails = null;
+            String field;
+            while ((field = ElementReader.nextField(parser)) != null) {
+                switch (field) {
+                    case "condition":
+                        condition = ElementReader.readString(parser);
+                        break;
+                    case "conditionDetails":
+                        conditionDetails = ElementReader.readConditionDetails(parser);
+                        break;
+                    default:
+                        parser.skipChildren();
+                        break;
+                }
+            }
+            this.condition = condition;
+            this.conditionDetails = conditionDetails;
+        }
+
         @Override
         public String getCondition() {
             return condition;
@@ -178,6 +280,62 @@ public final class ObaSituationElement implements ObaSituation {
         severity = "";
     }
 
+    ObaSituationElement(JsonParser parser) throws IOException {
+        String id = "";
+        Text summary = null;
+        Text description = null;
+        Text advice = null;
+        String reason = null;
+        long creationTime = 0;
+        AllAffectsElement[] allAffects = AllAffectsElement.EMPTY_ARRAY;
+        ConsequenceElement[] consequences = ConsequenceElement.EMPTY_ARRAY;
+        String severity = "";
+        String field;
+        while ((field = ElementReader.nextField(parser)) != null) {
+            switch (field) {
+                case "id":
+                    id = ElementReader.readString(parser);
+                    break;
+                case "summary":
+                    summary = ElementReader.readText(parser);
+                    break;
+                case "description":
+                    description = ElementReader.readText(parser);
+                    break;
+                case "advice":
+                    advice = ElementReader.readText(parser);
+                    break;
+                case "reason":
+                    reason = ElementReader.readString(parser);
+                    break;
+                case "creationTime":
+                    creationTime = ElementReader.readLong(parser);
+                    break;
+                case "allAffects":
+                    allAffects = ElementReader.readAllAffectsArray(parser);
+                    break;
+                case "consequences":
+                    consequences = ElementReader.readConsequenceArray(parser);
+                    break;
+                case "severity":
+                    severity = ElementReader.readString(parser);
+                    break;
+                default:
+                    parser.skipChildren();
+                    break;
+            }
+        }
+        this.id = id;
+        this.summary = summary;
+        this.description = description;
+        this.advice = advice;
+        this.reason = reason;
+        this.creationTime = creationTime;
+        this.allAffects = allAffects;
+        this.consequences = consequences;
+        this.severity = severity;
+    }
+
     @Override
     public String getId() {
         return id;
@@ -15,8 +15,12 @@
  */
 package org.onebusaway.io.client.elements;
 
+import com.fasterxml.jackson.core.JsonParser;
+
 import org.onebusaway.location.Location;
 
+import java.io.IOException;
+
 /**
  * Object defining a Stop element.
  * {@link http://code.google.com/p/onebusaway/wiki/OneBusAwayRestApi_StopElementV2}
@@ -58,6 +62,57 @@ public final class ObaStopElement implements ObaStop {
         routeIds = EMPTY_ROUTES;
     }
 
+    ObaStopElement(JsonParser parser) throws IOException {
+        String id = "";
+        double lat = 0;
+        double lon = 0;
+        String direction = "";
+        int locationType = LOCATION_STOP;
+        String name = "";
+        String code = "";
+        String[] routeIds = EMPTY_ROUTES;
+        String field;
+        while ((field = ElementReader.nextField(parser)) != null) {
+            switch (field) {
+                case "id":
+                    id = ElementReader.readString(parser);
+                    break;
+                case "lat":
+                    lat = ElementReader.readDouble(parser);
+                    break;
+                case "lon":
+                    lon = ElementReader.readDouble(parser);
+                    break;
+                case "direction":
+                    direction = ElementReader.readString(parser);
+                    break;
+                case "locationType":
+                    locationType = ElementReader.readInt(parser);
+                    break;
+                case "name":
+                    name = ElementReader.readString(parser);
+                    break;
+                case "code":
+                    code = ElementReader.readString(parser);
+                    break;
+                case "routeIds":
+                    routeIds = ElementReader.readStringArray(parser);
+                    break;
+                default:
+                    parser.skipChildren();
+                    break;
+            }
+        }
+        this.id = id;
+        this.lat = lat;
+        this.lon = lon;
+        this.direction = direction;
+        this.locationType = locationType;
+        this.name = name;
+        this.code = code;
+        this.routeIds = routeIds;
+    }
+
     public String getId() {
         return id;
     }
@@ -15,6 +15,10 @@
  */
 package org.onebusaway.io.client.elements;
 
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+
 /**
  * Extended information for a specific trip
  * {@link http://code.google.com/p/onebusaway/wiki/OneBusAwayRestApi_TripDetails}
@@ -39,6 +43,32 @@ public final class ObaTripDetailsElement implements ObaTripDetails {
         status = null;
     }
 
+    ObaTripDetailsElement(JsonParser parser) throws IOException {
+        String tripId = "";
+        ObaTripSchedule schedule = null;
+        ObaTripStatusElement status = null;
+        String field;
+        while ((field = ElementReader.nextField(parser)) != null) {
+            switch (field) {
+                case "tripId":
+                    tripId = ElementReader.readString(parser);
+                    break;
+                case "schedule":
+                    schedule = ElementReader.readTripSchedule(parser);
+                    break;
+                case "status":
+                    status = ElementReader.readTripStatus(parser);
+                    break;
+                default:
+                    parser.skipChildren();
+                    break;
+            }
+        }
+        this.tripId = tripId;
+        this.schedule = schedule;
+        this.status = status;
+    }
+
     @Override
     public ObaTripSchedule getSchedule() {
         return schedule;
@@ -15,6 +15,10 @@
  */
 package org.onebusaway.io.client.elements;
 
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+
 public final class ObaTripElement implements ObaTrip {
 
     public static final ObaTripElement EMPTY_OBJECT = new ObaTripElement();
@@ -48,6 +52,57 @@ public final class ObaTripElement implements ObaTrip {
         routeId = "";
     }
 
+    ObaTripElement(JsonParser parser) throws IOException {
+        String id = "";
+        String tripShortName = "";
+        String shapeId = "";
+        String directionId = "";
+        String serviceId = "";
+        String tripHeadsign = "";
+        String timeZone = "";
+        String routeId = "";
+        String field;
+        while ((field = ElementReader.nextField(parser)) != null) {
+            switch (field) {
+                case "id":
+                    id = ElementReader.readString(parser);
+                    break;
+                case "tripShortName":
+                    tripShortName = ElementReader.readString(parser);
+                    break;
+                case "shapeId":
+                    shapeId = ElementReader.readString(parser);
+                    break;
+                case "directionId":
+                    directionId = ElementReader.readString(parser);
+                    break;
+                case "serviceId":
+                    serviceId = ElementReader.readString(parser);
+                    break;
+                case "tripHeadsign":
+                    tripHeadsign = ElementReader.readString(parser);
+                    break;
+                case "timeZone":
+                    timeZone = ElementReader.readString(parser);
+                    break;
+                case "routeId":
+                    routeId = ElementReader.readString(parser);
+                    break;
+                default:
+                    parser.skipChildren();
+                    break;
+            }
+        }
+        this.id = id;
+        this.tripShortName = tripShortName;
+        this.shapeId = shapeId;
+        this.directionId = directionId;
+        this.serviceId = serviceId;
+        this.tripHeadsign = tripHeadsign;
+        this.timeZone = timeZone;
+        this.routeId = routeId;
+    }
+
     @Override
     public String getId() {
         return id;
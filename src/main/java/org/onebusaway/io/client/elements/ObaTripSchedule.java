@@ -15,6 +15,10 @@
  */
 package org.onebusaway.io.client.elements;
 
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+
 public final class ObaTripSchedule {
 
     public static final ObaTripSchedule EMPTY_OBJECT = new ObaTripSchedule();
@@ -39,6 +43,37 @@ public final class ObaTripSchedule {
             departureTime = 0;
         }
 
+        StopTime(JsonParser parser) throws IOException {
+            String stopId = "";
+            String stopHeadsign = "";
+            long arrivalTime = 0;
+            long departureTime = 0;
+            String field;
+            while ((field = ElementReader.nextField(parser)) != null) {
+                switch (field) {
+                    case "stopId":
+                        stopId = ElementReader.readString(parser);
+                        break;
+                    case "stopHeadsign":
+                        stopHeadsign = ElementReader.readString(parser);
+                        break;
+                    case "arrivalTime":
+                        arrivalTime = ElementReader.readLong(parser);
+                        break;
+                    case "departureTime":
+                        departureTime = ElementReader.readLong(parser);
+                        break;
+                    default:
+                        parser.skipChildren();
+                        break;
+                }
+            }
+            this.stopId = stopId;
+            this.stopHeadsign = stopHeadsign;
+            this.arrivalTime = arrivalTime;
+            this.departureTime = departureTime;
+        }
+
         /**
          * @return The stop ID of the stop visited during the trip.
          */
@@ -85,6 +120,37 @@ public final class ObaTripSchedule {
         nextTripId = "";
     }
 
+    ObaTripSchedule(JsonParser parser) throws IOException {
+        StopTime[] stopTimes = StopTime.EMPTY_ARRAY;
+        String timeZone = "";
+        String previousTripId = "";
+        String nextTripId = "";
+        String field;
+        while ((field = ElementReader.nextField(parser)) != null) {
+            switch (field) {
+                case "stopTimes":
+                    stopTimes = ElementReader.readStopTimeArray(parser);
+                    break;
+                case "timeZone":
+                    timeZone = ElementReader.readString(parser);
+                    break;
+                case "previousTripId":
+                    previousTripId = ElementReader.readString(parser);
+                    break;
+                case "nextTripId":
+                    nextTripId = ElementReader.readString(parser);
+                    break;
+                default:
+                    parser.skipChildren();
+                    break;
+            }
+        }
+        this.stopTimes = stopTimes;
+        this.timeZone = timeZone;
+        this.previousTripId = previousTripId;
+        this.nextTripId = nextTripId;
+    }
+
     /**
      * @return A list of stops visited during the course of the trip,
      * in addition to schedule information for those stops.
@@ -15,9 +15,13 @@
  */
 package org.onebusaway.io.client.elements;
 
+import com.fasterxml.jackson.core.JsonParser;
+
 import org.onebusaway.io.client.util.LocationUtil;
 import org.onebusaway.location.Location;
 
+import java.io.IOException;
+
 public interface ObaTripStatus {
 
     public static final class Position {
@@ -26,6 +30,30 @@ public interface ObaTripStatus {
 
         private double lon = 0;
 
+        public Position() {
+        }
+
+        Position(JsonParser parser) throws IOException {
+            double lat = 0;
+            double lon = 0;
+            String field;
+            while ((field = ElementReader.nextField(parser)) != null) {
+                switch (field) {
+                    case "lat":
+                        lat = ElementReader.readDouble(parser);
+                        break;
+                    case "lon":
+                        lon = ElementReader.readDouble(parser);
+                        break;
+                    default:
+                        parser.skipChildren();
+                        break;
+                }
+            }
+            this.lat = lat;
+            this.lon = lon;
+        }
+
         public double getLat() {
             return lat;
         }
@@ -15,8 +15,12 @@
  */
 package org.onebusaway.io.client.elements;
 
+import com.fasterxml.jackson.core.JsonParser;
+
 import org.onebusaway.location.Location;
 
+import java.io.IOException;
+
 public final class ObaTripStatusElement implements ObaTripStatus {
 
     protected static final ObaTripStatusElement EMPTY_OBJECT = new ObaTripStatusElement();
@@ -87,6 +91,122 @@ public final class ObaTripStatusElement implements ObaTripStatus {
         blockTripSequence = 0;
     }
 
+    ObaTripStatusElement(JsonParser parser) throws IOException {
+        long serviceDate = 0;
+        boolean predicted = false;
+        long scheduleDeviation = 0;
+        String vehicleId = "";
+        String closestStop = "";
+        long closestStopTimeOffset = 0;
+        Position position = null;
+        String activeTripId = null;
+        Double distanceAlongTrip = null;
+        Double scheduledDistanceAlongTrip = null;
+        Double totalDistanceAlongTrip = null;
+        Double orientation = null;
+        String nextStop = null;
+        long nextStopTimeOffset = 0;
+        String phase = null;
+        String status = null;
+        Long lastUpdateTime = null;
+        Position lastKnownLocation = null;
+        Long lastLocationUpdateTime = null;
+        Double lastKnownOrientation = null;
+        int blockTripSequence = 0;
+        String field;
+        while ((field = ElementReader.nextField(parser)) != null) {
+            switch (field) {
+                case "serviceDate":
+                    serviceDate = ElementReader.readLong(parser);
+                    break;
+                case "predicted":
+                    predicted = ElementReader.readBoolean(parser);
+                    break;
+                case "scheduleDeviation":
+                    scheduleDeviation = ElementReader.readLong(parser);
+                    break;
+                case "vehicleId":
+                    vehicleId = ElementReader.readString(parser);
+                    break;
+                case "closestStop":
+                    closestStop = ElementReader.readString(parser);
+                    break;
+                case "closestStopTimeOffset":
+                    closestStopTimeOffset = ElementReader.readLong(parser);
+                    break;
+                case "position":
+                    position = ElementReader.readPosition(parser);
+                    break;
+                case "activeTripId":
+                    activeTripId = ElementReader.readString(parser);
+                    break;
+                case "distanceAlongTrip":
+                    distanceAlongTrip = ElementReader.readDoubleObject(parser);
+                    break;
+                case "scheduledDistanceAlongTrip":
+                    scheduledDistanceAlongTrip = ElementReader.readDoubleObject(parser);
+                    break;
+                case "totalDistanceAlongTrip":
+                    totalDistanceAlongTrip = ElementReader.readDoubleObject(parser);
+                    break;
+                case "orientation":
+                    orientation = ElementReader.readDoubleObject(parser);
+                    break;
+                case "nextStop":
+                    nextStop = ElementReader.readString(parser);
+                    break;
+                case "nextStopTimeOffset":
+                    nextStopTimeOffset = ElementReader.readLong(parser);
+                    break;
+                case "phase":
+                    phase = ElementReader.readString(parser);
+                    break;
+                case "status":
+                    status = ElementReader.readString(parser);
+                    break;
+                case "lastUpdateTime":
+                    lastUpdateTime = ElementReader.readLongObject(parser);
+                    break;
+                case "lastKnownLocation":
+                    lastKnownLocation = ElementReader.readPosition(parser);
+                    break;
+                case "lastLocationUpdateTime":
+                    lastLocationUpdateTime = ElementReader.readLongObject(parser);
+                    break;
+                case "lastKnownOrientation":
+                    lastKnownOrientation = ElementReader.readDoubleObject(parser);
+                    break;
+                case "blockTripSequence":
+                    blockTripSequence = ElementReader.readInt(parser);
+                    break;
+                default:
+                    parser.skipChildren();
+                    break;
+            }
+        }
+        this.serviceDate = serviceDate;
+        this.predicted = predicted;
+        this.scheduleDeviation = scheduleDeviation;
+        this.vehicleId = vehicleId;
+        this.closestStop = closestStop;
+        this.closestStopTimeOffset = closestStopTimeOffset;
+        this.position = position;
+        this.activeTripId = activeTripId;
+        this.distanceAlongTrip = distanceAlongTrip;
+        this.scheduledDistanceAlongTrip = scheduledDistanceAlongTrip;
+        this.totalDistanceAlongTrip = totalDistanceAlongTrip;
+        this.orientation = orientation;
+        this.nextStop = nextStop;
+        this.nextStopTimeOffset = nextStopTimeOffset;
+        this.phase = phase;
+        this.status = status;
+        this.lastUpdateTime = lastUpdateTime;
+        this.lastKnownLocation = lastKnownLocation;
+        this.lastLocationUpdateTime = lastLocationUpdateTime;
+        this.lastKnownOrientation = lastKnownOrientation;
+        this.blockTripSequence = blockTripSequence;
+    }
+
     @Override
     public long getServiceDate() {
         return serviceDate;
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of non-negative values, with log-linear buckets in the style of
+ * HdrHistogram: values are counted exactly up to 31, and above that in 16 buckets per
+ * power of two, so any value read back is within about 6% of what was recorded.
+ * Recording is a few atomic increments, with no locking or allocation.
+ *
+ * Values of 2^40 or more (about 12 days, in microseconds) are counted as 2^40 - 1.
+ * Reads aren't an atomic snapshot of the histogram, but are consistent enough for
+ * monitoring while values are still being recorded.
+ */
+public final class Histogram {
+
+    // 2^SUB_BITS values are counted exactly, and each power of two above that is split
+    // into HALF_COUNT buckets
+    private static final int SUB_BITS = 5;
+
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+
+    private static final int HALF_COUNT = SUB_COUNT / 2;
+
+    private static final long MAX_VALUE = (1L << 40) - 1;
+
+    private static final int BUCKETS = bucket(MAX_VALUE) + 1;
+
+    private final AtomicLongArray mCounts = new AtomicLongArray(BUCKETS);
+
+    private final AtomicLong mCount = new AtomicLong();
+
+    private final AtomicLong mSum = new AtomicLong();
+
+    private final AtomicLong mMax = new AtomicLong();
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        } else if (value > MAX_VALUE) {
+            value = MAX_VALUE;
+        }
+        mCounts.incrementAndGet(bucket(value));
+        mCount.incrementAndGet();
+        mSum.addAndGet(value);
+        long max;
+        while (value > (max = mMax.get())) {
+            if (mMax.compareAndSet(max, value)) {
+                break;
+            }
+        }
+    }
+
+    public long getCount() {
+        return mCount.get();
+    }
+
+    public long getSum() {
+        return mSum.get();
+    }
+
+    public long getMax() {
+        return mMax.get();
+    }
+
+    public double getMean() {
+        long count = mCount.get();
+        return (count != 0) ? (double) mSum.get() / count : 0;
+    }
+
+    /**
+     * Returns the value that the given percentage of recorded values are less than or
+     * equal to, e.g. getValueAtPercentile(99) for the 99th percentile.
+     *
+     * @param percentile A percentage from 0 to 100.
+     * @return The (highest equivalent) value at the percentile, or 0 if nothing has
+     * been recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = mCounts.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        double p = Math.min(Math.max(percentile, 0), 100);
+        long target = Math.max(1, (long) Math.ceil(p / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(highestValue(i), mMax.get());
+            }
+        }
+        return mMax.get();
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + getCount() + " mean=" + Math.round(getMean())
+                + " p50=" + getValueAtPercentile(50) + " p90=" + getValueAtPercentile(90)
+                + " p99=" + getValueAtPercentile(99) + " max=" + getMax();
+    }
+
+    static int bucket(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BITS + 1;
+        return shift * HALF_COUNT + (int) (value >>> shift);
+    }
+
+    /**
+     * @return The highest value that's counted in the bucket.
+     */
+    static long highestValue(int bucket) {
+        if (bucket < SUB_COUNT) {
+            return bucket;
+        }
+        int shift = bucket / HALF_COUNT - 1;
+        long m = bucket - (long) shift * HALF_COUNT;
+        return ((m + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.metrics;
+
+import java.net.URI;
+
+/**
+ * Timings and the result of one request. The connection is opened (if an open one can't
+ * be reused), the response status is received (time to first byte, measured from the
+ * start of the request and so including the connect time), and then the body is read
+ * and deserialized. Since the body is deserialized as
+ * it's read, the body time is the time spent waiting on the connection for it, and the
+ * deserialize time is the rest.
+ */
+public final class RequestEvent {
+
+    private final URI mUri;
+
+    private final String mEndpoint;
+
+    private final boolean mPost;
+
+    private final int mResultCode;
+
+    private final long mConnectNanos;
+
+    private final long mFirstByteNanos;
+
+    private final long mBodyNanos;
+
+    private final long mDeserializeNanos;
+
+    private final long mTotalNanos;
+
+    private final long mResponseSize;
+
+    private final long mCompressedSize;
+
+    public RequestEvent(URI uri, String endpoint, boolean post, int resultCode,
+                        long connectNanos, long firstByteNanos, long bodyNanos,
+                        long deserializeNanos, long totalNanos, long responseSize,
+                        long compressedSize) {
+        mUri = uri;
+        mEndpoint = endpoint;
+        mPost = post;
+        mResultCode = resultCode;
+        mConnectNanos = connectNanos;
+        mFirstByteNanos = firstByteNanos;
+        mBodyNanos = bodyNanos;
+        mDeserializeNanos = deserializeNanos;
+        mTotalNanos = totalNanos;
+        mResponseSize = responseSize;
+        mCompressedSize = compressedSize;
+    }
+
+    public URI getUri() {
+        return mUri;
+    }
+
+    /**
+     * @return The REST API method, e.g. "arrivals-and-departures-for-stop".
+     */
+    public String getEndpoint() {
+        return mEndpoint;
+    }
+
+    public boolean isPost() {
+        return mPost;
+    }
+
+    /**
+     * @return The code of the response, e.g. ObaApi.OBA_OK or ObaApi.OBA_IO_EXCEPTION.
+     */
+    public int getResultCode() {
+        return mResultCode;
+    }
+
+    /**
+     * @return The time taken to open a new connection to the server (the DNS lookup and
+     * the TCP and TLS handshakes), or 0 if an open connection was reused, none was needed
+     * or the request failed before the response status was received.
+     */
+    public long getConnectNanos() {
+        return mConnectNanos;
+    }
+
+    /**
+     * @return The time from the start of the request until the response status
+     * was received, or 0 if it wasn't.
+     */
+    public long getFirstByteNanos() {
+        return mFirstByteNanos;
+    }
+
+    /**
+     * @return The time spent reading the response body from the connection.
+     */
+    public long getBodyNanos() {
+        return mBodyNanos;
+    }
+
+    /**
+     * @return The time spent deserializing the response body, not including the
+     * time waiting to read it.
+     */
+    public long getDeserializeNanos() {
+        return mDeserializeNanos;
+    }
+
+    /**
+     * @return The time taken by the whole request.
+     */
+    public long getTotalNanos() {
+        return mTotalNanos;
+    }
+
+    /**
+     * @return The size of the response body in bytes, after decompression, or -1 if
+     * none was read.
+     */
+    public long getResponseSize() {
+        return mResponseSize;
+    }
+
+    /**
+     * @return The size of the response body in bytes as it was received, which is
+     * smaller than getResponseSize() if the server compressed it, or -1 if it isn't known.
+     */
+    public long getCompressedSize() {
+        return mCompressedSize;
+    }
+
+    @Override
+    public String toString() {
+        return "RequestEvent{" + mEndpoint + " code=" + mResultCode
+                + " total=" + mTotalNanos / 1000 + "us"
+                + " connect=" + mConnectNanos / 1000 + "us"
+                + " firstByte=" + mFirstByteNanos / 1000 + "us"
+                + " body=" + mBodyNanos / 1000 + "us"
+                + " deserialize=" + mDeserializeNanos / 1000 + "us"
+                + " size=" + mResponseSize
+                + " compressedSize=" + mCompressedSize + "}";
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.metrics;
+
+import java.net.URI;
+
+/**
+ * Receives timings and results for each request made to the OBA server. Register one
+ * with ObaContext.setRequestListener(); RequestMetrics is a ready-made implementation
+ * that keeps per-endpoint histograms.
+ *
+ * The methods are called on the thread making the request, so they should be quick
+ * and must not throw.
+ */
+public interface RequestListener {
+
+    /**
+     * Called before a request connects.
+     *
+     * @param uri      The URI of the request.
+     * @param endpoint The REST API method, e.g. "arrivals-and-departures-for-stop".
+     */
+    void onRequestStarted(URI uri, String endpoint);
+
+    /**
+     * Called when a request has finished, successfully or not. Every call to
+     * onRequestStarted() is followed by one call to this.
+     */
+    void onRequestFinished(RequestEvent event);
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.metrics;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A RequestListener that keeps latency histograms (in microseconds), response size
+ * histograms (in bytes, as received and decompressed), result code counts and in-flight
+ * counts for each REST API method, for monitoring to scrape:
+ *
+ * <pre>
+ * RequestMetrics metrics = new RequestMetrics();
+ * ObaApi.getDefaultContext().setRequestListener(metrics);
+ * ...
+ * RequestMetrics.EndpointMetrics arrivals =
+ *         metrics.getEndpointMetrics("arrivals-and-departures-for-stop");
+ * long p99 = arrivals.getTotalTime().getValueAtPercentile(99);
+ * </pre>
+ *
+ * Recording an event doesn't lock or allocate, except the first time an endpoint, or a
+ * result code outside 0-999, is seen.  (The RequestEvent itself is allocated by the
+ * request, one per request.)
+ */
+public class RequestMetrics implements RequestListener {
+
+    // The result codes counted in an array rather than a map
+    private static final int COMMON_CODES = 1000;
+
+    public static final class EndpointMetrics {
+
+        private final String mEndpoint;
+
+        private final Histogram mConnectTime = new Histogram();
+
+        private final Histogram mFirstByteTime = new Histogram();
+
+        private final Histogram mBodyTime = new Histogram();
+
+        private final Histogram mDeserializeTime = new Histogram();
+
+        private final Histogram mTotalTime = new Histogram();
+
+        private final Histogram mResponseSize = new Histogram();
+
+        private final Histogram mCompressedSize = new Histogram();
+
+        // Indexed by code, so the HTTP and OBA codes are counted without boxing them
+        private final AtomicLongArray mResultCodes = new AtomicLongArray(COMMON_CODES);
+
+        // Codes outside 0-999
+        private final ConcurrentMap<Integer, AtomicLong> mOtherResultCodes =
+                new ConcurrentHashMap<Integer, AtomicLong>();
+
+        private final AtomicInteger mInFlight = new AtomicInteger();
+
+        EndpointMetrics(String endpoint) {
+            mEndpoint = endpoint;
+        }
+
+        public String getEndpoint() {
+            return mEndpoint;
+        }
+
+        /**
+         * @return The times taken to open new connections; requests that reused an
+         * open connection aren't recorded.
+         */
+        public Histogram getConnectTime() {
+            return mConnectTime;
+        }
+
+        public Histogram getFirstByteTime() {
+            return mFirstByteTime;
+        }
+
+        public Histogram getBodyTime() {
+            return mBodyTime;
+        }
+
+        public Histogram getDeserializeTime() {
+            return mDeserializeTime;
+        }
+
+        public Histogram getTotalTime() {
+            return mTotalTime;
+        }
+
+        /**
+         * @return The sizes in bytes, after decompression, of the response bodies
+         * that were read.
+         */
+        public Histogram getResponseSize() {
+            return mResponseSize;
+        }
+
+        /**
+         * @return The sizes in bytes, as received over the network, of the response
+         * bodies that were read.
+         */
+        public Histogram getCompressedSize() {
+            return mCompressedSize;
+        }
+
+        /**
+         * @return The number of finished requests.
+         */
+        public long getRequestCount() {
+            return mTotalTime.getCount();
+        }
+
+        /**
+         * @param code A result code, e.g. ObaApi.OBA_OK or ObaApi.OBA_NOT_FOUND.
+         * @return The number of requests that finished with the code.
+         */
+        public long getResultCount(int code) {
+            if (code >= 0 && code < COMMON_CODES) {
+                return mResultCodes.get(code);
+            }
+            AtomicLong count = mOtherResultCodes.get(code);
+            return (count != null) ? count.get() : 0;
+        }
+
+        /**
+         * @return The number of requests that finished with each result code.
+         */
+        public Map<Integer, Long> getResultCounts() {
+            Map<Integer, Long> result = new TreeMap<Integer, Long>();
+            for (int code = 0; code < COMMON_CODES; code++) {
+                long count = mResultCodes.get(code);
+                if (count != 0) {
+                    result.put(code, count);
+                }
+            }
+            for (Map.Entry<Integer, AtomicLong> entry : mOtherResultCodes.entrySet()) {
+                result.put(entry.getKey(), entry.getValue().get());
+            }
+            return result;
+        }
+
+        public int getInFlight() {
+            return mInFlight.get();
+        }
+
+        void record(RequestEvent event) {
+            mTotalTime.record(event.getTotalNanos() / 1000);
+            if (event.getConnectNanos() > 0) {
+                mConnectTime.record(event.getConnectNanos() / 1000);
+            }
+            if (event.getFirstByteNanos() > 0) {
+                mFirstByteTime.record(event.getFirstByteNanos() / 1000);
+            }
+            if (event.getResponseSize() >= 0) {
+                mBodyTime.record(event.getBodyNanos() / 1000);
+                mDeserializeTime.record(event.getDeserializeNanos() / 1000);
+                mResponseSize.record(event.getResponseSize());
+            }
+            if (event.getCompressedSize() >= 0) {
+                mCompressedSize.record(event.getCompressedSize());
+            }
+            final int code = event.getResultCode();
+            if (code >= 0 && code < COMMON_CODES) {
+                mResultCodes.incrementAndGet(code);
+                return;
+            }
+            AtomicLong count = mOtherResultCodes.get(code);
+            if (count == null) {
+                AtomicLong newCount = new AtomicLong();
+                count = mOtherResultCodes.putIfAbsent(code, newCount);
+                if (count == null) {
+                    count = newCount;
+                }
+            }
+            count.incrementAndGet();
+        }
+
+        @Override
+        public String toString() {
+            return mEndpoint + ": inFlight=" + getInFlight() + " results=" + getResultCounts()
+                    + "\n  total(us) " + mTotalTime
+                    + "\n  connect(us) " + mConnectTime
+                    + "\n  firstByte(us) " + mFirstByteTime
+                    + "\n  body(us) " + mBodyTime
+                    + "\n  deserialize(us) " + mDeserializeTime
+                    + "\n  size(bytes) " + mResponseSize
+                    + "\n  compressedSize(bytes) " + mCompressedSize;
+        }
+    }
+
+    private final ConcurrentMap<String, EndpointMetrics> mEndpoints =
+            new ConcurrentHashMap<String, EndpointMetrics>();
+
+    private final AtomicInteger mInFlight = new AtomicInteger();
+
+    @Override
+    public void onRequestStarted(URI uri, String endpoint) {
+        mInFlight.incrementAndGet();
+        getOrCreate(endpoint).mInFlight.incrementAndGet();
+    }
+
+    @Override
+    public void onRequestFinished(RequestEvent event) {
+        EndpointMetrics metrics = getOrCreate(event.getEndpoint());
+        metrics.record(event);
+        metrics.mInFlight.decrementAndGet();
+        mInFlight.decrementAndGet();
+    }
+
+    /**
+     * @return The number of requests in progress, for all endpoints.
+     */
+    public int getInFlight() {
+        return mInFlight.get();
+    }
+
+    /**
+     * @return The REST API methods that have been called.
+     */
+    public Set<String> getEndpoints() {
+        return Collections.unmodifiableSet(mEndpoints.keySet());
+    }
+
+    /**
+     * @param endpoint A REST API method, e.g. "arrivals-and-departures-for-stop".
+     * @return The metrics for the endpoint, or null if it hasn't been called.
+     */
+    public EndpointMetrics getEndpointMetrics(String endpoint) {
+        return mEndpoints.get(endpoint);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("inFlight=").append(getInFlight());
+        for (EndpointMetrics metrics : new TreeMap<String, EndpointMetrics>(mEndpoints).values()) {
+            sb.append('\n').append(metrics);
+        }
+        return sb.toString();
+    }
+
+    private EndpointMetrics getOrCreate(String endpoint) {
+        EndpointMetrics metrics = mEndpoints.get(endpoint);
+        if (metrics == null) {
+            EndpointMetrics newMetrics = new EndpointMetrics(endpoint);
+            metrics = mEndpoints.putIfAbsent(endpoint, newMetrics);
+            if (metrics == null) {
+                metrics = newMetrics;
+            }
+        }
+        return metrics;
+    }
+}
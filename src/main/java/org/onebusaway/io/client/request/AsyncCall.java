@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.request;
+
+import com.google.common.util.concurrent.AbstractFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import org.onebusaway.io.client.ObaApi;
+import org.onebusaway.io.client.ObaConnection;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A request running on an executor. Cancelling it, or letting it time out,
+ * disconnects the ObaConnection it's using so the worker thread isn't left
+ * blocked on the socket.
+ */
+final class AsyncCall<T> extends AbstractFuture<T> implements Runnable, ConnectionListener {
+
+    private static class TimeoutSchedulerHolder {
+
+        public static final ScheduledExecutorService INSTANCE =
+                Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                        .setNameFormat("ObaRequestTimeout-%d")
+                        .setDaemon(true)
+                        .build());
+    }
+
+    private final RequestBase mRequest;
+
+    private final Class<T> mClass;
+
+    private final boolean mPostHack;
+
+    private final AtomicReference<ObaConnection> mConnection = new AtomicReference<ObaConnection>();
+
+    // The duplicate a HedgedCall sends of a slow request, if it has connected
+    private final AtomicReference<ObaConnection> mHedgeConnection =
+            new AtomicReference<ObaConnection>();
+
+    private volatile ScheduledFuture<?> mTimeout;
+
+    AsyncCall(RequestBase request, Class<T> cls, boolean postHack) {
+        mRequest = request;
+        mClass = cls;
+        mPostHack = postHack;
+    }
+
+    /**
+     * Submits this call to the executor, timing it out after the given delay.
+     *
+     * @param timeout The timeout, or 0 to rely on the connection's own timeouts.
+     */
+    void start(Executor executor, long timeout, TimeUnit unit) {
+        if (timeout > 0) {
+            mTimeout = TimeoutSchedulerHolder.INSTANCE.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    onTimeout();
+                }
+            }, timeout, unit);
+        }
+        try {
+            executor.execute(this);
+        } catch (RejectedExecutionException e) {
+            setException(e);
+            cancelTimeout();
+        }
+    }
+
+    /**
+     * Runs a task on the shared timeout scheduler thread. The task must be quick.
+     */
+    static ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit) {
+        return TimeoutSchedulerHolder.INSTANCE.schedule(task, delay, unit);
+    }
+
+    @Override
+    public void run() {
+        if (isDone()) {
+            return;
+        }
+        T result;
+        try {
+            result = mPostHack ? mRequest.callPostHack(mClass, this) : mRequest.call(mClass, this);
+        } catch (Throwable t) {
+            // e.g. a connection factory or serializer that throws; without this the
+            // future would never complete
+            setException(t);
+            cancelTimeout();
+            return;
+        }
+        set(result);
+        cancelTimeout();
+    }
+
+    @Override
+    public void onConnect(ObaConnection conn) {
+        mConnection.set(conn);
+        if (isDone()) {
+            // We were cancelled or timed out before the connection was opened
+            abort();
+        }
+    }
+
+    /**
+     * Called when a hedge of this call's request connects, so that cancelling this call
+     * or timing it out disconnects the hedge as well.
+     */
+    void onHedgeConnect(ObaConnection conn) {
+        mHedgeConnection.set(conn);
+        if (isDone()) {
+            abort();
+        }
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if (super.cancel(mayInterruptIfRunning)) {
+            cancelTimeout();
+            abort();
+            return true;
+        }
+        return false;
+    }
+
+    private void onTimeout() {
+        T error = mRequest.getContext().getSerializer(mClass).createFromError(mClass,
+                ObaApi.OBA_IO_EXCEPTION, "Request timed out");
+        if (set(error)) {
+            abort();
+        }
+    }
+
+    private void abort() {
+        ObaConnection conn = mConnection.getAndSet(null);
+        if (conn != null) {
+            conn.disconnect();
+        }
+        ObaConnection hedge = mHedgeConnection.getAndSet(null);
+        if (hedge != null) {
+            hedge.disconnect();
+        }
+    }
+
+    private void cancelTimeout() {
+        ScheduledFuture<?> timeout = mTimeout;
+        if (timeout != null) {
+            timeout.cancel(false);
+        }
+    }
+}
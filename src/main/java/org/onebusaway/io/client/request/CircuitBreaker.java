@@ -0,0 +1,264 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.request;
+
+import org.onebusaway.io.client.util.UriUtils;
+
+import java.net.URI;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stops sending requests to a server that keeps failing, so that callers get an
+ * OBA_IO_EXCEPTION response immediately instead of each waiting for the connection to
+ * time out. Each server (scheme, host and port) has its own state:
+ *
+ * <ul>
+ * <li>CLOSED - requests are sent. After a number of consecutive failures (I/O errors,
+ * or a 502, 503 or 504 from the server) the circuit opens.</li>
+ * <li>OPEN - requests fail fast without being sent. After a while the circuit
+ * becomes half-open.</li>
+ * <li>HALF_OPEN - one probe request is sent while the others keep failing fast. If it
+ * succeeds the circuit closes, otherwise it opens again.</li>
+ * </ul>
+ *
+ * <pre>
+ * ObaApi.getDefaultContext().setCircuitBreaker(new CircuitBreaker.Builder()
+ *         .setFailureThreshold(5)
+ *         .setOpenDuration(30, TimeUnit.SECONDS)
+ *         .build());
+ * </pre>
+ */
+public final class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * Notified when the circuit for a server changes state.  It's called on the thread
+     * of the request that changed it, after the change and without any lock held, so
+     * it may call back into the breaker.
+     */
+    public interface Listener {
+
+        /**
+         * @param server The server, e.g. "http://api.pugetsound.onebusaway.org".
+         */
+        void onStateChanged(String server, State from, State to);
+    }
+
+    private final class Circuit {
+
+        private final String mServer;
+
+        private State mState = State.CLOSED;
+
+        private int mFailures;
+
+        private long mOpenedAt;
+
+        private boolean mProbing;
+
+        Circuit(String server) {
+            mServer = server;
+        }
+
+        boolean allowRequest() {
+            boolean allowed;
+            synchronized (this) {
+                switch (mState) {
+                    case CLOSED:
+                        return true;
+                    case OPEN:
+                        if (System.nanoTime() - mOpenedAt < mOpenNanos) {
+                            return false;
+                        }
+                        mState = State.HALF_OPEN;
+                        allowed = startProbe();
+                        break;
+                    default:
+                        return startProbe();
+                }
+            }
+            // Only a circuit that has just become half-open gets here
+            notifyListener(State.OPEN, State.HALF_OPEN);
+            return allowed;
+        }
+
+        void onSuccess() {
+            State from;
+            synchronized (this) {
+                mFailures = 0;
+                mProbing = false;
+                from = mState;
+                if (from == State.CLOSED) {
+                    return;
+                }
+                mState = State.CLOSED;
+            }
+            notifyListener(from, State.CLOSED);
+        }
+
+        void onFailure() {
+            State from;
+            synchronized (this) {
+                mFailures++;
+                mProbing = false;
+                from = mState;
+                if (from != State.HALF_OPEN
+                        && (from != State.CLOSED || mFailures < mFailureThreshold)) {
+                    return;
+                }
+                mOpenedAt = System.nanoTime();
+                mOpens.incrementAndGet();
+                mState = State.OPEN;
+            }
+            notifyListener(from, State.OPEN);
+        }
+
+        synchronized State getState() {
+            return mState;
+        }
+
+        // Called with the lock held
+        private boolean startProbe() {
+            if (mProbing) {
+                return false;
+            }
+            mProbing = true;
+            return true;
+        }
+
+        // Called without the lock, so a slow listener doesn't hold up requests
+        private void notifyListener(State from, State to) {
+            Listener listener = mListener;
+            if (listener != null) {
+                listener.onStateChanged(mServer, from, to);
+            }
+        }
+    }
+
+    public static class Builder {
+
+        private int mFailureThreshold = 5;
+
+        private long mOpenNanos = TimeUnit.SECONDS.toNanos(30);
+
+        /**
+         * @param failures The number of consecutive failures that open the circuit.
+         *                 The default is 5.
+         */
+        public Builder setFailureThreshold(int failures) {
+            if (failures < 1) {
+                throw new IllegalArgumentException("failures must be at least 1");
+            }
+            mFailureThreshold = failures;
+            return this;
+        }
+
+        /**
+         * Sets how long requests fail fast before a probe is sent. The default is 30s.
+         */
+        public Builder setOpenDuration(long duration, TimeUnit unit) {
+            mOpenNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        public CircuitBreaker build() {
+            return new CircuitBreaker(this);
+        }
+    }
+
+    private final int mFailureThreshold;
+
+    private final long mOpenNanos;
+
+    private final ConcurrentHashMap<String, Circuit> mCircuits =
+            new ConcurrentHashMap<String, Circuit>();
+
+    private final AtomicLong mRejected = new AtomicLong();
+
+    private final AtomicLong mOpens = new AtomicLong();
+
+    private volatile Listener mListener;
+
+    private CircuitBreaker(Builder builder) {
+        mFailureThreshold = builder.mFailureThreshold;
+        mOpenNanos = builder.mOpenNanos;
+    }
+
+    public void setListener(Listener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * @param uri Any URI on the server, e.g. its base URL.
+     * @return The state of the circuit for the server.
+     */
+    public State getState(URI uri) {
+        Circuit circuit = mCircuits.get(UriUtils.getServer(uri));
+        return (circuit != null) ? circuit.getState() : State.CLOSED;
+    }
+
+    /**
+     * @return The number of requests failed fast without being sent.
+     */
+    public long getRejectedCount() {
+        return mRejected.get();
+    }
+
+    /**
+     * @return The number of times a circuit has opened.
+     */
+    public long getOpenCount() {
+        return mOpens.get();
+    }
+
+    /**
+     * @return true if a request to this URI may be sent. If it is, its result
+     * must be reported with onSuccess() or onFailure().
+     */
+    boolean allowRequest(URI uri) {
+        if (getCircuit(uri).allowRequest()) {
+            return true;
+        }
+        mRejected.incrementAndGet();
+        return false;
+    }
+
+    void onSuccess(URI uri) {
+        getCircuit(uri).onSuccess();
+    }
+
+    void onFailure(URI uri) {
+        getCircuit(uri).onFailure();
+    }
+
+    private Circuit getCircuit(URI uri) {
+        String server = UriUtils.getServer(uri);
+        Circuit circuit = mCircuits.get(server);
+        if (circuit == null) {
+            Circuit created = new Circuit(server);
+            circuit = mCircuits.putIfAbsent(server, created);
+            if (circuit == null) {
+                circuit = created;
+            }
+        }
+        return circuit;
+    }
+}
@@ -0,0 +1,342 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.request;
+
+import org.onebusaway.io.client.util.UriUtils;
+
+import java.net.URI;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits the number of requests in progress to each server (scheme, host and port),
+ * adapting the limit to how the server responds so that the client neither underuses
+ * a healthy server nor pushes a struggling one into queueing collapse.
+ *
+ * The limit is adjusted AIMD-style, like TCP's congestion window: each request that
+ * completes normally raises it by 1/limit (about one per round trip), and a request that
+ * fails because the server is unavailable, or takes more than a tolerance (by default
+ * 2x) longer than the shortest recent round trip, lowers it by a ratio (by default 0.9),
+ * at most once per round trip.
+ *
+ * Requests beyond the limit wait in a queue for a bounded time. If the queue is full, or
+ * the wait runs out, the request isn't sent and the caller gets an
+ * OBA_CONCURRENCY_LIMITED response.
+ *
+ * <pre>
+ * ObaApi.getDefaultContext().setConcurrencyLimiter(new ConcurrencyLimiter.Builder()
+ *         .setLimits(1, 20, 200)
+ *         .setQueue(50, 1, TimeUnit.SECONDS)
+ *         .build());
+ * </pre>
+ */
+public final class ConcurrencyLimiter {
+
+    /**
+     * The limit and requests in progress for one server
+     */
+    private final class Server {
+
+        private final ReentrantLock mLock = new ReentrantLock();
+
+        private final Condition mAvailable = mLock.newCondition();
+
+        private double mLimit = mInitialLimit;
+
+        private int mInFlight;
+
+        private int mQueued;
+
+        private long mMinRtt = Long.MAX_VALUE;
+
+        private long mWindowMinRtt = Long.MAX_VALUE;
+
+        private int mWindowSamples;
+
+        private long mLastDecrease;
+
+        boolean acquire() throws InterruptedException {
+            mLock.lock();
+            try {
+                if (mInFlight < (int) mLimit) {
+                    mInFlight++;
+                    return true;
+                }
+                if (mQueued >= mMaxQueue || mMaxWaitNanos <= 0) {
+                    return false;
+                }
+                mQueued++;
+                try {
+                    long remaining = mMaxWaitNanos;
+                    while (mInFlight >= (int) mLimit) {
+                        if (remaining <= 0) {
+                            return false;
+                        }
+                        remaining = mAvailable.awaitNanos(remaining);
+                    }
+                    mInFlight++;
+                    return true;
+                } finally {
+                    mQueued--;
+                }
+            } finally {
+                mLock.unlock();
+            }
+        }
+
+        void release(long rttNanos, boolean failed) {
+            mLock.lock();
+            try {
+                int inFlight = mInFlight--;
+                if (rttNanos >= 0) {
+                    update(rttNanos, failed, inFlight);
+                }
+                if (mQueued > 0 && mInFlight < (int) mLimit) {
+                    mAvailable.signal();
+                }
+            } finally {
+                mLock.unlock();
+            }
+        }
+
+        private void update(long rtt, boolean failed, int inFlight) {
+            if (!failed) {
+                // The baseline is the shortest round trip over the last two windows
+                // of samples, so it can rise again if the network path changes
+                mWindowMinRtt = Math.min(mWindowMinRtt, rtt);
+                mMinRtt = Math.min(mMinRtt, rtt);
+                if (++mWindowSamples >= RTT_WINDOW) {
+                    mMinRtt = mWindowMinRtt;
+                    mWindowMinRtt = Long.MAX_VALUE;
+                    mWindowSamples = 0;
+                }
+            }
+            long now = System.nanoTime();
+            if (failed || rtt > mMinRtt * mRttTolerance) {
+                // Without a baseline round trip yet, every failure counts
+                long interval = (mMinRtt != Long.MAX_VALUE) ? mMinRtt : 0;
+                if (mLastDecrease == 0 || now - mLastDecrease > interval) {
+                    mLimit = Math.max(mMinLimit, mLimit * mBackoffRatio);
+                    mLastDecrease = now;
+                }
+            } else if (inFlight * 2 >= mLimit) {
+                // Only grow while the limit is actually being used
+                mLimit = Math.min(mMaxLimit, mLimit + 1 / mLimit);
+            }
+        }
+
+        int getLimit() {
+            mLock.lock();
+            try {
+                return (int) mLimit;
+            } finally {
+                mLock.unlock();
+            }
+        }
+
+        int getInFlight() {
+            mLock.lock();
+            try {
+                return mInFlight;
+            } finally {
+                mLock.unlock();
+            }
+        }
+
+        int getQueued() {
+            mLock.lock();
+            try {
+                return mQueued;
+            } finally {
+                mLock.unlock();
+            }
+        }
+    }
+
+    private static final int RTT_WINDOW = 250;
+
+    public static class Builder {
+
+        private int mMinLimit = 1;
+
+        private int mInitialLimit = 20;
+
+        private int mMaxLimit = 200;
+
+        private double mBackoffRatio = 0.9;
+
+        private double mRttTolerance = 2.0;
+
+        private int mMaxQueue = 50;
+
+        private long mMaxWaitNanos = TimeUnit.SECONDS.toNanos(1);
+
+        /**
+         * Sets the bounds and starting value of the limit. The defaults are 1, 20 and 200.
+         */
+        public Builder setLimits(int min, int initial, int max) {
+            if (min < 1 || initial < min || max < initial) {
+                throw new IllegalArgumentException("Invalid limits " + min + ", " + initial
+                        + ", " + max);
+            }
+            mMinLimit = min;
+            mInitialLimit = initial;
+            mMaxLimit = max;
+            return this;
+        }
+
+        /**
+         * @param ratio The ratio the limit is multiplied by when the server is
+         *              overloaded. The default is 0.9.
+         */
+        public Builder setBackoffRatio(double ratio) {
+            if (ratio <= 0 || ratio >= 1) {
+                throw new IllegalArgumentException("Invalid ratio " + ratio);
+            }
+            mBackoffRatio = ratio;
+            return this;
+        }
+
+        /**
+         * @param tolerance How many times longer than the shortest recent round trip a
+         *                  request may take before the server is considered overloaded.
+         *                  The default is 2.
+         */
+        public Builder setRttTolerance(double tolerance) {
+            if (tolerance < 1) {
+                throw new IllegalArgumentException("Invalid tolerance " + tolerance);
+            }
+            mRttTolerance = tolerance;
+            return this;
+        }
+
+        /**
+         * Sets how many requests may wait for the limit, and for how long. A size or
+         * wait of 0 rejects requests over the limit straight away. The defaults are
+         * 50 requests and 1 second.
+         */
+        public Builder setQueue(int size, long maxWait, TimeUnit unit) {
+            mMaxQueue = size;
+            mMaxWaitNanos = unit.toNanos(maxWait);
+            return this;
+        }
+
+        public ConcurrencyLimiter build() {
+            return new ConcurrencyLimiter(this);
+        }
+    }
+
+    private final int mMinLimit;
+
+    private final int mInitialLimit;
+
+    private final int mMaxLimit;
+
+    private final double mBackoffRatio;
+
+    private final double mRttTolerance;
+
+    private final int mMaxQueue;
+
+    private final long mMaxWaitNanos;
+
+    private final ConcurrentHashMap<String, Server> mServers =
+            new ConcurrentHashMap<String, Server>();
+
+    private final AtomicLong mRejected = new AtomicLong();
+
+    private ConcurrencyLimiter(Builder builder) {
+        mMinLimit = builder.mMinLimit;
+        mInitialLimit = builder.mInitialLimit;
+        mMaxLimit = builder.mMaxLimit;
+        mBackoffRatio = builder.mBackoffRatio;
+        mRttTolerance = builder.mRttTolerance;
+        mMaxQueue = builder.mMaxQueue;
+        mMaxWaitNanos = builder.mMaxWaitNanos;
+    }
+
+    /**
+     * @param uri Any URI on the server, e.g. its base URL.
+     * @return The current limit on requests in progress to the server.
+     */
+    public int getLimit(URI uri) {
+        Server server = mServers.get(UriUtils.getServer(uri));
+        return (server != null) ? server.getLimit() : mInitialLimit;
+    }
+
+    /**
+     * @param uri Any URI on the server, e.g. its base URL.
+     * @return The number of requests in progress to the server.
+     */
+    public int getInFlight(URI uri) {
+        Server server = mServers.get(UriUtils.getServer(uri));
+        return (server != null) ? server.getInFlight() : 0;
+    }
+
+    /**
+     * @param uri Any URI on the server, e.g. its base URL.
+     * @return The number of requests waiting for the limit.
+     */
+    public int getQueueDepth(URI uri) {
+        Server server = mServers.get(UriUtils.getServer(uri));
+        return (server != null) ? server.getQueued() : 0;
+    }
+
+    /**
+     * @return The number of requests not sent because of the limit.
+     */
+    public long getRejectedCount() {
+        return mRejected.get();
+    }
+
+    /**
+     * Waits, if need be, for the server's limit to allow another request.
+     *
+     * @return true if the request may be sent, in which case release() must be called
+     * once it completes.
+     */
+    boolean acquire(URI uri) throws InterruptedException {
+        if (getServer(uri).acquire()) {
+            return true;
+        }
+        mRejected.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * @param rttNanos How long the request took, or -1 if it wasn't sent.
+     * @param failed   true if the request failed because the server is unavailable.
+     */
+    void release(URI uri, long rttNanos, boolean failed) {
+        getServer(uri).release(rttNanos, failed);
+    }
+
+    private Server getServer(URI uri) {
+        String key = UriUtils.getServer(uri);
+        Server server = mServers.get(key);
+        if (server == null) {
+            Server created = new Server();
+            server = mServers.putIfAbsent(key, created);
+            if (server == null) {
+                server = created;
+            }
+        }
+        return server;
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.request;
+
+import org.onebusaway.io.client.ObaConnection;
+
+/**
+ * Told about the connection a request opens, so that it can be disconnected
+ * from another thread.
+ */
+interface ConnectionListener {
+
+    /**
+     * Called by RequestBase once the connection for a request has been opened.
+     */
+    void onConnect(ObaConnection conn);
+}
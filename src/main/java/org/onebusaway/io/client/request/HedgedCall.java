@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.request;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.SettableFuture;
+
+import org.onebusaway.io.client.ObaApi;
+import org.onebusaway.io.client.ObaConnection;
+import org.onebusaway.io.client.util.UriUtils;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs a GET request on the calling thread, and if it's still running after the
+ * HedgingPolicy's delay, a duplicate on the context's executor. The first response
+ * wins and the other request is disconnected. A failed hedge never wins, so the
+ * original request's response is used unless the hedge succeeds first.
+ */
+final class HedgedCall {
+
+    /**
+     * One of the copies of the request
+     */
+    private static final class Leg implements ConnectionListener {
+
+        private final AsyncCall<?> mParent;
+
+        private final boolean mPrimary;
+
+        private final AtomicReference<ObaConnection> mConnection =
+                new AtomicReference<ObaConnection>();
+
+        private volatile boolean mAborted = false;
+
+        Leg(AsyncCall<?> parent, boolean primary) {
+            mParent = parent;
+            mPrimary = primary;
+        }
+
+        @Override
+        public void onConnect(ObaConnection conn) {
+            mConnection.set(conn);
+            if (mParent != null) {
+                // Cancelling the caller's future, or timing it out, disconnects both
+                if (mPrimary) {
+                    mParent.onConnect(conn);
+                } else {
+                    mParent.onHedgeConnect(conn);
+                }
+            }
+            if (mAborted || (mParent != null && mParent.isDone())) {
+                abort();
+            }
+        }
+
+        void abort() {
+            mAborted = true;
+            ObaConnection conn = mConnection.getAndSet(null);
+            if (conn != null) {
+                conn.disconnect();
+            }
+        }
+    }
+
+    private HedgedCall() {
+        throw new AssertionError();
+    }
+
+    static <T> T execute(final RequestBase request, final Class<T> cls, AsyncCall<T> async,
+            final HedgingPolicy policy) {
+        final String endpoint = UriUtils.getEndpoint(request.mUri);
+        final long start = System.nanoTime();
+        final long delay = policy.getDelay(endpoint, TimeUnit.NANOSECONDS);
+        policy.onRequest();
+
+        final SettableFuture<T> winner = SettableFuture.create();
+        final Leg primary = new Leg(async, true);
+        final Leg hedge = new Leg(async, false);
+        ScheduledFuture<?> timer = null;
+        if (delay >= 0) {
+            timer = AsyncCall.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    if (winner.isDone() || !policy.tryHedge()) {
+                        return;
+                    }
+                    try {
+                        request.getContext().getExecutor().execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                runHedge(request, cls, hedge, primary, winner, policy);
+                            }
+                        });
+                    } catch (RejectedExecutionException e) {
+                        // Just wait for the original request
+                    }
+                }
+            }, delay, TimeUnit.NANOSECONDS);
+        }
+
+        T result;
+        try {
+            result = request.timedCall(cls, primary, false);
+        } finally {
+            if (timer != null) {
+                timer.cancel(false);
+            }
+        }
+        if (winner.set(result)) {
+            hedge.abort();
+        } else {
+            // The hedge won, and disconnected this request
+            result = Futures.getUnchecked(winner);
+        }
+        if (RequestBase.getCode(result) == ObaApi.OBA_OK) {
+            policy.record(endpoint, System.nanoTime() - start);
+        }
+        return result;
+    }
+
+    private static <T> void runHedge(RequestBase request, Class<T> cls, Leg hedge, Leg primary,
+            SettableFuture<T> winner, HedgingPolicy policy) {
+        if (winner.isDone()) {
+            return;
+        }
+        T result = request.timedCall(cls, hedge, false);
+        if (RequestBase.getCode(result) == ObaApi.OBA_OK && winner.set(result)) {
+            policy.onHedgeWon();
+            primary.abort();
+        }
+    }
+}
@@ -0,0 +1,307 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.request;
+
+import org.onebusaway.io.client.metrics.Histogram;
+import org.onebusaway.io.client.util.UriUtils;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hedges GET requests to cut tail latency: if a request hasn't completed after the
+ * delay within which most requests to its REST API method complete (by default the
+ * 95th percentile of the latencies this client has seen recently), a duplicate request
+ * is sent and whichever responds first is used. The other one is disconnected.
+ *
+ * To protect the server, hedges are limited by a budget: every request earns a fraction
+ * of a hedge (by default 0.05, i.e. at most 5% extra requests), and a hedge is only sent
+ * if a whole one has been earned. No hedges are sent until enough latencies have been
+ * seen to estimate the delay.
+ *
+ * <pre>
+ * ObaApi.getDefaultContext().setHedgingPolicy(new HedgingPolicy.Builder()
+ *         .setPercentile(95)
+ *         .setBudget(0.05)
+ *         .build());
+ * </pre>
+ */
+public final class HedgingPolicy {
+
+    /**
+     * The REST API methods hedged by default
+     */
+    public static final Collection<String> DEFAULT_ENDPOINTS =
+            Arrays.asList("arrivals-and-departures-for-stop");
+
+    // Budget tokens are in thousandths of a hedge
+    private static final long HEDGE_COST = 1000;
+
+    /**
+     * The latencies of the last few windows of requests to one REST API method
+     */
+    private static final class Latencies {
+
+        volatile Histogram current = new Histogram();
+
+        volatile Histogram previous;
+    }
+
+    public static class Builder {
+
+        private Set<String> mEndpoints = new HashSet<String>(DEFAULT_ENDPOINTS);
+
+        private double mPercentile = 95;
+
+        private long mMinDelay = TimeUnit.MILLISECONDS.toMicros(10);
+
+        private long mMaxDelay = TimeUnit.SECONDS.toMicros(5);
+
+        private double mBudget = 0.05;
+
+        private int mMaxBurst = 10;
+
+        private int mMinSamples = 50;
+
+        private int mWindow = 1000;
+
+        /**
+         * @param endpoints The names of the REST API methods to hedge, e.g.
+         *                  "arrivals-and-departures-for-stop".
+         */
+        public Builder setEndpoints(Collection<String> endpoints) {
+            mEndpoints = new HashSet<String>(endpoints);
+            return this;
+        }
+
+        /**
+         * @param percentile The latency percentile after which a request is hedged.
+         *                   The default is 95.
+         */
+        public Builder setPercentile(double percentile) {
+            if (percentile <= 0 || percentile >= 100) {
+                throw new IllegalArgumentException("Invalid percentile " + percentile);
+            }
+            mPercentile = percentile;
+            return this;
+        }
+
+        /**
+         * Limits the hedge delay, whatever the observed latencies. The defaults are
+         * 10ms and 5s.
+         */
+        public Builder setDelayBounds(long min, long max, TimeUnit unit) {
+            if (min < 0 || max < min) {
+                throw new IllegalArgumentException("Invalid delay bounds " + min + ", " + max);
+            }
+            mMinDelay = unit.toMicros(min);
+            mMaxDelay = unit.toMicros(max);
+            return this;
+        }
+
+        /**
+         * @param budget The most hedges to send per request, e.g. 0.05 for 5% extra
+         *               requests. The default is 0.05.
+         */
+        public Builder setBudget(double budget) {
+            if (budget < 0 || budget > 1) {
+                throw new IllegalArgumentException("Invalid budget " + budget);
+            }
+            mBudget = budget;
+            return this;
+        }
+
+        /**
+         * @param hedges The most unused hedges that can be saved up for a burst of
+         *               slow requests. The default is 10.
+         */
+        public Builder setMaxBurst(int hedges) {
+            mMaxBurst = hedges;
+            return this;
+        }
+
+        /**
+         * Sets how many latencies are used to estimate the hedge delay. Requests aren't
+         * hedged until minSamples latencies have been seen, and the estimate is based
+         * on the most recent window of latencies. The defaults are 50 and 1000.
+         */
+        public Builder setSamples(int minSamples, int window) {
+            if (minSamples < 1 || window < minSamples) {
+                throw new IllegalArgumentException("Invalid samples " + minSamples + ", "
+                        + window);
+            }
+            mMinSamples = minSamples;
+            mWindow = window;
+            return this;
+        }
+
+        public HedgingPolicy build() {
+            return new HedgingPolicy(this);
+        }
+    }
+
+    private final Set<String> mEndpoints;
+
+    private final double mPercentile;
+
+    private final long mMinDelay;
+
+    private final long mMaxDelay;
+
+    private final long mEarnedPerRequest;
+
+    private final long mMaxTokens;
+
+    private final int mMinSamples;
+
+    private final int mWindow;
+
+    private final ConcurrentHashMap<String, Latencies> mLatencies =
+            new ConcurrentHashMap<String, Latencies>();
+
+    private final AtomicLong mTokens = new AtomicLong();
+
+    private final AtomicLong mHedges = new AtomicLong();
+
+    private final AtomicLong mHedgeWins = new AtomicLong();
+
+    private final AtomicLong mOverBudget = new AtomicLong();
+
+    private HedgingPolicy(Builder builder) {
+        mEndpoints = new HashSet<String>(builder.mEndpoints);
+        mPercentile = builder.mPercentile;
+        mMinDelay = builder.mMinDelay;
+        mMaxDelay = builder.mMaxDelay;
+        mEarnedPerRequest = Math.round(builder.mBudget * HEDGE_COST);
+        mMaxTokens = builder.mMaxBurst * HEDGE_COST;
+        mMinSamples = builder.mMinSamples;
+        mWindow = builder.mWindow;
+    }
+
+    /**
+     * @return The number of hedged requests sent.
+     */
+    public long getHedgeCount() {
+        return mHedges.get();
+    }
+
+    /**
+     * @return The number of hedged requests that responded before the original request.
+     */
+    public long getHedgeWinCount() {
+        return mHedgeWins.get();
+    }
+
+    /**
+     * @return The number of requests that would have been hedged, but weren't because
+     * the budget was used up.
+     */
+    public long getOverBudgetCount() {
+        return mOverBudget.get();
+    }
+
+    /**
+     * @param endpoint The REST API method name, e.g. "arrivals-and-departures-for-stop".
+     * @param unit     The unit to return the delay in.
+     * @return How long a request to the method may take before it's hedged, or -1 if
+     * not enough latencies have been seen to know.
+     */
+    public long getDelay(String endpoint, TimeUnit unit) {
+        Latencies latencies = mLatencies.get(endpoint);
+        if (latencies == null) {
+            return -1;
+        }
+        Histogram histogram = latencies.previous;
+        if (histogram == null) {
+            histogram = latencies.current;
+            if (histogram.getCount() < mMinSamples) {
+                return -1;
+            }
+        }
+        long delay = histogram.getValueAtPercentile(mPercentile);
+        delay = Math.min(Math.max(delay, mMinDelay), mMaxDelay);
+        return unit.convert(delay, TimeUnit.MICROSECONDS);
+    }
+
+    boolean handles(URI uri) {
+        return mEndpoints.contains(UriUtils.getEndpoint(uri));
+    }
+
+    /**
+     * Records the latency of a successful request in the endpoint's samples.  The
+     * budget is earned separately, by onRequest().
+     */
+    void record(String endpoint, long nanos) {
+        Latencies latencies = mLatencies.get(endpoint);
+        if (latencies == null) {
+            Latencies created = new Latencies();
+            latencies = mLatencies.putIfAbsent(endpoint, created);
+            if (latencies == null) {
+                latencies = created;
+            }
+        }
+        Histogram current = latencies.current;
+        current.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+        if (current.getCount() >= mWindow) {
+            synchronized (latencies) {
+                if (latencies.current == current) {
+                    latencies.previous = current;
+                    latencies.current = new Histogram();
+                }
+            }
+        }
+    }
+
+    /**
+     * Earns a request's share of the hedge budget.
+     */
+    void onRequest() {
+        while (true) {
+            long tokens = mTokens.get();
+            long earned = Math.min(tokens + mEarnedPerRequest, mMaxTokens);
+            if (earned == tokens || mTokens.compareAndSet(tokens, earned)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return true if there's enough budget for a hedge, which is then spent.
+     */
+    boolean tryHedge() {
+        while (true) {
+            long tokens = mTokens.get();
+            if (tokens < HEDGE_COST) {
+                mOverBudget.incrementAndGet();
+                return false;
+            }
+            if (mTokens.compareAndSet(tokens, tokens - HEDGE_COST)) {
+                mHedges.incrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    void onHedgeWon() {
+        mHedgeWins.incrementAndGet();
+    }
+}
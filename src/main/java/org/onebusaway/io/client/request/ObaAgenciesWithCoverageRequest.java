@@ -15,8 +15,13 @@
  */
 package org.onebusaway.io.client.request;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
+import org.onebusaway.io.client.ObaContext;
+
 import java.net.URI;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 /**
  * List all supported agencies along with the center of their coverage area.
@@ -31,14 +36,22 @@ public final class ObaAgenciesWithCoverageRequest extends RequestBase implements
         super(uri);
     }
 
+    protected ObaAgenciesWithCoverageRequest(ObaContext context, URI uri) {
+        super(context, uri);
+    }
+
     public static class Builder extends RequestBase.BuilderBase {
 
         public Builder() {
-            super(BASE_PATH + "/agencies-with-coverage.json");
+            this(null);
+        }
+
+        public Builder(ObaContext context) {
+            super(context, BASE_PATH + "/agencies-with-coverage.json");
         }
 
         public ObaAgenciesWithCoverageRequest build() {
-            return new ObaAgenciesWithCoverageRequest(buildUri());
+            return new ObaAgenciesWithCoverageRequest(mObaContext, buildUri());
         }
     }
 
@@ -56,6 +69,26 @@ public final class ObaAgenciesWithCoverageRequest extends RequestBase implements
         return call(ObaAgenciesWithCoverageResponse.class);
     }
 
+    /**
+     * Executes this request asynchronously on the context's executor.
+     *
+     * @return A future for the response. Cancelling it disconnects the request.
+     */
+    public ListenableFuture<ObaAgenciesWithCoverageResponse> callAsync() {
+        return callAsync(ObaAgenciesWithCoverageResponse.class, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Executes this request asynchronously on the context's executor.
+     *
+     * @param timeout How long to wait before completing with an OBA_IO_EXCEPTION response.
+     * @param unit    The unit of the timeout.
+     * @return A future for the response. Cancelling it disconnects the request.
+     */
+    public ListenableFuture<ObaAgenciesWithCoverageResponse> callAsync(long timeout, TimeUnit unit) {
+        return callAsync(ObaAgenciesWithCoverageResponse.class, timeout, unit);
+    }
+
     @Override
     public String toString() {
         return "ObaAgenciesWithCoverageRequest [mUri=" + mUri + "]";
@@ -15,8 +15,13 @@
  */
 package org.onebusaway.io.client.request;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
+import org.onebusaway.io.client.ObaContext;
+
 import java.net.URI;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Retrieve info for a specific transit agency
@@ -30,14 +35,22 @@ public final class ObaAgencyRequest extends RequestBase implements Callable<ObaA
         super(uri);
     }
 
+    protected ObaAgencyRequest(ObaContext context, URI uri) {
+        super(context, uri);
+    }
+
     public static class Builder extends RequestBase.BuilderBase {
 
         public Builder(String agencyId) {
-            super(getPathWithId("/agency/", agencyId));
+            this(null, agencyId);
+        }
+
+        public Builder(ObaContext context, String agencyId) {
+            super(context, getPathWithId("/agency/", agencyId));
         }
 
         public ObaAgencyRequest build() {
-            return new ObaAgencyRequest(buildUri());
+            return new ObaAgencyRequest(mObaContext, buildUri());
         }
     }
 
@@ -56,6 +69,26 @@ public final class ObaAgencyRequest extends RequestBase implements Callable<ObaA
         return call(ObaAgencyResponse.class);
     }
 
+    /**
+     * Executes this request asynchronously on the context's executor.
+     *
+     * @return A future for the response. Cancelling it disconnects the request.
+     */
+    public ListenableFuture<ObaAgencyResponse> callAsync() {
+        return callAsync(ObaAgencyResponse.class, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Executes this request asynchronously on the context's executor.
+     *
+     * @param timeout How long to wait before completing with an OBA_IO_EXCEPTION response.
+     * @param unit    The unit of the timeout.
+     * @return A future for the response. Cancelling it disconnects the request.
+     */
+    public ListenableFuture<ObaAgencyResponse> callAsync(long timeout, TimeUnit unit) {
+        return callAsync(ObaAgencyResponse.class, timeout, unit);
+    }
+
 
     @Override
     public String toString() {
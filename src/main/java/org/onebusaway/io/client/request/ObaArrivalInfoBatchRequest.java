@@ -0,0 +1,234 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.request;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+import org.onebusaway.io.client.ObaApi;
+import org.onebusaway.io.client.ObaContext;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Requests arrivals and departures for several stops at once, e.g. for a departure board
+ * at a transit hub.  The stops are requested in parallel, a few at a time, so the batch
+ * takes about as long as its slowest request rather than the sum of them.  A stop that
+ * fails doesn't fail the batch: its response carries the error code, and the others are
+ * returned as usual.
+ */
+public final class ObaArrivalInfoBatchRequest implements Callable<ObaArrivalInfoBatchResponse> {
+
+    public static final int DEFAULT_MAX_PARALLELISM = 10;
+
+    public static class Builder {
+
+        private final ObaContext mObaContext;
+
+        private final List<String> mStopIds;
+
+        private int mMinutesAfter = -1;
+
+        private int mMaxParallelism = DEFAULT_MAX_PARALLELISM;
+
+        /**
+         * @param stopIds The stops to request.  A stop listed more than once is only
+         *                requested once.
+         */
+        public Builder(Collection<String> stopIds) {
+            this(null, stopIds);
+        }
+
+        /**
+         * @param context The context to make the requests with, or null for the default
+         * @param stopIds The stops to request.  A stop listed more than once is only
+         *                requested once.
+         */
+        public Builder(ObaContext context, Collection<String> stopIds) {
+            mObaContext = context;
+            mStopIds = Collections.unmodifiableList(
+                    new ArrayList<String>(new LinkedHashSet<String>(stopIds)));
+        }
+
+        /**
+         * Includes vehicles arriving or departing in the next minutesAfter minutes
+         */
+        public Builder setMinutesAfter(int minutesAfter) {
+            mMinutesAfter = minutesAfter;
+            return this;
+        }
+
+        /**
+         * Sets the most requests to have in progress at once.  The default is
+         * DEFAULT_MAX_PARALLELISM.
+         */
+        public Builder setMaxParallelism(int maxParallelism) {
+            if (maxParallelism < 1) {
+                throw new IllegalArgumentException("maxParallelism must be at least 1");
+            }
+            mMaxParallelism = maxParallelism;
+            return this;
+        }
+
+        public ObaArrivalInfoBatchRequest build() {
+            ObaArrivalInfoRequest[] requests = new ObaArrivalInfoRequest[mStopIds.size()];
+            for (int i = 0; i < requests.length; i++) {
+                String stopId = mStopIds.get(i);
+                requests[i] = (mMinutesAfter >= 0)
+                        ? new ObaArrivalInfoRequest.Builder(mObaContext, stopId, mMinutesAfter)
+                                .build()
+                        : new ObaArrivalInfoRequest.Builder(mObaContext, stopId).build();
+            }
+            ObaContext context = (mObaContext != null) ? mObaContext : ObaApi.getDefaultContext();
+            return new ObaArrivalInfoBatchRequest(context, mStopIds, requests, mMaxParallelism);
+        }
+    }
+
+    private final ObaContext mObaContext;
+
+    private final List<String> mStopIds;
+
+    private final ObaArrivalInfoRequest[] mRequests;
+
+    private final int mMaxParallelism;
+
+    private ObaArrivalInfoBatchRequest(ObaContext context, List<String> stopIds,
+            ObaArrivalInfoRequest[] requests, int maxParallelism) {
+        mObaContext = context;
+        mStopIds = stopIds;
+        mRequests = requests;
+        mMaxParallelism = maxParallelism;
+    }
+
+    /**
+     * Helper method for constructing new instances.
+     *
+     * @param stopIds The stops to request.
+     * @return The new request instance.
+     */
+    public static ObaArrivalInfoBatchRequest newRequest(Collection<String> stopIds) {
+        return new Builder(stopIds).build();
+    }
+
+    /**
+     * @return The stops this batch requests, without duplicates, in the order given
+     */
+    public List<String> getStopIds() {
+        return mStopIds;
+    }
+
+    /**
+     * Requests all of the stops, and waits for their responses.  The calling thread
+     * requests stops too, so only maxParallelism - 1 tasks go to the context's executor.
+     */
+    @Override
+    public ObaArrivalInfoBatchResponse call() {
+        final Batch batch = new Batch();
+        int helpers = Math.min(mMaxParallelism, mRequests.length) - 1;
+        Executor executor = mObaContext.getExecutor();
+        for (int i = 0; i < helpers; i++) {
+            try {
+                executor.execute(batch);
+            } catch (RejectedExecutionException e) {
+                // The calling thread gets through the stops on its own
+                break;
+            }
+        }
+        batch.run();
+        try {
+            batch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            batch.abandon("Interrupted");
+        }
+        return new ObaArrivalInfoBatchResponse(mStopIds, batch.getResponses());
+    }
+
+    /**
+     * Executes this batch asynchronously on the context's executor.
+     *
+     * @return A future for the responses.
+     */
+    public ListenableFuture<ObaArrivalInfoBatchResponse> callAsync() {
+        return mObaContext.getExecutor().submit(this);
+    }
+
+    /**
+     * The stops of one call(), taken in turn by whichever threads are working on it.
+     * A helper task that only starts once every stop has been taken does nothing, so
+     * the batch never waits on a task queued behind it on a busy executor.
+     */
+    private final class Batch implements Runnable {
+
+        private final AtomicInteger mNext = new AtomicInteger();
+
+        private final AtomicReferenceArray<ObaArrivalInfoResponse> mResponses =
+                new AtomicReferenceArray<ObaArrivalInfoResponse>(mRequests.length);
+
+        private final CountDownLatch mDone = new CountDownLatch(mRequests.length);
+
+        @Override
+        public void run() {
+            int i;
+            while ((i = mNext.getAndIncrement()) < mRequests.length) {
+                ObaArrivalInfoResponse response;
+                try {
+                    response = mRequests[i].call();
+                } catch (RuntimeException e) {
+                    response = error(e.toString());
+                }
+                mResponses.compareAndSet(i, null, response);
+                mDone.countDown();
+            }
+        }
+
+        void await() throws InterruptedException {
+            mDone.await();
+        }
+
+        /**
+         * Fills in the stops that haven't been answered with an error
+         */
+        void abandon(String message) {
+            mNext.set(mRequests.length);
+            for (int i = 0; i < mRequests.length; i++) {
+                mResponses.compareAndSet(i, null, error(message));
+            }
+        }
+
+        ObaArrivalInfoResponse[] getResponses() {
+            ObaArrivalInfoResponse[] responses = new ObaArrivalInfoResponse[mRequests.length];
+            for (int i = 0; i < responses.length; i++) {
+                responses[i] = mResponses.get(i);
+            }
+            return responses;
+        }
+
+        private ObaArrivalInfoResponse error(String message) {
+            return mObaContext.getSerializer(ObaArrivalInfoResponse.class).createFromError(
+                    ObaArrivalInfoResponse.class, ObaApi.OBA_IO_EXCEPTION, message);
+        }
+    }
+}
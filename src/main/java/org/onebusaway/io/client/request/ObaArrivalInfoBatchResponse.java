@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.request;
+
+import org.onebusaway.io.client.ObaApi;
+import org.onebusaway.io.client.elements.ObaArrivalInfo;
+import org.onebusaway.io.client.elements.ObaReferences;
+import org.onebusaway.io.client.elements.ObaReferencesElement;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Response object for ObaArrivalInfoBatchRequest requests: the response for each stop,
+ * and the references of all of them merged into one set.
+ */
+public final class ObaArrivalInfoBatchResponse {
+
+    private final List<String> mStopIds;
+
+    private final Map<String, ObaArrivalInfoResponse> mResponses;
+
+    private final ObaReferencesElement mRefs;
+
+    ObaArrivalInfoBatchResponse(List<String> stopIds, ObaArrivalInfoResponse[] responses) {
+        mStopIds = stopIds;
+        mResponses = new LinkedHashMap<String, ObaArrivalInfoResponse>(
+                stopIds.size() * 4 / 3 + 1);
+        List<ObaReferencesElement> refs = new ArrayList<ObaReferencesElement>(responses.length);
+        for (int i = 0; i < responses.length; i++) {
+            ObaArrivalInfoResponse response = responses[i];
+            mResponses.put(stopIds.get(i), response);
+            if (response.getCode() == ObaApi.OBA_OK
+                    && response.getRefs() instanceof ObaReferencesElement) {
+                refs.add((ObaReferencesElement) response.getRefs());
+            }
+        }
+        mRefs = new ObaReferencesElement(refs);
+    }
+
+    /**
+     * @return The stops that were requested, in the order they were given
+     */
+    public List<String> getStopIds() {
+        return mStopIds;
+    }
+
+    /**
+     * @return The response for a stop, which may be an error, or null if the stop
+     * wasn't part of the batch
+     */
+    public ObaArrivalInfoResponse getResponse(String stopId) {
+        return mResponses.get(stopId);
+    }
+
+    /**
+     * @return The status code (one of the ObaApi.OBA_ constants) of a stop's response,
+     * or OBA_NOT_FOUND if the stop wasn't part of the batch
+     */
+    public int getCode(String stopId) {
+        ObaArrivalInfoResponse response = mResponses.get(stopId);
+        return (response != null) ? response.getCode() : ObaApi.OBA_NOT_FOUND;
+    }
+
+    /**
+     * @return The arrivals and departures for a stop, or an empty array if its
+     * request failed
+     */
+    public ObaArrivalInfo[] getArrivalInfo(String stopId) {
+        ObaArrivalInfoResponse response = mResponses.get(stopId);
+        // An error response may have no data at all
+        if (response == null || response.getCode() != ObaApi.OBA_OK) {
+            return ObaArrivalInfo.EMPTY_ARRAY;
+        }
+        return response.getArrivalInfo();
+    }
+
+    /**
+     * @return The stops whose requests failed, in the order they were given
+     */
+    public List<String> getFailedStopIds() {
+        List<String> failed = new ArrayList<String>();
+        for (Map.Entry<String, ObaArrivalInfoResponse> entry : mResponses.entrySet()) {
+            if (entry.getValue().getCode() != ObaApi.OBA_OK) {
+                failed.add(entry.getKey());
+            }
+        }
+        return Collections.unmodifiableList(failed);
+    }
+
+    /**
+     * @return true if the request for every stop succeeded
+     */
+    public boolean isComplete() {
+        return getFailedStopIds().isEmpty();
+    }
+
+    /**
+     * @return The references of all of the successful responses, each element
+     * included once
+     */
+    public ObaReferences getRefs() {
+        return mRefs;
+    }
+}
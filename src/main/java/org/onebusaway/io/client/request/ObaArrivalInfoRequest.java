@@ -16,8 +16,14 @@
  */
 package org.onebusaway.io.client.request;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
+import org.onebusaway.io.client.ObaContext;
+
 import java.net.URI;
+import java.util.Collection;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 public final class ObaArrivalInfoRequest extends RequestBase implements
         Callable<ObaArrivalInfoResponse> {
@@ -26,19 +32,31 @@ public final class ObaArrivalInfoRequest extends RequestBase implements
         super(uri);
     }
 
+    protected ObaArrivalInfoRequest(ObaContext context, URI uri) {
+        super(context, uri);
+    }
+
     public static class Builder extends RequestBase.BuilderBase {
 
         public Builder(String stopId) {
-            super(getPathWithId("/arrivals-and-departures-for-stop/", stopId));
+            this(null, stopId);
+        }
+
+        public Builder(ObaContext context, String stopId) {
+            super(context, getPathWithId("/arrivals-and-departures-for-stop/", stopId));
         }
 
         public Builder(String stopId, int minutesAfter) {
-            super(getPathWithId("/arrivals-and-departures-for-stop/", stopId));
+            this(null, stopId, minutesAfter);
+        }
+
+        public Builder(ObaContext context, String stopId, int minutesAfter) {
+            super(context, getPathWithId("/arrivals-and-departures-for-stop/", stopId));
             mBuilder.queryParam("minutesAfter", String.valueOf(minutesAfter));
         }
 
         public ObaArrivalInfoRequest build() {
-            return new ObaArrivalInfoRequest(buildUri());
+            return new ObaArrivalInfoRequest(mObaContext, buildUri());
         }
     }
 
@@ -63,9 +81,40 @@ public final class ObaArrivalInfoRequest extends RequestBase implements
         return new Builder(stopId, minutesAfter).build();
     }
 
+    /**
+     * Helper method for constructing a request for several stops at once, which are
+     * requested in parallel.  See ObaArrivalInfoBatchRequest.Builder for more options.
+     *
+     * @param stopIds The stop Ids to request.
+     * @return The new batch request instance.
+     */
+    public static ObaArrivalInfoBatchRequest newBatch(Collection<String> stopIds) {
+        return ObaArrivalInfoBatchRequest.newRequest(stopIds);
+    }
+
     @Override
     public ObaArrivalInfoResponse call() {
         return call(ObaArrivalInfoResponse.class);
     }
 
+    /**
+     * Executes this request asynchronously on the context's executor.
+     *
+     * @return A future for the response. Cancelling it disconnects the request.
+     */
+    public ListenableFuture<ObaArrivalInfoResponse> callAsync() {
+        return callAsync(ObaArrivalInfoResponse.class, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Executes this request asynchronously on the context's executor.
+     *
+     * @param timeout How long to wait before completing with an OBA_IO_EXCEPTION response.
+     * @param unit    The unit of the timeout.
+     * @return A future for the response. Cancelling it disconnects the request.
+     */
+    public ListenableFuture<ObaArrivalInfoResponse> callAsync(long timeout, TimeUnit unit) {
+        return callAsync(ObaArrivalInfoResponse.class, timeout, unit);
+    }
+
 }
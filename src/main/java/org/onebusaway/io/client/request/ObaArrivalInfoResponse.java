@@ -15,8 +15,11 @@
  */
 package org.onebusaway.io.client.request;
 
+import com.fasterxml.jackson.core.JsonParser;
+
 import org.onebusaway.io.client.elements.*;
 
+import java.io.IOException;
 import java.util.List;
 
 /**
@@ -44,15 +47,72 @@ public final class ObaArrivalInfoResponse extends ObaResponseWithRefs {
             nearbyStopIds = new String[]{};
             situationIds = new String[]{};
         }
+
+        Entry(JsonParser parser) throws IOException {
+            String stopId = "";
+            ObaArrivalInfo[] arrivalsAndDepartures = ObaArrivalInfo.EMPTY_ARRAY;
+            String[] nearbyStopIds = new String[]{};
+            String[] situationIds = new String[]{};
+            String field;
+            while ((field = ElementReader.nextField(parser)) != null) {
+                switch (field) {
+                    case "stopId":
+                        stopId = ElementReader.readString(parser);
+                        break;
+                    case "arrivalsAndDepartures":
+                        arrivalsAndDepartures = ElementReader.readArrivalInfoArray(parser);
+                        break;
+                    case "nearbyStopIds":
+                        nearbyStopIds = ElementReader.readStringArray(parser);
+                        break;
+                    case "situationIds":
+                        situationIds = ElementReader.readStringArray(parser);
+                        break;
+                    default:
+                        parser.skipChildren();
+                        break;
+                }
+            }
+            this.stopId = stopId;
+            this.arrivalsAndDepartures = arrivalsAndDepartures;
+            this.nearbyStopIds = nearbyStopIds;
+            this.situationIds = situationIds;
+        }
     }
 
     private static final class Data {
 
         private static final Data EMPTY_OBJECT = new Data();
 
-        private final ObaReferencesElement references = ObaReferencesElement.EMPTY_OBJECT;
+        private final ObaReferencesElement references;
+
+        private final Entry entry;
+
+        private Data() {
+            references = ObaReferencesElement.EMPTY_OBJECT;
+            entry = Entry.EMPTY_OBJECT;
+        }
 
-        private final Entry entry = Entry.EMPTY_OBJECT;
+        Data(JsonParser parser) throws IOException {
+            ObaReferencesElement references = ObaReferencesElement.EMPTY_OBJECT;
+            Entry entry = Entry.EMPTY_OBJECT;
+            String field;
+            while ((field = ElementReader.nextField(parser)) != null) {
+                switch (field) {
+                    case "references":
+                        references = ElementReader.readReferences(parser);
+                        break;
+                    case "entry":
+                        entry = ElementReader.startObject(parser) ? new Entry(parser) : null;
+                        break;
+                    default:
+                        parser.skipChildren();
+                        break;
+                }
+            }
+            this.references = references;
+            this.entry = entry;
+        }
     }
 
     private final Data data;
@@ -61,6 +121,25 @@ public final class ObaArrivalInfoResponse extends ObaResponseWithRefs {
         data = Data.EMPTY_OBJECT;
     }
 
+    private ObaArrivalInfoResponse(ResponseReader.Header header, Data data) {
+        super(header);
+        this.data = data;
+    }
+
+    static ObaArrivalInfoResponse read(JsonParser parser) throws IOException {
+        ResponseReader.Header header = new ResponseReader.Header();
+        Data data = Data.EMPTY_OBJECT;
+        String field;
+        while ((field = ElementReader.nextField(parser)) != null) {
+            if ("data".equals(field)) {
+                data = ElementReader.startObject(parser) ? new Data(parser) : null;
+            } else {
+                header.read(field, parser);
+            }
+        }
+        return new ObaArrivalInfoResponse(header, data);
+    }
+
     /**
      * @return The stop information for this arrival info.
      */
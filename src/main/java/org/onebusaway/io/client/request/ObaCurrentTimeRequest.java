@@ -15,8 +15,13 @@
  */
 package org.onebusaway.io.client.request;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
+import org.onebusaway.io.client.ObaContext;
+
 import java.net.URI;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Retrieve the current system time.
@@ -31,14 +36,22 @@ public final class ObaCurrentTimeRequest extends RequestBase
         super(uri);
     }
 
+    protected ObaCurrentTimeRequest(ObaContext context, URI uri) {
+        super(context, uri);
+    }
+
     public static class Builder extends RequestBase.BuilderBase {
 
         public Builder() {
-            super(BASE_PATH + "/current-time.json");
+            this(null);
+        }
+
+        public Builder(ObaContext context) {
+            super(context, BASE_PATH + "/current-time.json");
         }
 
         public ObaCurrentTimeRequest build() {
-            return new ObaCurrentTimeRequest(buildUri());
+            return new ObaCurrentTimeRequest(mObaContext, buildUri());
         }
     }
 
@@ -56,6 +69,26 @@ public final class ObaCurrentTimeRequest extends RequestBase
         return call(ObaCurrentTimeResponse.class);
     }
 
+    /**
+     * Executes this request asynchronously on the context's executor.
+     *
+     * @return A future for the response. Cancelling it disconnects the request.
+     */
+    public ListenableFuture<ObaCurrentTimeResponse> callAsync() {
+        return callAsync(ObaCurrentTimeResponse.class, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Executes this request asynchronously on the context's executor.
+     *
+     * @param timeout How long to wait before completing with an OBA_IO_EXCEPTION response.
+     * @param unit    The unit of the timeout.
+     * @return A future for the response. Cancelling it disconnects the request.
+     */
+    public ListenableFuture<ObaCurrentTimeResponse> callAsync(long timeout, TimeUnit unit) {
+        return callAsync(ObaCurrentTimeResponse.class, timeout, unit);
+    }
+
     @Override
     public String toString() {
         return "ObaCurrentTimeRequest [mUri=" + mUri + "]";
@@ -16,9 +16,12 @@
  */
 package org.onebusaway.io.client.request;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 public final class ObaRegionsRequest extends RequestBase implements
         Callable<ObaRegionsResponse> {
@@ -77,6 +80,26 @@ public final class ObaRegionsRequest extends RequestBase implements
         return call(ObaRegionsResponse.class);
     }
 
+    /**
+     * Executes this request asynchronously on the context's executor.
+     *
+     * @return A future for the response. Cancelling it disconnects the request.
+     */
+    public ListenableFuture<ObaRegionsResponse> callAsync() {
+        return callAsync(ObaRegionsResponse.class, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Executes this request asynchronously on the context's executor.
+     *
+     * @param timeout How long to wait before completing with an OBA_IO_EXCEPTION response.
+     * @param unit    The unit of the timeout.
+     * @return A future for the response. Cancelling it disconnects the request.
+     */
+    public ListenableFuture<ObaRegionsResponse> callAsync(long timeout, TimeUnit unit) {
+        return callAsync(ObaRegionsResponse.class, timeout, unit);
+    }
+
     @Override
     public String toString() {
         return "ObaRegionsRequest [mUri=" + mUri + "]";
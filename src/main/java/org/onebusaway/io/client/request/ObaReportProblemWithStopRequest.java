@@ -15,8 +15,13 @@
  */
 package org.onebusaway.io.client.request;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
+import org.onebusaway.io.client.ObaContext;
+
 import java.net.URI;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 public final class ObaReportProblemWithStopRequest extends RequestBase
         implements Callable<ObaReportProblemWithStopResponse> {
@@ -41,10 +46,18 @@ public final class ObaReportProblemWithStopRequest extends RequestBase
         super(uri, postData);
     }
 
+    protected ObaReportProblemWithStopRequest(ObaContext context, URI uri, String postData) {
+        super(context, uri, postData);
+    }
+
     public static class Builder extends RequestBase.PostBuilderBase {
 
         public Builder(String stopId) {
-            super(BASE_PATH + "/report-problem-with-stop.json");
+            this(null, stopId);
+        }
+
+        public Builder(ObaContext context, String stopId) {
+            super(context, BASE_PATH + "/report-problem-with-stop.json");
             mPostData.queryParam("stopId", stopId);
         }
 
@@ -94,7 +107,7 @@ public final class ObaReportProblemWithStopRequest extends RequestBase
         }
 
         public ObaReportProblemWithStopRequest build() {
-            return new ObaReportProblemWithStopRequest(buildUri(), buildPostData());
+            return new ObaReportProblemWithStopRequest(mObaContext, buildUri(), buildPostData());
         }
     }
 
@@ -103,6 +116,26 @@ public final class ObaReportProblemWithStopRequest extends RequestBase
         return callPostHack(ObaReportProblemWithStopResponse.class);
     }
 
+    /**
+     * Executes this request asynchronously on the context's executor.
+     *
+     * @return A future for the response. Cancelling it disconnects the request.
+     */
+    public ListenableFuture<ObaReportProblemWithStopResponse> callAsync() {
+        return callPostHackAsync(ObaReportProblemWithStopResponse.class, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Executes this request asynchronously on the context's executor.
+     *
+     * @param timeout How long to wait before completing with an OBA_IO_EXCEPTION response.
+     * @param unit    The unit of the timeout.
+     * @return A future for the response. Cancelling it disconnects the request.
+     */
+    public ListenableFuture<ObaReportProblemWithStopResponse> callAsync(long timeout, TimeUnit unit) {
+        return callPostHackAsync(ObaReportProblemWithStopResponse.class, timeout, unit);
+    }
+
     @Override
     public String toString() {
         return "ObaReportProblemWithStopRequest [mUri=" + mUri + "]";
@@ -15,8 +15,13 @@
  */
 package org.onebusaway.io.client.request;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
+import org.onebusaway.io.client.ObaContext;
+
 import java.net.URI;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 public final class ObaReportProblemWithTripRequest extends RequestBase
         implements Callable<ObaReportProblemWithTripResponse> {
@@ -43,10 +48,18 @@ public final class ObaReportProblemWithTripRequest extends RequestBase
         super(uri, postData);
     }
 
+    protected ObaReportProblemWithTripRequest(ObaContext context, URI uri, String postData) {
+        super(context, uri, postData);
+    }
+
     public static class Builder extends RequestBase.PostBuilderBase {
 
         public Builder(String tripId) {
-            super(BASE_PATH + "/report-problem-with-trip.json");
+            this(null, tripId);
+        }
+
+        public Builder(ObaContext context, String tripId) {
+            super(context, BASE_PATH + "/report-problem-with-trip.json");
             mPostData.queryParam("tripId", tripId);
         }
 
@@ -149,7 +162,7 @@ public final class ObaReportProblemWithTripRequest extends RequestBase
         }
 
         public ObaReportProblemWithTripRequest build() {
-            return new ObaReportProblemWithTripRequest(buildUri(), buildPostData());
+            return new ObaReportProblemWithTripRequest(mObaContext, buildUri(), buildPostData());
         }
     }
 
@@ -158,6 +171,26 @@ public final class ObaReportProblemWithTripRequest extends RequestBase
         return callPostHack(ObaReportProblemWithTripResponse.class);
     }
 
+    /**
+     * Executes this request asynchronously on the context's executor.
+     *
+     * @return A future for the response. Cancelling it disconnects the request.
+     */
+    public ListenableFuture<ObaReportProblemWithTripResponse> callAsync() {
+        return callPostHackAsync(ObaReportProblemWithTripResponse.class, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Executes this request asynchronously on the context's executor.
+     *
+     * @param timeout How long to wait before completing with an OBA_IO_EXCEPTION response.
+     * @param unit    The unit of the timeout.
+     * @return A future for the response. Cancelling it disconnects the request.
+     */
+    public ListenableFuture<ObaReportProblemWithTripResponse> callAsync(long timeout, TimeUnit unit) {
+        return callPostHackAsync(ObaReportProblemWithTripResponse.class, timeout, unit);
+    }
+
     @Override
     public String toString() {
         return "ObaReportProblemWithTripRequest [mUri=" + mUri + "]";
@@ -39,6 +39,13 @@ public class ObaResponse {
         text = "ERROR";
     }
 
+    ObaResponse(ResponseReader.Header header) {
+        version = header.version;
+        code = header.code;
+        currentTime = header.currentTime;
+        text = header.text;
+    }
+
     /**
      * @return The version of this response.
      */
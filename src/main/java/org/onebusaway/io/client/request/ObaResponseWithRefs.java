@@ -26,6 +26,13 @@ import org.onebusaway.io.client.elements.ObaTrip;
 
 public abstract class ObaResponseWithRefs extends ObaResponse implements ObaReferences {
 
+    protected ObaResponseWithRefs() {
+    }
+
+    ObaResponseWithRefs(ResponseReader.Header header) {
+        super(header);
+    }
+
     @Override
     public ObaStop getStop(String id) {
         return getRefs().getStop(id);
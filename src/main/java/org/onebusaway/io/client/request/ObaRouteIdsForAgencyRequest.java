@@ -15,8 +15,13 @@
  */
 package org.onebusaway.io.client.request;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
+import org.onebusaway.io.client.ObaContext;
+
 import java.net.URI;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Retrieve the list of all routes for a particular agency by ID.
@@ -31,14 +36,22 @@ public final class ObaRouteIdsForAgencyRequest extends RequestBase
         super(uri);
     }
 
+    protected ObaRouteIdsForAgencyRequest(ObaContext context, URI uri) {
+        super(context, uri);
+    }
+
     public static class Builder extends RequestBase.BuilderBase {
 
         public Builder(String agencyId) {
-            super(getPathWithId("/route-ids-for-agency/", agencyId));
+            this(null, agencyId);
+        }
+
+        public Builder(ObaContext context, String agencyId) {
+            super(context, getPathWithId("/route-ids-for-agency/", agencyId));
         }
 
         public ObaRouteIdsForAgencyRequest build() {
-            return new ObaRouteIdsForAgencyRequest(buildUri());
+            return new ObaRouteIdsForAgencyRequest(mObaContext, buildUri());
         }
     }
 
@@ -57,6 +70,26 @@ public final class ObaRouteIdsForAgencyRequest extends RequestBase
         return call(ObaRouteIdsForAgencyResponse.class);
     }
 
+    /**
+     * Executes this request asynchronously on the context's executor.
+     *
+     * @return A future for the response. Cancelling it disconnects the request.
+     */
+    public ListenableFuture<ObaRouteIdsForAgencyResponse> callAsync() {
+        return callAsync(ObaRouteIdsForAgencyResponse.class, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Executes this request asynchronously on the context's executor.
+     *
+     * @param timeout How long to wait before completing with an OBA_IO_EXCEPTION response.
+     * @param unit    The unit of the timeout.
+     * @return A future for the response. Cancelling it disconnects the request.
+     */
+    public ListenableFuture<ObaRouteIdsForAgencyResponse> callAsync(long timeout, TimeUnit unit) {
+        return callAsync(ObaRouteIdsForAgencyResponse.class, timeout, unit);
+    }
+
     @Override
     public String toString() {
         return "ObaRouteIdsForAgencyRequest [mUri=" + mUri + "]";
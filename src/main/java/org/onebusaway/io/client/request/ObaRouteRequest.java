@@ -15,8 +15,13 @@
  */
 package org.onebusaway.io.client.request;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
+import org.onebusaway.io.client.ObaContext;
+
 import java.net.URI;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Retrieve info about a specific route
@@ -30,14 +35,22 @@ public final class ObaRouteRequest extends RequestBase implements Callable<ObaRo
         super(uri);
     }
 
+    protected ObaRouteRequest(ObaContext context, URI uri) {
+        super(context, uri);
+    }
+
     public static class Builder extends RequestBase.BuilderBase {
 
         public Builder(String routeId) {
-            super(getPathWithId("/route/", routeId));
+            this(null, routeId);
+        }
+
+        public Builder(ObaContext context, String routeId) {
+            super(context, getPathWithId("/route/", routeId));
         }
 
         public ObaRouteRequest build() {
-            return new ObaRouteRequest(buildUri());
+            return new ObaRouteRequest(mObaContext, buildUri());
         }
     }
 
@@ -56,6 +69,26 @@ public final class ObaRouteRequest extends RequestBase implements Callable<ObaRo
         return call(ObaRouteResponse.class);
     }
 
+    /**
+     * Executes this request asynchronously on the context's executor.
+     *
+     * @return A future for the response. Cancelling it disconnects the request.
+     */
+    public ListenableFuture<ObaRouteResponse> callAsync() {
+        return callAsync(ObaRouteResponse.class, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Executes this request asynchronously on the context's executor.
+     *
+     * @param timeout How long to wait before completing with an OBA_IO_EXCEPTION response.
+     * @param unit    The unit of the timeout.
+     * @return A future for the response. Cancelling it disconnects the request.
+     */
+    public ListenableFuture<ObaRouteResponse> callAsync(long timeout, TimeUnit unit) {
+        return callAsync(ObaRouteResponse.class, timeout, unit);
+    }
+
     @Override
     public String toString() {
         return "ObaRouteRequest [mUri=" + mUri + "]";
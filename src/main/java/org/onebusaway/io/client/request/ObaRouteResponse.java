@@ -15,8 +15,12 @@
  */
 package org.onebusaway.io.client.request;
 
+import com.fasterxml.jackson.core.JsonParser;
+
 import org.onebusaway.io.client.elements.*;
 
+import java.io.IOException;
+
 /**
  * Response object for ObaRouteRequest objects.
  *
@@ -28,9 +32,35 @@ public final class ObaRouteResponse extends ObaResponseWithRefs implements ObaRo
 
         private static final Data EMPTY_OBJECT = new Data();
 
-        private final ObaReferencesElement references = ObaReferencesElement.EMPTY_OBJECT;
-
-        private final ObaRouteElement entry = ObaRouteElement.EMPTY_OBJECT;
+        private final ObaReferencesElement references;
+
+        private final ObaRouteElement entry;
+
+        private Data() {
+            references = ObaReferencesElement.EMPTY_OBJECT;
+            entry = ObaRouteElement.EMPTY_OBJECT;
+        }
+
+        Data(JsonParser parser) throws IOException {
+            ObaReferencesElement references = ObaReferencesElement.EMPTY_OBJECT;
+            ObaRouteElement entry = ObaRouteElement.EMPTY_OBJECT;
+            String field;
+            while ((field = ElementReader.nextField(parser)) != null) {
+                switch (field) {
+                    case "references":
+                        references = ElementReader.readReferences(parser);
+                        break;
+                    case "entry":
+                        entry = ElementReader.readRoute(parser);
+                        break;
+                    default:
+                        parser.skipChildren();
+                        break;
+                }
+            }
+            this.references = references;
+            this.entry = entry;
+        }
     }
 
     private final Data data;
@@ -39,6 +69,25 @@ public final class ObaRouteResponse extends ObaResponseWithRefs implements ObaRo
         data = Data.EMPTY_OBJECT;
     }
 
+    private ObaRouteResponse(ResponseReader.Header header, Data data) {
+        super(header);
+        this.data = data;
+    }
+
+    static ObaRouteResponse read(JsonParser parser) throws IOException {
+        ResponseReader.Header header = new ResponseReader.Header();
+        Data data = Data.EMPTY_OBJECT;
+        String field;
+        while ((field = ElementReader.nextField(parser)) != null) {
+            if ("data".equals(field)) {
+                data = ElementReader.startObject(parser) ? new Data(parser) : null;
+            } else {
+                header.read(field, parser);
+            }
+        }
+        return new ObaRouteResponse(header, data);
+    }
+
     @Override
     public String getId() {
         return data.entry.getId();
@@ -15,10 +15,15 @@
  */
 package org.onebusaway.io.client.request;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
+import org.onebusaway.io.client.ObaContext;
+
 import java.net.URI;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Retrieve the full schedule for a stop on a particular day
@@ -33,10 +38,18 @@ public final class ObaScheduleForStopRequest extends RequestBase
         super(uri);
     }
 
+    protected ObaScheduleForStopRequest(ObaContext context, URI uri) {
+        super(context, uri);
+    }
+
     public static class Builder extends RequestBase.BuilderBase {
 
         public Builder(String stopId) {
-            super(getPathWithId("/schedule-for-stop/", stopId));
+            this(null, stopId);
+        }
+
+        public Builder(ObaContext context, String stopId) {
+            super(context, getPathWithId("/schedule-for-stop/", stopId));
         }
 
         /**
@@ -51,7 +64,7 @@ public final class ObaScheduleForStopRequest extends RequestBase
         }
 
         public ObaScheduleForStopRequest build() {
-            return new ObaScheduleForStopRequest(buildUri());
+            return new ObaScheduleForStopRequest(mObaContext, buildUri());
         }
     }
 
@@ -60,6 +73,26 @@ public final class ObaScheduleForStopRequest extends RequestBase
         return call(ObaScheduleForStopResponse.class);
     }
 
+    /**
+     * Executes this request asynchronously on the context's executor.
+     *
+     * @return A future for the response. Cancelling it disconnects the request.
+     */
+    public ListenableFuture<ObaScheduleForStopResponse> callAsync() {
+        return callAsync(ObaScheduleForStopResponse.class, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Executes this request asynchronously on the context's executor.
+     *
+     * @param timeout How long to wait before completing with an OBA_IO_EXCEPTION response.
+     * @param unit    The unit of the timeout.
+     * @return A future for the response. Cancelling it disconnects the request.
+     */
+    public ListenableFuture<ObaScheduleForStopResponse> callAsync(long timeout, TimeUnit unit) {
+        return callAsync(ObaScheduleForStopResponse.class, timeout, unit);
+    }
+
     @Override
     public String toString() {
         return "ObaScheduleForStopRequest [mUri=" + mUri + "]";
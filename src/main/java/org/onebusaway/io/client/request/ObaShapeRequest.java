@@ -15,8 +15,13 @@
  */
 package org.onebusaway.io.client.request;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
+import org.onebusaway.io.client.ObaContext;
+
 import java.net.URI;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Retrieve a shape (the path traveled by a transit vehicle) by ID.
@@ -30,14 +35,22 @@ public final class ObaShapeRequest extends RequestBase implements Callable<ObaSh
         super(uri);
     }
 
+    protected ObaShapeRequest(ObaContext context, URI uri) {
+        super(context, uri);
+    }
+
     public static class Builder extends RequestBase.BuilderBase {
 
         public Builder(String shapeId) {
-            super(getPathWithId("/shape/", shapeId));
+            this(null, shapeId);
+        }
+
+        public Builder(ObaContext context, String shapeId) {
+            super(context, getPathWithId("/shape/", shapeId));
         }
 
         public ObaShapeRequest build() {
-            return new ObaShapeRequest(buildUri());
+            return new ObaShapeRequest(mObaContext, buildUri());
         }
     }
 
@@ -56,6 +69,26 @@ public final class ObaShapeRequest extends RequestBase implements Callable<ObaSh
         return call(ObaShapeResponse.class);
     }
 
+    /**
+     * Executes this request asynchronously on the context's executor.
+     *
+     * @return A future for the response. Cancelling it disconnects the request.
+     */
+    public ListenableFuture<ObaShapeResponse> callAsync() {
+        return callAsync(ObaShapeResponse.class, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Executes this request asynchronously on the context's executor.
+     *
+     * @param timeout How long to wait before completing with an OBA_IO_EXCEPTION response.
+     * @param unit    The unit of the timeout.
+     * @return A future for the response. Cancelling it disconnects the request.
+     */
+    public ListenableFuture<ObaShapeResponse> callAsync(long timeout, TimeUnit unit) {
+        return callAsync(ObaShapeResponse.class, timeout, unit);
+    }
+
     @Override
     public String toString() {
         return "ObaShapeRequest [mUri=" + mUri + "]";
@@ -52,11 +52,46 @@ public final class ObaShapeResponse extends ObaResponse implements ObaShape {
         return data.entry.getLevels();
     }
 
+    @Override
+    public int getLevelCount() {
+        return data.entry.getLevelCount();
+    }
+
+    @Override
+    public int getLevel(int index) {
+        return data.entry.getLevel(index);
+    }
+
     @Override
     public List<Location> getPoints() {
         return data.entry.getPoints();
     }
 
+    @Override
+    public int getPointCount() {
+        return data.entry.getPointCount();
+    }
+
+    @Override
+    public double getLatitude(int index) {
+        return data.entry.getLatitude(index);
+    }
+
+    @Override
+    public double getLongitude(int index) {
+        return data.entry.getLongitude(index);
+    }
+
+    @Override
+    public void getPointsE5(int[] dest, int destOffset) {
+        data.entry.getPointsE5(dest, destOffset);
+    }
+
+    @Override
+    public void getPoints(double[] dest, int destOffset) {
+        data.entry.getPoints(dest, destOffset);
+    }
+
     @Override
     public String getRawLevels() {
         return data.entry.getRawLevels();
@@ -15,8 +15,13 @@
  */
 package org.onebusaway.io.client.request;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
+import org.onebusaway.io.client.ObaContext;
+
 import java.net.URI;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Retrieve the list of all stops for a particular agency by ID.
@@ -31,14 +36,22 @@ public final class ObaStopIdsForAgencyRequest extends RequestBase
         super(uri);
     }
 
+    protected ObaStopIdsForAgencyRequest(ObaContext context, URI uri) {
+        super(context, uri);
+    }
+
     public static class Builder extends RequestBase.BuilderBase {
 
         public Builder(String agencyId) {
-            super(getPathWithId("/stop-ids-for-agency/", agencyId));
+            this(null, agencyId);
+        }
+
+        public Builder(ObaContext context, String agencyId) {
+            super(context, getPathWithId("/stop-ids-for-agency/", agencyId));
         }
 
         public ObaStopIdsForAgencyRequest build() {
-            return new ObaStopIdsForAgencyRequest(buildUri());
+            return new ObaStopIdsForAgencyRequest(mObaContext, buildUri());
         }
     }
 
@@ -57,6 +70,26 @@ public final class ObaStopIdsForAgencyRequest extends RequestBase
         return call(ObaStopIdsForAgencyResponse.class);
     }
 
+    /**
+     * Executes this request asynchronously on the context's executor.
+     *
+     * @return A future for the response. Cancelling it disconnects the request.
+     */
+    public ListenableFuture<ObaStopIdsForAgencyResponse> callAsync() {
+        return callAsync(ObaStopIdsForAgencyResponse.class, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Executes this request asynchronously on the context's executor.
+     *
+     * @param timeout How long to wait before completing with an OBA_IO_EXCEPTION response.
+     * @param unit    The unit of the timeout.
+     * @return A future for the response. Cancelling it disconnects the request.
+     */
+    public ListenableFuture<ObaStopIdsForAgencyResponse> callAsync(long timeout, TimeUnit unit) {
+        return callAsync(ObaStopIdsForAgencyResponse.class, timeout, unit);
+    }
+
     @Override
     public String toString() {
         return "ObaStopIdsForAgencyRequest [mUri=" + mUri + "]";
@@ -15,8 +15,13 @@
  */
 package org.onebusaway.io.client.request;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
+import org.onebusaway.io.client.ObaContext;
+
 import java.net.URI;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Retrieve info about a specific stop.
@@ -30,14 +35,22 @@ public final class ObaStopRequest extends RequestBase implements Callable<ObaSto
         super(uri);
     }
 
+    protected ObaStopRequest(ObaContext context, URI uri) {
+        super(context, uri);
+    }
+
     public static class Builder extends RequestBase.BuilderBase {
 
         public Builder(String stopId) {
-            super(getPathWithId("/stop/", stopId));
+            this(null, stopId);
+        }
+
+        public Builder(ObaContext context, String stopId) {
+            super(context, getPathWithId("/stop/", stopId));
         }
 
         public ObaStopRequest build() {
-            return new ObaStopRequest(buildUri());
+            return new ObaStopRequest(mObaContext, buildUri());
         }
     }
 
@@ -56,6 +69,26 @@ public final class ObaStopRequest extends RequestBase implements Callable<ObaSto
         return call(ObaStopResponse.class);
     }
 
+    /**
+     * Executes this request asynchronously on the context's executor.
+     *
+     * @return A future for the response. Cancelling it disconnects the request.
+     */
+    public ListenableFuture<ObaStopResponse> callAsync() {
+        return callAsync(ObaStopResponse.class, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Executes this request asynchronously on the context's executor.
+     *
+     * @param timeout How long to wait before completing with an OBA_IO_EXCEPTION response.
+     * @param unit    The unit of the timeout.
+     * @return A future for the response. Cancelling it disconnects the request.
+     */
+    public ListenableFuture<ObaStopResponse> callAsync(long timeout, TimeUnit unit) {
+        return callAsync(ObaStopResponse.class, timeout, unit);
+    }
+
     @Override
     public String toString() {
         return "ObaStopRequest [mUri=" + mUri + "]";
@@ -15,9 +15,12 @@
  */
 package org.onebusaway.io.client.request;
 
+import com.fasterxml.jackson.core.JsonParser;
+
 import org.onebusaway.io.client.elements.*;
 import org.onebusaway.location.Location;
 
+import java.io.IOException;
 import java.util.List;
 
 /**
@@ -31,9 +34,35 @@ public final class ObaStopResponse extends ObaResponseWithRefs implements ObaSto
 
         private static final Data EMPTY_OBJECT = new Data();
 
-        private final ObaReferencesElement references = ObaReferencesElement.EMPTY_OBJECT;
-
-        private final ObaStopElement entry = ObaStopElement.EMPTY_OBJECT;
+        private final ObaReferencesElement references;
+
+        private final ObaStopElement entry;
+
+        private Data() {
+            references = ObaReferencesElement.EMPTY_OBJECT;
+            entry = ObaStopElement.EMPTY_OBJECT;
+        }
+
+        Data(JsonParser parser) throws IOException {
+            ObaReferencesElement references = ObaReferencesElement.EMPTY_OBJECT;
+            ObaStopElement entry = ObaStopElement.EMPTY_OBJECT;
+            String field;
+            while ((field = ElementReader.nextField(parser)) != null) {
+                switch (field) {
+                    case "references":
+                        references = ElementReader.readReferences(parser);
+                        break;
+                    case "entry":
+                        entry = ElementReader.readStop(parser);
+                        break;
+                    default:
+                        parser.skipChildren();
+                        break;
+                }
+            }
+            this.references = references;
+            this.entry = entry;
+        }
     }
 
     private final Data data;
@@ -42,6 +71,25 @@ public final class ObaStopResponse extends ObaResponseWithRefs implements ObaSto
         data = Data.EMPTY_OBJECT;
     }
 
+    private ObaStopResponse(ResponseReader.Header header, Data data) {
+        super(header);
+        this.data = data;
+    }
+
+    static ObaStopResponse read(JsonParser parser) throws IOException {
+        ResponseReader.Header header = new ResponseReader.Header();
+        Data data = Data.EMPTY_OBJECT;
+        String field;
+        while ((field = ElementReader.nextField(parser)) != null) {
+            if ("data".equals(field)) {
+                data = ElementReader.startObject(parser) ? new Data(parser) : null;
+            } else {
+                header.read(field, parser);
+            }
+        }
+        return new ObaStopResponse(header, data);
+    }
+
     @Override
     public String getId() {
         return data.entry.getId();
@@ -15,10 +15,14 @@
  */
 package org.onebusaway.io.client.request;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
+import org.onebusaway.io.client.ObaContext;
 import org.onebusaway.location.Location;
 
 import java.net.URI;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Search for stops near a specific location, optionally by stop code
@@ -33,10 +37,18 @@ public final class ObaStopsForLocationRequest extends RequestBase
         super(uri);
     }
 
+    protected ObaStopsForLocationRequest(ObaContext context, URI uri) {
+        super(context, uri);
+    }
+
     public static class Builder extends RequestBase.BuilderBase {
 
         public Builder(Location location) {
-            super(BASE_PATH + "/stops-for-location.json");
+            this(null, location);
+        }
+
+        public Builder(ObaContext context, Location location) {
+            super(context, BASE_PATH + "/stops-for-location.json");
             mBuilder.queryParam("lat", String.valueOf(location.getLatitude()));
             mBuilder.queryParam("lon", String.valueOf(location.getLongitude()));
         }
@@ -86,7 +98,7 @@ public final class ObaStopsForLocationRequest extends RequestBase
         }
 
         public ObaStopsForLocationRequest build() {
-            return new ObaStopsForLocationRequest(buildUri());
+            return new ObaStopsForLocationRequest(mObaContext, buildUri());
         }
     }
 
@@ -95,6 +107,26 @@ public final class ObaStopsForLocationRequest extends RequestBase
         return call(ObaStopsForLocationResponse.class);
     }
 
+    /**
+     * Executes this request asynchronously on the context's executor.
+     *
+     * @return A future for the response. Cancelling it disconnects the request.
+     */
+    public ListenableFuture<ObaStopsForLocationResponse> callAsync() {
+        return callAsync(ObaStopsForLocationResponse.class, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Executes this request asynchronously on the context's executor.
+     *
+     * @param timeout How long to wait before completing with an OBA_IO_EXCEPTION response.
+     * @param unit    The unit of the timeout.
+     * @return A future for the response. Cancelling it disconnects the request.
+     */
+    public ListenableFuture<ObaStopsForLocationResponse> callAsync(long timeout, TimeUnit unit) {
+        return callAsync(ObaStopsForLocationResponse.class, timeout, unit);
+    }
+
     @Override
     public String toString() {
         return "ObaStopsForLocationRequest [mUri=" + mUri + "]";
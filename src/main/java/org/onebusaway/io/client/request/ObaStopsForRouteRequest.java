@@ -15,8 +15,13 @@
  */
 package org.onebusaway.io.client.request;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
+import org.onebusaway.io.client.ObaContext;
+
 import java.net.URI;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Retrieve the set of stops serving a particular route
@@ -31,10 +36,18 @@ public final class ObaStopsForRouteRequest extends RequestBase
         super(uri);
     }
 
+    protected ObaStopsForRouteRequest(ObaContext context, URI uri) {
+        super(context, uri);
+    }
+
     public static class Builder extends RequestBase.BuilderBase {
 
         public Builder(String routeId) {
-            super(getPathWithId("/stops-for-route/", routeId));
+            this(null, routeId);
+        }
+
+        public Builder(ObaContext context, String routeId) {
+            super(context, getPathWithId("/stops-for-route/", routeId));
         }
 
         public Builder setIncludeShapes(boolean includePolylines) {
@@ -44,7 +57,7 @@ public final class ObaStopsForRouteRequest extends RequestBase
         }
 
         public ObaStopsForRouteRequest build() {
-            return new ObaStopsForRouteRequest(buildUri());
+            return new ObaStopsForRouteRequest(mObaContext, buildUri());
         }
     }
 
@@ -53,6 +66,26 @@ public final class ObaStopsForRouteRequest extends RequestBase
         return call(ObaStopsForRouteResponse.class);
     }
 
+    /**
+     * Executes this request asynchronously on the context's executor.
+     *
+     * @return A future for the response. Cancelling it disconnects the request.
+     */
+    public ListenableFuture<ObaStopsForRouteResponse> callAsync() {
+        return callAsync(ObaStopsForRouteResponse.class, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Executes this request asynchronously on the context's executor.
+     *
+     * @param timeout How long to wait before completing with an OBA_IO_EXCEPTION response.
+     * @param unit    The unit of the timeout.
+     * @return A future for the response. Cancelling it disconnects the request.
+     */
+    public ListenableFuture<ObaStopsForRouteResponse> callAsync(long timeout, TimeUnit unit) {
+        return callAsync(ObaStopsForRouteResponse.class, timeout, unit);
+    }
+
     @Override
     public String toString() {
         return "ObaStopsForRouteRequest [mUri=" + mUri + "]";
@@ -15,8 +15,13 @@
  */
 package org.onebusaway.io.client.request;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
+import org.onebusaway.io.client.ObaContext;
+
 import java.net.URI;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Retrieve details about a specific trip.
@@ -31,10 +36,18 @@ public final class ObaTripDetailsRequest extends RequestBase
         super(uri);
     }
 
+    protected ObaTripDetailsRequest(ObaContext context, URI uri) {
+        super(context, uri);
+    }
+
     public static class Builder extends RequestBase.BuilderBase {
 
         public Builder(String tripId) {
-            super(getPathWithId("/trip-details/", tripId));
+            this(null, tripId);
+        }
+
+        public Builder(ObaContext context, String tripId) {
+            super(context, getPathWithId("/trip-details/", tripId));
         }
 
         /**
@@ -71,7 +84,7 @@ public final class ObaTripDetailsRequest extends RequestBase
         }
 
         public ObaTripDetailsRequest build() {
-            return new ObaTripDetailsRequest(buildUri());
+            return new ObaTripDetailsRequest(mObaContext, buildUri());
         }
     }
 
@@ -90,6 +103,26 @@ public final class ObaTripDetailsRequest extends RequestBase
         return call(ObaTripDetailsResponse.class);
     }
 
+    /**
+     * Executes this request asynchronously on the context's executor.
+     *
+     * @return A future for the response. Cancelling it disconnects the request.
+     */
+    public ListenableFuture<ObaTripDetailsResponse> callAsync() {
+        return callAsync(ObaTripDetailsResponse.class, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Executes this request asynchronously on the context's executor.
+     *
+     * @param timeout How long to wait before completing with an OBA_IO_EXCEPTION response.
+     * @param unit    The unit of the timeout.
+     * @return A future for the response. Cancelling it disconnects the request.
+     */
+    public ListenableFuture<ObaTripDetailsResponse> callAsync(long timeout, TimeUnit unit) {
+        return callAsync(ObaTripDetailsResponse.class, timeout, unit);
+    }
+
     @Override
     public String toString() {
         return "ObaTripDetailsRequest [mUri=" + mUri + "]";
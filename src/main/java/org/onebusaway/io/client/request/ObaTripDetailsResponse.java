@@ -15,8 +15,12 @@
  */
 package org.onebusaway.io.client.request;
 
+import com.fasterxml.jackson.core.JsonParser;
+
 import org.onebusaway.io.client.elements.*;
 
+import java.io.IOException;
+
 /**
  * Response object for ObaStopRequest requests.
  *
@@ -29,9 +33,35 @@ public final class ObaTripDetailsResponse extends ObaResponseWithRefs
 
         private static final Data EMPTY_OBJECT = new Data();
 
-        private final ObaReferencesElement references = ObaReferencesElement.EMPTY_OBJECT;
+        private final ObaReferencesElement references;
+
+        private final ObaTripDetailsElement entry;
+
+        private Data() {
+            references = ObaReferencesElement.EMPTY_OBJECT;
+            entry = ObaTripDetailsElement.EMPTY_OBJECT;
+        }
 
-        private final ObaTripDetailsElement entry = ObaTripDetailsElement.EMPTY_OBJECT;
+        Data(JsonParser parser) throws IOException {
+            ObaReferencesElement references = ObaReferencesElement.EMPTY_OBJECT;
+            ObaTripDetailsElement entry = ObaTripDetailsElement.EMPTY_OBJECT;
+            String field;
+            while ((field = ElementReader.nextField(parser)) != null) {
+                switch (field) {
+                    case "references":
+                        references = ElementReader.readReferences(parser);
+                        break;
+                    case "entry":
+                        entry = ElementReader.readTripDetails(parser);
+                        break;
+                    default:
+                        parser.skipChildren();
+                        break;
+                }
+            }
+            this.references = references;
+            this.entry = entry;
+        }
     }
 
     private final Data data;
@@ -40,6 +70,25 @@ public final class ObaTripDetailsResponse extends ObaResponseWithRefs
         data = Data.EMPTY_OBJECT;
     }
 
+    private ObaTripDetailsResponse(ResponseReader.Header header, Data data) {
+        super(header);
+        this.data = data;
+    }
+
+    static ObaTripDetailsResponse read(JsonParser parser) throws IOException {
+        ResponseReader.Header header = new ResponseReader.Header();
+        Data data = Data.EMPTY_OBJECT;
+        String field;
+        while ((field = ElementReader.nextField(parser)) != null) {
+            if ("data".equals(field)) {
+                data = ElementReader.startObject(parser) ? new Data(parser) : null;
+            } else {
+                header.read(field, parser);
+            }
+        }
+        return new ObaTripDetailsResponse(header, data);
+    }
+
     @Override
     public String getId() {
         return data.entry.getId();
@@ -15,8 +15,13 @@
  */
 package org.onebusaway.io.client.request;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
+import org.onebusaway.io.client.ObaContext;
+
 import java.net.URI;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Retrieve info about a specific trip.
@@ -30,14 +35,22 @@ public final class ObaTripRequest extends RequestBase implements Callable<ObaTri
         super(uri);
     }
 
+    protected ObaTripRequest(ObaContext context, URI uri) {
+        super(context, uri);
+    }
+
     public static class Builder extends RequestBase.BuilderBase {
 
         public Builder(String tripId) {
-            super(getPathWithId("/trip/", tripId));
+            this(null, tripId);
+        }
+
+        public Builder(ObaContext context, String tripId) {
+            super(context, getPathWithId("/trip/", tripId));
         }
 
         public ObaTripRequest build() {
-            return new ObaTripRequest(buildUri());
+            return new ObaTripRequest(mObaContext, buildUri());
         }
     }
 
@@ -56,6 +69,26 @@ public final class ObaTripRequest extends RequestBase implements Callable<ObaTri
         return call(ObaTripResponse.class);
     }
 
+    /**
+     * Executes this request asynchronously on the context's executor.
+     *
+     * @return A future for the response. Cancelling it disconnects the request.
+     */
+    public ListenableFuture<ObaTripResponse> callAsync() {
+        return callAsync(ObaTripResponse.class, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Executes this request asynchronously on the context's executor.
+     *
+     * @param timeout How long to wait before completing with an OBA_IO_EXCEPTION response.
+     * @param unit    The unit of the timeout.
+     * @return A future for the response. Cancelling it disconnects the request.
+     */
+    public ListenableFuture<ObaTripResponse> callAsync(long timeout, TimeUnit unit) {
+        return callAsync(ObaTripResponse.class, timeout, unit);
+    }
+
     @Override
     public String toString() {
         return "ObaTripRequest [mUri=" + mUri + "]";
@@ -15,10 +15,14 @@
  */
 package org.onebusaway.io.client.request;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
+import org.onebusaway.io.client.ObaContext;
 import org.onebusaway.location.Location;
 
 import java.net.URI;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Search for active trips near a specific location
@@ -33,10 +37,18 @@ public final class ObaTripsForLocationRequest extends RequestBase
         super(uri);
     }
 
+    protected ObaTripsForLocationRequest(ObaContext context, URI uri) {
+        super(context, uri);
+    }
+
     public static class Builder extends RequestBase.BuilderBase {
 
         public Builder(Location location) {
-            super(BASE_PATH + "/trips-for-location.json");
+            this(null, location);
+        }
+
+        public Builder(ObaContext context, Location location) {
+            super(context, BASE_PATH + "/trips-for-location.json");
             mBuilder.queryParam("lat", String.valueOf(location.getLatitude()));
             mBuilder.queryParam("lon", String.valueOf(location.getLongitude()));
         }
@@ -76,7 +88,7 @@ public final class ObaTripsForLocationRequest extends RequestBase
         }
 
         public ObaTripsForLocationRequest build() {
-            return new ObaTripsForLocationRequest(buildUri());
+            return new ObaTripsForLocationRequest(mObaContext, buildUri());
         }
     }
 
@@ -85,6 +97,26 @@ public final class ObaTripsForLocationRequest extends RequestBase
         return call(ObaTripsForLocationResponse.class);
     }
 
+    /**
+     * Executes this request asynchronously on the context's executor.
+     *
+     * @return A future for the response. Cancelling it disconnects the request.
+     */
+    public ListenableFuture<ObaTripsForLocationResponse> callAsync() {
+        return callAsync(ObaTripsForLocationResponse.class, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Executes this request asynchronously on the context's executor.
+     *
+     * @param timeout How long to wait before completing with an OBA_IO_EXCEPTION response.
+     * @param unit    The unit of the timeout.
+     * @return A future for the response. Cancelling it disconnects the request.
+     */
+    public ListenableFuture<ObaTripsForLocationResponse> callAsync(long timeout, TimeUnit unit) {
+        return callAsync(ObaTripsForLocationResponse.class, timeout, unit);
+    }
+
     @Override
     public String toString() {
         return "ObaTripsForLocationRequest [mUri=" + mUri + "]";
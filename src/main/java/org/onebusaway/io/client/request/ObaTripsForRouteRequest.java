@@ -16,8 +16,13 @@
  */
 package org.onebusaway.io.client.request;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
+import org.onebusaway.io.client.ObaContext;
+
 import java.net.URI;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Retrieve info about trips for a specific route
@@ -32,10 +37,18 @@ public final class ObaTripsForRouteRequest extends RequestBase
         super(uri);
     }
 
+    protected ObaTripsForRouteRequest(ObaContext context, URI uri) {
+        super(context, uri);
+    }
+
     public static class Builder extends BuilderBase {
 
         public Builder(String routeId) {
-            super(getPathWithId("/trips-for-route/", routeId));
+            this(null, routeId);
+        }
+
+        public Builder(ObaContext context, String routeId) {
+            super(context, getPathWithId("/trips-for-route/", routeId));
         }
 
         /**
@@ -61,7 +74,7 @@ public final class ObaTripsForRouteRequest extends RequestBase
         }
 
         public ObaTripsForRouteRequest build() {
-            return new ObaTripsForRouteRequest(buildUri());
+            return new ObaTripsForRouteRequest(mObaContext, buildUri());
         }
     }
 
@@ -80,6 +93,26 @@ public final class ObaTripsForRouteRequest extends RequestBase
         return call(ObaTripsForRouteResponse.class);
     }
 
+    /**
+     * Executes this request asynchronously on the context's executor.
+     *
+     * @return A future for the response. Cancelling it disconnects the request.
+     */
+    public ListenableFuture<ObaTripsForRouteResponse> callAsync() {
+        return callAsync(ObaTripsForRouteResponse.class, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Executes this request asynchronously on the context's executor.
+     *
+     * @param timeout How long to wait before completing with an OBA_IO_EXCEPTION response.
+     * @param unit    The unit of the timeout.
+     * @return A future for the response. Cancelling it disconnects the request.
+     */
+    public ListenableFuture<ObaTripsForRouteResponse> callAsync(long timeout, TimeUnit unit) {
+        return callAsync(ObaTripsForRouteResponse.class, timeout, unit);
+    }
+
     @Override
     public String toString() {
         return "ObaTripsForRouteRequest [mUri=" + mUri + "]";
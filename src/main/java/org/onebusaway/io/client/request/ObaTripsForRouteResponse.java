@@ -16,11 +16,16 @@
  */
 package org.onebusaway.io.client.request;
 
+import com.fasterxml.jackson.core.JsonParser;
+
+import org.onebusaway.io.client.elements.ElementReader;
 import org.onebusaway.io.client.elements.ObaReferences;
 import org.onebusaway.io.client.elements.ObaReferencesElement;
 import org.onebusaway.io.client.elements.ObaTripDetails;
 import org.onebusaway.io.client.elements.ObaTripDetailsElement;
 
+import java.io.IOException;
+
 /**
  * Response object for ObaTripsForRouteRequest objects.
  *
@@ -46,6 +51,37 @@ public final class ObaTripsForRouteResponse extends ObaResponseWithRefs {
             outOfRange = false;
             limitExceeded = false;
         }
+
+        Data(JsonParser parser) throws IOException {
+            ObaReferencesElement references = ObaReferencesElement.EMPTY_OBJECT;
+            ObaTripDetailsElement[] list = ObaTripDetailsElement.EMPTY_ARRAY;
+            boolean outOfRange = false;
+            boolean limitExceeded = false;
+            String field;
+            while ((field = ElementReader.nextField(parser)) != null) {
+                switch (field) {
+                    case "references":
+                        references = ElementReader.readReferences(parser);
+                        break;
+                    case "list":
+                        list = ElementReader.readTripDetailsArray(parser);
+                        break;
+                    case "outOfRange":
+                        outOfRange = ElementReader.readBoolean(parser);
+                        break;
+                    case "limitExceeded":
+                        limitExceeded = ElementReader.readBoolean(parser);
+                        break;
+                    default:
+                        parser.skipChildren();
+                        break;
+                }
+            }
+            this.references = references;
+            this.list = list;
+            this.outOfRange = outOfRange;
+            this.limitExceeded = limitExceeded;
+        }
     }
 
     private final Data data;
@@ -54,6 +90,25 @@ public final class ObaTripsForRouteResponse extends ObaResponseWithRefs {
         data = Data.EMPTY_OBJECT;
     }
 
+    private ObaTripsForRouteResponse(ResponseReader.Header header, Data data) {
+        super(header);
+        this.data = data;
+    }
+
+    static ObaTripsForRouteResponse read(JsonParser parser) throws IOException {
+        ResponseReader.Header header = new ResponseReader.Header();
+        Data data = Data.EMPTY_OBJECT;
+        String field;
+        while ((field = ElementReader.nextField(parser)) != null) {
+            if ("data".equals(field)) {
+                data = ElementReader.startObject(parser) ? new Data(parser) : null;
+            } else {
+                header.read(field, parser);
+            }
+        }
+        return new ObaTripsForRouteResponse(header, data);
+    }
+
     /**
      * @return The list of trips.
      */
@@ -0,0 +1,281 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.request;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps requests within the rate limits OBA servers enforce per API key, so that going
+ * over them costs nothing rather than a round trip that ends in an error. Each API key
+ * has a token bucket that refills at a steady rate and holds up to a burst of tokens,
+ * and REST API methods can be given buckets of their own, e.g. to keep
+ * arrivals-and-departures-for-stop requests from being starved by trips-for-route ones.
+ *
+ * A request over the limit waits for a token for up to the maximum wait, and if there
+ * won't be one by then it isn't sent and the caller gets an OBA_RATE_LIMITED response.
+ * With a maximum wait of 0 (the default) requests over the limit are rejected straight
+ * away.
+ *
+ * <pre>
+ * ObaApi.getDefaultContext().setRateLimiter(new RateLimiter.Builder()
+ *         .setRate(10, 20)
+ *         .setRate("arrivals-and-departures-for-stop", 5, 10)
+ *         .setMaxWait(500, TimeUnit.MILLISECONDS)
+ *         .build());
+ * </pre>
+ *
+ * The buckets are lock-free: taking a token is a single compare-and-set on the time the
+ * bucket will next be full, in the style of the generic cell rate algorithm, so many
+ * threads can share a bucket without contending on a lock.
+ */
+public final class RateLimiter {
+
+    /**
+     * The rate and burst of one bucket
+     */
+    private static final class Budget {
+
+        // The time it takes to earn a token
+        final long intervalNanos;
+
+        // The time it takes to earn a full burst of tokens
+        final long burstNanos;
+
+        Budget(double perSecond, int burst) {
+            if (perSecond <= 0 || burst < 1) {
+                throw new IllegalArgumentException("Invalid rate " + perSecond + ", " + burst);
+            }
+            intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / perSecond));
+            burstNanos = intervalNanos * burst;
+        }
+    }
+
+    /**
+     * A token bucket, represented by the "theoretical arrival time": the time by which the
+     * tokens taken so far will have been earned. A token can be taken now if that time,
+     * plus the token, is no more than a burst ahead of now.
+     */
+    private static final class Bucket {
+
+        private final Budget mBudget;
+
+        private final AtomicLong mTat;
+
+        Bucket(Budget budget) {
+            mBudget = budget;
+            mTat = new AtomicLong(System.nanoTime());
+        }
+
+        /**
+         * Takes a token if one will be available within the maximum wait.
+         *
+         * @return How long to wait for the token taken, or -1 if none was taken.
+         */
+        long reserve(long maxWaitNanos) {
+            while (true) {
+                final long now = System.nanoTime();
+                final long tat = mTat.get();
+                final long next = Math.max(tat, now) + mBudget.intervalNanos;
+                final long wait = next - mBudget.burstNanos - now;
+                if (wait > maxWaitNanos) {
+                    return -1;
+                }
+                if (mTat.compareAndSet(tat, next)) {
+                    return Math.max(0, wait);
+                }
+            }
+        }
+    }
+
+    public static class Builder {
+
+        private Budget mDefault = null;
+
+        private final Map<String, Budget> mEndpoints = new HashMap<String, Budget>();
+
+        private long mMaxWaitNanos = 0;
+
+        /**
+         * Sets the rate limit for each API key, which is shared by all of the REST API
+         * methods without a rate of their own. By default there's no limit.
+         *
+         * @param perSecond The number of requests per second.
+         * @param burst     The number of requests that can be made at once after a quiet
+         *                  period.
+         */
+        public Builder setRate(double perSecond, int burst) {
+            mDefault = new Budget(perSecond, burst);
+            return this;
+        }
+
+        /**
+         * Gives a REST API method a rate limit of its own for each API key, separate from
+         * the limit set with setRate(double, int).
+         *
+         * @param endpoint  The API method name, e.g. "arrivals-and-departures-for-stop".
+         * @param perSecond The number of requests per second.
+         * @param burst     The number of requests that can be made at once after a quiet
+         *                  period.
+         */
+        public Builder setRate(String endpoint, double perSecond, int burst) {
+            mEndpoints.put(endpoint, new Budget(perSecond, burst));
+            return this;
+        }
+
+        /**
+         * Sets how long a request may wait for the rate limit before being rejected.
+         * The default is 0, to reject requests over the limit straight away.
+         */
+        public Builder setMaxWait(long maxWait, TimeUnit unit) {
+            mMaxWaitNanos = unit.toNanos(maxWait);
+            return this;
+        }
+
+        public RateLimiter build() {
+            return new RateLimiter(this);
+        }
+    }
+
+    /**
+     * The buckets for one API key
+     */
+    private final class KeyBuckets {
+
+        // Shared by methods without a rate of their own, or null if they're unlimited
+        final Bucket defaultBucket;
+
+        final HashMap<String, Bucket> endpoints = new HashMap<String, Bucket>();
+
+        KeyBuckets() {
+            defaultBucket = (mDefault != null) ? new Bucket(mDefault) : null;
+            for (Map.Entry<String, Budget> entry : mEndpoints.entrySet()) {
+                endpoints.put(entry.getKey(), new Bucket(entry.getValue()));
+            }
+        }
+
+        Bucket get(String endpoint) {
+            Bucket bucket = endpoints.get(endpoint);
+            return (bucket != null) ? bucket : defaultBucket;
+        }
+    }
+
+    private final Budget mDefault;
+
+    private final Map<String, Budget> mEndpoints;
+
+    private final long mMaxWaitNanos;
+
+    private final ConcurrentHashMap<String, KeyBuckets> mKeys =
+            new ConcurrentHashMap<String, KeyBuckets>();
+
+    private final AtomicLong mRejected = new AtomicLong();
+
+    private final AtomicLong mDelayed = new AtomicLong();
+
+    private RateLimiter(Builder builder) {
+        mDefault = builder.mDefault;
+        mEndpoints = new HashMap<String, Budget>(builder.mEndpoints);
+        mMaxWaitNanos = builder.mMaxWaitNanos;
+    }
+
+    /**
+     * Takes a token for a request, if one is available now.
+     *
+     * @param apiKey   The API key the request is made with.
+     * @param endpoint The REST API method name, e.g. "arrivals-and-departures-for-stop".
+     * @return true if the request may be made.
+     */
+    public boolean tryAcquire(String apiKey, String endpoint) {
+        Bucket bucket = getBucket(apiKey, endpoint);
+        if (bucket == null || bucket.reserve(0) >= 0) {
+            return true;
+        }
+        mRejected.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Takes a token for a request, waiting for one if need be.
+     *
+     * @param apiKey   The API key the request is made with.
+     * @param endpoint The REST API method name, e.g. "arrivals-and-departures-for-stop".
+     * @param timeout  The longest to wait.
+     * @param unit     The unit of the timeout.
+     * @return true if the request may be made, or false if there won't be a token
+     * within the timeout, in which case this returns immediately.
+     */
+    public boolean acquire(String apiKey, String endpoint, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        Bucket bucket = getBucket(apiKey, endpoint);
+        if (bucket == null) {
+            return true;
+        }
+        long wait = bucket.reserve(unit.toNanos(timeout));
+        if (wait < 0) {
+            mRejected.incrementAndGet();
+            return false;
+        }
+        if (wait > 0) {
+            mDelayed.incrementAndGet();
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+        return true;
+    }
+
+    /**
+     * @return The number of requests rejected because of the rate limit.
+     */
+    public long getRejectedCount() {
+        return mRejected.get();
+    }
+
+    /**
+     * @return The number of requests that had to wait for the rate limit.
+     */
+    public long getDelayedCount() {
+        return mDelayed.get();
+    }
+
+    /**
+     * Takes a token for a request, waiting up to the maximum wait.
+     */
+    boolean acquire(String apiKey, String endpoint) throws InterruptedException {
+        return acquire(apiKey, endpoint, mMaxWaitNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return The bucket for requests to the endpoint with the key, or null if they
+     * aren't limited.
+     */
+    private Bucket getBucket(String apiKey, String endpoint) {
+        if (apiKey == null) {
+            apiKey = "";
+        }
+        KeyBuckets buckets = mKeys.get(apiKey);
+        if (buckets == null) {
+            KeyBuckets created = new KeyBuckets();
+            buckets = mKeys.putIfAbsent(apiKey, created);
+            if (buckets == null) {
+                buckets = created;
+            }
+        }
+        return buckets.get(endpoint);
+    }
+}
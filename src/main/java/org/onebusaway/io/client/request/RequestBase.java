@@ -15,16 +15,21 @@
  */
 package org.onebusaway.io.client.request;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
 import org.apache.commons.lang3.StringUtils;
 import org.onebusaway.io.client.ObaApi;
 import org.onebusaway.io.client.ObaConnection;
 import org.onebusaway.io.client.ObaContext;
+import org.onebusaway.io.client.util.PercentEncoder;
+import org.onebusaway.io.client.util.QueryBuilder;
+import org.onebusaway.io.client.util.UriUtils;
 
-import javax.ws.rs.core.UriBuilder;
 import java.io.*;
 import java.net.HttpURLConnection;
 import java.net.URI;
-import java.net.URLEncoder;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The base class for Oba requests.
@@ -41,12 +46,23 @@ public class RequestBase {
 
     protected final String mPostData;
 
+    // The context from the request's builder, or null for the default context
+    protected final ObaContext mObaContext;
+
     protected RequestBase(URI uri) {
-        mUri = uri;
-        mPostData = null;
+        this(null, uri, null);
     }
 
     protected RequestBase(URI uri, String postData) {
+        this(null, uri, postData);
+    }
+
+    protected RequestBase(ObaContext context, URI uri) {
+        this(context, uri, null);
+    }
+
+    protected RequestBase(ObaContext context, URI uri, String postData) {
+        mObaContext = context;
         mUri = uri;
         mPostData = postData;
     }
@@ -55,7 +71,10 @@ public class RequestBase {
 
         protected static final String BASE_PATH = "api/where";
 
-        protected final UriBuilder mBuilder;
+        // The API path, relative to the context's base URL
+        protected final String mPath;
+
+        protected final QueryBuilder mBuilder = new QueryBuilder();
 
         protected ObaContext mObaContext;
 
@@ -65,28 +84,16 @@ public class RequestBase {
 
         protected BuilderBase(ObaContext obaContext, String path) {
             mObaContext = obaContext;
-            mBuilder = UriBuilder.fromPath(path);
+            mPath = path;
         }
 
         protected static String getPathWithId(String pathElement, String id) {
-            StringBuilder builder = new StringBuilder(BASE_PATH);
-            builder.append(pathElement);
-            try {
-                builder.append(URLEncoder.encode(id, UTF8).replaceAll("\\+", "%20"));
-            } catch (UnsupportedEncodingException e) {
-                e.printStackTrace();
-            }
-            builder.append(".json");
-            return builder.toString();
+            return BASE_PATH + pathElement + PercentEncoder.encodePathSegment(id) + ".json";
         }
 
         protected URI buildUri() {
             ObaContext context = (mObaContext != null) ? mObaContext : ObaApi.getDefaultContext();
-            context.buildFullUrl(mBuilder);
-            context.setAppInfo(mBuilder);
-            mBuilder.queryParam("version", "2");
-            mBuilder.queryParam("key", context.getApiKey());
-            return mBuilder.build();
+            return context.getUriTemplate().expand(mPath, mBuilder);
         }
 
         public ObaContext getObaContext() {
@@ -104,43 +111,246 @@ public class RequestBase {
      */
     public static class PostBuilderBase extends BuilderBase {
 
-        protected final UriBuilder mPostData;
+        protected final QueryBuilder mPostData = new QueryBuilder();
 
         protected PostBuilderBase(String path) {
             super(path);
-            mPostData = UriBuilder.fromPath(path);
         }
 
+        protected PostBuilderBase(ObaContext obaContext, String path) {
+            super(obaContext, path);
+        }
+
+        /**
+         * @return The post data, encoded as application/x-www-form-urlencoded
+         */
         public String buildPostData() {
-            return mPostData.build().getQuery();
+            return mPostData.toString();
         }
     }
 
+    /**
+     * @return The context this request is made with: the one its builder was given, or
+     * else the default context
+     */
+    ObaContext getContext() {
+        return (mObaContext != null) ? mObaContext : ObaApi.getDefaultContext();
+    }
+
     protected <T> T call(Class<T> cls) {
-        ObaApi.SerializationHandler handler = ObaApi.getSerializer(cls);
+        return call(cls, null);
+    }
+
+    /**
+     * Executes this request on the context's executor.
+     *
+     * @param cls     The response class.
+     * @param timeout How long to wait for the response before giving up with an
+     *                OBA_IO_EXCEPTION response, or 0 to only use the connection's
+     *                own timeouts.
+     * @param unit    The unit of the timeout.
+     * @return A future for the response. Cancelling it disconnects the request.
+     */
+    protected <T> ListenableFuture<T> callAsync(Class<T> cls, long timeout, TimeUnit unit) {
+        AsyncCall<T> call = new AsyncCall<T>(this, cls, false);
+        call.start(getContext().getExecutor(), timeout, unit);
+        return call;
+    }
+
+    /**
+     * The asynchronous version of callPostHack()
+     */
+    protected <T> ListenableFuture<T> callPostHackAsync(Class<T> cls, long timeout,
+            TimeUnit unit) {
+        AsyncCall<T> call = new AsyncCall<T>(this, cls, true);
+        call.start(getContext().getExecutor(), timeout, unit);
+        return call;
+    }
+
+    <T> T call(final Class<T> cls, AsyncCall<T> async) {
+        ObaContext context = getContext();
+        RequestCoalescer coalescer = context.getRequestCoalescer();
+        if (coalescer == null || mPostData != null) {
+            return doCall(cls, async);
+        }
+        try {
+            // The shared request isn't tied to any one caller's AsyncCall, so cancelling
+            // one caller doesn't disconnect it for the others.
+            return coalescer.execute(mUri, cls, new Callable<T>() {
+                @Override
+                public T call() {
+                    return doCall(cls, null);
+                }
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return context.getSerializer(cls).createFromError(cls, ObaApi.OBA_IO_EXCEPTION,
+                    e.toString());
+        }
+    }
+
+    private <T> T doCall(Class<T> cls, AsyncCall<T> async) {
+        return callResilient(cls, async, false);
+    }
+
+    /**
+     * Sends the request through the context's rate limiter, concurrency limiter and
+     * circuit breaker, retrying GETs according to its retry policy.
+     */
+    private <T> T callResilient(Class<T> cls, AsyncCall<T> async, boolean postHack) {
+        ObaContext context = getContext();
+        RateLimiter rateLimiter = context.getRateLimiter();
+        ConcurrencyLimiter limiter = context.getConcurrencyLimiter();
+        CircuitBreaker breaker = context.getCircuitBreaker();
+        RetryPolicy retry = (postHack || mPostData != null) ? null : context.getRetryPolicy();
+        HedgingPolicy hedging = (postHack || mPostData != null) ? null
+                : context.getHedgingPolicy();
+        if (hedging != null && !hedging.handles(mUri)) {
+            hedging = null;
+        }
+        int attempt = 0;
+        while (true) {
+            try {
+                if (rateLimiter != null && !rateLimiter.acquire(context.getApiKey(),
+                        UriUtils.getEndpoint(mUri))) {
+                    return rejected(cls, postHack, ObaApi.OBA_RATE_LIMITED,
+                            "Rate limit exceeded for " + UriUtils.getEndpoint(mUri));
+                }
+                if (limiter != null && !limiter.acquire(mUri)) {
+                    return rejected(cls, postHack, ObaApi.OBA_CONCURRENCY_LIMITED,
+                            "Too many requests in progress to " + UriUtils.getServer(mUri));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return context.getSerializer(cls).createFromError(cls, ObaApi.OBA_IO_EXCEPTION,
+                        e.toString());
+            }
+            final long start = System.nanoTime();
+            long rtt = -1;
+            T result = null;
+            try {
+                if (breaker != null && !breaker.allowRequest(mUri)) {
+                    return rejected(cls, postHack, ObaApi.OBA_IO_EXCEPTION,
+                            "Circuit breaker is open for " + UriUtils.getServer(mUri));
+                }
+                try {
+                    result = (hedging != null) ? HedgedCall.execute(this, cls, async, hedging)
+                            : timedCall(cls, async, postHack);
+                } finally {
+                    if (breaker != null) {
+                        if (result == null || isTransientFailure(getCode(result))) {
+                            breaker.onFailure(mUri);
+                        } else {
+                            breaker.onSuccess(mUri);
+                        }
+                    }
+                }
+                rtt = System.nanoTime() - start;
+            } finally {
+                if (limiter != null) {
+                    limiter.release(mUri, rtt,
+                            result == null || isTransientFailure(getCode(result)));
+                }
+            }
+            attempt++;
+            if (retry == null || !retry.shouldRetry(attempt, getCode(result))
+                    || (async != null && async.isDone()) || !retry.backoff(attempt)) {
+                return result;
+            }
+        }
+    }
+
+    /**
+     * Returns an error for a request that wasn't sent, and reports it to the listener
+     * like any other request so that its result code is counted.
+     */
+    private <T> T rejected(Class<T> cls, boolean postHack, int code, String message) {
+        RequestTimer timer = RequestTimer.start(getContext(), mUri,
+                postHack || mPostData != null);
+        T result = getContext().getSerializer(cls).createFromError(cls, code, message);
+        timer.finish(result);
+        return result;
+    }
+
+    <T> T timedCall(Class<T> cls, ConnectionListener async, boolean postHack) {
+        RequestTimer timer = RequestTimer.start(getContext(), mUri,
+                postHack || mPostData != null);
+        T result = null;
+        try {
+            result = postHack ? callPostHack(cls, async, timer) : doCall(cls, async, timer);
+            return result;
+        } finally {
+            timer.finish(result);
+        }
+    }
+
+    /**
+     * @return true for results that suggest the server is unavailable, rather than
+     * that there's something wrong with the request: I/O errors, and 502, 503 and 504.
+     */
+    static boolean isTransientFailure(int code) {
+        return code == ObaApi.OBA_IO_EXCEPTION
+                || code == HttpURLConnection.HTTP_BAD_GATEWAY
+                || code == HttpURLConnection.HTTP_UNAVAILABLE
+                || code == HttpURLConnection.HTTP_GATEWAY_TIMEOUT;
+    }
+
+    static int getCode(Object response) {
+        return (response instanceof ObaResponse)
+                ? ((ObaResponse) response).getCode() : ObaApi.OBA_INTERNAL_ERROR;
+    }
+
+    private <T> T doCall(Class<T> cls, ConnectionListener async, RequestTimer timer) {
+        ObaContext context = getContext();
+        ObaApi.SerializationHandler handler = context.getSerializer(cls);
+        ValidatorCache validators = context.getValidatorCache();
+        if (validators != null && (mPostData != null || !validators.handles(mUri))) {
+            validators = null;
+        }
         ObaConnection conn = null;
         try {
-            conn = ObaApi.getDefaultContext().getConnectionFactory().newConnection(mUri);
-            Reader reader;
+            conn = context.getConnectionFactory().newConnection(mUri);
+            ValidatorCache.Entry previous = null;
+            if (validators != null) {
+                previous = validators.get(mUri, cls);
+                if (previous != null && previous.etag != null) {
+                    conn.setRequestProperty("If-None-Match", previous.etag);
+                }
+                if (previous != null && previous.lastModified != null) {
+                    conn.setRequestProperty("If-Modified-Since", previous.lastModified);
+                }
+            }
+            if (async != null) {
+                async.onConnect(conn);
+            }
+            InputStream body;
             if (mPostData != null) {
-                reader = conn.post(mPostData);
+                body = conn.postStream(mPostData);
+                timer.firstByte(conn);
             } else {
                 int responseCode = conn.getResponseCode();
+                timer.firstByte(conn);
+                if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED && previous != null) {
+                    validators.notModified();
+                    return cls.cast(previous.response);
+                }
                 if (responseCode != HttpURLConnection.HTTP_OK) {
                     return handler.createFromError(cls, responseCode, "");
                 }
-                reader = conn.get();
+                body = conn.getStream();
             }
-            T t = handler.deserialize(reader, cls);
+            T t = handler.deserialize(timer.body(body), cls);
+            timer.bodyFinished(conn.getBytesReceived());
             if (t == null) {
                 t = handler.createFromError(cls, ObaApi.OBA_INTERNAL_ERROR, "Json error");
+            } else if (validators != null) {
+                validators.put(mUri, cls, t, conn.getHeaderField("ETag"),
+                        conn.getHeaderField("Last-Modified"));
             }
             return t;
         } catch (FileNotFoundException e) {
-            System.err.println(e.toString());
             return handler.createFromError(cls, ObaApi.OBA_NOT_FOUND, e.toString());
         } catch (IOException e) {
-        	System.err.println(e.toString());
             return handler.createFromError(cls, ObaApi.OBA_IO_EXCEPTION, e.toString());
         } finally {
             if (conn != null) {
@@ -150,11 +360,26 @@ public class RequestBase {
     }
 
     protected <T> T callPostHack(Class<T> cls) {
-        ObaApi.SerializationHandler handler = ObaApi.getSerializer(cls);
+        return callPostHack(cls, null);
+    }
+
+    <T> T callPostHack(Class<T> cls, AsyncCall<T> async) {
+        return callResilient(cls, async, true);
+    }
+
+    private <T> T callPostHack(Class<T> cls, ConnectionListener async, RequestTimer timer) {
+        ObaContext context = getContext();
+        ObaApi.SerializationHandler handler = context.getSerializer(cls);
         ObaConnection conn = null;
         try {
-            conn = ObaApi.getDefaultContext().getConnectionFactory().newConnection(mUri);
-            BufferedReader reader = new BufferedReader(conn.post(mPostData), 8 * 1024);
+            conn = context.getConnectionFactory().newConnection(mUri);
+            if (async != null) {
+                async.onConnect(conn);
+            }
+            InputStream body = conn.postStream(mPostData);
+            timer.firstByte(conn);
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(timer.body(body), UTF8), 8 * 1024);
 
             String line;
             StringBuffer text = new StringBuffer();
@@ -162,6 +387,8 @@ public class RequestBase {
                 text.append(line + "\n");
             }
 
+            timer.bodyFinished(conn.getBytesReceived());
+
             String response = text.toString();
             if (StringUtils.isEmpty(response)) {
                 return handler.createFromError(cls, ObaApi.OBA_OK, "OK");
@@ -173,10 +400,8 @@ public class RequestBase {
             }
 
         } catch (FileNotFoundException e) {
-        	System.err.println(e.toString());
             return handler.createFromError(cls, ObaApi.OBA_NOT_FOUND, e.toString());
         } catch (IOException e) {
-        	System.err.println(e.toString());
             return handler.createFromError(cls, ObaApi.OBA_IO_EXCEPTION, e.toString());
         } finally {
             if (conn != null) {
@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.request;
+
+import com.google.common.util.concurrent.SettableFuture;
+
+import org.onebusaway.io.client.util.UriUtils;
+
+import java.net.URI;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces identical concurrent GET requests, so that when many threads ask for the same
+ * URI at the same moment only one of them goes to the server and the rest share its
+ * (immutable) response. Requests are identical if they have the same response class and
+ * normalized URI (see {@link UriUtils#normalizeUri(URI)}).
+ *
+ * Enable it by registering an instance on the ObaContext:
+ *
+ * <pre>
+ * ObaApi.getDefaultContext().setRequestCoalescer(new RequestCoalescer());
+ * </pre>
+ *
+ * Since the shared request belongs to every caller waiting on it, cancelling or timing out
+ * one caller's callAsync() future doesn't disconnect it.
+ */
+public class RequestCoalescer {
+
+    /**
+     * Notified when a request that was shared by more than one caller completes.
+     */
+    public interface Listener {
+
+        /**
+         * @param uri     The URI of the request that went to the server.
+         * @param callers The number of callers that received its response.
+         */
+        void onCoalesced(URI uri, int callers);
+    }
+
+    private static final class InFlight<T> {
+
+        final SettableFuture<T> future = SettableFuture.create();
+
+        final AtomicInteger waiters = new AtomicInteger();
+    }
+
+    private final ConcurrentHashMap<String, InFlight<?>> mInFlight =
+            new ConcurrentHashMap<String, InFlight<?>>();
+
+    private final AtomicLong mCalls = new AtomicLong();
+
+    private final AtomicLong mCoalesced = new AtomicLong();
+
+    private volatile Listener mListener;
+
+    public void setListener(Listener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * @return The number of requests that have gone through this coalescer.
+     */
+    public long getCallCount() {
+        return mCalls.get();
+    }
+
+    /**
+     * @return The number of requests that shared another request's response
+     * instead of going to the server.
+     */
+    public long getCoalescedCount() {
+        return mCoalesced.get();
+    }
+
+    /**
+     * @return The number of distinct requests currently in flight.
+     */
+    public int getInFlightCount() {
+        return mInFlight.size();
+    }
+
+    /**
+     * Runs the call, unless an identical one is already in flight, in which case
+     * this waits for and returns its result.
+     */
+    @SuppressWarnings("unchecked")
+    <T> T execute(URI uri, Class<T> cls, Callable<T> call) throws InterruptedException {
+        mCalls.incrementAndGet();
+        final String key = cls.getName() + " " + UriUtils.normalizeUri(uri);
+        final InFlight<T> mine = new InFlight<T>();
+        final InFlight<T> existing = (InFlight<T>) mInFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            existing.waiters.incrementAndGet();
+            mCoalesced.incrementAndGet();
+            try {
+                return existing.future.get();
+            } catch (ExecutionException e) {
+                throw propagate(e.getCause());
+            }
+        }
+
+        try {
+            T result = call.call();
+            mine.future.set(result);
+            return result;
+        } catch (Exception e) {
+            mine.future.setException(e);
+            throw propagate(e);
+        } catch (Error e) {
+            mine.future.setException(e);
+            throw e;
+        } finally {
+            mInFlight.remove(key, mine);
+            int waiters = mine.waiters.get();
+            Listener listener = mListener;
+            if (waiters > 0 && listener != null) {
+                listener.onCoalesced(uri, waiters + 1);
+            }
+        }
+    }
+
+    private static RuntimeException propagate(Throwable t) {
+        if (t instanceof RuntimeException) {
+            return (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        return new RuntimeException(t);
+    }
+}
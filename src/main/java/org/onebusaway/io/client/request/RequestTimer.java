@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.request;
+
+import org.onebusaway.io.client.ObaApi;
+import org.onebusaway.io.client.ObaConnection;
+import org.onebusaway.io.client.ObaContext;
+import org.onebusaway.io.client.metrics.RequestEvent;
+import org.onebusaway.io.client.metrics.RequestListener;
+import org.onebusaway.io.client.util.UriUtils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+
+/**
+ * Times the phases of one request for the context's RequestListener. When there's
+ * no listener, NONE is used and timing costs nothing.
+ */
+class RequestTimer {
+
+    static final RequestTimer NONE = new RequestTimer();
+
+    private final RequestListener mListener;
+
+    private final URI mUri;
+
+    private final String mEndpoint;
+
+    private final boolean mPost;
+
+    private final long mStart;
+
+    private long mConnectNanos;
+
+    private long mFirstByteNanos;
+
+    private long mBodyStart;
+
+    private long mBodyEnd;
+
+    private long mCompressedSize = -1;
+
+    private TimedInputStream mBody;
+
+    private RequestTimer() {
+        mListener = null;
+        mUri = null;
+        mEndpoint = null;
+        mPost = false;
+        mStart = 0;
+    }
+
+    private RequestTimer(RequestListener listener, URI uri, boolean post) {
+        mListener = listener;
+        mUri = uri;
+        mEndpoint = UriUtils.getEndpoint(uri);
+        mPost = post;
+        listener.onRequestStarted(uri, mEndpoint);
+        mStart = System.nanoTime();
+    }
+
+    static RequestTimer start(ObaContext context, URI uri, boolean post) {
+        RequestListener listener = context.getRequestListener();
+        return (listener != null) ? new RequestTimer(listener, uri, post) : NONE;
+    }
+
+    /**
+     * Records the time to the first byte of the response, and how long the connection
+     * took to open on the way.
+     */
+    void firstByte(ObaConnection conn) {
+        if (mListener != null) {
+            mFirstByteNanos = System.nanoTime() - mStart;
+            mConnectNanos = Math.max(0, conn.getConnectNanos());
+        }
+    }
+
+    /**
+     * Starts timing the body, and returns a stream that times how long is spent waiting
+     * on the connection while it's being read.
+     */
+    InputStream body(InputStream body) {
+        if (mListener == null) {
+            return body;
+        }
+        mBody = new TimedInputStream(body);
+        mBodyStart = System.nanoTime();
+        return mBody;
+    }
+
+    /**
+     * @param bytesReceived The size of the body as received, from
+     *                      ObaConnection.getBytesReceived().
+     */
+    void bodyFinished(long bytesReceived) {
+        if (mListener != null) {
+            mBodyEnd = System.nanoTime();
+            mCompressedSize = bytesReceived;
+        }
+    }
+
+    /**
+     * Reports the request to the listener.
+     *
+     * @param response The response being returned, or null if the request threw.
+     */
+    void finish(Object response) {
+        if (mListener == null) {
+            return;
+        }
+        final long total = System.nanoTime() - mStart;
+        final int code = (response instanceof ObaResponse)
+                ? ((ObaResponse) response).getCode() : ObaApi.OBA_INTERNAL_ERROR;
+        long bodyNanos = 0;
+        long deserializeNanos = 0;
+        long size = -1;
+        if (mBody != null) {
+            final long end = (mBodyEnd != 0) ? mBodyEnd : System.nanoTime();
+            bodyNanos = mBody.mReadNanos;
+            deserializeNanos = Math.max(0, end - mBodyStart - bodyNanos);
+            size = mBody.mCount;
+        }
+        mListener.onRequestFinished(new RequestEvent(mUri, mEndpoint, mPost, code,
+                mConnectNanos, mFirstByteNanos, bodyNanos, deserializeNanos, total, size,
+                mCompressedSize));
+    }
+
+    /**
+     * Counts the bytes read, and the time spent in read()
+     */
+    private static final class TimedInputStream extends FilterInputStream {
+
+        long mReadNanos;
+
+        long mCount;
+
+        TimedInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            final long start = System.nanoTime();
+            try {
+                int b = super.read();
+                if (b >= 0) {
+                    mCount++;
+                }
+                return b;
+            } finally {
+                mReadNanos += System.nanoTime() - start;
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            final long start = System.nanoTime();
+            try {
+                int n = super.read(b, off, len);
+                if (n > 0) {
+                    mCount += n;
+                }
+                return n;
+            } finally {
+                mReadNanos += System.nanoTime() - start;
+            }
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            mCount += skipped;
+            return skipped;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.request;
+
+import com.fasterxml.jackson.core.JsonParser;
+
+import org.onebusaway.io.client.ObaApi;
+import org.onebusaway.io.client.elements.ElementReader;
+
+import java.io.IOException;
+
+/**
+ * Reads the responses an app requests most often straight from a Jackson token stream,
+ * the way {@link ElementReader} reads their elements, so that they're bound without
+ * reflection.  The other responses are left to JacksonSerializer.
+ */
+public final class ResponseReader {
+
+    /**
+     * The fields every response has, read before or after its data.
+     */
+    static final class Header {
+
+        String version = ObaApi.VERSION1;
+
+        int code = 0;
+
+        long currentTime = 0;
+
+        String text = "ERROR";
+
+        void read(String field, JsonParser parser) throws IOException {
+            switch (field) {
+                case "version":
+                    version = ElementReader.readString(parser);
+                    break;
+                case "code":
+                    code = ElementReader.readInt(parser);
+                    break;
+                case "currentTime":
+                    currentTime = ElementReader.readLong(parser);
+                    break;
+                case "text":
+                    text = ElementReader.readString(parser);
+                    break;
+                default:
+                    parser.skipChildren();
+                    break;
+            }
+        }
+    }
+
+    private ResponseReader() {
+        throw new AssertionError();
+    }
+
+    /**
+     * @return True if {@link #read(JsonParser, Class)} can read responses of this class
+     */
+    public static boolean canRead(Class<?> cls) {
+        return cls == ObaArrivalInfoResponse.class
+                || cls == ObaStopResponse.class
+                || cls == ObaRouteResponse.class
+                || cls == ObaTripDetailsResponse.class
+                || cls == ObaTripsForRouteResponse.class;
+    }
+
+    /**
+     * Reads a response.
+     *
+     * @param parser The parser, on the first token of the response
+     * @param cls    The class of the response, one that {@link #canRead(Class)} accepts
+     * @return The response, or null if the response is the JSON null
+     */
+    public static <T> T read(JsonParser parser, Class<T> cls) throws IOException {
+        if (!ElementReader.startObject(parser)) {
+            return null;
+        }
+        final Object response;
+        if (cls == ObaArrivalInfoResponse.class) {
+            response = ObaArrivalInfoResponse.read(parser);
+        } else if (cls == ObaStopResponse.class) {
+            response = ObaStopResponse.read(parser);
+        } else if (cls == ObaRouteResponse.class) {
+            response = ObaRouteResponse.read(parser);
+        } else if (cls == ObaTripDetailsResponse.class) {
+            response = ObaTripDetailsResponse.read(parser);
+        } else if (cls == ObaTripsForRouteResponse.class) {
+            response = ObaTripsForRouteResponse.read(parser);
+        } else {
+            throw new IllegalArgumentException("Can't read " + cls.getName());
+        }
+        return cls.cast(response);
+    }
+}
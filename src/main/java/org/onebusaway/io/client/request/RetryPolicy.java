@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.request;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Retries GET requests that fail with an I/O error or a 502, 503 or 504 from the server,
+ * waiting an exponentially growing, randomized ("full jitter") delay between attempts so
+ * that many clients retrying at once don't hit a struggling server in lockstep. POSTs
+ * (e.g., ObaReportProblemWithStopRequest) are never retried.
+ *
+ * <pre>
+ * ObaApi.getDefaultContext().setRetryPolicy(new RetryPolicy.Builder()
+ *         .setMaxAttempts(3)
+ *         .setBackoff(200, 2000, TimeUnit.MILLISECONDS)
+ *         .build());
+ * </pre>
+ */
+public final class RetryPolicy {
+
+    private final int mMaxAttempts;
+
+    private final long mInitialBackoff;
+
+    private final long mMaxBackoff;
+
+    private final AtomicLong mRetries = new AtomicLong();
+
+    public static class Builder {
+
+        private int mMaxAttempts = 3;
+
+        private long mInitialBackoff = 200;
+
+        private long mMaxBackoff = 5000;
+
+        /**
+         * @param attempts The most times a request is sent, including the first.
+         *                 The default is 3.
+         */
+        public Builder setMaxAttempts(int attempts) {
+            if (attempts < 1) {
+                throw new IllegalArgumentException("attempts must be at least 1");
+            }
+            mMaxAttempts = attempts;
+            return this;
+        }
+
+        /**
+         * Sets the delay before the first retry, which doubles with each later retry
+         * up to the maximum. The actual delay is random between 0 and this.
+         * The defaults are 200ms and 5s.
+         */
+        public Builder setBackoff(long initial, long max, TimeUnit unit) {
+            if (initial < 0 || max < initial) {
+                throw new IllegalArgumentException("Invalid backoff " + initial + ", " + max);
+            }
+            mInitialBackoff = unit.toMillis(initial);
+            mMaxBackoff = unit.toMillis(max);
+            return this;
+        }
+
+        public RetryPolicy build() {
+            return new RetryPolicy(this);
+        }
+    }
+
+    private RetryPolicy(Builder builder) {
+        mMaxAttempts = builder.mMaxAttempts;
+        mInitialBackoff = builder.mInitialBackoff;
+        mMaxBackoff = builder.mMaxBackoff;
+    }
+
+    public int getMaxAttempts() {
+        return mMaxAttempts;
+    }
+
+    /**
+     * @return The number of times a request has been retried.
+     */
+    public long getRetryCount() {
+        return mRetries.get();
+    }
+
+    /**
+     * @param attempt The number of attempts made so far.
+     * @param code    The result code of the last attempt.
+     * @return true if the request should be sent again.
+     */
+    boolean shouldRetry(int attempt, int code) {
+        return attempt < mMaxAttempts && RequestBase.isTransientFailure(code);
+    }
+
+    /**
+     * Waits before the next attempt.
+     *
+     * @param attempt The number of attempts made so far.
+     * @return false if the thread was interrupted, in which case it shouldn't retry.
+     */
+    boolean backoff(int attempt) {
+        mRetries.incrementAndGet();
+        long delay = getBackoffMillis(attempt);
+        if (delay <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(delay);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * @param attempt The number of attempts made so far.
+     * @return A random delay before the next attempt, between 0 and the
+     * backoff for this attempt.
+     */
+    public long getBackoffMillis(int attempt) {
+        // Cap the shift so the ceiling can't overflow
+        long ceiling = mInitialBackoff << Math.min(attempt - 1, 30);
+        if (ceiling > mMaxBackoff || ceiling < 0) {
+            ceiling = mMaxBackoff;
+        }
+        return (ceiling > 0) ? ThreadLocalRandom.current().nextLong(ceiling + 1) : 0;
+    }
+}
@@ -0,0 +1,441 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.request;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import org.onebusaway.io.client.ObaContext;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Polls arrivals and departures for the stops that listeners are interested in, and
+ * pushes each new response to them.  Each stop is polled once per interval however many
+ * listeners it has, so sessions watching overlapping sets of stops share the requests:
+ *
+ * <pre>
+ * StopPoller poller = new StopPoller.Builder()
+ *         .setInterval(30, TimeUnit.SECONDS)
+ *         .build();
+ * poller.subscribe("1_75403", listener);
+ * ...
+ * poller.unsubscribe("1_75403", listener);
+ * </pre>
+ *
+ * A stop is polled from its first subscription until its last listener unsubscribes.
+ * The polls of different stops are spread out with random jitter, so stops subscribed
+ * to together (e.g., when the poller starts) don't keep being requested in one burst.
+ * The polls are timed on a small pool of threads, which only start each request; the
+ * requests themselves run on the context's executor, so a slow server doesn't hold up
+ * the polls of other stops.  Each stop's next poll is timed from the start of its last
+ * one, so the interval doesn't grow by the time the requests take.  A listener joining a
+ * stop that's already being polled is given its latest response straight away.
+ * <p>
+ * At most setMaxParallelism() polls are in progress at once.  Each one holds a thread of
+ * the context's executor while it waits for the server, and the default executor starts a
+ * new platform thread whenever none is free.  So the bound, rather than the executor, is
+ * what keeps tens of thousands of stops from needing a thread each.  At 100ms a request,
+ * the default of 64 covers about 19,000 stops every 30 seconds.  To poll more, raise it,
+ * ideally with a virtual thread executor (see VirtualThreads) set on the context.
+ */
+public final class StopPoller {
+
+    public static final int DEFAULT_MAX_PARALLELISM = 64;
+
+    /**
+     * Receives the responses for the stops it's subscribed to.  It's called on the
+     * thread that made the request, so it should hand off anything slow.
+     */
+    public interface Listener {
+
+        /**
+         * @param stopId   The stop that was polled
+         * @param response The response, which may be an error
+         */
+        void onArrivalInfo(String stopId, ObaArrivalInfoResponse response);
+    }
+
+    public static class Builder {
+
+        private long mIntervalNanos = TimeUnit.SECONDS.toNanos(30);
+
+        private double mJitter = 0.1;
+
+        private int mThreads = 1;
+
+        private int mMinutesAfter = -1;
+
+        private int mMaxParallelism = DEFAULT_MAX_PARALLELISM;
+
+        private ObaContext mObaContext;
+
+        /**
+         * Sets how often each stop is polled.  The default is every 30 seconds.
+         */
+        public Builder setInterval(long interval, TimeUnit unit) {
+            if (interval <= 0) {
+                throw new IllegalArgumentException("interval must be positive");
+            }
+            mIntervalNanos = unit.toNanos(interval);
+            return this;
+        }
+
+        /**
+         * Sets how far, as a fraction of the interval, a poll may be moved earlier or
+         * later at random.  A new stop's first poll is made within this fraction of the
+         * interval.  The default is 0.1.
+         */
+        public Builder setJitter(double jitter) {
+            if (jitter < 0 || jitter > 1) {
+                throw new IllegalArgumentException("jitter must be between 0 and 1");
+            }
+            mJitter = jitter;
+            return this;
+        }
+
+        /**
+         * Sets the number of threads that start the polls.  The requests run on the
+         * context's executor, so these threads are only busy while starting them.
+         * The default is 1.
+         */
+        public Builder setThreads(int threads) {
+            if (threads < 1) {
+                throw new IllegalArgumentException("threads must be at least 1");
+            }
+            mThreads = threads;
+            return this;
+        }
+
+        /**
+         * Sets the most polls to have in progress at once.  A stop that's due while
+         * this many are in progress is polled as soon as one of them is done.  The
+         * default is DEFAULT_MAX_PARALLELISM.
+         */
+        public Builder setMaxParallelism(int maxParallelism) {
+            if (maxParallelism < 1) {
+                throw new IllegalArgumentException("maxParallelism must be at least 1");
+            }
+            mMaxParallelism = maxParallelism;
+            return this;
+        }
+
+        /**
+         * Includes vehicles arriving or departing in the next minutesAfter minutes
+         */
+        public Builder setMinutesAfter(int minutesAfter) {
+            mMinutesAfter = minutesAfter;
+            return this;
+        }
+
+        /**
+         * Sets the context the stops are requested with.  The default is null, for the
+         * default context.
+         */
+        public Builder setObaContext(ObaContext context) {
+            mObaContext = context;
+            return this;
+        }
+
+        public StopPoller build() {
+            return new StopPoller(this);
+        }
+    }
+
+    /**
+     * A stop with at least one listener.  Once its last listener has gone it's removed,
+     * and a new Stop is created if anyone subscribes to it again.
+     */
+    private final class Stop implements Runnable {
+
+        final String stopId;
+
+        // The same listener may be subscribed more than once, and is then called once
+        // per subscription
+        final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+
+        // Guarded by this
+        private boolean mRemoved;
+
+        private ScheduledFuture<?> mNext;
+
+        private volatile ObaArrivalInfoResponse mLatest;
+
+        Stop(String stopId) {
+            this.stopId = stopId;
+        }
+
+        /**
+         * @return false if this stop has been removed and the caller should look it up again
+         */
+        synchronized boolean add(Listener listener) {
+            if (mRemoved) {
+                return false;
+            }
+            listeners.add(listener);
+            if (listeners.size() == 1) {
+                schedule(ThreadLocalRandom.current().nextLong((long) (mIntervalNanos * mJitter) + 1));
+            }
+            return true;
+        }
+
+        /**
+         * @return true if this was the stop's last listener
+         */
+        synchronized boolean remove(Listener listener) {
+            if (!listeners.remove(listener) || !listeners.isEmpty()) {
+                return false;
+            }
+            mRemoved = true;
+            if (mNext != null) {
+                mNext.cancel(false);
+            }
+            return true;
+        }
+
+        // Called with the lock held
+        private void schedule(long delayNanos) {
+            try {
+                mNext = mScheduler.schedule(this, delayNanos, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                // The poller has been shut down
+                mNext = null;
+            }
+        }
+
+        // Called on a scheduler thread when the stop is due
+        @Override
+        public void run() {
+            mWaiting.add(this);
+            startWaiting();
+        }
+
+        // Called with a permit, which is released once the request is done
+        void start() {
+            synchronized (this) {
+                if (mRemoved) {
+                    mPermits.release();
+                    return;
+                }
+            }
+            final long started = System.nanoTime();
+            final ListenableFuture<ObaArrivalInfoResponse> future;
+            try {
+                ObaArrivalInfoRequest request = (mMinutesAfter >= 0)
+                        ? new ObaArrivalInfoRequest.Builder(mObaContext, stopId, mMinutesAfter)
+                                .build()
+                        : new ObaArrivalInfoRequest.Builder(mObaContext, stopId).build();
+                future = request.callAsync();
+            } catch (RuntimeException e) {
+                // Try again at the next poll rather than giving up on the stop
+                reschedule(started);
+                mPermits.release();
+                return;
+            }
+            future.addListener(new Runnable() {
+                @Override
+                public void run() {
+                    onComplete(future, started);
+                }
+            }, MoreExecutors.directExecutor());
+        }
+
+        // Called on the request's thread once it's done
+        private void onComplete(ListenableFuture<ObaArrivalInfoResponse> future, long started) {
+            ObaArrivalInfoResponse response = null;
+            try {
+                response = Futures.getUnchecked(future);
+            } catch (RuntimeException e) {
+                // The request failed without a response, e.g. the executor has been shut
+                // down or the connection factory threw
+            }
+            reschedule(started);
+            mPermits.release();
+            startWaiting();
+            if (response == null) {
+                return;
+            }
+            mPolls.incrementAndGet();
+            mLatest = response;
+            for (Listener listener : listeners) {
+                deliver(listener, stopId, response);
+            }
+        }
+
+        private synchronized void reschedule(long started) {
+            if (!mRemoved) {
+                schedule(Math.max(0, started + nextDelay() - System.nanoTime()));
+            }
+        }
+    }
+
+    private final long mIntervalNanos;
+
+    private final double mJitter;
+
+    private final int mMinutesAfter;
+
+    private final ObaContext mObaContext;
+
+    private final ScheduledExecutorService mScheduler;
+
+    private final ConcurrentHashMap<String, Stop> mStops = new ConcurrentHashMap<String, Stop>();
+
+    private final AtomicLong mPolls = new AtomicLong();
+
+    // One per request in progress
+    private final Semaphore mPermits;
+
+    // Stops that are due but waiting for a permit
+    private final ConcurrentLinkedQueue<Stop> mWaiting = new ConcurrentLinkedQueue<Stop>();
+
+    private StopPoller(Builder builder) {
+        mIntervalNanos = builder.mIntervalNanos;
+        mPermits = new Semaphore(builder.mMaxParallelism);
+        mJitter = builder.mJitter;
+        mMinutesAfter = builder.mMinutesAfter;
+        mObaContext = builder.mObaContext;
+        mScheduler = Executors.newScheduledThreadPool(builder.mThreads, new ThreadFactoryBuilder()
+                .setNameFormat("ObaStopPoller-%d")
+                .setDaemon(true)
+                .build());
+    }
+
+    /**
+     * Starts sending the responses for a stop to a listener, polling the stop if it
+     * isn't already.
+     */
+    public void subscribe(String stopId, final Listener listener) {
+        if (stopId == null || listener == null) {
+            throw new NullPointerException();
+        }
+        while (true) {
+            Stop stop = mStops.get(stopId);
+            if (stop == null) {
+                Stop created = new Stop(stopId);
+                stop = mStops.putIfAbsent(stopId, created);
+                if (stop == null) {
+                    stop = created;
+                }
+            }
+            if (stop.add(listener)) {
+                final ObaArrivalInfoResponse latest = stop.mLatest;
+                if (latest != null) {
+                    final String id = stopId;
+                    try {
+                        mScheduler.execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                deliver(listener, id, latest);
+                            }
+                        });
+                    } catch (RejectedExecutionException e) {
+                        // The poller has been shut down
+                    }
+                }
+                return;
+            }
+            // The stop lost its last listener while we were looking it up
+            mStops.remove(stopId, stop);
+        }
+    }
+
+    /**
+     * Stops sending the responses for a stop to a listener.  Once a stop has no
+     * listeners it's no longer polled.
+     */
+    public void unsubscribe(String stopId, Listener listener) {
+        Stop stop = mStops.get(stopId);
+        if (stop != null && stop.remove(listener)) {
+            mStops.remove(stopId, stop);
+        }
+    }
+
+    /**
+     * @return The number of stops being polled
+     */
+    public int getStopCount() {
+        return mStops.size();
+    }
+
+    /**
+     * @return The number of listeners subscribed to a stop
+     */
+    public int getListenerCount(String stopId) {
+        Stop stop = mStops.get(stopId);
+        return (stop != null) ? stop.listeners.size() : 0;
+    }
+
+    /**
+     * @return The number of polls that have been made
+     */
+    public long getPollCount() {
+        return mPolls.get();
+    }
+
+    /**
+     * Stops polling.  A poll that's already in progress may still deliver its response.
+     */
+    public void shutdown() {
+        mScheduler.shutdownNow();
+        mStops.clear();
+        mWaiting.clear();
+    }
+
+    /**
+     * Starts the waiting stops that there are permits for.  A stop that's added after
+     * the queue is seen to be empty is started by its own call to this.
+     */
+    private void startWaiting() {
+        while (!mWaiting.isEmpty() && mPermits.tryAcquire()) {
+            Stop stop = mWaiting.poll();
+            if (stop == null) {
+                mPermits.release();
+            } else {
+                stop.start();
+            }
+        }
+    }
+
+    private long nextDelay() {
+        long jitter = (long) (mIntervalNanos * mJitter);
+        if (jitter == 0) {
+            return mIntervalNanos;
+        }
+        return mIntervalNanos - jitter + ThreadLocalRandom.current().nextLong(2 * jitter + 1);
+    }
+
+    private static void deliver(Listener listener, String stopId,
+            ObaArrivalInfoResponse response) {
+        try {
+            listener.onArrivalInfo(stopId, response);
+        } catch (RuntimeException e) {
+            // Don't let one listener stop the others, or the stop, from being updated
+        }
+    }
+}
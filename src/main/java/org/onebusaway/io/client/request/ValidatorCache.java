@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.request;
+
+import org.onebusaway.io.client.ObaApi;
+import org.onebusaway.io.client.util.UriUtils;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Revalidates responses from REST API methods that rarely change (the regions file,
+ * agencies, routes, shapes, ...) with conditional GETs. The ETag and Last-Modified
+ * headers of a successful response are kept along with the deserialized response, the
+ * next request for the same URI sends them as If-None-Match and If-Modified-Since, and
+ * if the server answers 304 Not Modified the previous (immutable) response is returned
+ * without reading or deserializing a body.
+ *
+ * Enable it by registering an instance on the ObaContext:
+ *
+ * <pre>
+ * ObaApi.getDefaultContext().setValidatorCache(new ValidatorCache());
+ * </pre>
+ *
+ * Responses are keyed on the response class and normalized URI
+ * (see {@link UriUtils#normalizeUri(URI)}), and only responses that came with a
+ * validator are kept. The cache holds at most a fixed number of responses, evicting
+ * the least recently used.
+ */
+public class ValidatorCache {
+
+    /**
+     * The REST API methods revalidated by default
+     */
+    public static final List<String> DEFAULT_ENDPOINTS = Arrays.asList(
+            "regions-v3", "agency", "agencies-with-coverage", "route", "shape",
+            "route-ids-for-agency", "stop-ids-for-agency");
+
+    static final class Entry {
+
+        final Object response;
+
+        final String etag;
+
+        final String lastModified;
+
+        Entry(Object response, String etag, String lastModified) {
+            this.response = response;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+    }
+
+    private final Set<String> mEndpoints;
+
+    private final LinkedHashMap<String, Entry> mCache;
+
+    private final AtomicLong mRevalidations = new AtomicLong();
+
+    private final AtomicLong mNotModified = new AtomicLong();
+
+    /**
+     * Creates a cache for the DEFAULT_ENDPOINTS that holds up to 1000 responses.
+     */
+    public ValidatorCache() {
+        this(DEFAULT_ENDPOINTS, 1000);
+    }
+
+    /**
+     * @param endpoints  The names of the REST API methods to revalidate, e.g. "route"
+     *                   or "regions-v3".
+     * @param maxEntries The maximum number of responses kept.
+     */
+    public ValidatorCache(Collection<String> endpoints, final int maxEntries) {
+        mEndpoints = new HashSet<String>(endpoints);
+        mCache = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ValidatorCache.Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @return The number of conditional requests sent.
+     */
+    public long getRevalidationCount() {
+        return mRevalidations.get();
+    }
+
+    /**
+     * @return The number of requests answered with 304 Not Modified, for which the
+     * previous response was returned.
+     */
+    public long getNotModifiedCount() {
+        return mNotModified.get();
+    }
+
+    /**
+     * @return The number of responses in the cache.
+     */
+    public int size() {
+        synchronized (mCache) {
+            return mCache.size();
+        }
+    }
+
+    /**
+     * Removes all responses from the cache.
+     */
+    public void clear() {
+        synchronized (mCache) {
+            mCache.clear();
+        }
+    }
+
+    boolean handles(URI uri) {
+        return mEndpoints.contains(UriUtils.getEndpoint(uri));
+    }
+
+    /**
+     * @return The previous response for this request, or null if there isn't one.
+     */
+    Entry get(URI uri, Class<?> cls) {
+        Entry entry;
+        synchronized (mCache) {
+            entry = mCache.get(key(uri, cls));
+        }
+        if (entry != null) {
+            mRevalidations.incrementAndGet();
+        }
+        return entry;
+    }
+
+    /**
+     * Records that the server answered a conditional request with 304 Not Modified.
+     */
+    void notModified() {
+        mNotModified.incrementAndGet();
+    }
+
+    /**
+     * Keeps a successful response, if it has a validator.
+     */
+    void put(URI uri, Class<?> cls, Object response, String etag, String lastModified) {
+        if (etag == null && lastModified == null) {
+            return;
+        }
+        if (!(response instanceof ObaResponse)
+                || ((ObaResponse) response).getCode() != ObaApi.OBA_OK) {
+            return;
+        }
+        Entry entry = new Entry(response, etag, lastModified);
+        synchronized (mCache) {
+            mCache.put(key(uri, cls), entry);
+        }
+    }
+
+    private static String key(URI uri, Class<?> cls) {
+        return cls.getName() + " " + UriUtils.normalizeUri(uri);
+    }
+}
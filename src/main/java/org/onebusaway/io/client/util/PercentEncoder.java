@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.util;
+
+/**
+ * Percent-encodes strings for REST API URIs with a lookup table, rather than with
+ * URLEncoder and a regex.  The same characters as URLEncoder are left as they are
+ * (letters, digits and "-._*", along with "~"), and the rest are encoded as UTF-8.
+ * Path segments encode spaces as "%20", query components as "+".
+ */
+public final class PercentEncoder {
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private static final boolean[] UNENCODED = new boolean[128];
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) {
+            UNENCODED[c] = true;
+        }
+        for (char c = 'A'; c <= 'Z'; c++) {
+            UNENCODED[c] = true;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            UNENCODED[c] = true;
+        }
+        for (char c : "-._*~".toCharArray()) {
+            UNENCODED[c] = true;
+        }
+    }
+
+    private PercentEncoder() {
+        throw new AssertionError();
+    }
+
+    /**
+     * @return The string encoded as a single path segment, so that "/" is encoded too.
+     * The same string is returned if nothing needs encoding.
+     */
+    public static String encodePathSegment(String s) {
+        int i = firstEncoded(s);
+        if (i == s.length()) {
+            return s;
+        }
+        StringBuilder builder = new StringBuilder(s.length() + 16);
+        builder.append(s, 0, i);
+        encode(s, i, false, builder);
+        return builder.toString();
+    }
+
+    /**
+     * @return The string encoded as a query parameter name or value.  The same string is
+     * returned if nothing needs encoding.
+     */
+    public static String encodeQueryComponent(String s) {
+        int i = firstEncoded(s);
+        if (i == s.length()) {
+            return s;
+        }
+        StringBuilder builder = new StringBuilder(s.length() + 16);
+        builder.append(s, 0, i);
+        encode(s, i, true, builder);
+        return builder.toString();
+    }
+
+    /**
+     * Appends the string encoded as a query parameter name or value.
+     */
+    public static void appendQueryComponent(String s, StringBuilder builder) {
+        encode(s, 0, true, builder);
+    }
+
+    private static int firstEncoded(String s) {
+        int length = s.length();
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c >= 128 || !UNENCODED[c]) {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    private static void encode(String s, int start, boolean query, StringBuilder builder) {
+        int length = s.length();
+        for (int i = start; i < length; i++) {
+            char c = s.charAt(i);
+            if (c < 128) {
+                if (UNENCODED[c]) {
+                    builder.append(c);
+                } else if (c == ' ' && query) {
+                    builder.append('+');
+                } else {
+                    appendByte(c, builder);
+                }
+            } else if (c < 0x800) {
+                appendByte(0xC0 | (c >> 6), builder);
+                appendByte(0x80 | (c & 0x3F), builder);
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, s.charAt(++i));
+                appendByte(0xF0 | (codePoint >> 18), builder);
+                appendByte(0x80 | ((codePoint >> 12) & 0x3F), builder);
+                appendByte(0x80 | ((codePoint >> 6) & 0x3F), builder);
+                appendByte(0x80 | (codePoint & 0x3F), builder);
+            } else if (Character.isSurrogate(c)) {
+                // An unpaired surrogate can't be encoded, so it's replaced like URLEncoder does
+                appendByte('?', builder);
+            } else {
+                appendByte(0xE0 | (c >> 12), builder);
+                appendByte(0x80 | ((c >> 6) & 0x3F), builder);
+                appendByte(0x80 | (c & 0x3F), builder);
+            }
+        }
+    }
+
+    private static void appendByte(int b, StringBuilder builder) {
+        builder.append('%').append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.util;
+
+/**
+ * Collects the query parameters of a request, already percent-encoded, for a
+ * UriTemplate to add to the request's URI, or to be sent as form data.
+ */
+public final class QueryBuilder {
+
+    private final StringBuilder mQuery = new StringBuilder(64);
+
+    /**
+     * Adds a query parameter for each value, in the order they're added.
+     *
+     * @param name   The parameter name
+     * @param values The values, which are converted with String.valueOf()
+     * @return This builder
+     * @throws IllegalArgumentException if name or any of the values is null
+     */
+    public QueryBuilder queryParam(String name, Object... values) {
+        if (name == null || values == null) {
+            throw new IllegalArgumentException("name and values must not be null");
+        }
+        for (Object value : values) {
+            if (value == null) {
+                throw new IllegalArgumentException("value for " + name + " must not be null");
+            }
+            if (mQuery.length() > 0) {
+                mQuery.append('&');
+            }
+            PercentEncoder.appendQueryComponent(name, mQuery);
+            mQuery.append('=');
+            PercentEncoder.appendQueryComponent(String.valueOf(value), mQuery);
+        }
+        return this;
+    }
+
+    /**
+     * @return The length of the encoded query
+     */
+    public int length() {
+        return mQuery.length();
+    }
+
+    void appendTo(StringBuilder builder) {
+        builder.append(mQuery);
+    }
+
+    /**
+     * @return The encoded query, e.g. "lat=47.6&lon=-122.3&query=a+b"
+     */
+    @Override
+    public String toString() {
+        return mQuery.toString();
+    }
+}
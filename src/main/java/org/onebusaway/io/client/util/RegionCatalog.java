@@ -0,0 +1,424 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.util;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import org.onebusaway.io.client.ObaApi;
+import org.onebusaway.io.client.elements.ObaRegion;
+import org.onebusaway.io.client.request.ObaRegionsRequest;
+import org.onebusaway.io.client.request.ObaRegionsResponse;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps the list of regions up to date in the background, so it can be read at any time
+ * without waiting on the server or on other readers:
+ *
+ * <pre>
+ * RegionCatalog catalog = new RegionCatalog.Builder()
+ *         .setFile(new File(dataDir, "regions.json"))
+ *         .build();
+ * ObaRegion region = catalog.getSnapshot().getResolver()
+ *         .getClosestRegion(location, true, true);
+ * </pre>
+ *
+ * Readers get an immutable Snapshot of the regions, which is replaced as a whole when a
+ * refresh succeeds.  The catalog starts with the snapshot last saved to its file, if there
+ * is one, so it doesn't have to wait for the server; the regions file bundled with the
+ * library is only used when there's no saved snapshot yet.  The regions are then reloaded
+ * from the server on a schedule, straight away if the saved snapshot is already older than
+ * the refresh interval.  A failed refresh keeps the current snapshot and is retried sooner.
+ */
+public final class RegionCatalog {
+
+    private static final String RESOURCE = "regions_v3.json";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Where the regions in a snapshot came from
+     */
+    public enum Source {
+        /**
+         * The regions file bundled with the library
+         */
+        RESOURCES,
+        /**
+         * The snapshot saved by an earlier refresh
+         */
+        FILE,
+        /**
+         * The regions server
+         */
+        SERVER
+    }
+
+    /**
+     * An immutable list of regions, along with a RegionResolver for them.
+     */
+    public static final class Snapshot {
+
+        private final List<ObaRegion> mRegions;
+
+        private final RegionResolver mResolver;
+
+        private final Source mSource;
+
+        private final long mTime;
+
+        Snapshot(ObaRegion[] regions, Source source, long time) {
+            mRegions = Collections.unmodifiableList(Arrays.asList(regions.clone()));
+            mResolver = new RegionResolver(mRegions);
+            mSource = source;
+            mTime = time;
+        }
+
+        public List<ObaRegion> getRegions() {
+            return mRegions;
+        }
+
+        /**
+         * @return A resolver for the closest or containing region among these regions
+         */
+        public RegionResolver getResolver() {
+            return mResolver;
+        }
+
+        public Source getSource() {
+            return mSource;
+        }
+
+        /**
+         * @return When the regions were retrieved from the server, in milliseconds since
+         * the epoch, or 0 for the bundled regions file
+         */
+        public long getTime() {
+            return mTime;
+        }
+    }
+
+    /**
+     * Is told about each new snapshot.  It's called on the thread that made the refresh,
+     * so it should hand off anything slow.
+     */
+    public interface Listener {
+
+        void onRegionsChanged(Snapshot snapshot);
+    }
+
+    public static class Builder {
+
+        private File mFile;
+
+        private URI mUri;
+
+        private long mRefreshMillis = TimeUnit.DAYS.toMillis(7);
+
+        private long mRetryMillis = TimeUnit.MINUTES.toMillis(15);
+
+        /**
+         * Sets the file that each refreshed snapshot is saved to, and that the catalog
+         * starts from.  If the file is missing or can't be read, the catalog starts from
+         * the bundled regions instead.  The default is null, for nothing to be saved.
+         */
+        public Builder setFile(File file) {
+            mFile = file;
+            return this;
+        }
+
+        /**
+         * Sets the URI the regions are retrieved from.  The default is null, for the
+         * ObaRegionsRequest default.
+         */
+        public Builder setUri(URI uri) {
+            mUri = uri;
+            return this;
+        }
+
+        /**
+         * Sets how long a snapshot from the server is used before it's refreshed.
+         * The default is 7 days.
+         */
+        public Builder setRefreshInterval(long interval, TimeUnit unit) {
+            if (interval <= 0) {
+                throw new IllegalArgumentException("interval must be positive");
+            }
+            mRefreshMillis = unit.toMillis(interval);
+            return this;
+        }
+
+        /**
+         * Sets how long to wait after a failed refresh before trying again.
+         * The default is 15 minutes.
+         */
+        public Builder setRetryInterval(long interval, TimeUnit unit) {
+            if (interval <= 0) {
+                throw new IllegalArgumentException("interval must be positive");
+            }
+            mRetryMillis = unit.toMillis(interval);
+            return this;
+        }
+
+        /**
+         * Loads the starting snapshot from the file or the bundled regions, and
+         * schedules the first refresh.
+         */
+        public RegionCatalog build() {
+            return new RegionCatalog(this);
+        }
+    }
+
+    private final File mFile;
+
+    private final URI mUri;
+
+    private final long mRefreshMillis;
+
+    private final long mRetryMillis;
+
+    private final ScheduledExecutorService mScheduler;
+
+    private final CopyOnWriteArrayList<Listener> mListeners =
+            new CopyOnWriteArrayList<Listener>();
+
+    // Refreshes, and writes to the file, are made one at a time; reads never take it
+    private final ReentrantLock mRefreshLock = new ReentrantLock();
+
+    private final AtomicLong mRefreshes = new AtomicLong();
+
+    private final AtomicLong mFailures = new AtomicLong();
+
+    private volatile Snapshot mSnapshot;
+
+    private RegionCatalog(Builder builder) {
+        mFile = builder.mFile;
+        mUri = builder.mUri;
+        mRefreshMillis = builder.mRefreshMillis;
+        mRetryMillis = builder.mRetryMillis;
+        mScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("ObaRegionCatalog-%d")
+                .setDaemon(true)
+                .build());
+
+        Snapshot snapshot = (mFile != null) ? loadFromFile(mFile) : null;
+        if (snapshot == null) {
+            snapshot = loadFromResources();
+        }
+        mSnapshot = snapshot;
+
+        long delay = 0;
+        if (snapshot.getSource() != Source.RESOURCES) {
+            delay = Math.max(0,
+                    snapshot.getTime() + mRefreshMillis - System.currentTimeMillis());
+        }
+        schedule(delay);
+    }
+
+    /**
+     * @return The current regions.  This never blocks.
+     */
+    public Snapshot getSnapshot() {
+        return mSnapshot;
+    }
+
+    /**
+     * Reloads the regions from the server now, on the calling thread.  If the server
+     * doesn't return any regions, the current snapshot is kept.
+     *
+     * @return true if the regions were reloaded
+     */
+    public boolean refresh() {
+        mRefreshLock.lock();
+        try {
+            ObaRegionsResponse response = (mUri != null)
+                    ? ObaRegionsRequest.newRequest(mUri).call()
+                    : ObaRegionsRequest.newRequest().call();
+            if (!isUsable(response)) {
+                mFailures.incrementAndGet();
+                return false;
+            }
+            Snapshot snapshot = new Snapshot(response.getRegions(), Source.SERVER,
+                    System.currentTimeMillis());
+            if (mFile != null) {
+                save(mFile, response);
+            }
+            mSnapshot = snapshot;
+            mRefreshes.incrementAndGet();
+            for (Listener listener : mListeners) {
+                try {
+                    listener.onRegionsChanged(snapshot);
+                } catch (RuntimeException e) {
+                    // Don't let one listener stop the others from being told
+                }
+            }
+            return true;
+        } finally {
+            mRefreshLock.unlock();
+        }
+    }
+
+    public void addListener(Listener listener) {
+        if (listener == null) {
+            throw new NullPointerException();
+        }
+        mListeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        mListeners.remove(listener);
+    }
+
+    /**
+     * @return The number of refreshes that have replaced the snapshot
+     */
+    public long getRefreshCount() {
+        return mRefreshes.get();
+    }
+
+    /**
+     * @return The number of refreshes that have kept the snapshot because the server
+     * didn't return any regions
+     */
+    public long getFailureCount() {
+        return mFailures.get();
+    }
+
+    /**
+     * Stops refreshing in the background.  The current snapshot can still be read.
+     */
+    public void shutdown() {
+        mScheduler.shutdownNow();
+    }
+
+    private void schedule(long delayMillis) {
+        try {
+            mScheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    boolean refreshed;
+                    try {
+                        refreshed = refresh();
+                    } catch (RuntimeException e) {
+                        mFailures.incrementAndGet();
+                        refreshed = false;
+                    }
+                    schedule(refreshed ? mRefreshMillis : mRetryMillis);
+                }
+            }, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // The catalog has been shut down
+        }
+    }
+
+    private static boolean isUsable(ObaRegionsResponse response) {
+        return response != null && response.getCode() == ObaApi.OBA_OK
+                && response.getRegions().length > 0;
+    }
+
+    private static Snapshot loadFromFile(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            InputStream in = new FileInputStream(file);
+            try {
+                ObaRegionsResponse response = ObaApi.getSerializer(ObaRegionsResponse.class)
+                        .deserialize(in, ObaRegionsResponse.class);
+                if (!isUsable(response)) {
+                    // Start from the bundled regions, which shows in the snapshot's source
+                    return null;
+                }
+                return new Snapshot(response.getRegions(), Source.FILE, file.lastModified());
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            // As above, the bundled regions are used instead
+            return null;
+        }
+    }
+
+    private static Snapshot loadFromResources() {
+        InputStream in = RegionCatalog.class.getClassLoader().getResourceAsStream(RESOURCE);
+        if (in == null) {
+            throw new IllegalStateException("Missing " + RESOURCE);
+        }
+        try {
+            ObaRegionsResponse response = ObaApi.getSerializer(ObaRegionsResponse.class)
+                    .deserialize(in, ObaRegionsResponse.class);
+            if (!isUsable(response)) {
+                throw new IllegalStateException("No regions in " + RESOURCE);
+            }
+            return new Snapshot(response.getRegions(), Source.RESOURCES, 0);
+        } finally {
+            try {
+                in.close();
+            } catch (IOException e) {
+                // Nothing left to read
+            }
+        }
+    }
+
+    /**
+     * Writes the response next to the file and then moves it into place, so a crash
+     * part way through can't leave a truncated snapshot behind.
+     */
+    private static void save(File file, ObaRegionsResponse response) {
+        String json = ObaApi.getSerializer(ObaRegionsResponse.class).serialize(response);
+        if (json == null) {
+            return;
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        try {
+            OutputStream out = new FileOutputStream(temp);
+            try {
+                out.write(json.getBytes(UTF_8));
+            } finally {
+                out.close();
+            }
+            try {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            // The new snapshot is still used, it just won't be there on the next start
+            temp.delete();
+        }
+    }
+}
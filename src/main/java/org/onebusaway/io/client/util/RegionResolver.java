@@ -0,0 +1,389 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.util;
+
+import org.onebusaway.io.client.elements.ObaRegion;
+import org.onebusaway.location.Location;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Answers "which region is closest to / contains this location" for a fixed list of
+ * regions, without the linear scan of RegionUtils.getClosestRegion().  It's built once
+ * from the region list (e.g., each time the list is reloaded) and is immutable, so it can
+ * be shared between threads; queries don't allocate.
+ *
+ * The results are the same as the RegionUtils methods: the closest region is the one with
+ * the closest bounds center by Location.distanceBetween(), the first in the list winning
+ * a tie, subject to isRegionUsable() and the DISTANCE_LIMITER threshold when asked for.
+ * The bounds centers are held in a kd-tree of unit vectors, and only the few centers that
+ * could be the closest on the ellipsoid are measured with Location.distanceBetween().
+ * Containment uses the getRegionSpan() box of each region, computed up front.
+ */
+public final class RegionResolver {
+
+    // On the WGS84 ellipsoid, the distance between two points is within about 1% either
+    // way of their angle on the sphere times the mean radius.  Every center up to this
+    // factor further than the nearest on the sphere may be the nearest on the ellipsoid.
+    private static final double SEARCH_MARGIN = 1.02;
+
+    private static final int X = 0;
+
+    private static final int Y = 1;
+
+    private static final int Z = 2;
+
+    /**
+     * A kd-tree of bounds centers, stored as a balanced implicit tree: the node for the
+     * range [lo, hi) is at its middle, with the left subtree before it and the right after.
+     */
+    private static final class Tree {
+
+        final double[] x;
+
+        final double[] y;
+
+        final double[] z;
+
+        final double[] lat;
+
+        final double[] lon;
+
+        // The index of each center's region in mRegions
+        final int[] region;
+
+        final byte[] axis;
+
+        Tree(List<ObaRegion> regions, boolean usableOnly) {
+            List<double[]> centers = new ArrayList<double[]>();
+            for (int i = 0; i < regions.size(); i++) {
+                ObaRegion r = regions.get(i);
+                if (usableOnly && RegionUtils.getUnusableReason(r) != null) {
+                    continue;
+                }
+                ObaRegion.Bounds[] bounds = r.getBounds();
+                if (bounds == null) {
+                    continue;
+                }
+                for (ObaRegion.Bounds bound : bounds) {
+                    centers.add(toPoint(bound.getLat(), bound.getLon(), i));
+                }
+            }
+            int n = centers.size();
+            x = new double[n];
+            y = new double[n];
+            z = new double[n];
+            lat = new double[n];
+            lon = new double[n];
+            region = new int[n];
+            axis = new byte[n];
+            double[][] points = centers.toArray(new double[n][]);
+            build(points, 0, n);
+            for (int i = 0; i < n; i++) {
+                double[] p = points[i];
+                x[i] = p[X];
+                y[i] = p[Y];
+                z[i] = p[Z];
+                lat[i] = p[3];
+                lon[i] = p[4];
+                region[i] = (int) p[5];
+            }
+        }
+
+        private static double[] toPoint(double lat, double lon, int region) {
+            double phi = Math.toRadians(lat);
+            double lambda = Math.toRadians(lon);
+            double cosPhi = Math.cos(phi);
+            return new double[]{cosPhi * Math.cos(lambda), cosPhi * Math.sin(lambda),
+                    Math.sin(phi), lat, lon, region};
+        }
+
+        private void build(double[][] points, int lo, int hi) {
+            if (hi - lo < 1) {
+                return;
+            }
+            // Split on the axis the centers are most spread along
+            int split = X;
+            double widest = -1;
+            for (int a = X; a <= Z; a++) {
+                double min = Double.MAX_VALUE;
+                double max = -Double.MAX_VALUE;
+                for (int i = lo; i < hi; i++) {
+                    min = Math.min(min, points[i][a]);
+                    max = Math.max(max, points[i][a]);
+                }
+                if (max - min > widest) {
+                    widest = max - min;
+                    split = a;
+                }
+            }
+            final int a = split;
+            Arrays.sort(points, lo, hi, new Comparator<double[]>() {
+                @Override
+                public int compare(double[] p1, double[] p2) {
+                    return Double.compare(p1[a], p2[a]);
+                }
+            });
+            int mid = (lo + hi) >>> 1;
+            axis[mid] = (byte) a;
+            build(points, lo, mid);
+            build(points, mid + 1, hi);
+        }
+
+        int size() {
+            return x.length;
+        }
+
+        private double coordinate(int i, int a) {
+            return (a == X) ? x[i] : (a == Y) ? y[i] : z[i];
+        }
+
+        /**
+         * @return The smallest squared chord length from the query to a center, or best
+         * if none is smaller
+         */
+        double nearest(int lo, int hi, double qx, double qy, double qz, double best) {
+            if (lo >= hi) {
+                return best;
+            }
+            int mid = (lo + hi) >>> 1;
+            double dx = x[mid] - qx;
+            double dy = y[mid] - qy;
+            double dz = z[mid] - qz;
+            double d = dx * dx + dy * dy + dz * dz;
+            if (d < best) {
+                best = d;
+            }
+            int a = axis[mid];
+            double diff = coordinate(mid, a) - ((a == X) ? qx : (a == Y) ? qy : qz);
+            if (diff > 0) {
+                best = nearest(lo, mid, qx, qy, qz, best);
+                if (diff * diff < best) {
+                    best = nearest(mid + 1, hi, qx, qy, qz, best);
+                }
+            } else {
+                best = nearest(mid + 1, hi, qx, qy, qz, best);
+                if (diff * diff < best) {
+                    best = nearest(lo, mid, qx, qy, qz, best);
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Measures the ellipsoidal distance to each center within the given squared
+         * chord length of the query.
+         *
+         * @return The smallest of best and the distances found, packed by pack()
+         */
+        long closest(int lo, int hi, double qx, double qy, double qz, double radius2,
+                double qLat, double qLon, long best) {
+            if (lo >= hi) {
+                return best;
+            }
+            int mid = (lo + hi) >>> 1;
+            double dx = x[mid] - qx;
+            double dy = y[mid] - qy;
+            double dz = z[mid] - qz;
+            if (dx * dx + dy * dy + dz * dz <= radius2) {
+                float distance = Location.distanceBetween(qLat, qLon, lat[mid], lon[mid]);
+                // Like getClosestRegion(), never choose a region at MAX_VALUE or NaN
+                if (distance < Float.MAX_VALUE) {
+                    long packed = pack(distance, region[mid]);
+                    if (packed < best) {
+                        best = packed;
+                    }
+                }
+            }
+            int a = axis[mid];
+            double diff = coordinate(mid, a) - ((a == X) ? qx : (a == Y) ? qy : qz);
+            boolean searchFar = diff * diff <= radius2;
+            if (diff > 0) {
+                best = closest(lo, mid, qx, qy, qz, radius2, qLat, qLon, best);
+                if (searchFar) {
+                    best = closest(mid + 1, hi, qx, qy, qz, radius2, qLat, qLon, best);
+                }
+            } else {
+                best = closest(mid + 1, hi, qx, qy, qz, radius2, qLat, qLon, best);
+                if (searchFar) {
+                    best = closest(lo, mid, qx, qy, qz, radius2, qLat, qLon, best);
+                }
+            }
+            return best;
+        }
+    }
+
+    private final List<ObaRegion> mRegions;
+
+    private final IdentityHashMap<ObaRegion, Integer> mIndexes;
+
+    private final boolean[] mUsable;
+
+    // The getRegionSpan() box of each region, as minLat, maxLat, minLon, maxLon
+    private final double[] mSpans;
+
+    private final Tree mAll;
+
+    private final Tree mUsableOnly;
+
+    /**
+     * @param regions The regions, in order of preference when two are equally close
+     */
+    public RegionResolver(Collection<ObaRegion> regions) {
+        mRegions = Collections.unmodifiableList(new ArrayList<ObaRegion>(regions));
+        int n = mRegions.size();
+        mIndexes = new IdentityHashMap<ObaRegion, Integer>(n);
+        mUsable = new boolean[n];
+        mSpans = new double[n * 4];
+        double[] span = new double[4];
+        for (int i = 0; i < n; i++) {
+            ObaRegion region = mRegions.get(i);
+            if (!mIndexes.containsKey(region)) {
+                mIndexes.put(region, i);
+            }
+            mUsable[i] = RegionUtils.getUnusableReason(region) == null;
+            if (region.getBounds() != null) {
+                RegionUtils.getRegionSpan(region, span);
+                mSpans[i * 4] = span[2] - (span[0] / 2);
+                mSpans[i * 4 + 1] = span[2] + (span[0] / 2);
+                mSpans[i * 4 + 2] = span[3] - (span[1] / 2);
+                mSpans[i * 4 + 3] = span[3] + (span[1] / 2);
+            } else {
+                // Contains nothing
+                Arrays.fill(mSpans, i * 4, i * 4 + 4, Double.NaN);
+            }
+        }
+        mAll = new Tree(mRegions, false);
+        mUsableOnly = new Tree(mRegions, true);
+    }
+
+    /**
+     * @return The regions this resolver was built from
+     */
+    public List<ObaRegion> getRegions() {
+        return mRegions;
+    }
+
+    /**
+     * The equivalent of RegionUtils.getClosestRegion()
+     *
+     * @param enforceThreshold true if no region should be returned when the closest is
+     *                         further than DISTANCE_LIMITER
+     * @param enforceUsability true if only regions that pass isRegionUsable() should be
+     *                         considered
+     * @return the closest region to the location, or null if there isn't one or
+     * enforceThreshold is true and it's too far away
+     */
+    public ObaRegion getClosestRegion(Location loc, boolean enforceThreshold,
+            boolean enforceUsability) {
+        if (loc == null) {
+            return null;
+        }
+        return getClosestRegion(loc.getLatitude(), loc.getLongitude(), enforceThreshold,
+                enforceUsability);
+    }
+
+    /**
+     * @see #getClosestRegion(Location, boolean, boolean)
+     */
+    public ObaRegion getClosestRegion(double lat, double lon, boolean enforceThreshold,
+            boolean enforceUsability) {
+        Tree tree = enforceUsability ? mUsableOnly : mAll;
+        int n = tree.size();
+        if (n == 0) {
+            return null;
+        }
+        double phi = Math.toRadians(lat);
+        double lambda = Math.toRadians(lon);
+        double cosPhi = Math.cos(phi);
+        double qx = cosPhi * Math.cos(lambda);
+        double qy = cosPhi * Math.sin(lambda);
+        double qz = Math.sin(phi);
+
+        // The nearest center on the sphere bounds how far the nearest on the ellipsoid can be
+        double chord = Math.sqrt(tree.nearest(0, n, qx, qy, qz, Double.MAX_VALUE));
+        double angle = 2 * Math.asin(Math.min(1, chord / 2)) * SEARCH_MARGIN + 1e-9;
+        double radius = 2 * Math.sin(Math.min(Math.PI, angle) / 2);
+        long best = tree.closest(0, n, qx, qy, qz, radius * radius + 1e-12, lat, lon,
+                Long.MAX_VALUE);
+        if (best == Long.MAX_VALUE) {
+            return null;
+        }
+        float minDist = Float.intBitsToFloat((int) (best >>> 32));
+        if (enforceThreshold && !(minDist * RegionUtils.METERS_TO_MILES
+                < RegionUtils.DISTANCE_LIMITER)) {
+            return null;
+        }
+        return mRegions.get((int) best);
+    }
+
+    /**
+     * The equivalent of RegionUtils.isLocationWithinRegion(), using the span computed when
+     * this resolver was built.  A region that isn't one of this resolver's is measured
+     * on the spot.
+     */
+    public boolean isLocationWithinRegion(double lat, double lon, ObaRegion region) {
+        checkLocation(lat, lon);
+        Integer index = mIndexes.get(region);
+        if (index == null) {
+            return RegionUtils.isLocationWithinRegion(LocationUtil.makeLocation(lat, lon),
+                    region);
+        }
+        return spanContains(index, lat, lon);
+    }
+
+    /**
+     * @param enforceUsability true if only regions that pass isRegionUsable() should be
+     *                         considered
+     * @return The first region whose span contains the location, or null if none do
+     */
+    public ObaRegion getRegionContaining(double lat, double lon, boolean enforceUsability) {
+        checkLocation(lat, lon);
+        for (int i = 0; i < mUsable.length; i++) {
+            if ((!enforceUsability || mUsable[i]) && spanContains(i, lat, lon)) {
+                return mRegions.get(i);
+            }
+        }
+        return null;
+    }
+
+    private boolean spanContains(int i, double lat, double lon) {
+        int s = i * 4;
+        return mSpans[s] <= lat && lat <= mSpans[s + 1]
+                && mSpans[s + 2] <= lon && lon <= mSpans[s + 3];
+    }
+
+    private static void checkLocation(double lat, double lon) {
+        if (lon > 180.0 || lon < -180.0 || lat > 90 || lat < -90) {
+            throw new IllegalArgumentException("Location must be a valid location");
+        }
+    }
+
+    /**
+     * Packs a distance and region index so that comparing the packed values orders them
+     * by distance, then by index.  Distances are never negative, so their bits sort in
+     * the same order as their values.
+     */
+    private static long pack(float distance, int region) {
+        return ((long) Float.floatToIntBits(distance) << 32) | region;
+    }
+}
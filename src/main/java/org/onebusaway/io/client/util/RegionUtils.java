@@ -28,13 +28,19 @@ import java.net.URL;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class RegionUtils {
 
     private static final String TAG = "RegionUtils";
 
     public static final double METERS_TO_MILES = 0.000621371;
-    private static final int DISTANCE_LIMITER = 100;  // miles
+    static final int DISTANCE_LIMITER = 100;  // miles
+
+    // Serializes loading and saving the regions.  This is a lock rather than synchronized
+    // because the server request blocks on the network, and a virtual thread blocking
+    // inside synchronized pins its carrier thread.
+    private static final ReentrantLock sRegionsLock = new ReentrantLock();
 
     /**
      * Get the closest region from a list of regions and a given location
@@ -242,24 +248,31 @@ public class RegionUtils {
      * @return true if the region is usable by this application, false if it is not
      */
     public static boolean isRegionUsable(ObaRegion region) {
-        if (!region.getActive()) {
-        	System.out.println("Region '" + region.getName() + "' is not active.");
+        String reason = getUnusableReason(region);
+        if (reason != null) {
+            System.out.println("Region '" + region.getName() + "' " + reason);
             return false;
         }
+        return true;
+    }
+
+    /**
+     * @return why isRegionUsable() would reject the region, or null if it's usable
+     */
+    static String getUnusableReason(ObaRegion region) {
+        if (!region.getActive()) {
+            return "is not active.";
+        }
         if (!region.getSupportsObaDiscoveryApis()) {
-        	System.out.println("Region '" + region.getName() + "' does not support OBA Discovery APIs.");
-            return false;
+            return "does not support OBA Discovery APIs.";
         }
         if (!region.getSupportsObaRealtimeApis()) {
-        	System.out.println("Region '" + region.getName() + "' does not support OBA Realtime APIs.");
-            return false;
+            return "does not support OBA Realtime APIs.";
         }
         if (region.getObaBaseUrl() == null) {
-            System.out.println("Region '" + region.getName() + "' does not have a valid ObaBaseUrl.");
-            return false;
+            return "does not have a valid ObaBaseUrl.";
         }
-
-        return true;
+        return null;
     }
 
     /**
@@ -268,11 +281,23 @@ public class RegionUtils {
      * with the APK.  Includes fail-over logic to prefer sources in above order, with server being
      * the first preference.
      *
+     * Callers wait for each other while the regions are loaded; a RegionCatalog keeps them
+     * up to date in the background instead.
+     *
      * @param forceReload true if a reload from the server should be forced, false if it should not
      * @return a list of regions from either the server, the local provider, or the packaged
      * resource file
      */
-    public synchronized static ArrayList<ObaRegion> getRegions(boolean forceReload) {
+    public static ArrayList<ObaRegion> getRegions(boolean forceReload) {
+        sRegionsLock.lock();
+        try {
+            return loadRegions(forceReload);
+        } finally {
+            sRegionsLock.unlock();
+        }
+    }
+
+    private static ArrayList<ObaRegion> loadRegions(boolean forceReload) {
         ArrayList<ObaRegion> results = null;
         if (!forceReload) {
             //
@@ -448,7 +473,7 @@ public class RegionUtils {
     	return null;
     }
 
-    private synchronized static ArrayList<ObaRegion> getRegionsFromServer() {
+    private static ArrayList<ObaRegion> getRegionsFromServer() {
         ObaRegionsResponse response = ObaRegionsRequest.newRequest().call();
         return new ArrayList<ObaRegion>(Arrays.asList(response.getRegions()));
     }
@@ -526,7 +551,16 @@ public class RegionUtils {
     //
     // Saving
     //
-    public synchronized static void saveToProvider(List<ObaRegion> regions) {
+    public static void saveToProvider(List<ObaRegion> regions) {
+        sRegionsLock.lock();
+        try {
+            writeToProvider(regions);
+        } finally {
+            sRegionsLock.unlock();
+        }
+    }
+
+    private static void writeToProvider(List<ObaRegion> regions) {
         // Delete all the existing regions
 //        ContentResolver cr = context.getContentResolver();
 //        cr.delete(ObaContract.Regions.CONTENT_URI, null, null);
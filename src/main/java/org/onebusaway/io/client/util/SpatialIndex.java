@@ -0,0 +1,569 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.util;
+
+import org.apache.commons.lang3.StringUtils;
+import org.onebusaway.io.client.elements.ObaStop;
+import org.onebusaway.io.client.elements.ObaTripStatus;
+import org.onebusaway.location.Location;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An in-memory spatial index of stops, vehicles, or anything else with a position, for
+ * answering "nearest N" and "within this box/radius" queries without scanning every item.
+ *
+ * Items are bucketed into a grid of square latitude/longitude cells (similar to geohash
+ * cells), keyed by ID, so the index can be kept current by calling put() with each new
+ * response - an item that was already indexed is moved to its new position.  Distances are
+ * computed with the equirectangular approximation, which at the scale of a transit region
+ * is within a fraction of a percent of the ellipsoidal distance from
+ * Location.distanceBetween(), and much cheaper.  Queries don't wrap across the
+ * antimeridian.
+ *
+ * For example, to aggregate the results of stops-for-location requests:
+ *
+ * <pre>
+ * SpatialIndex&lt;ObaStop&gt; stops = SpatialIndex.forStops(500);
+ * stops.putAll(response.getStops());
+ * List&lt;ObaStop&gt; nearest = stops.nearest(lat, lon, 10);
+ * </pre>
+ *
+ * This class is thread-safe.
+ */
+public final class SpatialIndex<T> {
+
+    /**
+     * Gets the ID and position of an indexed item.
+     */
+    public interface Locator<T> {
+
+        /**
+         * @return The ID of the item. An item with the same ID replaces the old one.
+         */
+        String getId(T item);
+
+        /**
+         * Stores the latitude and longitude of the item in result[0] and result[1].
+         *
+         * @return true if the item has a position, false if it shouldn't be indexed.
+         */
+        boolean getPosition(T item, double[] result);
+    }
+
+    /**
+     * Locates stops by their ID and position.
+     */
+    public static final Locator<ObaStop> STOPS = new Locator<ObaStop>() {
+        @Override
+        public String getId(ObaStop stop) {
+            return stop.getId();
+        }
+
+        @Override
+        public boolean getPosition(ObaStop stop, double[] result) {
+            result[0] = stop.getLatitude();
+            result[1] = stop.getLongitude();
+            return true;
+        }
+    };
+
+    /**
+     * Locates vehicles by their vehicle ID (or active trip ID, for trips without a vehicle)
+     * and current position.
+     */
+    public static final Locator<ObaTripStatus> TRIP_STATUSES = new Locator<ObaTripStatus>() {
+        @Override
+        public String getId(ObaTripStatus status) {
+            String vehicleId = status.getVehicleId();
+            return !StringUtils.isEmpty(vehicleId) ? vehicleId : status.getActiveTripId();
+        }
+
+        @Override
+        public boolean getPosition(ObaTripStatus status, double[] result) {
+            Location position = status.getPosition();
+            if (position == null) {
+                return false;
+            }
+            result[0] = position.getLatitude();
+            result[1] = position.getLongitude();
+            return true;
+        }
+    };
+
+    // Mean radius of the earth, in meters
+    private static final double EARTH_RADIUS = 6371008.8;
+
+    private static final double METERS_PER_DEGREE = EARTH_RADIUS * Math.PI / 180;
+
+    private static final class Entry<T> {
+
+        final String id;
+
+        T value;
+
+        double lat;
+
+        double lon;
+
+        long updated;
+
+        Cell<T> cell;
+
+        // Position in cell.entries, for constant-time removal
+        int slot;
+
+        Entry(String id) {
+            this.id = id;
+        }
+    }
+
+    private static final class Cell<T> {
+
+        final long key;
+
+        final ArrayList<Entry<T>> entries = new ArrayList<Entry<T>>(4);
+
+        Cell(long key) {
+            this.key = key;
+        }
+    }
+
+    private static final class Candidate<T> {
+
+        final T value;
+
+        final double distance;
+
+        Candidate(T value, double distance) {
+            this.value = value;
+            this.distance = distance;
+        }
+    }
+
+    private static final Comparator<Candidate<?>> NEAREST_FIRST = new Comparator<Candidate<?>>() {
+        @Override
+        public int compare(Candidate<?> a, Candidate<?> b) {
+            return Double.compare(a.distance, b.distance);
+        }
+    };
+
+    private static final Comparator<Candidate<?>> FARTHEST_FIRST =
+            Collections.reverseOrder(NEAREST_FIRST);
+
+    private final Locator<T> mLocator;
+
+    private final double mCellDegrees;
+
+    private final HashMap<String, Entry<T>> mEntries = new HashMap<String, Entry<T>>();
+
+    private final HashMap<Long, Cell<T>> mCells = new HashMap<Long, Cell<T>>();
+
+    private final ReadWriteLock mLock = new ReentrantReadWriteLock();
+
+    // Used by put() to read positions, guarded by the write lock
+    private final double[] mPosition = new double[2];
+
+    /**
+     * @param locator         Gets the ID and position of each item.
+     * @param cellSizeMeters  The height of a grid cell. This should be about the distance
+     *                        of a typical query - a few hundred meters for stops.
+     */
+    public SpatialIndex(Locator<T> locator, double cellSizeMeters) {
+        if (locator == null) {
+            throw new IllegalArgumentException("locator is null");
+        }
+        if (!(cellSizeMeters > 0)) {
+            throw new IllegalArgumentException("cellSizeMeters must be > 0");
+        }
+        mLocator = locator;
+        mCellDegrees = cellSizeMeters / METERS_PER_DEGREE;
+    }
+
+    public static SpatialIndex<ObaStop> forStops(double cellSizeMeters) {
+        return new SpatialIndex<ObaStop>(STOPS, cellSizeMeters);
+    }
+
+    public static SpatialIndex<ObaTripStatus> forTripStatuses(double cellSizeMeters) {
+        return new SpatialIndex<ObaTripStatus>(TRIP_STATUSES, cellSizeMeters);
+    }
+
+    /**
+     * Adds an item, or moves it if an item with the same ID is already indexed.
+     * Items without a position are removed.
+     */
+    public void put(T item) {
+        mLock.writeLock().lock();
+        try {
+            putLocked(item, System.currentTimeMillis());
+        } finally {
+            mLock.writeLock().unlock();
+        }
+    }
+
+    public void putAll(T[] items) {
+        putAll(Arrays.asList(items));
+    }
+
+    public void putAll(Iterable<? extends T> items) {
+        final long now = System.currentTimeMillis();
+        mLock.writeLock().lock();
+        try {
+            for (T item : items) {
+                putLocked(item, now);
+            }
+        } finally {
+            mLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return The item that was removed, or null if there was no item with this ID.
+     */
+    public T remove(String id) {
+        mLock.writeLock().lock();
+        try {
+            Entry<T> entry = mEntries.remove(id);
+            if (entry == null) {
+                return null;
+            }
+            removeFromCell(entry);
+            return entry.value;
+        } finally {
+            mLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the items that haven't been put() since the given time, e.g. vehicles
+     * that are no longer being reported.
+     *
+     * @param time A time in milliseconds since the epoch.
+     * @return The number of items removed.
+     */
+    public int removeOlderThan(long time) {
+        mLock.writeLock().lock();
+        try {
+            int removed = 0;
+            for (Iterator<Entry<T>> it = mEntries.values().iterator(); it.hasNext(); ) {
+                Entry<T> entry = it.next();
+                if (entry.updated < time) {
+                    it.remove();
+                    removeFromCell(entry);
+                    removed++;
+                }
+            }
+            return removed;
+        } finally {
+            mLock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        mLock.writeLock().lock();
+        try {
+            mEntries.clear();
+            mCells.clear();
+        } finally {
+            mLock.writeLock().unlock();
+        }
+    }
+
+    public T get(String id) {
+        mLock.readLock().lock();
+        try {
+            Entry<T> entry = mEntries.get(id);
+            return (entry != null) ? entry.value : null;
+        } finally {
+            mLock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        mLock.readLock().lock();
+        try {
+            return mEntries.size();
+        } finally {
+            mLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the items nearest to a point, nearest first.
+     *
+     * @param lat The latitude of the point.
+     * @param lon The longitude of the point.
+     * @param k   The maximum number of items to return.
+     * @return Up to k items, nearest first.
+     */
+    public List<T> nearest(double lat, double lon, int k) {
+        return nearest(lat, lon, k, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Returns the items nearest to a point, nearest first.
+     *
+     * @param lat         The latitude of the point.
+     * @param lon         The longitude of the point.
+     * @param k           The maximum number of items to return.
+     * @param maxDistance The maximum distance of the items, in meters.
+     * @return Up to k items within maxDistance, nearest first.
+     */
+    public List<T> nearest(double lat, double lon, int k, double maxDistance) {
+        if (k <= 0) {
+            return new ArrayList<T>(0);
+        }
+        final double cosLat = Math.cos(Math.toRadians(lat));
+        // The smallest width or height of a cell, in meters
+        final double cellMeters = mCellDegrees * METERS_PER_DEGREE * Math.min(1.0, cosLat);
+        PriorityQueue<Candidate<T>> best = new PriorityQueue<Candidate<T>>(k + 1, FARTHEST_FIRST);
+
+        mLock.readLock().lock();
+        try {
+            final int latCell = cellIndex(lat);
+            final int lonCell = cellIndex(lon);
+            int visited = 0;
+            for (int ring = 0; ; ring++) {
+                // Everything in this ring is at least this far away
+                final double ringDistance = Math.max(0, ring - 1) * cellMeters;
+                if (ringDistance > maxDistance
+                        || (best.size() == k && ringDistance > best.peek().distance)) {
+                    break;
+                }
+                if (visited >= mCells.size()) {
+                    // There are no more cells to find
+                    break;
+                }
+                if ((2L * ring + 1) * (2L * ring + 1) > mCells.size()) {
+                    // The rings have grown bigger than the index, just check every cell
+                    best.clear();
+                    for (Cell<T> cell : mCells.values()) {
+                        offer(cell, lat, lon, cosLat, k, maxDistance, best);
+                    }
+                    break;
+                }
+                for (int i = -ring; i <= ring; i++) {
+                    for (int j = -ring; j <= ring; j++) {
+                        if (Math.abs(i) != ring && Math.abs(j) != ring) {
+                            // Inside the ring, already visited
+                            continue;
+                        }
+                        Cell<T> cell = mCells.get(cellKey(latCell + i, lonCell + j));
+                        if (cell != null) {
+                            visited++;
+                            offer(cell, lat, lon, cosLat, k, maxDistance, best);
+                        }
+                    }
+                }
+            }
+        } finally {
+            mLock.readLock().unlock();
+        }
+        return sorted(best);
+    }
+
+    /**
+     * Returns the items within a distance of a point, nearest first.
+     *
+     * @param lat    The latitude of the point.
+     * @param lon    The longitude of the point.
+     * @param radius The distance from the point, in meters.
+     * @return The items within radius of the point, nearest first.
+     */
+    public List<T> withinRadius(double lat, double lon, double radius) {
+        final double cosLat = Math.cos(Math.toRadians(lat));
+        final double latSpan = radius / METERS_PER_DEGREE;
+        final double lonSpan = (cosLat > 1E-6) ? Math.min(latSpan / cosLat, 360) : 360;
+        final ArrayList<Candidate<T>> matches = new ArrayList<Candidate<T>>();
+
+        mLock.readLock().lock();
+        try {
+            for (Cell<T> cell : cellsInBox(lat - latSpan, lon - lonSpan,
+                    lat + latSpan, lon + lonSpan)) {
+                for (int i = 0, size = cell.entries.size(); i < size; i++) {
+                    Entry<T> entry = cell.entries.get(i);
+                    double d = distance(lat, lon, cosLat, entry.lat, entry.lon);
+                    if (d <= radius) {
+                        matches.add(new Candidate<T>(entry.value, d));
+                    }
+                }
+            }
+        } finally {
+            mLock.readLock().unlock();
+        }
+        Collections.sort(matches, NEAREST_FIRST);
+        List<T> result = new ArrayList<T>(matches.size());
+        for (Candidate<T> c : matches) {
+            result.add(c.value);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the items within a bounding box, in no particular order.
+     */
+    public List<T> withinBox(double minLat, double minLon, double maxLat, double maxLon) {
+        final ArrayList<T> result = new ArrayList<T>();
+        mLock.readLock().lock();
+        try {
+            for (Cell<T> cell : cellsInBox(minLat, minLon, maxLat, maxLon)) {
+                for (int i = 0, size = cell.entries.size(); i < size; i++) {
+                    Entry<T> entry = cell.entries.get(i);
+                    if (entry.lat >= minLat && entry.lat <= maxLat
+                            && entry.lon >= minLon && entry.lon <= maxLon) {
+                        result.add(entry.value);
+                    }
+                }
+            }
+        } finally {
+            mLock.readLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * Returns the equirectangular approximation of the distance between two points.
+     *
+     * @param cosLat The cosine of lat1, which callers measuring from the same point
+     *               can compute once.
+     * @return The distance in meters.
+     */
+    static double distance(double lat1, double lon1, double cosLat, double lat2, double lon2) {
+        final double dLat = lat2 - lat1;
+        double dLon = Math.abs(lon2 - lon1);
+        if (dLon > 180) {
+            dLon = 360 - dLon;
+        }
+        final double x = dLon * cosLat;
+        return Math.sqrt(dLat * dLat + x * x) * METERS_PER_DEGREE;
+    }
+
+    private void putLocked(T item, long now) {
+        final String id = mLocator.getId(item);
+        if (!mLocator.getPosition(item, mPosition)) {
+            Entry<T> old = mEntries.remove(id);
+            if (old != null) {
+                removeFromCell(old);
+            }
+            return;
+        }
+        final double lat = mPosition[0];
+        final double lon = mPosition[1];
+        final long key = cellKey(cellIndex(lat), cellIndex(lon));
+
+        Entry<T> entry = mEntries.get(id);
+        if (entry == null) {
+            entry = new Entry<T>(id);
+            mEntries.put(id, entry);
+        } else if (entry.cell.key != key) {
+            removeFromCell(entry);
+        }
+        entry.value = item;
+        entry.lat = lat;
+        entry.lon = lon;
+        entry.updated = now;
+        if (entry.cell == null) {
+            Cell<T> cell = mCells.get(key);
+            if (cell == null) {
+                cell = new Cell<T>(key);
+                mCells.put(key, cell);
+            }
+            entry.cell = cell;
+            entry.slot = cell.entries.size();
+            cell.entries.add(entry);
+        }
+    }
+
+    private void removeFromCell(Entry<T> entry) {
+        final Cell<T> cell = entry.cell;
+        final ArrayList<Entry<T>> entries = cell.entries;
+        // Swap the last entry into this one's slot
+        final Entry<T> last = entries.remove(entries.size() - 1);
+        if (last != entry) {
+            entries.set(entry.slot, last);
+            last.slot = entry.slot;
+        }
+        if (entries.isEmpty()) {
+            mCells.remove(cell.key);
+        }
+        entry.cell = null;
+    }
+
+    private void offer(Cell<T> cell, double lat, double lon, double cosLat, int k,
+                       double maxDistance, PriorityQueue<Candidate<T>> best) {
+        for (int i = 0, size = cell.entries.size(); i < size; i++) {
+            Entry<T> entry = cell.entries.get(i);
+            double d = distance(lat, lon, cosLat, entry.lat, entry.lon);
+            if (d > maxDistance || (best.size() == k && d >= best.peek().distance)) {
+                continue;
+            }
+            best.add(new Candidate<T>(entry.value, d));
+            if (best.size() > k) {
+                best.poll();
+            }
+        }
+    }
+
+    private List<T> sorted(PriorityQueue<Candidate<T>> best) {
+        // The queue is farthest first
+        @SuppressWarnings("unchecked")
+        T[] result = (T[]) new Object[best.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = best.poll().value;
+        }
+        return new ArrayList<T>(Arrays.asList(result));
+    }
+
+    private Iterable<Cell<T>> cellsInBox(double minLat, double minLon, double maxLat,
+                                         double maxLon) {
+        final int minLatCell = cellIndex(minLat);
+        final int maxLatCell = cellIndex(maxLat);
+        final int minLonCell = cellIndex(minLon);
+        final int maxLonCell = cellIndex(maxLon);
+        final long cellCount = (maxLatCell - minLatCell + 1L) * (maxLonCell - minLonCell + 1L);
+        if (cellCount > mCells.size()) {
+            // Cheaper to check every cell that has something in it
+            return mCells.values();
+        }
+        List<Cell<T>> cells = new ArrayList<Cell<T>>();
+        for (int i = minLatCell; i <= maxLatCell; i++) {
+            for (int j = minLonCell; j <= maxLonCell; j++) {
+                Cell<T> cell = mCells.get(cellKey(i, j));
+                if (cell != null) {
+                    cells.add(cell);
+                }
+            }
+        }
+        return cells;
+    }
+
+    private int cellIndex(double degrees) {
+        return (int) Math.floor(degrees / mCellDegrees);
+    }
+
+    private static long cellKey(int latCell, int lonCell) {
+        return ((long) latCell << 32) | (lonCell & 0xffffffffL);
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.util;
+
+import java.net.URI;
+
+/**
+ * The REST API URIs for one base URL and set of caller parameters (API key and app info),
+ * worked out once so that each request only has to fill in its path and query:
+ *
+ * <pre>
+ * {base URL}{path}?{request's query parameters}&app_ver=...&app_uid=...&version=2&key=...
+ * </pre>
+ *
+ * ObaContext.getUriTemplate() compiles one for the context's current base URL, and
+ * keeps it until the base URL, region, key or app info are changed.  It's immutable,
+ * so it can be shared between threads.
+ */
+public final class UriTemplate {
+
+    // e.g. "http://api.tampa.onebusaway.org/api/", always ending in "/"
+    private final String mPrefix;
+
+    // e.g. "app_ver=5&version=2&key=TEST", already encoded
+    private final String mQuery;
+
+    private UriTemplate(String prefix, String query) {
+        mPrefix = prefix;
+        mQuery = query;
+    }
+
+    /**
+     * @param baseUrl The OBA server's base URL, optionally including a path that the
+     *                API paths are relative to.  http is assumed if it has no scheme.
+     * @param apiKey  The API key, or null to leave it out
+     * @param appVer  The app version, or 0 to leave it out
+     * @param appUid  The app user id, or null to leave it out
+     * @throws IllegalArgumentException if the base URL can't be parsed
+     */
+    public static UriTemplate compile(String baseUrl, String apiKey, int appVer,
+            String appUid) {
+        URI base = URI.create(baseUrl);
+        if (base.getScheme() == null || base.getRawAuthority() == null) {
+            // Without a scheme the authority can't be parsed, so assume http
+            base = URI.create("http://" + baseUrl);
+        }
+        StringBuilder prefix = new StringBuilder(64);
+        prefix.append(base.getScheme()).append("://").append(base.getRawAuthority());
+        String path = base.getRawPath();
+        if (path == null || !path.startsWith("/")) {
+            prefix.append('/');
+        }
+        if (path != null) {
+            prefix.append(path);
+        }
+        if (prefix.charAt(prefix.length() - 1) != '/') {
+            prefix.append('/');
+        }
+
+        QueryBuilder query = new QueryBuilder();
+        if (appVer != 0) {
+            query.queryParam("app_ver", String.valueOf(appVer));
+        }
+        if (appUid != null) {
+            query.queryParam("app_uid", appUid);
+        }
+        query.queryParam("version", "2");
+        if (apiKey != null) {
+            query.queryParam("key", apiKey);
+        }
+        return new UriTemplate(prefix.toString(), query.toString());
+    }
+
+    /**
+     * @param path  The API path relative to the base URL, already encoded,
+     *              e.g. "api/where/stop/1_75403.json"
+     * @param query The request's own query parameters, which come before the key and
+     *              app info, or null for none
+     * @return The full URI of the request
+     */
+    public URI expand(String path, QueryBuilder query) {
+        int start = path.startsWith("/") ? 1 : 0;
+        int queryLength = (query != null && query.length() > 0) ? query.length() + 1 : 0;
+        StringBuilder builder = new StringBuilder(mPrefix.length() + path.length() - start
+                + 1 + queryLength + mQuery.length());
+        builder.append(mPrefix).append(path, start, path.length()).append('?');
+        if (queryLength > 0) {
+            query.appendTo(builder);
+            builder.append('&');
+        }
+        builder.append(mQuery);
+        return URI.create(builder.toString());
+    }
+
+    @Override
+    public String toString() {
+        return mPrefix + "{path}?{query}&" + mQuery;
+    }
+}
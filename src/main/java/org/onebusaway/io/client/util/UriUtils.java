@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.util;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Utilities for working with OBA REST API URIs
+ */
+public final class UriUtils {
+
+    /**
+     * Query parameters that identify the caller rather than the request, and so don't
+     * change the response.
+     */
+    private static final List<String> IGNORED_PARAMS = Arrays.asList("key", "app_ver", "app_uid");
+
+    private UriUtils() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Normalizes a request URI so that two requests for the same resource produce the
+     * same string. The scheme, host, port and path are kept, the key, app_ver and app_uid
+     * query parameters are removed, and the remaining query parameters are sorted.
+     *
+     * @param uri The request URI.
+     * @return The normalized URI string.
+     */
+    public static String normalizeUri(URI uri) {
+        StringBuilder builder = new StringBuilder(128);
+        if (uri.getScheme() != null) {
+            builder.append(uri.getScheme()).append("://");
+        }
+        if (uri.getRawAuthority() != null) {
+            builder.append(uri.getRawAuthority());
+        }
+        if (uri.getRawPath() != null) {
+            builder.append(uri.getRawPath());
+        }
+        String query = uri.getRawQuery();
+        if (query == null || query.isEmpty()) {
+            return builder.toString();
+        }
+        List<String> params = new ArrayList<String>();
+        for (String param : query.split("&")) {
+            int eq = param.indexOf('=');
+            String name = (eq >= 0) ? param.substring(0, eq) : param;
+            if (!param.isEmpty() && !IGNORED_PARAMS.contains(name)) {
+                params.add(param);
+            }
+        }
+        Collections.sort(params);
+        for (int i = 0; i < params.size(); i++) {
+            builder.append(i == 0 ? '?' : '&').append(params.get(i));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Returns the name of the REST API method a URI is for, e.g.
+     * "arrivals-and-departures-for-stop" for
+     * "http://api.pugetsound.onebusaway.org/api/where/arrivals-and-departures-for-stop/1_75403.json",
+     * or "regions-v3" for "http://regions.onebusaway.org/regions-v3.json".
+     *
+     * @param uri The request URI.
+     * @return The API method name.
+     */
+    public static String getEndpoint(URI uri) {
+        String path = uri.getPath();
+        if (path == null) {
+            return "";
+        }
+        int start = path.indexOf("/where/");
+        if (start >= 0) {
+            start += "/where/".length();
+        } else {
+            start = path.lastIndexOf('/') + 1;
+        }
+        int end = path.indexOf('/', start);
+        if (end < 0) {
+            end = path.length();
+            int dot = path.lastIndexOf('.');
+            if (dot > start) {
+                end = dot;
+            }
+        }
+        return path.substring(start, end);
+    }
+
+    /**
+     * Returns the server a URI is on, e.g. "http://api.pugetsound.onebusaway.org" for
+     * "http://api.pugetsound.onebusaway.org/api/where/stop/1_75403.json".
+     *
+     * @param uri The request URI.
+     * @return The scheme, host and port of the URI.
+     */
+    public static String getServer(URI uri) {
+        return uri.getScheme() + "://" + uri.getRawAuthority();
+    }
+}
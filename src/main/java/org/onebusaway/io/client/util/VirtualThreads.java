@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates executors that run each task on its own virtual thread, so that thousands of
+ * requests blocked on the network don't each hold a platform thread.  Virtual threads
+ * need Java 21; the library itself targets Java 7, so they're looked up reflectively and
+ * isSupported() is false on older JVMs.
+ *
+ * <pre>
+ * if (VirtualThreads.isSupported()) {
+ *     ObaApi.getDefaultContext().setExecutor(VirtualThreads.newExecutor());
+ * }
+ * </pre>
+ */
+public final class VirtualThreads {
+
+    private static final String THREAD_NAME_PREFIX = "ObaRequest-virtual-";
+
+    // Thread.ofVirtual().name(THREAD_NAME_PREFIX, 0).factory(), or null before Java 21
+    private static final ThreadFactory FACTORY = createFactory();
+
+    private static final Method NEW_THREAD_PER_TASK_EXECUTOR = findNewThreadPerTaskExecutor();
+
+    private static final Method IS_VIRTUAL = findIsVirtual();
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return true if this JVM has virtual threads
+     */
+    public static boolean isSupported() {
+        return FACTORY != null && NEW_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * Returns a new executor that starts a virtual thread for each task, suitable for
+     * ObaContext.setExecutor().  There's no pool to size: the JVM mounts the virtual
+     * threads on a small number of carrier threads and unmounts them while they wait
+     * on a socket.
+     *
+     * @throws UnsupportedOperationException if this JVM doesn't have virtual threads
+     */
+    public static ExecutorService newExecutor() {
+        if (!isSupported()) {
+            throw new UnsupportedOperationException("Virtual threads need Java 21 or later");
+        }
+        try {
+            return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, FACTORY);
+        } catch (Exception e) {
+            throw new UnsupportedOperationException("Couldn't create a virtual thread executor", e);
+        }
+    }
+
+    /**
+     * @return true if the given thread is a virtual thread
+     */
+    public static boolean isVirtual(Thread thread) {
+        if (IS_VIRTUAL == null) {
+            return false;
+        }
+        try {
+            return (Boolean) IS_VIRTUAL.invoke(thread);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private static ThreadFactory createFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            // Go through the public Thread.Builder interface; the implementation is internal
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class)
+                    .invoke(builder, THREAD_NAME_PREFIX, 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static Method findNewThreadPerTaskExecutor() {
+        try {
+            return Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static Method findIsVirtual() {
+        try {
+            return Thread.class.getMethod("isVirtual");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
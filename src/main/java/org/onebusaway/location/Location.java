@@ -274,7 +274,7 @@ public class Location {
         }
     }
 
-    private static void computeDistanceAndBearing(double lat1, double lon1,
+    private static float computeDistanceAndBearing(double lat1, double lon1,
         double lat2, double lon2, float[] results) {
         // Based on http://www.ngs.noaa.gov/PUBS_LIB/inverse.pdf
         // using the "Inverse Formula" (section 4)
@@ -360,6 +360,9 @@ public class Location {
         }
 
         float distance = (float) (b * A * (sigma - deltaSigma));
+        if (results == null) {
+            return distance;
+        }
         results[0] = distance;
         if (results.length > 1) {
             float initialBearing = (float) Math.atan2(cosU2 * sinLambda,
@@ -373,6 +376,7 @@ public class Location {
                 results[2] = finalBearing;
             }
         }
+        return distance;
     }
 
     /**
@@ -402,6 +406,23 @@ public class Location {
             endLatitude, endLongitude, results);
     }
 
+    /**
+     * Computes the approximate distance in meters between two locations,
+     * the same as distanceBetween(double, double, double, double, float[]),
+     * without needing a results array.
+     *
+     * @param startLatitude the starting latitude
+     * @param startLongitude the starting longitude
+     * @param endLatitude the ending latitude
+     * @param endLongitude the ending longitude
+     * @return the distance in meters
+     */
+    public static float distanceBetween(double startLatitude, double startLongitude,
+        double endLatitude, double endLongitude) {
+        return computeDistanceAndBearing(startLatitude, startLongitude,
+            endLatitude, endLongitude, null);
+    }
+
     /**
      * Returns the approximate distance in meters between this
      * location and the given location.  Distance is defined using
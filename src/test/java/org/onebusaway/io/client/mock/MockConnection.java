@@ -19,6 +19,7 @@ import org.onebusaway.io.client.ObaConnection;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Reader;
 import java.net.HttpURLConnection;
 import java.net.URI;
@@ -41,22 +42,49 @@ public class MockConnection implements ObaConnection {
     public void disconnect() {
     }
 
+    public void setRequestProperty(String name, String value) {
+    }
+
     public Reader get() throws IOException {
-        System.out.println("Get URI: " + mUri);
-        // Find a mock response for this URI.
-        String response = mUriMap.getUri(mUri);
-        if ("__404__".equals(response)) {
-            mResponseCode = HttpURLConnection.HTTP_NOT_FOUND;
-            throw new FileNotFoundException();
-        }
-        return Resources.read(response);
+        return Resources.read(getResponse());
     }
 
     public Reader post(String string) throws IOException {
         throw new RuntimeException("Not implemented");
     }
 
+    public InputStream getStream() throws IOException {
+        return Resources.readStream(getResponse());
+    }
+
+    public InputStream postStream(String string) throws IOException {
+        throw new RuntimeException("Not implemented");
+    }
+
     public int getResponseCode() throws IOException {
         return mResponseCode;
     }
+
+    public String getHeaderField(String name) throws IOException {
+        return null;
+    }
+
+    public long getBytesReceived() {
+        return -1;
+    }
+
+    public long getConnectNanos() {
+        return -1;
+    }
+
+    private String getResponse() throws IOException {
+        System.out.println("Get URI: " + mUri);
+        // Find a mock response for this URI.
+        String response = mUriMap.getUri(mUri);
+        if ("__404__".equals(response)) {
+            mResponseCode = HttpURLConnection.HTTP_NOT_FOUND;
+            throw new FileNotFoundException();
+        }
+        return response;
+    }
 }
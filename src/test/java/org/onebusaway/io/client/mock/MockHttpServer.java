@@ -0,0 +1,253 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.mock;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A local HTTP server that serves the test resources (e.g., "api/where/current-time.json")
+ * so that transport code can be exercised without going to the network.
+ */
+public class MockHttpServer {
+
+    private final HttpServer mServer;
+
+    private final ExecutorService mExecutor = Executors.newCachedThreadPool();
+
+    private final AtomicInteger mRequestCount = new AtomicInteger();
+
+    private volatile long mDelayMs = 0;
+
+    private final AtomicInteger mSlowRequests = new AtomicInteger();
+
+    private volatile long mSlowDelayMs;
+
+    private volatile String mContentEncoding;
+
+    private volatile String mLastAcceptEncoding;
+
+    private volatile String mContentType = "application/json";
+
+    private final AtomicInteger mFailures = new AtomicInteger();
+
+    private volatile int mFailureCode;
+
+    private volatile boolean mEtag = false;
+
+    private volatile boolean mLastModified = false;
+
+    private final AtomicInteger mNotModifiedCount = new AtomicInteger();
+
+    private static final String LAST_MODIFIED = "Tue, 15 Nov 2016 12:45:26 GMT";
+
+    public MockHttpServer() throws IOException {
+        // Otherwise Nagle's algorithm adds ~40ms to every response on loopback
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        mServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        mServer.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                mRequestCount.incrementAndGet();
+                long delay = mDelayMs;
+                if (mSlowRequests.getAndDecrement() > 0) {
+                    delay = mSlowDelayMs;
+                }
+                if (delay > 0) {
+                    try {
+                        Thread.sleep(delay);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                if (mFailures.getAndDecrement() > 0) {
+                    exchange.sendResponseHeaders(mFailureCode, -1);
+                    exchange.close();
+                    return;
+                }
+                byte[] body = readResource(exchange.getRequestURI().getPath());
+                String accept = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+                mLastAcceptEncoding = accept;
+                if (body == null) {
+                    exchange.sendResponseHeaders(404, -1);
+                } else if (isNotModified(exchange, body)) {
+                    mNotModifiedCount.incrementAndGet();
+                    exchange.sendResponseHeaders(304, -1);
+                } else {
+                    if (mEtag) {
+                        exchange.getResponseHeaders().add("ETag", etag(body));
+                    }
+                    if (mLastModified) {
+                        exchange.getResponseHeaders().add("Last-Modified", LAST_MODIFIED);
+                    }
+                    String encoding = mContentEncoding;
+                    if (encoding != null && accept != null && accept.contains(encoding)) {
+                        body = compress(body, encoding);
+                        exchange.getResponseHeaders().add("Content-Encoding", encoding);
+                    }
+                    exchange.getResponseHeaders().add("Content-Type", mContentType);
+                    exchange.sendResponseHeaders(200, body.length);
+                    OutputStream out = exchange.getResponseBody();
+                    out.write(body);
+                    out.close();
+                }
+                exchange.close();
+            }
+        });
+        mServer.setExecutor(mExecutor);
+        mServer.start();
+    }
+
+    /**
+     * @return The base URL of this server, suitable for ObaContext.setBaseUrl()
+     */
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + mServer.getAddress().getPort() + "/";
+    }
+
+    /**
+     * @return The number of requests this server has handled
+     */
+    public int getRequestCount() {
+        return mRequestCount.get();
+    }
+
+    /**
+     * Delays every response by the given amount, to simulate a slow server
+     */
+    public void setDelay(long ms) {
+        mDelayMs = ms;
+    }
+
+    /**
+     * Delays the next few responses, to simulate the occasional slow response
+     *
+     * @param count The number of responses to delay
+     * @param ms    How long to delay them, instead of the delay set by setDelay()
+     */
+    public void setSlow(int count, long ms) {
+        mSlowDelayMs = ms;
+        mSlowRequests.set(count);
+    }
+
+    /**
+     * Compresses responses with the given Content-Encoding ("gzip" or "deflate"), when
+     * the client accepts it
+     */
+    public void setContentEncoding(String encoding) {
+        mContentEncoding = encoding;
+    }
+
+    /**
+     * Sets the Content-Type header of the responses.  The default is "application/json".
+     */
+    public void setContentType(String contentType) {
+        mContentType = contentType;
+    }
+
+    /**
+     * @return The Accept-Encoding header of the last request, or null if it had none
+     */
+    public String getLastAcceptEncoding() {
+        return mLastAcceptEncoding;
+    }
+
+    /**
+     * Answers the next requests with an HTTP error, to simulate an unhealthy server
+     *
+     * @param count The number of requests to fail
+     * @param code  The HTTP status code to fail them with, e.g. 503
+     */
+    public void fail(int count, int code) {
+        mFailureCode = code;
+        mFailures.set(count);
+    }
+
+    /**
+     * Sends ETag and/or Last-Modified headers with responses, and answers conditional
+     * requests that match them with a 304
+     */
+    public void setValidators(boolean etag, boolean lastModified) {
+        mEtag = etag;
+        mLastModified = lastModified;
+    }
+
+    /**
+     * @return The number of 304 responses this server has sent
+     */
+    public int getNotModifiedCount() {
+        return mNotModifiedCount.get();
+    }
+
+    public void stop() {
+        mServer.stop(0);
+        mExecutor.shutdownNow();
+    }
+
+    private boolean isNotModified(HttpExchange exchange, byte[] body) {
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (mEtag && ifNoneMatch != null) {
+            return ifNoneMatch.equals(etag(body));
+        }
+        return mLastModified && LAST_MODIFIED.equals(
+                exchange.getRequestHeaders().getFirst("If-Modified-Since"));
+    }
+
+    private static String etag(byte[] body) {
+        return "\"" + Integer.toHexString(Arrays.hashCode(body)) + "\"";
+    }
+
+    private static byte[] compress(byte[] body, String encoding) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        OutputStream out = "gzip".equals(encoding)
+                ? new GZIPOutputStream(bytes) : new DeflaterOutputStream(bytes);
+        out.write(body);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private static byte[] readResource(String path) throws IOException {
+        InputStream stream = MockHttpServer.class.getClassLoader()
+                .getResourceAsStream(path.substring(1));
+        if (stream == null) {
+            return null;
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8 * 1024];
+            int n;
+            while ((n = stream.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            stream.close();
+        }
+    }
+}
@@ -37,6 +37,18 @@ public class Resources {
         return in;
     }
 
+    /**
+     * Read a resource by URL as bytes
+     * @param urlString a String for the URL
+     * @return an InputStream for the provided URL
+     */
+    public static InputStream readStream(String urlString) throws IOException {
+    	System.out.println("Fetching: " + urlString);
+    	URL url = new URL(urlString);
+        URLConnection uc = url.openConnection();
+        return new BufferedInputStream(uc.getInputStream());
+    }
+
     public static <T> T readAs(String path, Class<T> cls) throws IOException {
     	System.out.println("Reading file: " + path);
     	InputStream stream = Resources.class.getClassLoader().getResourceAsStream(path);
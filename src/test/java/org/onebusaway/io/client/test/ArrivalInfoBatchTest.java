@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.test;
+
+import org.onebusaway.io.client.ObaApi;
+import org.onebusaway.io.client.ObaDefaultConnectionFactory;
+import org.onebusaway.io.client.elements.ObaReferences;
+import org.onebusaway.io.client.mock.MockHttpServer;
+import org.onebusaway.io.client.request.ObaArrivalInfoBatchRequest;
+import org.onebusaway.io.client.request.ObaArrivalInfoBatchResponse;
+import org.onebusaway.io.client.request.ObaArrivalInfoRequest;
+import org.onebusaway.io.client.request.ObaArrivalInfoResponse;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests requesting arrivals for several stops at once
+ */
+public class ArrivalInfoBatchTest extends ObaTestCase {
+
+    private MockHttpServer mServer;
+
+    @Override
+    protected void setUp() {
+        super.setUp();
+        try {
+            mServer = new MockHttpServer();
+            ObaApi.getDefaultContext().setBaseUrl(mServer.getBaseUrl());
+            ObaApi.getDefaultContext().setConnectionFactory(
+                    ObaDefaultConnectionFactory.getInstance());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    protected void tearDown() {
+        mServer.stop();
+        super.tearDown();
+    }
+
+    public void testBatch() {
+        ObaArrivalInfoBatchResponse response = ObaArrivalInfoRequest.newBatch(
+                Arrays.asList("1_29261", "1_75403", "1_10020")).call();
+        assertTrue(response.isComplete());
+        assertEquals(Arrays.asList("1_29261", "1_75403", "1_10020"), response.getStopIds());
+        for (String stopId : response.getStopIds()) {
+            ObaArrivalInfoResponse stop = response.getResponse(stopId);
+            assertOK(stop);
+            assertEquals(stopId, stop.getStop().getId());
+            assertSame(stop.getArrivalInfo(), response.getArrivalInfo(stopId));
+            // Everything a stop's response references is in the merged references
+            ObaReferences refs = response.getRefs();
+            assertNotNull(refs.getStop(stopId));
+            for (int i = 0; i < stop.getArrivalInfo().length; i++) {
+                String routeId = stop.getArrivalInfo()[i].getRouteId();
+                assertNotNull(refs.getRoute(routeId));
+                assertEquals(routeId, refs.getRoute(routeId).getId());
+            }
+        }
+    }
+
+    public void testDuplicatesRequestedOnce() {
+        ObaArrivalInfoBatchRequest request = ObaArrivalInfoRequest.newBatch(
+                Arrays.asList("1_29261", "1_75403", "1_29261"));
+        assertEquals(Arrays.asList("1_29261", "1_75403"), request.getStopIds());
+        ObaArrivalInfoBatchResponse response = request.call();
+        assertTrue(response.isComplete());
+        assertEquals(2, mServer.getRequestCount());
+    }
+
+    public void testPartialResults() {
+        ObaArrivalInfoBatchResponse response = ObaArrivalInfoRequest.newBatch(
+                Arrays.asList("1_29261", "1_doesnotexist", "1_75403")).call();
+        assertFalse(response.isComplete());
+        assertEquals(Arrays.asList("1_doesnotexist"), response.getFailedStopIds());
+        assertEquals(ObaApi.OBA_OK, response.getCode("1_29261"));
+        assertEquals(ObaApi.OBA_OK, response.getCode("1_75403"));
+        assertTrue(response.getCode("1_doesnotexist") != ObaApi.OBA_OK);
+        assertEquals(0, response.getArrivalInfo("1_doesnotexist").length);
+        assertNotNull(response.getRefs().getStop("1_29261"));
+        assertEquals(ObaApi.OBA_NOT_FOUND, response.getCode("1_notinbatch"));
+    }
+
+    public void testErrorWithoutData() {
+        // The server answers an unknown stop with an error body whose data is null
+        ObaArrivalInfoBatchResponse response = ObaArrivalInfoRequest.newBatch(
+                Arrays.asList("1_29261", "1_404test")).call();
+        assertFalse(response.isComplete());
+        assertEquals(Arrays.asList("1_404test"), response.getFailedStopIds());
+        assertEquals(ObaApi.OBA_NOT_FOUND, response.getCode("1_404test"));
+        assertEquals(0, response.getArrivalInfo("1_404test").length);
+        assertTrue(response.getArrivalInfo("1_29261").length > 0);
+    }
+
+    public void testParallel() {
+        mServer.setDelay(200);
+        long start = System.nanoTime();
+        ObaArrivalInfoBatchResponse response = new ObaArrivalInfoBatchRequest.Builder(
+                Arrays.asList("1_29261", "1_75403", "1_10020"))
+                .setMaxParallelism(3)
+                .build()
+                .call();
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(response.isComplete());
+        // About as long as one request, rather than three in a row
+        assertTrue("Took " + elapsed + "ms", elapsed < 550);
+    }
+
+    public void testBoundedParallelism() {
+        mServer.setDelay(150);
+        long start = System.nanoTime();
+        ObaArrivalInfoBatchResponse response = new ObaArrivalInfoBatchRequest.Builder(
+                Arrays.asList("1_29261", "1_75403", "1_10020"))
+                .setMaxParallelism(1)
+                .build()
+                .call();
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(response.isComplete());
+        assertTrue("Took " + elapsed + "ms", elapsed >= 450);
+    }
+
+    public void testAsync() throws Exception {
+        ObaArrivalInfoBatchResponse response = ObaArrivalInfoRequest.newBatch(
+                Arrays.asList("1_29261", "1_75403")).callAsync().get(10, TimeUnit.SECONDS);
+        assertTrue(response.isComplete());
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.test;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+import org.onebusaway.io.client.ObaApi;
+import org.onebusaway.io.client.ObaConnection;
+import org.onebusaway.io.client.ObaConnectionFactory;
+import org.onebusaway.io.client.ObaDefaultConnectionFactory;
+import org.onebusaway.io.client.mock.MockHttpServer;
+import org.onebusaway.io.client.request.ObaCurrentTimeRequest;
+import org.onebusaway.io.client.request.ObaCurrentTimeResponse;
+
+import java.net.URI;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests callAsync() against a local HTTP server
+ */
+public class AsyncRequestTest extends ObaTestCase {
+
+    private MockHttpServer mServer;
+
+    private ExecutorService mExecutor;
+
+    @Override
+    protected void setUp() {
+        super.setUp();
+        try {
+            mServer = new MockHttpServer();
+            ObaApi.getDefaultContext().setBaseUrl(mServer.getBaseUrl());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        ObaApi.getDefaultContext().setConnectionFactory(ObaDefaultConnectionFactory.getInstance());
+        // A single thread, so a request that isn't really aborted blocks the next one
+        mExecutor = Executors.newSingleThreadExecutor();
+        ObaApi.getDefaultContext().setExecutor(mExecutor);
+    }
+
+    @Override
+    protected void tearDown() {
+        ObaApi.getDefaultContext().setExecutor(null);
+        mExecutor.shutdownNow();
+        mServer.stop();
+        super.tearDown();
+    }
+
+    public void testCallAsync() throws Exception {
+        ListenableFuture<ObaCurrentTimeResponse> future =
+                ObaCurrentTimeRequest.newRequest().callAsync();
+        ObaCurrentTimeResponse response = future.get(10, TimeUnit.SECONDS);
+        assertOK(response);
+        assertEquals(1343587068277L, response.getTime());
+    }
+
+    public void testTimeout() throws Exception {
+        mServer.setDelay(5000);
+        long start = System.currentTimeMillis();
+        ObaCurrentTimeResponse response = ObaCurrentTimeRequest.newRequest()
+                .callAsync(200, TimeUnit.MILLISECONDS)
+                .get(10, TimeUnit.SECONDS);
+        assertNotNull(response);
+        assertEquals(ObaApi.OBA_IO_EXCEPTION, response.getCode());
+        assertTrue(System.currentTimeMillis() - start < 4000);
+        assertWorkerIsFree();
+    }
+
+    public void testCancel() throws Exception {
+        mServer.setDelay(5000);
+        ListenableFuture<ObaCurrentTimeResponse> future =
+                ObaCurrentTimeRequest.newRequest().callAsync();
+        // Give the request a chance to connect
+        Thread.sleep(200);
+        assertTrue(future.cancel(true));
+        assertTrue(future.isCancelled());
+        try {
+            future.get();
+            fail("Expected CancellationException");
+        } catch (CancellationException e) {
+            // expected
+        }
+        assertWorkerIsFree();
+    }
+
+    public void testFactoryThrows() throws Exception {
+        ObaApi.getDefaultContext().setConnectionFactory(new ObaConnectionFactory() {
+            @Override
+            public ObaConnection newConnection(URI uri) {
+                throw new IllegalStateException("Broken factory");
+            }
+        });
+        ListenableFuture<ObaCurrentTimeResponse> future =
+                ObaCurrentTimeRequest.newRequest().callAsync();
+        try {
+            future.get(2, TimeUnit.SECONDS);
+            fail("Expected ExecutionException");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    /**
+     * The executor only has one thread, so if the previous request is still blocked
+     * on its socket this one can't run.
+     */
+    private void assertWorkerIsFree() throws Exception {
+        mServer.setDelay(0);
+        long start = System.currentTimeMillis();
+        assertOK(ObaCurrentTimeRequest.newRequest().callAsync().get(10, TimeUnit.SECONDS));
+        assertTrue(System.currentTimeMillis() - start < 4000);
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.test;
+
+import org.onebusaway.io.client.ObaApi;
+import org.onebusaway.io.client.ObaCachingConnectionFactory;
+import org.onebusaway.io.client.ObaConnectionFactory;
+import org.onebusaway.io.client.ObaDefaultConnectionFactory;
+import org.onebusaway.io.client.mock.MockHttpServer;
+import org.onebusaway.io.client.request.ObaCurrentTimeRequest;
+import org.onebusaway.io.client.request.ObaStopRequest;
+import org.onebusaway.io.client.request.ObaStopResponse;
+import org.onebusaway.io.client.util.UriUtils;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests the response cache in ObaCachingConnectionFactory against a local HTTP server
+ */
+public class CachingConnectionFactoryTest extends ObaTestCase {
+
+    private MockHttpServer mServer;
+
+    private ObaConnectionFactory mOldFactory;
+
+    @Override
+    protected void setUp() {
+        super.setUp();
+        try {
+            mServer = new MockHttpServer();
+            ObaApi.getDefaultContext().setBaseUrl(mServer.getBaseUrl());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        mOldFactory = ObaApi.getDefaultContext().getConnectionFactory();
+    }
+
+    @Override
+    protected void tearDown() {
+        ObaApi.getDefaultContext().setConnectionFactory(mOldFactory);
+        mServer.stop();
+        super.tearDown();
+    }
+
+    private ObaCachingConnectionFactory.Builder newBuilder() {
+        return new ObaCachingConnectionFactory.Builder(ObaDefaultConnectionFactory.getInstance());
+    }
+
+    public void testNormalizeUri() throws Exception {
+        assertEquals("http://api.tampa.onebusaway.org/api/where/stop/1_29261.json?radius=5&version=2",
+                UriUtils.normalizeUri(new URI("http://api.tampa.onebusaway.org/api/where/stop/"
+                        + "1_29261.json?version=2&key=TEST&radius=5&app_ver=3&app_uid=abc")));
+        assertEquals("http://localhost:8080/regions-v3.json",
+                UriUtils.normalizeUri(new URI("http://localhost:8080/regions-v3.json")));
+    }
+
+    public void testGetEndpoint() throws Exception {
+        assertEquals("arrivals-and-departures-for-stop", UriUtils.getEndpoint(new URI(
+                "http://api.tampa.onebusaway.org/api/api/where/arrivals-and-departures-for-stop/"
+                        + "Hillsborough%20Area%20Regional%20Transit_3105.json?key=TEST")));
+        assertEquals("current-time", UriUtils.getEndpoint(new URI(
+                "http://api.pugetsound.onebusaway.org/api/where/current-time.json")));
+        assertEquals("regions-v3", UriUtils.getEndpoint(new URI(
+                "http://regions.onebusaway.org/regions-v3.json")));
+    }
+
+    public void testCacheHit() throws Exception {
+        ObaCachingConnectionFactory factory = newBuilder()
+                .setTtl("current-time", 1, TimeUnit.MINUTES)
+                .build();
+        ObaApi.getDefaultContext().setConnectionFactory(factory);
+
+        assertOK(ObaCurrentTimeRequest.newRequest().call());
+        // A different API key still hits the same entry
+        ObaApi.getDefaultContext().setApiKey("OTHER");
+        try {
+            assertOK(ObaCurrentTimeRequest.newRequest().call());
+        } finally {
+            ObaApi.getDefaultContext().setApiKey("TEST");
+        }
+        assertEquals(1, mServer.getRequestCount());
+        assertEquals(1, factory.getHitCount());
+        assertEquals(1, factory.getMissCount());
+        assertEquals(1, factory.size());
+    }
+
+    public void testNoTtlNotCached() {
+        ObaCachingConnectionFactory factory = newBuilder()
+                .setTtl("route", 1, TimeUnit.MINUTES)
+                .build();
+        ObaApi.getDefaultContext().setConnectionFactory(factory);
+
+        assertOK(ObaCurrentTimeRequest.newRequest().call());
+        assertOK(ObaCurrentTimeRequest.newRequest().call());
+        assertEquals(2, mServer.getRequestCount());
+        assertEquals(0, factory.getHitCount());
+        assertEquals(0, factory.size());
+    }
+
+    public void testExpiry() throws Exception {
+        ObaCachingConnectionFactory factory = newBuilder()
+                .setDefaultTtl(50, TimeUnit.MILLISECONDS)
+                .build();
+        ObaApi.getDefaultContext().setConnectionFactory(factory);
+
+        assertOK(ObaCurrentTimeRequest.newRequest().call());
+        Thread.sleep(100);
+        assertOK(ObaCurrentTimeRequest.newRequest().call());
+        assertEquals(2, mServer.getRequestCount());
+        assertEquals(2, factory.getMissCount());
+    }
+
+    public void testErrorsNotCached() {
+        ObaCachingConnectionFactory factory = newBuilder()
+                .setDefaultTtl(1, TimeUnit.MINUTES)
+                .build();
+        ObaApi.getDefaultContext().setConnectionFactory(factory);
+
+        ObaStopResponse response = ObaStopRequest.newRequest("does_not_exist").call();
+        assertEquals(ObaApi.OBA_NOT_FOUND, response.getCode());
+        assertEquals(0, factory.size());
+    }
+
+    public void testLruEviction() {
+        ObaCachingConnectionFactory factory = newBuilder()
+                .setDefaultTtl(1, TimeUnit.MINUTES)
+                .setMaxEntries(1)
+                .build();
+        ObaApi.getDefaultContext().setConnectionFactory(factory);
+
+        assertOK(ObaCurrentTimeRequest.newRequest().call());
+        assertOK(ObaStopRequest.newRequest("1_29261").call());
+        assertEquals(1, factory.size());
+        assertEquals(1, factory.getEvictionCount());
+        // The current time was evicted
+        assertOK(ObaCurrentTimeRequest.newRequest().call());
+        assertEquals(3, mServer.getRequestCount());
+    }
+}
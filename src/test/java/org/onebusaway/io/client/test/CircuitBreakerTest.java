@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.test;
+
+import org.onebusaway.io.client.ObaApi;
+import org.onebusaway.io.client.ObaDefaultConnectionFactory;
+import org.onebusaway.io.client.mock.MockHttpServer;
+import org.onebusaway.io.client.request.CircuitBreaker;
+import org.onebusaway.io.client.request.ObaCurrentTimeRequest;
+import org.onebusaway.io.client.request.ObaCurrentTimeResponse;
+import org.onebusaway.io.client.request.ObaRouteRequest;
+import org.onebusaway.io.client.request.ObaRouteResponse;
+
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tests failing requests fast while their server is unhealthy
+ */
+public class CircuitBreakerTest extends ObaTestCase {
+
+    private MockHttpServer mServer;
+
+    private CircuitBreaker mBreaker;
+
+    private URI mServerUri;
+
+    @Override
+    protected void setUp() {
+        super.setUp();
+        try {
+            mServer = new MockHttpServer();
+            ObaApi.getDefaultContext().setBaseUrl(mServer.getBaseUrl());
+            ObaApi.getDefaultContext().setConnectionFactory(
+                    ObaDefaultConnectionFactory.getInstance());
+            mServerUri = new URI(mServer.getBaseUrl());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        mBreaker = new CircuitBreaker.Builder()
+                .setFailureThreshold(3)
+                .setOpenDuration(200, TimeUnit.MILLISECONDS)
+                .build();
+        ObaApi.getDefaultContext().setCircuitBreaker(mBreaker);
+    }
+
+    @Override
+    protected void tearDown() {
+        ObaApi.getDefaultContext().setCircuitBreaker(null);
+        mServer.stop();
+        super.tearDown();
+    }
+
+    public void testOpensAndCloses() throws InterruptedException {
+        mServer.fail(100, HttpURLConnection.HTTP_UNAVAILABLE);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(HttpURLConnection.HTTP_UNAVAILABLE,
+                    ObaCurrentTimeRequest.newRequest().call().getCode());
+        }
+        assertEquals(CircuitBreaker.State.OPEN, mBreaker.getState(mServerUri));
+        assertEquals(1, mBreaker.getOpenCount());
+
+        // Fails fast without going to the server
+        ObaCurrentTimeResponse response = ObaCurrentTimeRequest.newRequest().call();
+        assertEquals(ObaApi.OBA_IO_EXCEPTION, response.getCode());
+        assertEquals(3, mServer.getRequestCount());
+        assertEquals(1, mBreaker.getRejectedCount());
+
+        // The probe after the open period succeeds and closes the circuit
+        mServer.fail(0, 0);
+        Thread.sleep(250);
+        assertOK(ObaCurrentTimeRequest.newRequest().call());
+        assertEquals(CircuitBreaker.State.CLOSED, mBreaker.getState(mServerUri));
+        assertOK(ObaCurrentTimeRequest.newRequest().call());
+        assertEquals(5, mServer.getRequestCount());
+    }
+
+    public void testFailedProbeReopens() throws InterruptedException {
+        mServer.fail(100, HttpURLConnection.HTTP_GATEWAY_TIMEOUT);
+        for (int i = 0; i < 3; i++) {
+            ObaCurrentTimeRequest.newRequest().call();
+        }
+        assertEquals(CircuitBreaker.State.OPEN, mBreaker.getState(mServerUri));
+
+        Thread.sleep(250);
+        assertEquals(HttpURLConnection.HTTP_GATEWAY_TIMEOUT,
+                ObaCurrentTimeRequest.newRequest().call().getCode());
+        assertEquals(4, mServer.getRequestCount());
+        assertEquals(CircuitBreaker.State.OPEN, mBreaker.getState(mServerUri));
+        assertEquals(2, mBreaker.getOpenCount());
+    }
+
+    public void testOneProbeAtATime() throws InterruptedException {
+        mServer.fail(3, HttpURLConnection.HTTP_UNAVAILABLE);
+        for (int i = 0; i < 3; i++) {
+            ObaCurrentTimeRequest.newRequest().call();
+        }
+        Thread.sleep(250);
+        mServer.setDelay(300);
+
+        final ObaCurrentTimeResponse[] probe = new ObaCurrentTimeResponse[1];
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                probe[0] = ObaCurrentTimeRequest.newRequest().call();
+            }
+        });
+        thread.start();
+        Thread.sleep(100);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, mBreaker.getState(mServerUri));
+        // Rejected while the probe is in flight
+        assertEquals(ObaApi.OBA_IO_EXCEPTION,
+                ObaCurrentTimeRequest.newRequest().call().getCode());
+        thread.join();
+        assertOK(probe[0]);
+        assertEquals(CircuitBreaker.State.CLOSED, mBreaker.getState(mServerUri));
+        assertEquals(4, mServer.getRequestCount());
+    }
+
+    public void testListenerCalledWithoutLock() throws InterruptedException {
+        final AtomicReference<CircuitBreaker.State> seen =
+                new AtomicReference<CircuitBreaker.State>();
+        mBreaker.setListener(new CircuitBreaker.Listener() {
+            @Override
+            public void onStateChanged(String server, CircuitBreaker.State from,
+                    CircuitBreaker.State to) {
+                // Another thread reading the state isn't blocked by this listener
+                Thread reader = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        seen.set(mBreaker.getState(mServerUri));
+                    }
+                });
+                reader.start();
+                try {
+                    reader.join(1000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        mServer.fail(100, HttpURLConnection.HTTP_UNAVAILABLE);
+        for (int i = 0; i < 3; i++) {
+            ObaCurrentTimeRequest.newRequest().call();
+        }
+        assertEquals(CircuitBreaker.State.OPEN, seen.get());
+    }
+
+    public void testClientErrorsDontOpen() {
+        for (int i = 0; i < 5; i++) {
+            ObaRouteResponse response = ObaRouteRequest.newRequest("1_does_not_exist").call();
+            assertEquals(ObaApi.OBA_NOT_FOUND, response.getCode());
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, mBreaker.getState(mServerUri));
+        assertEquals(5, mServer.getRequestCount());
+    }
+
+    public void testSuccessResetsFailures() {
+        mServer.fail(2, HttpURLConnection.HTTP_UNAVAILABLE);
+        ObaCurrentTimeRequest.newRequest().call();
+        ObaCurrentTimeRequest.newRequest().call();
+        assertOK(ObaCurrentTimeRequest.newRequest().call());
+        mServer.fail(2, HttpURLConnection.HTTP_UNAVAILABLE);
+        ObaCurrentTimeRequest.newRequest().call();
+        ObaCurrentTimeRequest.newRequest().call();
+        assertEquals(CircuitBreaker.State.CLOSED, mBreaker.getState(mServerUri));
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.test;
+
+import com.google.common.io.CharStreams;
+
+import org.onebusaway.io.client.ObaApi;
+import org.onebusaway.io.client.ObaConnection;
+import org.onebusaway.io.client.ObaConnectionAdapter;
+import org.onebusaway.io.client.ObaConnectionFactory;
+import org.onebusaway.io.client.ObaDefaultConnectionFactory;
+import org.onebusaway.io.client.ObaPooledConnectionFactory;
+import org.onebusaway.io.client.metrics.RequestMetrics;
+import org.onebusaway.io.client.mock.MockHttpServer;
+import org.onebusaway.io.client.request.ObaStopsForLocationRequest;
+import org.onebusaway.io.client.request.ObaStopsForLocationResponse;
+import org.onebusaway.io.client.util.LocationUtil;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URI;
+
+/**
+ * Tests that the connections negotiate and decompress compressed responses
+ */
+public class CompressionTest extends ObaTestCase {
+
+    private MockHttpServer mServer;
+
+    private ObaPooledConnectionFactory mPooled;
+
+    private RequestMetrics mMetrics;
+
+    @Override
+    protected void setUp() {
+        super.setUp();
+        try {
+            mServer = new MockHttpServer();
+            ObaApi.getDefaultContext().setBaseUrl(mServer.getBaseUrl());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        mPooled = new ObaPooledConnectionFactory.Builder().build();
+        mMetrics = new RequestMetrics();
+        ObaApi.getDefaultContext().setRequestListener(mMetrics);
+    }
+
+    @Override
+    protected void tearDown() {
+        ObaApi.getDefaultContext().setRequestListener(null);
+        ObaApi.getDefaultContext().setConnectionFactory(ObaDefaultConnectionFactory.getInstance());
+        mPooled.shutdown();
+        mServer.stop();
+        super.tearDown();
+    }
+
+    public void testDefaultGzip() {
+        assertDecompressed(ObaDefaultConnectionFactory.getInstance(), "gzip");
+    }
+
+    public void testDefaultDeflate() {
+        assertDecompressed(ObaDefaultConnectionFactory.getInstance(), "deflate");
+    }
+
+    public void testDefaultUncompressed() {
+        assertDecompressed(ObaDefaultConnectionFactory.getInstance(), null);
+    }
+
+    public void testPooledGzip() {
+        assertDecompressed(mPooled, "gzip");
+    }
+
+    public void testPooledDeflate() {
+        assertDecompressed(mPooled, "deflate");
+    }
+
+    public void testPooledUncompressed() {
+        assertDecompressed(mPooled, null);
+    }
+
+    public void testDefaultCharset() throws IOException {
+        assertCharset(ObaDefaultConnectionFactory.getInstance());
+    }
+
+    public void testPooledCharset() throws IOException {
+        assertCharset(mPooled);
+    }
+
+    /**
+     * The Reader from get() decodes the body with the Content-Type charset, or UTF-8
+     */
+    private void assertCharset(ObaConnectionFactory factory) throws IOException {
+        URI uri = URI.create(mServer.getBaseUrl() + "charset/latin1.json");
+        mServer.setContentType("application/json; charset=ISO-8859-1");
+        assertEquals("{\"name\":\"Caf\u00e9\"}\n", read(factory.newConnection(uri)));
+        mServer.setContentType("application/json");
+        assertEquals("{\"name\":\"Caf\ufffd\"}\n", read(factory.newConnection(uri)));
+    }
+
+    /**
+     * A connection that only has the methods ObaConnection had originally still works
+     * when it extends ObaConnectionAdapter
+     */
+    public void testAdapter() throws IOException {
+        ObaConnectionFactory factory = new ObaConnectionFactory() {
+            @Override
+            public ObaConnection newConnection(URI uri) throws IOException {
+                return new OldConnection(
+                        ObaDefaultConnectionFactory.getInstance().newConnection(uri));
+            }
+        };
+        assertDecompressed(factory, "gzip");
+
+        URI uri = URI.create(mServer.getBaseUrl() + "charset/latin1.json");
+        mServer.setContentType("application/json; charset=ISO-8859-1");
+        ObaConnection conn = factory.newConnection(uri);
+        try {
+            assertEquals("{\"name\":\"Caf\u00e9\"}\n", CharStreams.toString(
+                    new InputStreamReader(conn.getStream(), "UTF-8")));
+            assertNull(conn.getHeaderField("Content-Type"));
+            assertEquals(-1, conn.getBytesReceived());
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    private static class OldConnection extends ObaConnectionAdapter {
+
+        private final ObaConnection mConnection;
+
+        OldConnection(ObaConnection connection) {
+            mConnection = connection;
+        }
+
+        @Override
+        public void disconnect() {
+            mConnection.disconnect();
+        }
+
+        @Override
+        public Reader get() throws IOException {
+            return mConnection.get();
+        }
+
+        @Override
+        public Reader post(String string) throws IOException {
+            return mConnection.post(string);
+        }
+
+        @Override
+        public int getResponseCode() throws IOException {
+            return mConnection.getResponseCode();
+        }
+    }
+
+    private static String read(ObaConnection conn) throws IOException {
+        try {
+            return CharStreams.toString(conn.get());
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    private void assertDecompressed(ObaConnectionFactory factory, String encoding) {
+        ObaApi.getDefaultContext().setConnectionFactory(factory);
+        mServer.setContentEncoding(encoding);
+
+        ObaStopsForLocationResponse response = new ObaStopsForLocationRequest.Builder(
+                LocationUtil.makeLocation(47.6, -122.3)).build().call();
+        assertOK(response);
+        assertEquals(51, response.getStops().length);
+        assertTrue(mServer.getLastAcceptEncoding().contains("gzip"));
+        assertTrue(mServer.getLastAcceptEncoding().contains("deflate"));
+
+        RequestMetrics.EndpointMetrics metrics = mMetrics.getEndpointMetrics("stops-for-location");
+        long size = metrics.getResponseSize().getMax();
+        long compressed = metrics.getCompressedSize().getMax();
+        assertTrue(size > 0);
+        if (encoding != null) {
+            assertTrue(compressed + " should be smaller than " + size, compressed < size / 4);
+        } else {
+            assertEquals(size, compressed);
+        }
+    }
+}
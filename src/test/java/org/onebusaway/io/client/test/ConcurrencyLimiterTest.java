@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.test;
+
+import org.onebusaway.io.client.ObaApi;
+import org.onebusaway.io.client.ObaDefaultConnectionFactory;
+import org.onebusaway.io.client.mock.MockHttpServer;
+import org.onebusaway.io.client.request.ConcurrencyLimiter;
+import org.onebusaway.io.client.request.ObaCurrentTimeRequest;
+import org.onebusaway.io.client.request.ObaCurrentTimeResponse;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests limiting the requests in progress to a server
+ */
+public class ConcurrencyLimiterTest extends ObaTestCase {
+
+    private MockHttpServer mServer;
+
+    private URI mServerUri;
+
+    @Override
+    protected void setUp() {
+        super.setUp();
+        try {
+            mServer = new MockHttpServer();
+            ObaApi.getDefaultContext().setBaseUrl(mServer.getBaseUrl());
+            ObaApi.getDefaultContext().setConnectionFactory(
+                    ObaDefaultConnectionFactory.getInstance());
+            mServerUri = new URI(mServer.getBaseUrl());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    protected void tearDown() {
+        ObaApi.getDefaultContext().setConcurrencyLimiter(null);
+        mServer.stop();
+        super.tearDown();
+    }
+
+    public void testRejectsOverLimit() throws InterruptedException {
+        ConcurrencyLimiter limiter = setLimiter(new ConcurrencyLimiter.Builder()
+                .setLimits(1, 2, 2)
+                .setQueue(0, 0, TimeUnit.MILLISECONDS));
+        mServer.setDelay(300);
+        List<Caller> callers = startCallers(2);
+        Thread.sleep(100);
+        assertEquals(2, limiter.getInFlight(mServerUri));
+
+        long start = System.nanoTime();
+        ObaCurrentTimeResponse response = ObaCurrentTimeRequest.newRequest().call();
+        assertEquals(ObaApi.OBA_CONCURRENCY_LIMITED, response.getCode());
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals(1, limiter.getRejectedCount());
+
+        for (Caller caller : callers) {
+            caller.join();
+            assertOK(caller.response);
+        }
+        assertEquals(0, limiter.getInFlight(mServerUri));
+        assertEquals(2, mServer.getRequestCount());
+    }
+
+    public void testQueuesOverLimit() throws InterruptedException {
+        ConcurrencyLimiter limiter = setLimiter(new ConcurrencyLimiter.Builder()
+                .setLimits(1, 1, 1)
+                .setQueue(10, 5, TimeUnit.SECONDS));
+        mServer.setDelay(150);
+        List<Caller> callers = startCallers(3);
+        Thread.sleep(75);
+        assertEquals(1, limiter.getInFlight(mServerUri));
+        assertEquals(2, limiter.getQueueDepth(mServerUri));
+        for (Caller caller : callers) {
+            caller.join();
+            assertOK(caller.response);
+        }
+        assertEquals(0, limiter.getQueueDepth(mServerUri));
+        assertEquals(0, limiter.getRejectedCount());
+    }
+
+    public void testQueueTimeout() throws InterruptedException {
+        ConcurrencyLimiter limiter = setLimiter(new ConcurrencyLimiter.Builder()
+                .setLimits(1, 1, 1)
+                .setQueue(10, 50, TimeUnit.MILLISECONDS));
+        mServer.setDelay(300);
+        List<Caller> callers = startCallers(1);
+        Thread.sleep(50);
+        assertEquals(ObaApi.OBA_CONCURRENCY_LIMITED,
+                ObaCurrentTimeRequest.newRequest().call().getCode());
+        callers.get(0).join();
+        assertOK(callers.get(0).response);
+        assertEquals(1, limiter.getRejectedCount());
+        assertEquals(1, mServer.getRequestCount());
+    }
+
+    public void testLimitDecreasesWhenServerSlows() {
+        ConcurrencyLimiter limiter = setLimiter(new ConcurrencyLimiter.Builder()
+                .setLimits(1, 20, 100));
+        for (int i = 0; i < 10; i++) {
+            assertOK(ObaCurrentTimeRequest.newRequest().call());
+        }
+        mServer.setDelay(50);
+        for (int i = 0; i < 5; i++) {
+            assertOK(ObaCurrentTimeRequest.newRequest().call());
+        }
+        int limit = limiter.getLimit(mServerUri);
+        assertTrue("limit " + limit, limit < 15);
+    }
+
+    public void testLimitDecreasesOnFailure() {
+        ConcurrencyLimiter limiter = setLimiter(new ConcurrencyLimiter.Builder()
+                .setLimits(1, 10, 100)
+                .setBackoffRatio(0.5));
+        mServer.fail(1, 503);
+        ObaCurrentTimeRequest.newRequest().call();
+        assertEquals(5, limiter.getLimit(mServerUri));
+    }
+
+    public void testLimitGrowsWhileUsed() throws InterruptedException {
+        ConcurrencyLimiter limiter = setLimiter(new ConcurrencyLimiter.Builder()
+                .setLimits(1, 2, 100)
+                .setRttTolerance(10)
+                .setQueue(100, 10, TimeUnit.SECONDS));
+        mServer.setDelay(5);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 10; j++) {
+                        ObaCurrentTimeRequest.newRequest().call();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        int limit = limiter.getLimit(mServerUri);
+        assertTrue("limit " + limit, limit > 2);
+        assertEquals(0, limiter.getRejectedCount());
+    }
+
+    public void testServersAreSeparate() throws Exception {
+        ConcurrencyLimiter limiter = setLimiter(new ConcurrencyLimiter.Builder()
+                .setLimits(1, 10, 100)
+                .setBackoffRatio(0.5));
+        mServer.fail(1, 503);
+        ObaCurrentTimeRequest.newRequest().call();
+        assertEquals(5, limiter.getLimit(mServerUri));
+        assertEquals(10, limiter.getLimit(new URI("http://api.tampa.onebusaway.org/api/")));
+    }
+
+    private static ConcurrencyLimiter setLimiter(ConcurrencyLimiter.Builder builder) {
+        ConcurrencyLimiter limiter = builder.build();
+        ObaApi.getDefaultContext().setConcurrencyLimiter(limiter);
+        return limiter;
+    }
+
+    private static List<Caller> startCallers(int count) {
+        List<Caller> callers = new ArrayList<Caller>();
+        for (int i = 0; i < count; i++) {
+            Caller caller = new Caller();
+            caller.start();
+            callers.add(caller);
+        }
+        return callers;
+    }
+
+    private static final class Caller extends Thread {
+
+        volatile ObaCurrentTimeResponse response;
+
+        @Override
+        public void run() {
+            response = ObaCurrentTimeRequest.newRequest().call();
+        }
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.test;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+import org.onebusaway.io.client.ObaApi;
+import org.onebusaway.io.client.ObaConnection;
+import org.onebusaway.io.client.ObaConnectionFactory;
+import org.onebusaway.io.client.ObaDefaultConnectionFactory;
+import org.onebusaway.io.client.metrics.RequestMetrics;
+import org.onebusaway.io.client.mock.MockHttpServer;
+import org.onebusaway.io.client.request.HedgingPolicy;
+import org.onebusaway.io.client.request.ObaCurrentTimeRequest;
+import org.onebusaway.io.client.request.ObaCurrentTimeResponse;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Tests hedging slow requests
+ */
+public class HedgingPolicyTest extends ObaTestCase {
+
+    private static final String ENDPOINT = "current-time";
+
+    private MockHttpServer mServer;
+
+    private RequestMetrics mMetrics;
+
+    @Override
+    protected void setUp() {
+        super.setUp();
+        try {
+            mServer = new MockHttpServer();
+            ObaApi.getDefaultContext().setBaseUrl(mServer.getBaseUrl());
+            ObaApi.getDefaultContext().setConnectionFactory(
+                    ObaDefaultConnectionFactory.getInstance());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        mMetrics = new RequestMetrics();
+        ObaApi.getDefaultContext().setRequestListener(mMetrics);
+    }
+
+    @Override
+    protected void tearDown() {
+        ObaApi.getDefaultContext().setHedgingPolicy(null);
+        ObaApi.getDefaultContext().setRequestListener(null);
+        mServer.stop();
+        super.tearDown();
+    }
+
+    public void testDelayNeedsSamples() {
+        HedgingPolicy policy = newBuilder()
+                .setBudget(0.5)
+                .setDelayBounds(5, 1000, TimeUnit.MILLISECONDS)
+                .build();
+        ObaApi.getDefaultContext().setHedgingPolicy(policy);
+        // Slow enough that the delay comes from the samples rather than either bound
+        mServer.setDelay(100);
+        for (int i = 0; i < 4; i++) {
+            assertOK(ObaCurrentTimeRequest.newRequest().call());
+            assertEquals(-1, policy.getDelay(ENDPOINT, TimeUnit.MILLISECONDS));
+        }
+        assertOK(ObaCurrentTimeRequest.newRequest().call());
+        long delay = policy.getDelay(ENDPOINT, TimeUnit.MILLISECONDS);
+        assertTrue("delay " + delay + "ms", delay >= 100);
+        assertTrue("delay " + delay + "ms", delay < 1000);
+        assertEquals(-1, policy.getDelay("arrivals-and-departures-for-stop",
+                TimeUnit.MILLISECONDS));
+    }
+
+    public void testSlowRequestHedged() {
+        HedgingPolicy policy = newBuilder().setBudget(0.5).build();
+        ObaApi.getDefaultContext().setHedgingPolicy(policy);
+        warmUp(10);
+
+        long hedges = policy.getHedgeCount();
+        long wins = policy.getHedgeWinCount();
+        long disconnected = mMetrics.getEndpointMetrics(ENDPOINT)
+                .getResultCount(ObaApi.OBA_IO_EXCEPTION);
+        mServer.setSlow(1, 3000);
+        long start = System.nanoTime();
+        ObaCurrentTimeResponse response = ObaCurrentTimeRequest.newRequest().call();
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertOK(response);
+        assertTrue("took " + elapsed + "ms", elapsed < 1500);
+        assertEquals(hedges + 1, policy.getHedgeCount());
+        assertEquals(wins + 1, policy.getHedgeWinCount());
+        // The slow request was disconnected
+        assertEquals(disconnected + 1, mMetrics.getEndpointMetrics(ENDPOINT)
+                .getResultCount(ObaApi.OBA_IO_EXCEPTION));
+    }
+
+    public void testCancelAfterHedge() throws InterruptedException {
+        HedgingPolicy policy = newBuilder().setBudget(0.5).build();
+        ObaApi.getDefaultContext().setHedgingPolicy(policy);
+        warmUp(10);
+
+        // The original request is stuck before it has a connection to disconnect, and
+        // the hedge is connected but waiting on a slow server
+        final AtomicBoolean stallNext = new AtomicBoolean(true);
+        ObaApi.getDefaultContext().setConnectionFactory(new ObaConnectionFactory() {
+            @Override
+            public ObaConnection newConnection(URI uri) throws IOException {
+                if (stallNext.compareAndSet(true, false)) {
+                    try {
+                        Thread.sleep(3000);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return ObaDefaultConnectionFactory.getInstance().newConnection(uri);
+            }
+        });
+        mServer.setDelay(3000);
+        long hedges = policy.getHedgeCount();
+        long disconnected = mMetrics.getEndpointMetrics(ENDPOINT)
+                .getResultCount(ObaApi.OBA_IO_EXCEPTION);
+        ListenableFuture<ObaCurrentTimeResponse> future =
+                ObaCurrentTimeRequest.newRequest().callAsync();
+        // Past the hedge delay, with time for the hedge to connect
+        Thread.sleep(500);
+        assertEquals(hedges + 1, policy.getHedgeCount());
+        assertTrue(future.cancel(true));
+
+        // The hedge is disconnected, well before the server would have answered it
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (mMetrics.getEndpointMetrics(ENDPOINT).getResultCount(ObaApi.OBA_IO_EXCEPTION)
+                == disconnected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(disconnected + 1, mMetrics.getEndpointMetrics(ENDPOINT)
+                .getResultCount(ObaApi.OBA_IO_EXCEPTION));
+    }
+
+    public void testFastRequestsNotHedged() {
+        HedgingPolicy policy = newBuilder()
+                .setBudget(0.5)
+                .setDelayBounds(200, 1000, TimeUnit.MILLISECONDS)
+                .build();
+        ObaApi.getDefaultContext().setHedgingPolicy(policy);
+        warmUp(20);
+        assertEquals(0, policy.getHedgeCount());
+        assertEquals(20, mServer.getRequestCount());
+    }
+
+    public void testBudget() {
+        HedgingPolicy policy = newBuilder()
+                .setBudget(0.1)
+                .setMaxBurst(1)
+                .build();
+        ObaApi.getDefaultContext().setHedgingPolicy(policy);
+        warmUp(10);
+
+        // Every request is now slower than the hedge delay
+        mServer.setDelay(150);
+        warmUp(10);
+        // One hedge saved up from the warm up, and one earned since
+        assertTrue(policy.getHedgeCount() >= 1);
+        assertTrue(policy.getHedgeCount() <= 2);
+        assertTrue(policy.getOverBudgetCount() > 0);
+    }
+
+    public void testOtherEndpointsNotHedged() {
+        HedgingPolicy policy = new HedgingPolicy.Builder()
+                .setSamples(5, 100)
+                .setBudget(1)
+                .build();
+        ObaApi.getDefaultContext().setHedgingPolicy(policy);
+        warmUp(10);
+        assertEquals(-1, policy.getDelay(ENDPOINT, TimeUnit.MILLISECONDS));
+    }
+
+    private static HedgingPolicy.Builder newBuilder() {
+        return new HedgingPolicy.Builder()
+                .setEndpoints(Arrays.asList(ENDPOINT))
+                .setDelayBounds(50, 100, TimeUnit.MILLISECONDS)
+                .setSamples(5, 100);
+    }
+
+    private static void warmUp(int requests) {
+        for (int i = 0; i < requests; i++) {
+            assertOK(ObaCurrentTimeRequest.newRequest().call());
+        }
+    }
+}
@@ -17,13 +17,17 @@ package org.onebusaway.io.client.test;
 
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.Reader;
+import java.io.StringReader;
 
 import org.onebusaway.io.client.JacksonSerializer;
 import org.onebusaway.io.client.ObaApi;
 import org.onebusaway.io.client.mock.Resources;
 import org.onebusaway.io.client.request.ObaResponse;
 import org.onebusaway.io.client.request.ObaStopsForLocationResponse;
+import org.onebusaway.io.client.request.ObaTripsForRouteResponse;
 
 public class JacksonTest extends ObaTestCase {
 
@@ -69,6 +73,42 @@ public class JacksonTest extends ObaTestCase {
         assertNotNull(response);
     }
 
+    public void testStreamFromBytes() throws Exception {
+        InputStream stream = getClass().getClassLoader()
+                .getResourceAsStream("api/where/stops-for-location.json");
+        ObaStopsForLocationResponse response = ObaApi
+                .getSerializer(ObaStopsForLocationResponse.class)
+                .deserialize(stream, ObaStopsForLocationResponse.class);
+        assertOK(response);
+        assertEquals(51, response.getStops().length);
+        assertTrue(response.getLimitExceeded());
+    }
+
+    public void testStreamFromReader() throws Exception {
+        Reader reader = new InputStreamReader(getClass().getClassLoader()
+                .getResourceAsStream("api/api/where/trips-for-route/Hillsborough Area Regional Transit_5.json"),
+                "UTF-8");
+        ObaTripsForRouteResponse response = ObaApi
+                .getSerializer(ObaTripsForRouteResponse.class)
+                .deserialize(reader, ObaTripsForRouteResponse.class);
+        assertOK(response);
+        assertTrue(response.getTrips().length > 0);
+    }
+
+    public void testEmptyBody() {
+        ObaResponse response = ObaApi.getSerializer(ObaResponse.class)
+                .deserialize(new StringReader(""), ObaResponse.class);
+        assertNotNull(response);
+        assertEquals(ObaApi.OBA_INTERNAL_ERROR, response.getCode());
+    }
+
+    public void testMalformedBody() {
+        ObaResponse response = ObaApi.getSerializer(ObaResponse.class)
+                .deserialize(new StringReader("{\"code\": 200, \"data\": ["), ObaResponse.class);
+        assertNotNull(response);
+        assertEquals(ObaApi.OBA_INTERNAL_ERROR, response.getCode());
+    }
+
     @JsonPropertyOrder(value = {"code", "version", "text"})
     public class MockResponse {
 
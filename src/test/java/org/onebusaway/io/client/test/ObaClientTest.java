@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.test;
+
+import org.onebusaway.io.client.JacksonSerializer;
+import org.onebusaway.io.client.ObaApi;
+import org.onebusaway.io.client.ObaClient;
+import org.onebusaway.io.client.ObaConnection;
+import org.onebusaway.io.client.ObaConnectionFactory;
+import org.onebusaway.io.client.ObaContext;
+import org.onebusaway.io.client.ObaDefaultConnectionFactory;
+import org.onebusaway.io.client.mock.MockHttpServer;
+import org.onebusaway.io.client.request.ObaArrivalInfoBatchRequest;
+import org.onebusaway.io.client.request.ObaArrivalInfoBatchResponse;
+import org.onebusaway.io.client.request.ObaArrivalInfoRequest;
+import org.onebusaway.io.client.request.ObaArrivalInfoResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests that requests are made with the context given to their builder, and with
+ * separate ObaClients side by side
+ */
+public class ObaClientTest extends ObaTestCase {
+
+    private MockHttpServer mFirstServer;
+
+    private MockHttpServer mSecondServer;
+
+    private ObaConnectionFactory mDefaultFactory;
+
+    @Override
+    protected void setUp() {
+        super.setUp();
+        try {
+            mFirstServer = new MockHttpServer();
+            mSecondServer = new MockHttpServer();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        // Nothing should be requested through the default context
+        mDefaultFactory = ObaApi.getDefaultContext().setConnectionFactory(
+                new ObaConnectionFactory() {
+                    @Override
+                    public ObaConnection newConnection(URI uri) throws IOException {
+                        throw new AssertionError("Used the default context for " + uri);
+                    }
+                });
+    }
+
+    @Override
+    protected void tearDown() {
+        ObaApi.getDefaultContext().setConnectionFactory(mDefaultFactory);
+        mFirstServer.stop();
+        mSecondServer.stop();
+        super.tearDown();
+    }
+
+    private static final class CountingFactory implements ObaConnectionFactory {
+
+        final AtomicInteger connections = new AtomicInteger();
+
+        @Override
+        public ObaConnection newConnection(URI uri) throws IOException {
+            connections.incrementAndGet();
+            return ObaDefaultConnectionFactory.getInstance().newConnection(uri);
+        }
+    }
+
+    public void testClientsSideBySide() {
+        CountingFactory firstFactory = new CountingFactory();
+        CountingFactory secondFactory = new CountingFactory();
+        ObaClient first = new ObaClient.Builder()
+                .setBaseUrl(mFirstServer.getBaseUrl())
+                .setApiKey("first")
+                .setConnectionFactory(firstFactory)
+                .build();
+        ObaClient second = new ObaClient.Builder()
+                .setBaseUrl(mSecondServer.getBaseUrl())
+                .setApiKey("second")
+                .setConnectionFactory(secondFactory)
+                .build();
+
+        ObaArrivalInfoResponse response =
+                new ObaArrivalInfoRequest.Builder(first.getContext(), "1_75403").build().call();
+        assertOK(response);
+        response = new ObaArrivalInfoRequest.Builder(second.getContext(), "1_29261", 60)
+                .build().call();
+        assertOK(response);
+        response = new ObaArrivalInfoRequest.Builder(second.getContext(), "1_10020")
+                .build().call();
+        assertOK(response);
+
+        assertEquals(1, mFirstServer.getRequestCount());
+        assertEquals(1, firstFactory.connections.get());
+        assertEquals(2, mSecondServer.getRequestCount());
+        assertEquals(2, secondFactory.connections.get());
+    }
+
+    public void testContextCantBeChanged() {
+        ObaClient client = new ObaClient.Builder()
+                .setBaseUrl(mFirstServer.getBaseUrl())
+                .build();
+        try {
+            client.getContext().setApiKey("other");
+            fail("Changed the client's context");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        // Its copies can be changed, without changing the client
+        ObaContext copy = client.getContext().clone();
+        copy.setApiKey("other");
+        assertEquals("TEST", client.getContext().getApiKey());
+        assertEquals(client.getConnectionFactory(), copy.getConnectionFactory());
+    }
+
+    public void testBuilderContext() throws Exception {
+        // A builder's own context, changed through getObaContext(), is used for the call
+        CountingFactory factory = new CountingFactory();
+        ObaArrivalInfoRequest.Builder builder = new ObaArrivalInfoRequest.Builder("1_75403");
+        builder.getObaContext().setBaseUrl(mFirstServer.getBaseUrl());
+        builder.getObaContext().setConnectionFactory(factory);
+        assertOK(builder.build().call());
+        assertEquals(1, factory.connections.get());
+    }
+
+    public void testSerializerAndExecutor() throws Exception {
+        final AtomicInteger deserialized = new AtomicInteger();
+        final ObaApi.SerializationHandler jackson = JacksonSerializer.getInstance();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            ObaClient client = new ObaClient.Builder()
+                    .setBaseUrl(mFirstServer.getBaseUrl())
+                    .setConnectionFactory(ObaDefaultConnectionFactory.getInstance())
+                    .setExecutor(executor)
+                    .setSerializer(new ObaApi.SerializationHandler() {
+                        @Override
+                        public <T> T deserialize(Reader reader, Class<T> cls) {
+                            deserialized.incrementAndGet();
+                            return jackson.deserialize(reader, cls);
+                        }
+
+                        @Override
+                        public <T> T deserialize(InputStream stream, Class<T> cls) {
+                            deserialized.incrementAndGet();
+                            return jackson.deserialize(stream, cls);
+                        }
+
+                        @Override
+                        public String serialize(Object obj) {
+                            return jackson.serialize(obj);
+                        }
+
+                        @Override
+                        public <T> T createFromError(Class<T> cls, int code, String error) {
+                            return jackson.createFromError(cls, code, error);
+                        }
+                    })
+                    .build();
+
+            ObaArrivalInfoBatchResponse batch = new ObaArrivalInfoBatchRequest.Builder(
+                    client.getContext(), Arrays.asList("1_75403", "1_29261", "1_10020"))
+                    .setMaxParallelism(2)
+                    .build()
+                    .callAsync()
+                    .get();
+            assertTrue(batch.isComplete());
+            assertEquals(3, deserialized.get());
+            assertEquals(3, mFirstServer.getRequestCount());
+            assertSame(client.getExecutor(), client.getContext().getExecutor());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
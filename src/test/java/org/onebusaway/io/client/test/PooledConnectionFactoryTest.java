@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.test;
+
+import org.onebusaway.io.client.ObaApi;
+import org.onebusaway.io.client.ObaConnectionFactory;
+import org.onebusaway.io.client.ObaPooledConnectionFactory;
+import org.onebusaway.io.client.mock.MockHttpServer;
+import org.onebusaway.io.client.request.ObaCurrentTimeRequest;
+import org.onebusaway.io.client.request.ObaCurrentTimeResponse;
+import org.onebusaway.io.client.request.ObaStopRequest;
+import org.onebusaway.io.client.request.ObaStopResponse;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests the keep-alive connection pool against a local HTTP server
+ */
+public class PooledConnectionFactoryTest extends ObaTestCase {
+
+    private MockHttpServer mServer;
+
+    private ObaPooledConnectionFactory mFactory;
+
+    private ObaConnectionFactory mOldFactory;
+
+    @Override
+    protected void setUp() {
+        super.setUp();
+        try {
+            mServer = new MockHttpServer();
+            ObaApi.getDefaultContext().setBaseUrl(mServer.getBaseUrl());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        mFactory = new ObaPooledConnectionFactory.Builder()
+                .setMaxConnectionsPerHost(2)
+                .build();
+        mOldFactory = ObaApi.getDefaultContext().setConnectionFactory(mFactory);
+    }
+
+    @Override
+    protected void tearDown() {
+        ObaApi.getDefaultContext().setConnectionFactory(mOldFactory);
+        mFactory.shutdown();
+        mServer.stop();
+        super.tearDown();
+    }
+
+    public void testCurrentTime() {
+        ObaCurrentTimeResponse response = ObaCurrentTimeRequest.newRequest().call();
+        assertOK(response);
+        assertEquals(1343587068277L, response.getTime());
+    }
+
+    public void testConnectionIsReused() {
+        for (int i = 0; i < 5; i++) {
+            assertOK(ObaCurrentTimeRequest.newRequest().call());
+        }
+        assertEquals(5, mServer.getRequestCount());
+        // Every request went over the same keep-alive connection
+        assertEquals(0, mFactory.getPoolStats().getLeased());
+        assertEquals(1, mFactory.getPoolStats().getAvailable());
+    }
+
+    public void testNotFound() {
+        ObaStopResponse response = ObaStopRequest.newRequest("does_not_exist").call();
+        assertNotNull(response);
+        assertEquals(ObaApi.OBA_NOT_FOUND, response.getCode());
+        // The connection is released even though the request failed
+        assertEquals(0, mFactory.getPoolStats().getLeased());
+    }
+
+    public void testCancelAbortsConnection() throws Exception {
+        mServer.setDelay(5000);
+        Future<ObaCurrentTimeResponse> future = ObaCurrentTimeRequest.newRequest().callAsync();
+        Thread.sleep(200);
+        assertEquals(1, mFactory.getPoolStats().getLeased());
+        future.cancel(true);
+        // The aborted connection is closed rather than returned to the pool
+        long start = System.currentTimeMillis();
+        while (mFactory.getPoolStats().getLeased() > 0
+                && System.currentTimeMillis() - start < 4000) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, mFactory.getPoolStats().getLeased());
+        assertEquals(0, mFactory.getPoolStats().getAvailable());
+
+        mServer.setDelay(0);
+        assertOK(ObaCurrentTimeRequest.newRequest().callAsync().get(10, TimeUnit.SECONDS));
+    }
+}
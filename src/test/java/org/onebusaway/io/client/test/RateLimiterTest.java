@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.test;
+
+import org.onebusaway.io.client.ObaApi;
+import org.onebusaway.io.client.ObaDefaultConnectionFactory;
+import org.onebusaway.io.client.mock.MockHttpServer;
+import org.onebusaway.io.client.request.ObaCurrentTimeRequest;
+import org.onebusaway.io.client.request.RateLimiter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests the token bucket rate limiter
+ */
+public class RateLimiterTest extends ObaTestCase {
+
+    private static final String ARRIVALS = "arrivals-and-departures-for-stop";
+
+    private static final String TRIPS = "trips-for-route";
+
+    private MockHttpServer mServer;
+
+    @Override
+    protected void setUp() {
+        super.setUp();
+        try {
+            mServer = new MockHttpServer();
+            ObaApi.getDefaultContext().setBaseUrl(mServer.getBaseUrl());
+            ObaApi.getDefaultContext().setConnectionFactory(
+                    ObaDefaultConnectionFactory.getInstance());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    protected void tearDown() {
+        ObaApi.getDefaultContext().setRateLimiter(null);
+        mServer.stop();
+        super.tearDown();
+    }
+
+    public void testBurst() {
+        RateLimiter limiter = new RateLimiter.Builder().setRate(1, 5).build();
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.tryAcquire("key", TRIPS));
+        }
+        assertFalse(limiter.tryAcquire("key", TRIPS));
+        assertEquals(1, limiter.getRejectedCount());
+    }
+
+    public void testRefill() throws InterruptedException {
+        RateLimiter limiter = new RateLimiter.Builder().setRate(50, 1).build();
+        assertTrue(limiter.tryAcquire("key", TRIPS));
+        assertFalse(limiter.tryAcquire("key", TRIPS));
+        Thread.sleep(40);
+        assertTrue(limiter.tryAcquire("key", TRIPS));
+    }
+
+    public void testKeysAreSeparate() {
+        RateLimiter limiter = new RateLimiter.Builder().setRate(1, 1).build();
+        assertTrue(limiter.tryAcquire("key1", TRIPS));
+        assertFalse(limiter.tryAcquire("key1", TRIPS));
+        assertTrue(limiter.tryAcquire("key2", TRIPS));
+    }
+
+    public void testEndpointBudgets() {
+        RateLimiter limiter = new RateLimiter.Builder()
+                .setRate(1, 2)
+                .setRate(ARRIVALS, 1, 1)
+                .build();
+        assertTrue(limiter.tryAcquire("key", TRIPS));
+        assertTrue(limiter.tryAcquire("key", TRIPS));
+        assertFalse(limiter.tryAcquire("key", TRIPS));
+        // Other methods share the default budget...
+        assertFalse(limiter.tryAcquire("key", "stop"));
+        // ...but arrivals has its own
+        assertTrue(limiter.tryAcquire("key", ARRIVALS));
+        assertFalse(limiter.tryAcquire("key", ARRIVALS));
+    }
+
+    public void testOnlyEndpointLimited() {
+        RateLimiter limiter = new RateLimiter.Builder().setRate(ARRIVALS, 1, 1).build();
+        assertTrue(limiter.tryAcquire("key", ARRIVALS));
+        assertFalse(limiter.tryAcquire("key", ARRIVALS));
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limiter.tryAcquire("key", TRIPS));
+        }
+    }
+
+    public void testBlockingAcquire() throws InterruptedException {
+        RateLimiter limiter = new RateLimiter.Builder().setRate(20, 1).build();
+        assertTrue(limiter.acquire("key", TRIPS, 1, TimeUnit.SECONDS));
+        long start = System.nanoTime();
+        assertTrue(limiter.acquire("key", TRIPS, 1, TimeUnit.SECONDS));
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue("waited " + elapsed + "ms", elapsed >= 30);
+        assertEquals(1, limiter.getDelayedCount());
+        assertEquals(0, limiter.getRejectedCount());
+    }
+
+    public void testBlockingAcquireTimeout() throws InterruptedException {
+        RateLimiter limiter = new RateLimiter.Builder().setRate(1, 1).build();
+        assertTrue(limiter.acquire("key", TRIPS, 100, TimeUnit.MILLISECONDS));
+        long start = System.nanoTime();
+        // A token won't be available for a second, so this gives up without waiting
+        assertFalse(limiter.acquire("key", TRIPS, 100, TimeUnit.MILLISECONDS));
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(1, limiter.getRejectedCount());
+    }
+
+    public void testManyThreads() throws InterruptedException {
+        // Nothing refills during the test, so exactly the burst is handed out
+        final RateLimiter limiter = new RateLimiter.Builder().setRate(0.001, 1000).build();
+        final AtomicInteger acquired = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 200; i++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int j = 0; j < 100; j++) {
+                        if (limiter.tryAcquire("key", TRIPS)) {
+                            acquired.incrementAndGet();
+                        }
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(1000, acquired.get());
+        assertEquals(200 * 100 - 1000, limiter.getRejectedCount());
+    }
+
+    public void testRequestsRejected() {
+        ObaApi.getDefaultContext().setRateLimiter(
+                new RateLimiter.Builder().setRate(1, 2).build());
+        assertOK(ObaCurrentTimeRequest.newRequest().call());
+        assertOK(ObaCurrentTimeRequest.newRequest().call());
+        assertEquals(ObaApi.OBA_RATE_LIMITED,
+                ObaCurrentTimeRequest.newRequest().call().getCode());
+        assertEquals(2, mServer.getRequestCount());
+    }
+
+    public void testRequestsWait() {
+        ObaApi.getDefaultContext().setRateLimiter(new RateLimiter.Builder()
+                .setRate(20, 1)
+                .setMaxWait(1, TimeUnit.SECONDS)
+                .build());
+        long start = System.nanoTime();
+        for (int i = 0; i < 3; i++) {
+            assertOK(ObaCurrentTimeRequest.newRequest().call());
+        }
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue("took " + elapsed + "ms", elapsed >= 80);
+        assertEquals(3, mServer.getRequestCount());
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.test;
+
+import org.onebusaway.io.client.ObaApi;
+import org.onebusaway.io.client.elements.ObaReferencesElement;
+import org.onebusaway.io.client.elements.ObaStop;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests dereferencing IDs in the references block
+ */
+public class ReferencesTest extends ObaTestCase {
+
+    private static final String REFERENCES_JSON = "{"
+            + "\"stops\":["
+            + "{\"id\":\"1_100\",\"name\":\"First\",\"lat\":47.6,\"lon\":-122.3},"
+            + "{\"id\":\"1_200\",\"name\":\"Second\",\"lat\":47.7,\"lon\":-122.4},"
+            + "{\"id\":\"1_100\",\"name\":\"Duplicate\",\"lat\":47.8,\"lon\":-122.5}],"
+            + "\"routes\":[{\"id\":\"1_44\",\"shortName\":\"44\"}],"
+            + "\"trips\":[{\"id\":\"1_18196913\",\"routeId\":\"1_44\"}],"
+            + "\"agencies\":[{\"id\":\"1\",\"name\":\"Metro Transit\"}],"
+            + "\"situations\":[]"
+            + "}";
+
+    private ObaReferencesElement mRefs;
+
+    @Override
+    protected void setUp() {
+        super.setUp();
+        mRefs = ObaApi.getSerializer(ObaReferencesElement.class)
+                .deserialize(new StringReader(REFERENCES_JSON), ObaReferencesElement.class);
+        assertNotNull(mRefs);
+    }
+
+    public void testSingleLookups() {
+        assertEquals("Second", mRefs.getStop("1_200").getName());
+        assertEquals("44", mRefs.getRoute("1_44").getShortName());
+        assertEquals("1_44", mRefs.getTrip("1_18196913").getRouteId());
+        assertEquals("Metro Transit", mRefs.getAgency("1").getName());
+        assertNull(mRefs.getStop("1_999"));
+        assertNull(mRefs.getStop(null));
+        assertNull(mRefs.getSituation("1_1"));
+    }
+
+    public void testFirstDuplicateWins() {
+        assertEquals("First", mRefs.getStop("1_100").getName());
+    }
+
+    public void testListLookups() {
+        List<ObaStop> stops = mRefs.getStops(new String[]{"1_200", "1_999", "1_100"});
+        assertEquals(2, stops.size());
+        assertEquals("1_200", stops.get(0).getId());
+        assertEquals("1_100", stops.get(1).getId());
+        assertEquals(1, mRefs.getRoutes(new String[]{"1_44"}).size());
+        assertEquals(0, mRefs.getAgencies(new String[]{}).size());
+    }
+
+    public void testEmptyReferences() {
+        assertNull(ObaReferencesElement.EMPTY_OBJECT.getStop("1_100"));
+        assertEquals(0, ObaReferencesElement.EMPTY_OBJECT.getTrips(new String[]{"1"}).size());
+    }
+
+    public void testMerge() {
+        ObaReferencesElement other = ObaApi.getSerializer(ObaReferencesElement.class)
+                .deserialize(new StringReader("{\"stops\":["
+                        + "{\"id\":\"1_200\",\"name\":\"Other second\"},"
+                        + "{\"id\":\"1_300\",\"name\":\"Third\"}],"
+                        + "\"routes\":[{\"id\":\"1_48\",\"shortName\":\"48\"}]}"),
+                        ObaReferencesElement.class);
+        ObaReferencesElement merged = new ObaReferencesElement(Arrays.asList(mRefs, other));
+        assertEquals("First", merged.getStop("1_100").getName());
+        assertEquals("Second", merged.getStop("1_200").getName());
+        assertEquals("Third", merged.getStop("1_300").getName());
+        assertEquals(2, merged.getRoutes().size());
+        assertEquals("Metro Transit", merged.getAgency("1").getName());
+        String json = ObaApi.getSerializer(ObaReferencesElement.class).serialize(merged);
+        assertEquals(1, json.split("\"1_200\"", -1).length - 1);
+    }
+
+    public void testIndexNotSerialized() {
+        mRefs.getStop("1_100");
+        String json = ObaApi.getSerializer(ObaReferencesElement.class).serialize(mRefs);
+        assertFalse(json.contains("Index"));
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.test;
+
+import org.onebusaway.io.client.ObaApi;
+import org.onebusaway.io.client.ObaDefaultConnectionFactory;
+import org.onebusaway.io.client.elements.ObaRegion;
+import org.onebusaway.io.client.mock.MockHttpServer;
+import org.onebusaway.io.client.util.RegionCatalog;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests the region catalog's snapshots, refreshes and saved file
+ */
+public class RegionCatalogTest extends ObaTestCase {
+
+    private MockHttpServer mServer;
+
+    private RegionCatalog mCatalog;
+
+    private File mFile;
+
+    @Override
+    protected void setUp() {
+        super.setUp();
+        try {
+            mServer = new MockHttpServer();
+            ObaApi.getDefaultContext().setConnectionFactory(
+                    ObaDefaultConnectionFactory.getInstance());
+            mFile = File.createTempFile("regions", ".json");
+            mFile.delete();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    protected void tearDown() {
+        if (mCatalog != null) {
+            mCatalog.shutdown();
+        }
+        mFile.delete();
+        mServer.stop();
+        super.tearDown();
+    }
+
+    private RegionCatalog.Builder newBuilder(String path) {
+        return new RegionCatalog.Builder()
+                .setFile(mFile)
+                .setUri(URI.create(mServer.getBaseUrl() + path));
+    }
+
+    public void testStartsFromResources() {
+        // Nothing is served from here, so the bundled regions are kept
+        mCatalog = newBuilder("missing.json")
+                .setRetryInterval(1, TimeUnit.HOURS)
+                .build();
+        RegionCatalog.Snapshot snapshot = mCatalog.getSnapshot();
+        assertEquals(RegionCatalog.Source.RESOURCES, snapshot.getSource());
+        assertEquals(0, snapshot.getTime());
+        assertTrue(snapshot.getRegions().size() > 0);
+        assertEquals(snapshot.getRegions(), snapshot.getResolver().getRegions());
+
+        assertFalse(mCatalog.refresh());
+        assertSame(snapshot, mCatalog.getSnapshot());
+        assertTrue(mCatalog.getFailureCount() >= 1);
+        assertEquals(0, mCatalog.getRefreshCount());
+        assertFalse(mFile.exists());
+    }
+
+    public void testRefreshSavesSnapshot() throws InterruptedException {
+        // The bundled regions are replaced by the server's straight away
+        mCatalog = newBuilder("regions_v3.json").build();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (mCatalog.getRefreshCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        RegionCatalog.Snapshot snapshot = mCatalog.getSnapshot();
+        assertEquals(RegionCatalog.Source.SERVER, snapshot.getSource());
+        assertTrue(snapshot.getTime() > 0);
+        assertTrue(mFile.isFile());
+        mCatalog.shutdown();
+
+        // The next catalog starts from the saved file, and doesn't need to refresh yet
+        int requests = mServer.getRequestCount();
+        mCatalog = newBuilder("regions_v3.json").build();
+        RegionCatalog.Snapshot saved = mCatalog.getSnapshot();
+        assertEquals(RegionCatalog.Source.FILE, saved.getSource());
+        assertEquals(snapshot.getRegions().size(), saved.getRegions().size());
+        for (int i = 0; i < saved.getRegions().size(); i++) {
+            ObaRegion expected = snapshot.getRegions().get(i);
+            ObaRegion actual = saved.getRegions().get(i);
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getName(), actual.getName());
+            assertEquals(expected.getObaBaseUrl(), actual.getObaBaseUrl());
+            assertEquals(expected.getBounds().length, actual.getBounds().length);
+        }
+        Thread.sleep(100);
+        assertEquals(requests, mServer.getRequestCount());
+    }
+
+    public void testStaleFileIsRefreshed() throws InterruptedException {
+        mCatalog = newBuilder("regions_v3.json").build();
+        assertTrue(mCatalog.refresh());
+        mCatalog.shutdown();
+        assertTrue(mFile.setLastModified(System.currentTimeMillis()
+                - TimeUnit.DAYS.toMillis(8)));
+
+        final BlockingQueue<RegionCatalog.Snapshot> snapshots =
+                new LinkedBlockingQueue<RegionCatalog.Snapshot>();
+        mCatalog = newBuilder("regions_v3.json").build();
+        mCatalog.addListener(new RegionCatalog.Listener() {
+            @Override
+            public void onRegionsChanged(RegionCatalog.Snapshot snapshot) {
+                snapshots.add(snapshot);
+            }
+        });
+        // Either the background refresh has already happened, or it's told to the listener
+        if (mCatalog.getRefreshCount() == 0) {
+            RegionCatalog.Snapshot snapshot = snapshots.poll(5, TimeUnit.SECONDS);
+            assertNotNull(snapshot);
+            assertSame(snapshot, mCatalog.getSnapshot());
+        }
+        assertEquals(RegionCatalog.Source.SERVER, mCatalog.getSnapshot().getSource());
+    }
+
+    public void testIgnoresBadFile() throws IOException {
+        FileOutputStream out = new FileOutputStream(mFile);
+        out.write("{\"code\":500".getBytes("UTF-8"));
+        out.close();
+        mCatalog = newBuilder("missing.json")
+                .setRetryInterval(1, TimeUnit.HOURS)
+                .build();
+        assertEquals(RegionCatalog.Source.RESOURCES, mCatalog.getSnapshot().getSource());
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.test;
+
+import org.onebusaway.io.client.ObaApi;
+import org.onebusaway.io.client.elements.ObaRegion;
+import org.onebusaway.io.client.mock.MockRegion;
+import org.onebusaway.io.client.request.ObaRegionsResponse;
+import org.onebusaway.io.client.util.LocationUtil;
+import org.onebusaway.io.client.util.RegionResolver;
+import org.onebusaway.io.client.util.RegionUtils;
+import org.onebusaway.location.Location;
+
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests that RegionResolver gives the same answers as the RegionUtils linear scans
+ */
+public class RegionResolverTest extends ObaTestCase {
+
+    private List<ObaRegion> mRegions;
+
+    private RegionResolver mResolver;
+
+    private PrintStream mOut;
+
+    @Override
+    protected void setUp() {
+        super.setUp();
+        ObaRegionsResponse response = ObaApi.getSerializer(ObaRegionsResponse.class)
+                .deserialize(new InputStreamReader(getClass().getClassLoader()
+                        .getResourceAsStream("regions_v3.json")), ObaRegionsResponse.class);
+        mRegions = new ArrayList<ObaRegion>(Arrays.asList(response.getRegions()));
+        // Some regions that aren't usable, and a duplicate of Tampa to test the tie-break
+        mRegions.add(MockRegion.getRegionWithoutObaApis());
+        mRegions.add(MockRegion.getInactiveRegion());
+        mRegions.add(MockRegion.getRegionNoObaBaseUrl());
+        mRegions.add(MockRegion.getTampa());
+        mResolver = new RegionResolver(mRegions);
+
+        // getClosestRegion() logs every region it considers
+        mOut = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        }));
+    }
+
+    @Override
+    protected void tearDown() {
+        System.setOut(mOut);
+        super.tearDown();
+    }
+
+    public void testClosestRegionMatchesLinearScan() {
+        for (Location loc : randomLocations(2000)) {
+            for (int flags = 0; flags < 4; flags++) {
+                boolean threshold = (flags & 1) != 0;
+                boolean usability = (flags & 2) != 0;
+                ObaRegion expected = RegionUtils.getClosestRegion(mRegions, loc, threshold,
+                        usability);
+                ObaRegion actual = mResolver.getClosestRegion(loc, threshold, usability);
+                assertSame(loc.getLatitude() + "," + loc.getLongitude() + " " + flags,
+                        expected, actual);
+            }
+        }
+    }
+
+    public void testThreshold() {
+        Location seattle = LocationUtil.makeLocation(47.6097, -122.3331);
+        Location london = LocationUtil.makeLocation(51.5072, -0.1275);
+        assertEquals(MockRegion.PUGET_SOUND_REGION_ID,
+                mResolver.getClosestRegion(seattle, true, true).getId());
+        assertNull(mResolver.getClosestRegion(london, true, true));
+        assertNotNull(mResolver.getClosestRegion(london, false, true));
+        assertNull(mResolver.getClosestRegion(null, false, false));
+    }
+
+    public void testWithinRegionMatchesSpans() {
+        for (Location loc : randomLocations(500)) {
+            ObaRegion first = null;
+            for (ObaRegion region : mRegions) {
+                boolean expected = RegionUtils.isLocationWithinRegion(loc, region);
+                assertEquals(expected, mResolver.isLocationWithinRegion(loc.getLatitude(),
+                        loc.getLongitude(), region));
+                if (expected && first == null) {
+                    first = region;
+                }
+            }
+            assertSame(first, mResolver.getRegionContaining(loc.getLatitude(),
+                    loc.getLongitude(), false));
+        }
+        // A region the resolver wasn't built with
+        ObaRegion atlanta = MockRegion.getAtlanta();
+        assertTrue(mResolver.isLocationWithinRegion(33.7550, -84.3900, atlanta));
+        assertFalse(mResolver.isLocationWithinRegion(47.6097, -122.3331, atlanta));
+    }
+
+    public void testInvalidLocation() {
+        try {
+            mResolver.getRegionContaining(91, 0, true);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    public void testNoRegions() {
+        RegionResolver empty = new RegionResolver(Collections.<ObaRegion>emptyList());
+        assertNull(empty.getClosestRegion(47.6097, -122.3331, false, false));
+        assertNull(empty.getRegionContaining(47.6097, -122.3331, false));
+    }
+
+    public void testQueriesDontAllocate() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        long id = Thread.currentThread().getId();
+        List<Location> locations = randomLocations(1000);
+        double[] lats = new double[locations.size()];
+        double[] lons = new double[locations.size()];
+        for (int i = 0; i < lats.length; i++) {
+            lats[i] = locations.get(i).getLatitude();
+            lons[i] = locations.get(i).getLongitude();
+        }
+        int found = 0;
+        for (int i = 0; i < 20000; i++) {
+            found += query(lats[i % lats.length], lons[i % lons.length]);
+        }
+        long before = threads.getThreadAllocatedBytes(id);
+        for (int i = 0; i < 20000; i++) {
+            found += query(lats[i % lats.length], lons[i % lons.length]);
+        }
+        long allocated = threads.getThreadAllocatedBytes(id) - before;
+        assertTrue(found > 0);
+        // Allow for the bean itself, not for anything per query
+        assertTrue("Allocated " + allocated + " bytes", allocated < 20000);
+    }
+
+    private int query(double lat, double lon) {
+        int found = 0;
+        if (mResolver.getClosestRegion(lat, lon, true, true) != null) {
+            found++;
+        }
+        if (mResolver.getRegionContaining(lat, lon, true) != null) {
+            found++;
+        }
+        return found;
+    }
+
+    private List<Location> randomLocations(int count) {
+        Random random = new Random(42);
+        List<Location> locations = new ArrayList<Location>(count);
+        for (int i = 0; i < count; i++) {
+            double lat;
+            double lon;
+            if (i % 2 == 0) {
+                // Anywhere on earth
+                lat = Math.toDegrees(Math.asin(2 * random.nextDouble() - 1));
+                lon = 360 * random.nextDouble() - 180;
+            } else {
+                // Near a region, where the closest one is a close call
+                ObaRegion region = mRegions.get(random.nextInt(mRegions.size()));
+                ObaRegion.Bounds bound = region.getBounds()[0];
+                lat = Math.max(-90, Math.min(90, bound.getLat() + 6 * random.nextGaussian()));
+                lon = bound.getLon() + 6 * random.nextGaussian();
+                lon = ((lon + 540) % 360) - 180;
+            }
+            locations.add(LocationUtil.makeLocation(lat, lon));
+        }
+        return locations;
+    }
+}
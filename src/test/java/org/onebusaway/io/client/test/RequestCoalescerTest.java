@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.test;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+import org.onebusaway.io.client.ObaApi;
+import org.onebusaway.io.client.ObaDefaultConnectionFactory;
+import org.onebusaway.io.client.mock.MockHttpServer;
+import org.onebusaway.io.client.request.ObaCurrentTimeRequest;
+import org.onebusaway.io.client.request.ObaCurrentTimeResponse;
+import org.onebusaway.io.client.request.RequestCoalescer;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests RequestCoalescer against a local HTTP server
+ */
+public class RequestCoalescerTest extends ObaTestCase {
+
+    private static final int CALLERS = 8;
+
+    private MockHttpServer mServer;
+
+    private ExecutorService mExecutor;
+
+    private RequestCoalescer mCoalescer;
+
+    @Override
+    protected void setUp() {
+        super.setUp();
+        try {
+            mServer = new MockHttpServer();
+            ObaApi.getDefaultContext().setBaseUrl(mServer.getBaseUrl());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        ObaApi.getDefaultContext().setConnectionFactory(ObaDefaultConnectionFactory.getInstance());
+        mExecutor = Executors.newCachedThreadPool();
+        ObaApi.getDefaultContext().setExecutor(mExecutor);
+        mCoalescer = new RequestCoalescer();
+        ObaApi.getDefaultContext().setRequestCoalescer(mCoalescer);
+    }
+
+    @Override
+    protected void tearDown() {
+        ObaApi.getDefaultContext().setRequestCoalescer(null);
+        ObaApi.getDefaultContext().setExecutor(null);
+        mExecutor.shutdownNow();
+        mServer.stop();
+        super.tearDown();
+    }
+
+    public void testConcurrentCallsShareOneRequest() throws Exception {
+        final AtomicInteger callers = new AtomicInteger();
+        mCoalescer.setListener(new RequestCoalescer.Listener() {
+            @Override
+            public void onCoalesced(URI uri, int count) {
+                callers.set(count);
+            }
+        });
+        mServer.setDelay(500);
+
+        List<ObaCurrentTimeResponse> responses = callConcurrently();
+
+        assertEquals(1, mServer.getRequestCount());
+        assertEquals(CALLERS, mCoalescer.getCallCount());
+        assertEquals(CALLERS - 1, mCoalescer.getCoalescedCount());
+        assertEquals(0, mCoalescer.getInFlightCount());
+        assertEquals(CALLERS, callers.get());
+        for (ObaCurrentTimeResponse response : responses) {
+            assertOK(response);
+            assertSame(responses.get(0), response);
+        }
+    }
+
+    public void testSequentialCallsAreNotShared() throws Exception {
+        assertOK(ObaCurrentTimeRequest.newRequest().call());
+        assertOK(ObaCurrentTimeRequest.newRequest().call());
+        assertEquals(2, mServer.getRequestCount());
+        assertEquals(0, mCoalescer.getCoalescedCount());
+    }
+
+    public void testDisabled() throws Exception {
+        ObaApi.getDefaultContext().setRequestCoalescer(null);
+        mServer.setDelay(500);
+
+        List<ObaCurrentTimeResponse> responses = callConcurrently();
+
+        assertEquals(CALLERS, mServer.getRequestCount());
+        for (ObaCurrentTimeResponse response : responses) {
+            assertOK(response);
+        }
+    }
+
+    public void testCancelDoesNotAffectOtherCallers() throws Exception {
+        mServer.setDelay(500);
+        ListenableFuture<ObaCurrentTimeResponse> first =
+                ObaCurrentTimeRequest.newRequest().callAsync();
+        // Give the first request a chance to connect, so it's the one that's shared
+        Thread.sleep(100);
+        ListenableFuture<ObaCurrentTimeResponse> second =
+                ObaCurrentTimeRequest.newRequest().callAsync();
+        Thread.sleep(100);
+        assertTrue(first.cancel(true));
+
+        assertOK(second.get(10, TimeUnit.SECONDS));
+        assertEquals(1, mServer.getRequestCount());
+    }
+
+    private List<ObaCurrentTimeResponse> callConcurrently() throws Exception {
+        List<ListenableFuture<ObaCurrentTimeResponse>> futures =
+                new ArrayList<ListenableFuture<ObaCurrentTimeResponse>>();
+        for (int i = 0; i < CALLERS; i++) {
+            futures.add(ObaCurrentTimeRequest.newRequest().callAsync());
+        }
+        List<ObaCurrentTimeResponse> responses = new ArrayList<ObaCurrentTimeResponse>();
+        for (ListenableFuture<ObaCurrentTimeResponse> future : futures) {
+            responses.add(future.get(10, TimeUnit.SECONDS));
+        }
+        return responses;
+    }
+}
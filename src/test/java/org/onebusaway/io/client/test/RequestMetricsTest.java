@@ -0,0 +1,245 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.test;
+
+import org.onebusaway.io.client.ObaApi;
+import org.onebusaway.io.client.ObaDefaultConnectionFactory;
+import org.onebusaway.io.client.ObaPooledConnectionFactory;
+import org.onebusaway.io.client.metrics.Histogram;
+import org.onebusaway.io.client.metrics.RequestEvent;
+import org.onebusaway.io.client.metrics.RequestListener;
+import org.onebusaway.io.client.metrics.RequestMetrics;
+import org.onebusaway.io.client.mock.MockHttpServer;
+import org.onebusaway.io.client.request.CircuitBreaker;
+import org.onebusaway.io.client.request.ConcurrencyLimiter;
+import org.onebusaway.io.client.request.ObaCurrentTimeRequest;
+import org.onebusaway.io.client.request.ObaStopRequest;
+import org.onebusaway.io.client.request.RateLimiter;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests the RequestListener hooks and RequestMetrics against a local HTTP server
+ */
+public class RequestMetricsTest extends ObaTestCase {
+
+    private MockHttpServer mServer;
+
+    private RequestMetrics mMetrics;
+
+    @Override
+    protected void setUp() {
+        super.setUp();
+        try {
+            mServer = new MockHttpServer();
+            ObaApi.getDefaultContext().setBaseUrl(mServer.getBaseUrl());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        ObaApi.getDefaultContext().setConnectionFactory(ObaDefaultConnectionFactory.getInstance());
+        mMetrics = new RequestMetrics();
+        ObaApi.getDefaultContext().setRequestListener(mMetrics);
+    }
+
+    @Override
+    protected void tearDown() {
+        ObaApi.getDefaultContext().setRequestListener(null);
+        mServer.stop();
+        super.tearDown();
+    }
+
+    public void testSuccess() {
+        assertOK(ObaCurrentTimeRequest.newRequest().call());
+        assertOK(ObaCurrentTimeRequest.newRequest().call());
+
+        RequestMetrics.EndpointMetrics metrics = mMetrics.getEndpointMetrics("current-time");
+        assertNotNull(metrics);
+        assertEquals(2, metrics.getRequestCount());
+        assertEquals(2, metrics.getResultCount(ObaApi.OBA_OK));
+        assertEquals(0, metrics.getInFlight());
+        assertEquals(0, mMetrics.getInFlight());
+        assertEquals(2, metrics.getFirstByteTime().getCount());
+        assertEquals(2, metrics.getDeserializeTime().getCount());
+        assertTrue(metrics.getResponseSize().getMax() > 0);
+        assertTrue(metrics.getTotalTime().getMax() >= metrics.getFirstByteTime().getMax());
+    }
+
+    public void testNotFound() {
+        assertEquals(ObaApi.OBA_NOT_FOUND,
+                new ObaStopRequest.Builder("no_such_stop").build().call().getCode());
+
+        RequestMetrics.EndpointMetrics metrics = mMetrics.getEndpointMetrics("stop");
+        assertEquals(1, metrics.getResultCount(ObaApi.OBA_NOT_FOUND));
+        assertEquals(0, metrics.getResultCount(ObaApi.OBA_OK));
+        // No body was read
+        assertEquals(0, metrics.getResponseSize().getCount());
+        assertEquals(0, metrics.getInFlight());
+    }
+
+    public void testIOException() {
+        mServer.stop();
+        assertEquals(ObaApi.OBA_IO_EXCEPTION, ObaCurrentTimeRequest.newRequest().call().getCode());
+        assertEquals(1, mMetrics.getEndpointMetrics("current-time")
+                .getResultCount(ObaApi.OBA_IO_EXCEPTION));
+        assertEquals(0, mMetrics.getInFlight());
+    }
+
+    public void testRejectedCounted() throws InterruptedException {
+        ObaApi.getDefaultContext().setRateLimiter(
+                new RateLimiter.Builder().setRate(1, 1).build());
+        try {
+            assertOK(ObaCurrentTimeRequest.newRequest().call());
+            assertEquals(ObaApi.OBA_RATE_LIMITED,
+                    ObaCurrentTimeRequest.newRequest().call().getCode());
+        } finally {
+            ObaApi.getDefaultContext().setRateLimiter(null);
+        }
+
+        ObaApi.getDefaultContext().setConcurrencyLimiter(new ConcurrencyLimiter.Builder()
+                .setLimits(1, 1, 1)
+                .setQueue(0, 0, TimeUnit.MILLISECONDS)
+                .build());
+        try {
+            mServer.setDelay(300);
+            Thread slow = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    ObaCurrentTimeRequest.newRequest().call();
+                }
+            });
+            slow.start();
+            Thread.sleep(100);
+            assertEquals(ObaApi.OBA_CONCURRENCY_LIMITED,
+                    ObaCurrentTimeRequest.newRequest().call().getCode());
+            slow.join();
+            mServer.setDelay(0);
+        } finally {
+            ObaApi.getDefaultContext().setConcurrencyLimiter(null);
+        }
+
+        ObaApi.getDefaultContext().setCircuitBreaker(new CircuitBreaker.Builder()
+                .setFailureThreshold(1)
+                .build());
+        try {
+            mServer.stop();
+            assertEquals(ObaApi.OBA_IO_EXCEPTION,
+                    ObaCurrentTimeRequest.newRequest().call().getCode());
+            // Failed fast by the open circuit, without being sent
+            assertEquals(ObaApi.OBA_IO_EXCEPTION,
+                    ObaCurrentTimeRequest.newRequest().call().getCode());
+        } finally {
+            ObaApi.getDefaultContext().setCircuitBreaker(null);
+        }
+
+        RequestMetrics.EndpointMetrics metrics = mMetrics.getEndpointMetrics("current-time");
+        assertEquals(1, metrics.getResultCount(ObaApi.OBA_RATE_LIMITED));
+        assertEquals(1, metrics.getResultCount(ObaApi.OBA_CONCURRENCY_LIMITED));
+        assertEquals(2, metrics.getResultCount(ObaApi.OBA_IO_EXCEPTION));
+        assertEquals(6, metrics.getRequestCount());
+        assertEquals(0, mMetrics.getInFlight());
+    }
+
+    public void testListener() {
+        final List<String> calls = new ArrayList<String>();
+        final List<RequestEvent> events = new ArrayList<RequestEvent>();
+        ObaApi.getDefaultContext().setRequestListener(new RequestListener() {
+            @Override
+            public void onRequestStarted(URI uri, String endpoint) {
+                calls.add("started " + endpoint);
+            }
+
+            @Override
+            public void onRequestFinished(RequestEvent event) {
+                calls.add("finished " + event.getEndpoint());
+                events.add(event);
+            }
+        });
+        assertOK(ObaCurrentTimeRequest.newRequest().call());
+        assertEquals(2, calls.size());
+        assertEquals("started current-time", calls.get(0));
+        assertEquals("finished current-time", calls.get(1));
+        RequestEvent event = events.get(0);
+        assertEquals(ObaApi.OBA_OK, event.getResultCode());
+        assertFalse(event.isPost());
+        assertTrue(event.getFirstByteNanos() >= event.getConnectNanos());
+        assertTrue(event.getTotalNanos() >= event.getFirstByteNanos()
+                + event.getBodyNanos() + event.getDeserializeNanos());
+        assertTrue(event.getResponseSize() > 0);
+    }
+
+    public void testConnectTime() {
+        ObaPooledConnectionFactory factory = new ObaPooledConnectionFactory.Builder().build();
+        ObaApi.getDefaultContext().setConnectionFactory(factory);
+        final List<RequestEvent> events = new ArrayList<RequestEvent>();
+        ObaApi.getDefaultContext().setRequestListener(new RequestListener() {
+            @Override
+            public void onRequestStarted(URI uri, String endpoint) {
+            }
+
+            @Override
+            public void onRequestFinished(RequestEvent event) {
+                events.add(event);
+            }
+        });
+        try {
+            assertOK(ObaCurrentTimeRequest.newRequest().call());
+            assertOK(ObaCurrentTimeRequest.newRequest().call());
+        } finally {
+            factory.shutdown();
+        }
+        // The first request opens a connection, which the second reuses
+        assertTrue(events.get(0).getConnectNanos() > 0);
+        assertTrue(events.get(0).getFirstByteNanos() >= events.get(0).getConnectNanos());
+        assertEquals(0, events.get(1).getConnectNanos());
+
+        ObaApi.getDefaultContext().setConnectionFactory(ObaDefaultConnectionFactory.getInstance());
+        events.clear();
+        assertOK(ObaCurrentTimeRequest.newRequest().call());
+        assertTrue(events.get(0).getConnectNanos() > 0);
+    }
+
+    public void testHistogram() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getValueAtPercentile(99));
+
+        for (long i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000, histogram.getMax());
+        assertEquals(500.5, histogram.getMean(), 0.001);
+        assertEquals(500, histogram.getValueAtPercentile(50), 500 * 0.07);
+        assertEquals(990, histogram.getValueAtPercentile(99), 990 * 0.07);
+        assertEquals(1000, histogram.getValueAtPercentile(100));
+        // Small values are exact
+        assertEquals(1, histogram.getValueAtPercentile(0));
+
+        // Values read back are within the bucket precision of any value recorded
+        Random random = new Random(7);
+        for (int i = 0; i < 1000; i++) {
+            long value = (long) Math.pow(10, random.nextDouble() * 12);
+            Histogram single = new Histogram();
+            single.record(value);
+            single.record(Long.MAX_VALUE);
+            long read = single.getValueAtPercentile(50);
+            assertTrue(value + " read as " + read, read >= value && read <= value * 1.07 + 1);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.test;
+
+import org.onebusaway.io.client.ObaApi;
+import org.onebusaway.io.client.ObaDefaultConnectionFactory;
+import org.onebusaway.io.client.mock.MockHttpServer;
+import org.onebusaway.io.client.request.ObaCurrentTimeRequest;
+import org.onebusaway.io.client.request.ObaCurrentTimeResponse;
+import org.onebusaway.io.client.request.ObaReportProblemWithStopRequest;
+import org.onebusaway.io.client.request.ObaReportProblemWithStopResponse;
+import org.onebusaway.io.client.request.ObaRouteRequest;
+import org.onebusaway.io.client.request.ObaRouteResponse;
+import org.onebusaway.io.client.request.RetryPolicy;
+
+import java.net.HttpURLConnection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests retrying requests that fail because the server is unavailable
+ */
+public class RetryPolicyTest extends ObaTestCase {
+
+    private MockHttpServer mServer;
+
+    private RetryPolicy mPolicy;
+
+    @Override
+    protected void setUp() {
+        super.setUp();
+        try {
+            mServer = new MockHttpServer();
+            ObaApi.getDefaultContext().setBaseUrl(mServer.getBaseUrl());
+            ObaApi.getDefaultContext().setConnectionFactory(
+                    ObaDefaultConnectionFactory.getInstance());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        mPolicy = new RetryPolicy.Builder()
+                .setMaxAttempts(3)
+                .setBackoff(1, 10, TimeUnit.MILLISECONDS)
+                .build();
+        ObaApi.getDefaultContext().setRetryPolicy(mPolicy);
+    }
+
+    @Override
+    protected void tearDown() {
+        ObaApi.getDefaultContext().setRetryPolicy(null);
+        mServer.stop();
+        super.tearDown();
+    }
+
+    public void testRetrySucceeds() {
+        mServer.fail(2, HttpURLConnection.HTTP_UNAVAILABLE);
+        ObaCurrentTimeResponse response = ObaCurrentTimeRequest.newRequest().call();
+        assertOK(response);
+        assertEquals(3, mServer.getRequestCount());
+        assertEquals(2, mPolicy.getRetryCount());
+    }
+
+    public void testRetryGivesUp() {
+        mServer.fail(10, HttpURLConnection.HTTP_BAD_GATEWAY);
+        ObaCurrentTimeResponse response = ObaCurrentTimeRequest.newRequest().call();
+        assertEquals(HttpURLConnection.HTTP_BAD_GATEWAY, response.getCode());
+        assertEquals(3, mServer.getRequestCount());
+        assertEquals(2, mPolicy.getRetryCount());
+    }
+
+    public void testIOExceptionRetried() throws Exception {
+        // Nothing is listening once the server is stopped
+        mServer.stop();
+        ObaCurrentTimeResponse response = ObaCurrentTimeRequest.newRequest().call();
+        assertEquals(ObaApi.OBA_IO_EXCEPTION, response.getCode());
+        assertEquals(2, mPolicy.getRetryCount());
+    }
+
+    public void testNotFoundNotRetried() {
+        ObaRouteResponse response = ObaRouteRequest.newRequest("1_does_not_exist").call();
+        assertEquals(ObaApi.OBA_NOT_FOUND, response.getCode());
+        assertEquals(1, mServer.getRequestCount());
+        assertEquals(0, mPolicy.getRetryCount());
+    }
+
+    public void testPostNotRetried() {
+        mServer.fail(2, HttpURLConnection.HTTP_UNAVAILABLE);
+        ObaReportProblemWithStopResponse response =
+                new ObaReportProblemWithStopRequest.Builder("1_29261")
+                        .setUserComment("Wrong name")
+                        .build()
+                        .call();
+        assertEquals(ObaApi.OBA_IO_EXCEPTION, response.getCode());
+        assertEquals(1, mServer.getRequestCount());
+        assertEquals(0, mPolicy.getRetryCount());
+    }
+
+    public void testBackoffIsBounded() {
+        RetryPolicy policy = new RetryPolicy.Builder()
+                .setMaxAttempts(100)
+                .setBackoff(100, 1000, TimeUnit.MILLISECONDS)
+                .build();
+        long max = 0;
+        for (int i = 0; i < 1000; i++) {
+            long delay = policy.getBackoffMillis(1 + i % 64);
+            assertTrue(delay >= 0);
+            assertTrue(delay <= 1000);
+            max = Math.max(max, delay);
+        }
+        // With full jitter the delays are spread over the whole range
+        assertTrue(max > 500);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(policy.getBackoffMillis(1) <= 100);
+        }
+    }
+}
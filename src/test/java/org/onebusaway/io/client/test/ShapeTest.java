@@ -15,10 +15,13 @@
  */
 package org.onebusaway.io.client.test;
 
+import java.io.InputStream;
 import java.util.List;
 
 import org.junit.Test;
+import org.onebusaway.io.client.ObaApi;
 import org.onebusaway.io.client.elements.ObaShapeElement;
+import org.onebusaway.io.client.request.ObaShapeResponse;
 import org.onebusaway.location.Location;
 
 public class ShapeTest extends ObaTestCase {
@@ -67,4 +70,78 @@ public class ShapeTest extends ObaTestCase {
         assertEquals(3, (int) list.get(2));
         assertEquals(3, (int) list.get(3));
     }
+
+	@Test
+    public void testDecodeLineE5() {
+        int[] points = ObaShapeElement.decodeLineE5("_p~iF~ps|U_ulLnnqC_mqNvxq`@", 3);
+        assertEquals(6, points.length);
+        assertEquals(3850000, points[0]);
+        assertEquals(-12020000, points[1]);
+        assertEquals(4070000, points[2]);
+        assertEquals(-12095000, points[3]);
+        assertEquals(4325200, points[4]);
+        assertEquals(-12645300, points[5]);
+
+        // The number of points is only a hint
+        assertEquals(6, ObaShapeElement.decodeLineE5("_p~iF~ps|U_ulLnnqC_mqNvxq`@", 0).length);
+        assertEquals(6, ObaShapeElement.decodeLineE5("_p~iF~ps|U_ulLnnqC_mqNvxq`@", 10).length);
+        assertEquals(0, ObaShapeElement.decodeLineE5("", 0).length);
+    }
+
+	@Test
+    public void testDecodeLevelArray() {
+        int[] levels = ObaShapeElement.decodeLevelArray("mDBBB", 1);
+        assertEquals(4, levels.length);
+        assertEquals(174, levels[0]);
+        assertEquals(3, levels[1]);
+        assertEquals(3, levels[3]);
+        assertEquals(0, ObaShapeElement.decodeLevelArray("", 0).length);
+    }
+
+	@Test
+    public void testShapeAccessors() throws Exception {
+        InputStream stream = getClass().getClassLoader()
+                .getResourceAsStream("api/where/shape/1_40046045.json");
+        ObaShapeResponse response = ObaApi.getSerializer(ObaShapeResponse.class)
+                .deserialize(stream, ObaShapeResponse.class);
+        assertOK(response);
+
+        final int count = response.getPointCount();
+        assertTrue(count > 0);
+        List<Location> expected = ObaShapeElement.decodeLine(response.getRawPoints(), 0);
+        List<Location> points = response.getPoints();
+        assertEquals(expected.size(), count);
+        assertEquals(count, points.size());
+
+        int[] e5 = new int[count * 2 + 1];
+        response.getPointsE5(e5, 1);
+        double[] degrees = new double[count * 2];
+        response.getPoints(degrees, 0);
+        for (int i = 0; i < count; i++) {
+            assertEquals(expected.get(i).getLatitude(), response.getLatitude(i));
+            assertEquals(expected.get(i).getLongitude(), response.getLongitude(i));
+            assertEquals(expected.get(i).getLatitude(), points.get(i).getLatitude());
+            assertEquals(expected.get(i).getLatitude(), e5[1 + i * 2] / 1E5);
+            assertEquals(expected.get(i).getLongitude(), e5[2 + i * 2] / 1E5);
+            assertEquals(expected.get(i).getLatitude(), degrees[i * 2]);
+            assertEquals(expected.get(i).getLongitude(), degrees[i * 2 + 1]);
+        }
+
+        try {
+            response.getLatitude(count);
+            fail("Expected IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+        try {
+            response.getPoints(new double[count], 0);
+            fail("Expected IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+
+        List<Integer> levels = ObaShapeElement.decodeLevels(response.getRawLevels(), 0);
+        assertEquals(levels, response.getLevels());
+        assertEquals(levels.size(), response.getLevelCount());
+    }
 }
@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.test;
+
+import org.onebusaway.io.client.ObaApi;
+import org.onebusaway.io.client.elements.ObaStop;
+import org.onebusaway.io.client.request.ObaStopsForLocationResponse;
+import org.onebusaway.io.client.util.SpatialIndex;
+import org.onebusaway.location.Location;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+public class SpatialIndexTest extends ObaTestCase {
+
+    private static final class Point {
+
+        final String id;
+
+        final double lat;
+
+        final double lon;
+
+        Point(String id, double lat, double lon) {
+            this.id = id;
+            this.lat = lat;
+            this.lon = lon;
+        }
+    }
+
+    private static final SpatialIndex.Locator<Point> POINTS = new SpatialIndex.Locator<Point>() {
+        @Override
+        public String getId(Point point) {
+            return point.id;
+        }
+
+        @Override
+        public boolean getPosition(Point point, double[] result) {
+            if (Double.isNaN(point.lat)) {
+                return false;
+            }
+            result[0] = point.lat;
+            result[1] = point.lon;
+            return true;
+        }
+    };
+
+    public void testStops() throws Exception {
+        InputStream stream = getClass().getClassLoader()
+                .getResourceAsStream("api/where/stops-for-location.json");
+        ObaStopsForLocationResponse response = ObaApi
+                .getSerializer(ObaStopsForLocationResponse.class)
+                .deserialize(stream, ObaStopsForLocationResponse.class);
+        ObaStop[] stops = response.getStops();
+        SpatialIndex<ObaStop> index = SpatialIndex.forStops(250);
+        index.putAll(stops);
+        assertEquals(stops.length, index.size());
+        // Putting the same response again just refreshes the stops
+        index.putAll(stops);
+        assertEquals(stops.length, index.size());
+
+        ObaStop first = stops[0];
+        assertSame(first, index.get(first.getId()));
+        List<ObaStop> nearest = index.nearest(first.getLatitude(), first.getLongitude(), 5);
+        assertEquals(5, nearest.size());
+        assertSame(first, nearest.get(0));
+
+        // Compare with the ellipsoidal distance
+        float[] results = new float[1];
+        for (ObaStop stop : index.withinRadius(first.getLatitude(), first.getLongitude(), 400)) {
+            Location.distanceBetween(first.getLatitude(), first.getLongitude(),
+                    stop.getLatitude(), stop.getLongitude(), results);
+            assertTrue(results[0] <= 401);
+        }
+    }
+
+    public void testMatchesLinearScan() {
+        Random random = new Random(42);
+        SpatialIndex<Point> index = new SpatialIndex<Point>(POINTS, 300);
+        List<Point> points = new ArrayList<Point>();
+        for (int i = 0; i < 2000; i++) {
+            Point p = new Point(Integer.toString(i), 47.5 + random.nextDouble() * 0.2,
+                    -122.4 + random.nextDouble() * 0.3);
+            points.add(p);
+            index.put(p);
+        }
+
+        for (int q = 0; q < 50; q++) {
+            final double lat = 47.45 + random.nextDouble() * 0.3;
+            final double lon = -122.45 + random.nextDouble() * 0.4;
+
+            List<Point> expected = sortByDistance(points, lat, lon);
+            List<Point> nearest = index.nearest(lat, lon, 10);
+            assertEquals(expected.subList(0, 10), nearest);
+
+            List<Point> expectedRadius = new ArrayList<Point>();
+            for (Point p : expected) {
+                if (distance(lat, lon, p) <= 1000) {
+                    expectedRadius.add(p);
+                }
+            }
+            assertEquals(expectedRadius, index.withinRadius(lat, lon, 1000));
+            assertEquals(expectedRadius.subList(0, Math.min(3, expectedRadius.size())),
+                    index.nearest(lat, lon, 3, 1000));
+
+            HashSet<Point> expectedBox = new HashSet<Point>();
+            for (Point p : points) {
+                if (p.lat >= lat && p.lat <= lat + 0.02 && p.lon >= lon && p.lon <= lon + 0.03) {
+                    expectedBox.add(p);
+                }
+            }
+            assertEquals(expectedBox,
+                    new HashSet<Point>(index.withinBox(lat, lon, lat + 0.02, lon + 0.03)));
+        }
+    }
+
+    public void testUpdate() {
+        SpatialIndex<Point> index = new SpatialIndex<Point>(POINTS, 100);
+        index.put(new Point("bus", 47.6, -122.3));
+        index.put(new Point("stop", 47.6, -122.3));
+        assertEquals(2, index.nearest(47.6, -122.3, 10, 50).size());
+
+        // Moving the bus more than a cell away leaves just the stop at the old position
+        Point moved = new Point("bus", 47.61, -122.3);
+        index.put(moved);
+        assertEquals(2, index.size());
+        assertEquals(1, index.nearest(47.6, -122.3, 10, 50).size());
+        assertEquals(moved, index.nearest(47.61, -122.3, 1).get(0));
+
+        // Losing the position removes it
+        index.put(new Point("bus", Double.NaN, Double.NaN));
+        assertNull(index.get("bus"));
+        assertEquals(1, index.size());
+
+        assertNotNull(index.remove("stop"));
+        assertNull(index.remove("stop"));
+        assertEquals(0, index.size());
+        assertTrue(index.nearest(47.6, -122.3, 10).isEmpty());
+        assertTrue(index.withinBox(47, -123, 48, -122).isEmpty());
+    }
+
+    public void testRemoveOlderThan() throws Exception {
+        SpatialIndex<Point> index = new SpatialIndex<Point>(POINTS, 100);
+        index.put(new Point("old", 47.6, -122.3));
+        Thread.sleep(5);
+        long cutoff = System.currentTimeMillis();
+        Thread.sleep(5);
+        index.put(new Point("new", 47.6, -122.3));
+        assertEquals(1, index.removeOlderThan(cutoff));
+        assertNull(index.get("old"));
+        assertNotNull(index.get("new"));
+    }
+
+    private static double distance(double lat, double lon, Point p) {
+        final double dLat = p.lat - lat;
+        final double dLon = (p.lon - lon) * Math.cos(Math.toRadians(lat));
+        return Math.sqrt(dLat * dLat + dLon * dLon) * 6371008.8 * Math.PI / 180;
+    }
+
+    private static List<Point> sortByDistance(List<Point> points, final double lat,
+                                              final double lon) {
+        List<Point> sorted = new ArrayList<Point>(points);
+        Collections.sort(sorted, new Comparator<Point>() {
+            @Override
+            public int compare(Point a, Point b) {
+                return Double.compare(distance(lat, lon, a), distance(lat, lon, b));
+            }
+        });
+        return sorted;
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.test;
+
+import org.onebusaway.io.client.ObaApi;
+import org.onebusaway.io.client.ObaConnection;
+import org.onebusaway.io.client.ObaConnectionFactory;
+import org.onebusaway.io.client.ObaDefaultConnectionFactory;
+import org.onebusaway.io.client.mock.MockHttpServer;
+import org.onebusaway.io.client.request.ObaArrivalInfoResponse;
+import org.onebusaway.io.client.request.StopPoller;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests polling stops on behalf of their listeners
+ */
+public class StopPollerTest extends ObaTestCase {
+
+    private MockHttpServer mServer;
+
+    private StopPoller mPoller;
+
+    @Override
+    protected void setUp() {
+        super.setUp();
+        try {
+            mServer = new MockHttpServer();
+            ObaApi.getDefaultContext().setBaseUrl(mServer.getBaseUrl());
+            ObaApi.getDefaultContext().setConnectionFactory(
+                    ObaDefaultConnectionFactory.getInstance());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    protected void tearDown() {
+        if (mPoller != null) {
+            mPoller.shutdown();
+        }
+        mServer.stop();
+        super.tearDown();
+    }
+
+    public void testPollsOncePerInterval() throws InterruptedException {
+        mPoller = new StopPoller.Builder()
+                .setInterval(100, TimeUnit.MILLISECONDS)
+                .build();
+        List<RecordingListener> listeners = new ArrayList<RecordingListener>();
+        for (int i = 0; i < 3; i++) {
+            RecordingListener listener = new RecordingListener();
+            mPoller.subscribe("1_29261", listener);
+            listeners.add(listener);
+        }
+        assertEquals(1, mPoller.getStopCount());
+        assertEquals(3, mPoller.getListenerCount("1_29261"));
+
+        for (RecordingListener listener : listeners) {
+            ObaArrivalInfoResponse first = listener.next();
+            assertOK(first);
+            assertEquals("1_29261", first.getStop().getId());
+            assertOK(listener.next());
+        }
+        // Three listeners, but one request per poll
+        long polls = mPoller.getPollCount();
+        assertTrue(polls >= 2);
+        assertTrue(mServer.getRequestCount() <= polls + 1);
+    }
+
+    public void testStopsPollingWithoutListeners() throws InterruptedException {
+        mPoller = new StopPoller.Builder()
+                .setInterval(50, TimeUnit.MILLISECONDS)
+                .build();
+        RecordingListener first = new RecordingListener();
+        RecordingListener second = new RecordingListener();
+        mPoller.subscribe("1_75403", first);
+        mPoller.subscribe("1_75403", second);
+        first.next();
+
+        mPoller.unsubscribe("1_75403", first);
+        assertEquals(1, mPoller.getStopCount());
+        second.next();
+        second.next();
+
+        mPoller.unsubscribe("1_75403", second);
+        assertEquals(0, mPoller.getStopCount());
+        Thread.sleep(100);
+        int requests = mServer.getRequestCount();
+        Thread.sleep(200);
+        assertEquals(requests, mServer.getRequestCount());
+    }
+
+    public void testSameListenerTwice() throws InterruptedException {
+        mPoller = new StopPoller.Builder()
+                .setInterval(50, TimeUnit.MILLISECONDS)
+                .build();
+        RecordingListener listener = new RecordingListener();
+        mPoller.subscribe("1_75403", listener);
+        mPoller.subscribe("1_75403", listener);
+        assertEquals(2, mPoller.getListenerCount("1_75403"));
+        mPoller.unsubscribe("1_75403", listener);
+        assertEquals(1, mPoller.getStopCount());
+        mPoller.unsubscribe("1_75403", listener);
+        assertEquals(0, mPoller.getStopCount());
+    }
+
+    public void testNewListenerGetsLatest() throws InterruptedException {
+        mPoller = new StopPoller.Builder()
+                .setInterval(1, TimeUnit.HOURS)
+                .setJitter(0)
+                .build();
+        RecordingListener first = new RecordingListener();
+        mPoller.subscribe("1_10020", first);
+        ObaArrivalInfoResponse response = first.next();
+
+        RecordingListener second = new RecordingListener();
+        mPoller.subscribe("1_10020", second);
+        assertSame(response, second.next());
+        assertEquals(1, mServer.getRequestCount());
+    }
+
+    public void testJitterSpreadsPolls() throws InterruptedException {
+        mPoller = new StopPoller.Builder()
+                .setInterval(1, TimeUnit.SECONDS)
+                .setJitter(0.5)
+                .build();
+        RecordingListener listener = new RecordingListener();
+        for (int i = 0; i < 20; i++) {
+            mPoller.subscribe("1_" + i, listener);
+        }
+        List<Long> times = new ArrayList<Long>();
+        for (int i = 0; i < 20; i++) {
+            listener.next();
+            times.add(System.nanoTime());
+        }
+        // The first polls are spread over half the interval rather than all made at once
+        long spread = Collections.max(times) - Collections.min(times);
+        assertTrue(spread > TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    public void testSlowServerDoesNotHoldUpOtherStops() throws InterruptedException {
+        mServer.setDelay(200);
+        mPoller = new StopPoller.Builder()
+                .setInterval(1, TimeUnit.HOURS)
+                .setJitter(0)
+                .setThreads(1)
+                .build();
+        RecordingListener listener = new RecordingListener();
+        long start = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            mPoller.subscribe("1_" + i, listener);
+        }
+        for (int i = 0; i < 10; i++) {
+            listener.next();
+        }
+        // The requests run at the same time rather than one after another on the
+        // poller's thread, which would take 2 seconds
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(1500));
+    }
+
+    public void testSlowServerDoesNotStretchInterval() throws InterruptedException {
+        mServer.setDelay(100);
+        mPoller = new StopPoller.Builder()
+                .setInterval(300, TimeUnit.MILLISECONDS)
+                .setJitter(0)
+                .build();
+        RecordingListener listener = new RecordingListener();
+        mPoller.subscribe("1_29261", listener);
+        listener.next();
+        long first = System.nanoTime();
+        for (int i = 0; i < 3; i++) {
+            listener.next();
+        }
+        // Timed from the start of each poll, three intervals take 900ms rather than
+        // the 1200ms they'd take if each poll were timed from the end of the last
+        long elapsed = System.nanoTime() - first;
+        assertTrue(elapsed < TimeUnit.MILLISECONDS.toNanos(1100));
+    }
+
+    public void testPollsAfterFactoryThrows() throws InterruptedException {
+        final AtomicInteger connections = new AtomicInteger();
+        ObaApi.getDefaultContext().setConnectionFactory(new ObaConnectionFactory() {
+            @Override
+            public ObaConnection newConnection(URI uri) throws IOException {
+                if (connections.incrementAndGet() == 1) {
+                    throw new IllegalStateException("Broken factory");
+                }
+                return ObaDefaultConnectionFactory.getInstance().newConnection(uri);
+            }
+        });
+        mPoller = new StopPoller.Builder()
+                .setInterval(100, TimeUnit.MILLISECONDS)
+                .build();
+        RecordingListener listener = new RecordingListener();
+        mPoller.subscribe("1_29261", listener);
+        // The first poll failed without a response, but the stop is still polled
+        assertOK(listener.next());
+        assertTrue(connections.get() >= 2);
+    }
+
+    public void testMaxParallelism() throws InterruptedException {
+        mServer.setDelay(200);
+        mPoller = new StopPoller.Builder()
+                .setInterval(1, TimeUnit.HOURS)
+                .setJitter(0)
+                .setMaxParallelism(2)
+                .build();
+        RecordingListener listener = new RecordingListener();
+        long start = System.nanoTime();
+        for (int i = 0; i < 6; i++) {
+            mPoller.subscribe("1_" + i, listener);
+        }
+        for (int i = 0; i < 6; i++) {
+            listener.next();
+        }
+        // Two at a time, so the six polls take three rounds of 200ms
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(550));
+        assertEquals(6, mServer.getRequestCount());
+    }
+
+    public void testListenerThrows() throws InterruptedException {
+        mPoller = new StopPoller.Builder()
+                .setInterval(50, TimeUnit.MILLISECONDS)
+                .build();
+        mPoller.subscribe("1_29261", new StopPoller.Listener() {
+            @Override
+            public void onArrivalInfo(String stopId, ObaArrivalInfoResponse response) {
+                throw new IllegalStateException("Broken listener");
+            }
+        });
+        RecordingListener listener = new RecordingListener();
+        mPoller.subscribe("1_29261", listener);
+        assertOK(listener.next());
+        assertOK(listener.next());
+    }
+
+    private static class RecordingListener implements StopPoller.Listener {
+
+        final BlockingQueue<ObaArrivalInfoResponse> responses =
+                new LinkedBlockingQueue<ObaArrivalInfoResponse>();
+
+        ObaArrivalInfoResponse next() throws InterruptedException {
+            ObaArrivalInfoResponse response = responses.poll(5, TimeUnit.SECONDS);
+            assertNotNull("Timed out waiting for a response", response);
+            return response;
+        }
+
+        @Override
+        public void onArrivalInfo(String stopId, ObaArrivalInfoResponse response) {
+            responses.add(response);
+        }
+    }
+}
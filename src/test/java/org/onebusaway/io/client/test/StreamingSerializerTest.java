@@ -0,0 +1,233 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.test;
+
+import org.onebusaway.io.client.JacksonSerializer;
+import org.onebusaway.io.client.ObaApi;
+import org.onebusaway.io.client.StreamingSerializer;
+import org.onebusaway.io.client.elements.ObaShape;
+import org.onebusaway.io.client.elements.ObaSituation;
+import org.onebusaway.io.client.request.ObaArrivalInfoResponse;
+import org.onebusaway.io.client.request.ObaCurrentTimeResponse;
+import org.onebusaway.io.client.request.ObaResponse;
+import org.onebusaway.io.client.request.ObaRouteResponse;
+import org.onebusaway.io.client.request.ObaStopResponse;
+import org.onebusaway.io.client.request.ObaStopsForLocationResponse;
+import org.onebusaway.io.client.request.ObaTripDetailsResponse;
+import org.onebusaway.io.client.request.ObaTripsForRouteResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.Charset;
+
+/**
+ * Tests that the hand-written readers give the same responses as JacksonSerializer
+ */
+public class StreamingSerializerTest extends ObaTestCase {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final String[] ARRIVALS = {
+            "/api/api/where/arrivals-and-departures-for-stop/1_10020.json",
+            "/api/api/where/arrivals-and-departures-for-stop/1_29261.json",
+            "/api/api/where/arrivals-and-departures-for-stop/1_75403.json",
+            "/api/api/where/arrivals-and-departures-for-stop/Hillsborough Area Regional Transit_10000.json",
+            "/api/api/where/arrivals-and-departures-for-stop/Hillsborough Area Regional Transit_10001.json",
+            "/api/api/where/arrivals-and-departures-for-stop/Hillsborough Area Regional Transit_1622.json",
+            "/api/api/where/arrivals-and-departures-for-stop/Hillsborough Area Regional Transit_3105.json",
+            "/api/api/where/arrivals-and-departures-for-stop/Hillsborough Area Regional Transit_6497.json",
+            "/api/api/where/arrivals-and-departures-for-stop/PSTA_4077.json",
+            "/api/where/arrivals-and-departures-for-stop/1_10020.json",
+            "/api/where/arrivals-and-departures-for-stop/1_29261.json",
+            "/api/where/arrivals-and-departures-for-stop/1_75403.json"
+    };
+
+    private static final String[] TRIP_DETAILS = {
+            "/api/where/trip-details/1_18196913.json",
+            "/api/where/trip-details/1_18196913_no_schedule.json",
+            "/api/where/trip-details/1_18196913_no_status.json",
+            "/api/where/trip-details/1_18196913_no_trip.json"
+    };
+
+    public void testDefaultSerializer() {
+        assertSame(StreamingSerializer.getInstance(),
+                ObaApi.getSerializer(ObaArrivalInfoResponse.class));
+        assertSame(StreamingSerializer.getInstance(),
+                ObaApi.getSerializer(ObaTripsForRouteResponse.class));
+        assertSame(JacksonSerializer.getInstance(),
+                ObaApi.getSerializer(ObaStopsForLocationResponse.class));
+    }
+
+    public void testFixtures() throws Exception {
+        for (String path : ARRIVALS) {
+            assertFixture(path, ObaArrivalInfoResponse.class);
+        }
+        for (String path : TRIP_DETAILS) {
+            assertFixture(path, ObaTripDetailsResponse.class);
+        }
+        assertFixture("/api/api/where/trips-for-route/Hillsborough Area Regional Transit_5.json",
+                ObaTripsForRouteResponse.class);
+        assertFixture("/api/api/where/route/Hillsborough Area Regional Transit_5.json",
+                ObaRouteResponse.class);
+        assertFixture("/api/where/route/1_10.json", ObaRouteResponse.class);
+        assertFixture("/api/where/stop/1_29261.json", ObaStopResponse.class);
+        assertFixture("/api/where/stop/404test.json", ObaStopResponse.class);
+        // Passed on to JacksonSerializer
+        assertFixture("/api/where/current-time.json", ObaCurrentTimeResponse.class);
+        assertFixture("/api/where/stops-for-location.json", ObaStopsForLocationResponse.class);
+    }
+
+    public void testSituations() throws Exception {
+        String json = "{\"code\":200,\"version\":2,\"data\":{\"entry\":{\"stopId\":\"1_1\","
+                + "\"arrivalsAndDepartures\":[],\"situationIds\":[\"1_s\"]},"
+                + "\"references\":{\"situations\":[{\"id\":\"1_s\",\"creationTime\":5,"
+                + "\"summary\":{\"value\":\"Detour\",\"lang\":\"en\"},\"advice\":null,"
+                + "\"allAffects\":[{\"stopId\":\"1_1\",\"routeId\":\"1_44\"}],"
+                + "\"consequences\":[{\"condition\":\"diversion\",\"conditionDetails\":"
+                + "{\"diversionStopIds\":[\"1_2\"],\"diversionPath\":"
+                + "{\"points\":\"_p~iF~ps|U_ulLnnqC\",\"length\":2}}}]}]}}}";
+        ObaArrivalInfoResponse response = assertJson(json, ObaArrivalInfoResponse.class);
+        ObaSituation situation = response.getSituations().get(0);
+        assertEquals("Detour", situation.getSummary());
+        assertNull(situation.getAdvice());
+        assertEquals("1_44", situation.getAllAffects()[0].getRouteId());
+        ObaShape shape = situation.getConsequences()[0].getDetails().getDiversionPath();
+        assertEquals(2, shape.getPoints().size());
+    }
+
+    public void testNullsAndCoercions() throws Exception {
+        // Nulls, numbers as strings, and unknown fields at every level
+        String json = "{\"code\":\"200\",\"text\":null,\"extra\":{\"a\":[1,{}]},"
+                + "\"data\":{\"references\":{\"stops\":[null,{\"id\":\"1_1\",\"lat\":\"47.5\","
+                + "\"routeIds\":null,\"unknown\":[[]]}],\"routes\":null},"
+                + "\"entry\":{\"stopId\":null,\"nearbyStopIds\":[\"1_1\",null],"
+                + "\"arrivalsAndDepartures\":[{\"predicted\":null,\"distanceFromStop\":12,"
+                + "\"numberOfStopsAway\":\"3\",\"arrivalEnabled\":false,\"frequency\":null,"
+                + "\"tripStatus\":{\"position\":{\"lat\":1.5,\"lon\":-2},\"lastUpdateTime\":7,"
+                + "\"orientation\":null}}]}}}";
+        assertJson(json, ObaArrivalInfoResponse.class);
+        assertJson("{\"code\":404,\"text\":\"resource not found\",\"data\":null}",
+                ObaStopResponse.class);
+        assertJson("{\"data\":{\"list\":[{\"tripId\":\"1\",\"schedule\":{\"stopTimes\":null}}],"
+                + "\"limitExceeded\":1}}", ObaTripsForRouteResponse.class);
+    }
+
+    public void testErrors() throws Exception {
+        String[] bodies = {"", "null", "[]", "{\"code\":", "{\"code\":{}}", "{\"code\":2.0}",
+                "{\"data\":{\"entry\":{\"stopId\":[]}}}"};
+        for (String body : bodies) {
+            ObaStopResponse expected =
+                    JacksonSerializer.getInstance().deserialize(new StringReader(body),
+                            ObaStopResponse.class);
+            ObaStopResponse actual =
+                    StreamingSerializer.getInstance().deserialize(new StringReader(body),
+                            ObaStopResponse.class);
+            assertNotNull(body, actual);
+            assertEquals(body, expected.getCode(), actual.getCode());
+        }
+        assertDeepEquals("error",
+                JacksonSerializer.getInstance().createFromError(ObaTripDetailsResponse.class,
+                        ObaApi.OBA_NOT_FOUND, "Not \"found\""),
+                StreamingSerializer.getInstance().createFromError(ObaTripDetailsResponse.class,
+                        ObaApi.OBA_NOT_FOUND, "Not \"found\""));
+    }
+
+    private static <T extends ObaResponse> T assertFixture(String path, Class<T> cls)
+            throws Exception {
+        InputStream in = StreamingSerializerTest.class.getResourceAsStream(path);
+        assertNotNull(path, in);
+        byte[] bytes;
+        try {
+            bytes = readAll(in);
+        } finally {
+            in.close();
+        }
+        T expected = JacksonSerializer.getInstance().deserialize(
+                new InputStreamReader(new ByteArrayInputStream(bytes), UTF8), cls);
+        T actual = StreamingSerializer.getInstance().deserialize(
+                new InputStreamReader(new ByteArrayInputStream(bytes), UTF8), cls);
+        assertDeepEquals(path, expected, actual);
+        // The streams are read without decoding them first
+        assertDeepEquals(path, expected,
+                StreamingSerializer.getInstance().deserialize(new ByteArrayInputStream(bytes), cls));
+        return actual;
+    }
+
+    private static <T extends ObaResponse> T assertJson(String json, Class<T> cls) {
+        T expected = JacksonSerializer.getInstance().deserialize(new StringReader(json), cls);
+        T actual = StreamingSerializer.getInstance().deserialize(new StringReader(json), cls);
+        // Make sure JacksonSerializer read it, rather than returning an error
+        assertTrue(json, expected.getCode() != ObaApi.OBA_INTERNAL_ERROR);
+        assertDeepEquals(json, expected, actual);
+        return actual;
+    }
+
+    private static byte[] readAll(InputStream in) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Compares two objects field by field, skipping the transient fields
+     * that the elements build on first use.
+     */
+    private static void assertDeepEquals(String path, Object expected, Object actual) {
+        if (expected == null || actual == null) {
+            assertSame(path, expected, actual);
+            return;
+        }
+        Class<?> cls = expected.getClass();
+        assertEquals(path, cls, actual.getClass());
+        if (cls.isArray()) {
+            int length = Array.getLength(expected);
+            assertEquals(path + ".length", length, Array.getLength(actual));
+            for (int i = 0; i < length; i++) {
+                assertDeepEquals(path + "[" + i + "]", Array.get(expected, i), Array.get(actual, i));
+            }
+            return;
+        }
+        if (cls.getName().startsWith("java.")) {
+            assertEquals(path, expected, actual);
+            return;
+        }
+        for (Class<?> c = cls; c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)) {
+                    continue;
+                }
+                field.setAccessible(true);
+                try {
+                    assertDeepEquals(path + "." + field.getName(),
+                            field.get(expected), field.get(actual));
+                } catch (IllegalAccessException e) {
+                    throw new AssertionError(e);
+                }
+            }
+        }
+    }
+}
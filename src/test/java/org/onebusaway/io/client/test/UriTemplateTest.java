@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.test;
+
+import org.apache.http.NameValuePair;
+import org.apache.http.client.utils.URLEncodedUtils;
+import org.onebusaway.io.client.ObaContext;
+import org.onebusaway.io.client.elements.ObaRegion;
+import org.onebusaway.io.client.elements.ObaRegionElement;
+import org.onebusaway.io.client.mock.MockRegion;
+import org.onebusaway.io.client.request.ObaReportProblemWithStopRequest;
+import org.onebusaway.io.client.request.ObaStopRequest;
+import org.onebusaway.io.client.util.PercentEncoder;
+import org.onebusaway.io.client.util.QueryBuilder;
+import org.onebusaway.io.client.util.UriTemplate;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Tests building request URIs from compiled templates
+ */
+public class UriTemplateTest extends ObaTestCase {
+
+    private static final String CHARS = "aZ09-._*~ +/%&=?#:@'(){}\"ü€中";
+
+    public void testEncoderMatchesURLEncoder() throws Exception {
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder builder = new StringBuilder();
+            int length = random.nextInt(12);
+            for (int j = 0; j < length; j++) {
+                if (random.nextInt(10) == 0) {
+                    // A character outside the BMP, as a surrogate pair
+                    builder.appendCodePoint(0x1F600 + random.nextInt(50));
+                } else {
+                    builder.append(CHARS.charAt(random.nextInt(CHARS.length())));
+                }
+            }
+            String s = builder.toString();
+            String expected = URLEncoder.encode(s, "UTF-8").replace("%7E", "~");
+            assertEquals(expected, PercentEncoder.encodeQueryComponent(s));
+            assertEquals(expected.replace("+", "%20"), PercentEncoder.encodePathSegment(s));
+        }
+    }
+
+    public void testEncoderReturnsUnchangedString() {
+        String id = "1_75403";
+        assertSame(id, PercentEncoder.encodePathSegment(id));
+        assertSame(id, PercentEncoder.encodeQueryComponent(id));
+    }
+
+    public void testCompile() {
+        QueryBuilder query = new QueryBuilder().queryParam("minutesAfter", 60);
+        assertEquals(URI.create("http://api.pugetsound.onebusaway.org/api/where/stop/1_1.json"
+                        + "?minutesAfter=60&version=2&key=TEST"),
+                UriTemplate.compile("api.pugetsound.onebusaway.org", "TEST", 0, null)
+                        .expand("api/where/stop/1_1.json", query));
+        assertEquals(URI.create("https://example.com:8080/oba/api/where/current-time.json"
+                        + "?app_ver=5&app_uid=a+b&version=2&key=k%3D%2F"),
+                UriTemplate.compile("https://example.com:8080/oba", "k=/", 5, "a b")
+                        .expand("/api/where/current-time.json", new QueryBuilder()));
+        assertEquals(URI.create("http://localhost:8080/api/api/where/current-time.json"
+                        + "?version=2"),
+                UriTemplate.compile("localhost:8080/api/", null, 0, null)
+                        .expand("api/where/current-time.json", null));
+    }
+
+    public void testContextRecompilesOnChange() throws Exception {
+        ObaContext context = new ObaContext();
+        context.setBaseUrl("http://example.com/");
+        UriTemplate template = context.getUriTemplate();
+        assertSame(template, context.getUriTemplate());
+
+        context.setApiKey("other");
+        assertNotSame(template, context.getUriTemplate());
+        assertEquals("http://example.com/a.json?version=2&key=other",
+                context.getUriTemplate().expand("a.json", null).toString());
+
+        context.setBaseUrl("http://example.org/oba");
+        assertEquals("http://example.org/oba/a.json?version=2&key=other",
+                context.getUriTemplate().expand("a.json", null).toString());
+
+        context.setRegion(MockRegion.getTampa());
+        assertEquals(URI.create(MockRegion.getTampa().getObaBaseUrl()).getHost(),
+                context.getUriTemplate().expand("a.json", null).getHost());
+    }
+
+    public void testContextChangedWhileCompiling() throws Exception {
+        final ObaContext context = new ObaContext();
+        context.setApiKey("key");
+        final CountDownLatch compiling = new CountDownLatch(1);
+        // Holds up the compile until the region has been replaced under it
+        ObaRegion slow = new ObaRegionElement(1, "Slow", true, "http://slow.example.org/",
+                null, null, "", "", true, true, false, "", false, "") {
+            @Override
+            public String getObaBaseUrl() {
+                compiling.countDown();
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.getObaBaseUrl();
+            }
+        };
+        ObaRegion tampa = MockRegion.getTampa();
+        context.setRegion(slow);
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                context.getUriTemplate();
+            }
+        });
+        reader.start();
+        compiling.await();
+        context.setRegion(tampa);
+        reader.join();
+        assertEquals(tampa.getObaBaseUrl() + "a.json?version=2&key=key",
+                context.getUriTemplate().expand("a.json", null).toString());
+    }
+
+    public void testIdWithSlash() throws Exception {
+        ObaStopRequest request = ObaStopRequest.newRequest("a/b c");
+        UriAssert.assertUriMatch(DEFAULT_BASE_URL + "api/where/stop/a%2Fb%20c.json",
+                null, request);
+    }
+
+    public void testPostDataWithBraces() {
+        // UriBuilder took the braces in the data parameter to be a template
+        String postData = new ObaReportProblemWithStopRequest.Builder("1_75403")
+                .setCode(ObaReportProblemWithStopRequest.NAME_WRONG)
+                .setUserComment("Sign says {Main} & 1st")
+                .buildPostData();
+        List<NameValuePair> params = URLEncodedUtils.parse(postData, Charset.forName("UTF-8"));
+        assertEquals(4, params.size());
+        assertEquals("stopId", params.get(0).getName());
+        assertEquals("1_75403", params.get(0).getValue());
+        assertEquals("{\"code\":\"" + ObaReportProblemWithStopRequest.NAME_WRONG + "\"}",
+                params.get(2).getValue());
+        assertEquals("Sign says {Main} & 1st", params.get(3).getValue());
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.test;
+
+import org.onebusaway.io.client.ObaApi;
+import org.onebusaway.io.client.ObaCachingConnectionFactory;
+import org.onebusaway.io.client.ObaConnectionFactory;
+import org.onebusaway.io.client.ObaDefaultConnectionFactory;
+import org.onebusaway.io.client.ObaPooledConnectionFactory;
+import org.onebusaway.io.client.mock.MockHttpServer;
+import org.onebusaway.io.client.request.ObaRouteRequest;
+import org.onebusaway.io.client.request.ObaRouteResponse;
+import org.onebusaway.io.client.request.ObaStopsForLocationRequest;
+import org.onebusaway.io.client.request.ObaStopsForLocationResponse;
+import org.onebusaway.io.client.request.ValidatorCache;
+import org.onebusaway.io.client.util.LocationUtil;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests revalidating responses with conditional GETs
+ */
+public class ValidatorCacheTest extends ObaTestCase {
+
+    private MockHttpServer mServer;
+
+    private ObaPooledConnectionFactory mPooled;
+
+    private ValidatorCache mCache;
+
+    @Override
+    protected void setUp() {
+        super.setUp();
+        try {
+            mServer = new MockHttpServer();
+            ObaApi.getDefaultContext().setBaseUrl(mServer.getBaseUrl());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        mServer.setValidators(true, true);
+        mPooled = new ObaPooledConnectionFactory.Builder().build();
+        mCache = new ValidatorCache();
+        ObaApi.getDefaultContext().setValidatorCache(mCache);
+    }
+
+    @Override
+    protected void tearDown() {
+        ObaApi.getDefaultContext().setValidatorCache(null);
+        ObaApi.getDefaultContext().setConnectionFactory(ObaDefaultConnectionFactory.getInstance());
+        mPooled.shutdown();
+        mServer.stop();
+        super.tearDown();
+    }
+
+    public void testDefaultConnection() {
+        assertRevalidated(ObaDefaultConnectionFactory.getInstance());
+    }
+
+    public void testPooledConnection() {
+        assertRevalidated(mPooled);
+    }
+
+    public void testLastModifiedOnly() {
+        mServer.setValidators(false, true);
+        assertRevalidated(mPooled);
+    }
+
+    public void testCachingConnection() {
+        ObaCachingConnectionFactory caching = new ObaCachingConnectionFactory.Builder(mPooled)
+                .setTtl("route", 1, TimeUnit.MINUTES)
+                .build();
+        ObaApi.getDefaultContext().setConnectionFactory(caching);
+
+        ObaRouteResponse first = ObaRouteRequest.newRequest("1_10").call();
+        assertOK(first);
+        // Answered with a 304 by the caching connection, without going to the server
+        ObaRouteResponse second = ObaRouteRequest.newRequest("1_10").call();
+        assertSame(first, second);
+        assertEquals(1, mServer.getRequestCount());
+        assertEquals(1, caching.getHitCount());
+        assertEquals(1, mCache.getNotModifiedCount());
+
+        // Once the cached response is gone, the server revalidates it
+        caching.clear();
+        ObaRouteResponse third = ObaRouteRequest.newRequest("1_10").call();
+        assertSame(first, third);
+        assertEquals(2, mServer.getRequestCount());
+        assertEquals(1, mServer.getNotModifiedCount());
+        assertEquals(2, mCache.getNotModifiedCount());
+    }
+
+    public void testOtherEndpointsNotRevalidated() {
+        ObaApi.getDefaultContext().setConnectionFactory(mPooled);
+        for (int i = 0; i < 2; i++) {
+            ObaStopsForLocationResponse response = new ObaStopsForLocationRequest.Builder(
+                    LocationUtil.makeLocation(47.6, -122.3)).build().call();
+            assertOK(response);
+        }
+        assertEquals(0, mServer.getNotModifiedCount());
+        assertEquals(0, mCache.getRevalidationCount());
+        assertEquals(0, mCache.size());
+    }
+
+    public void testNoValidators() {
+        ObaApi.getDefaultContext().setConnectionFactory(mPooled);
+        mServer.setValidators(false, false);
+        ObaRouteResponse first = ObaRouteRequest.newRequest("1_10").call();
+        ObaRouteResponse second = ObaRouteRequest.newRequest("1_10").call();
+        assertOK(first);
+        assertOK(second);
+        assertNotSame(first, second);
+        assertEquals(0, mCache.size());
+    }
+
+    public void testErrorNotCached() {
+        ObaApi.getDefaultContext().setConnectionFactory(mPooled);
+        ObaRouteResponse response = ObaRouteRequest.newRequest("1_does_not_exist").call();
+        assertEquals(ObaApi.OBA_NOT_FOUND, response.getCode());
+        assertEquals(0, mCache.size());
+    }
+
+    private void assertRevalidated(ObaConnectionFactory factory) {
+        ObaApi.getDefaultContext().setConnectionFactory(factory);
+
+        ObaRouteResponse first = ObaRouteRequest.newRequest("1_10").call();
+        assertOK(first);
+        assertEquals("10", first.getShortName());
+        assertEquals(1, mCache.size());
+        assertEquals(0, mCache.getRevalidationCount());
+
+        ObaRouteResponse second = ObaRouteRequest.newRequest("1_10").call();
+        assertSame(first, second);
+        assertEquals(2, mServer.getRequestCount());
+        assertEquals(1, mServer.getNotModifiedCount());
+        assertEquals(1, mCache.getRevalidationCount());
+        assertEquals(1, mCache.getNotModifiedCount());
+    }
+}
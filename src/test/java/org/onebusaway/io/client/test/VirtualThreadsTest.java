@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2016 individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.io.client.test;
+
+import org.onebusaway.io.client.ObaApi;
+import org.onebusaway.io.client.ObaDefaultConnectionFactory;
+import org.onebusaway.io.client.mock.MockHttpServer;
+import org.onebusaway.io.client.request.ObaCurrentTimeRequest;
+import org.onebusaway.io.client.request.ObaCurrentTimeResponse;
+import org.onebusaway.io.client.util.RegionUtils;
+import org.onebusaway.io.client.util.VirtualThreads;
+
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests running requests on virtual threads
+ */
+public class VirtualThreadsTest extends ObaTestCase {
+
+    private MockHttpServer mServer;
+
+    private ExecutorService mExecutor;
+
+    @Override
+    protected void setUp() {
+        super.setUp();
+        try {
+            mServer = new MockHttpServer();
+            ObaApi.getDefaultContext().setBaseUrl(mServer.getBaseUrl());
+            ObaApi.getDefaultContext().setConnectionFactory(
+                    ObaDefaultConnectionFactory.getInstance());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    protected void tearDown() {
+        ObaApi.getDefaultContext().setExecutor(null);
+        if (mExecutor != null) {
+            mExecutor.shutdownNow();
+        }
+        mServer.stop();
+        super.tearDown();
+    }
+
+    public void testSupported() {
+        String version = System.getProperty("java.specification.version");
+        boolean java21 = !version.startsWith("1.") && Integer.parseInt(version) >= 21;
+        assertEquals(java21, VirtualThreads.isSupported());
+    }
+
+    public void testUnsupported() {
+        if (VirtualThreads.isSupported()) {
+            return;
+        }
+        try {
+            VirtualThreads.newExecutor();
+            fail("Expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // Expected
+        }
+        assertFalse(VirtualThreads.isVirtual(Thread.currentThread()));
+    }
+
+    public void testRunsOnVirtualThreads() throws Exception {
+        if (!VirtualThreads.isSupported()) {
+            return;
+        }
+        mExecutor = VirtualThreads.newExecutor();
+        Future<Thread> thread = mExecutor.submit(new Callable<Thread>() {
+            @Override
+            public Thread call() {
+                return Thread.currentThread();
+            }
+        });
+        assertTrue(VirtualThreads.isVirtual(thread.get()));
+        assertTrue(thread.get().getName().startsWith("ObaRequest-virtual-"));
+    }
+
+    public void testConcurrentRequests() throws Exception {
+        if (!VirtualThreads.isSupported()) {
+            return;
+        }
+        mExecutor = VirtualThreads.newExecutor();
+        ObaApi.getDefaultContext().setExecutor(mExecutor);
+        mServer.setDelay(200);
+
+        long start = System.nanoTime();
+        List<Future<ObaCurrentTimeResponse>> futures =
+                new ArrayList<Future<ObaCurrentTimeResponse>>();
+        for (int i = 0; i < 50; i++) {
+            futures.add(ObaCurrentTimeRequest.newRequest().callAsync());
+        }
+        for (Future<ObaCurrentTimeResponse> future : futures) {
+            assertOK(future.get(10, TimeUnit.SECONDS));
+        }
+        // The requests wait on the server together rather than one after another
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        assertEquals(50, mServer.getRequestCount());
+    }
+
+    public void testRegionsNotSynchronized() throws NoSuchMethodException {
+        // A virtual thread blocked on the network inside synchronized would pin its carrier
+        assertFalse(Modifier.isSynchronized(RegionUtils.class
+                .getMethod("getRegions", boolean.class).getModifiers()));
+        assertFalse(Modifier.isSynchronized(RegionUtils.class
+                .getMethod("saveToProvider", List.class).getModifiers()));
+    }
+}